@@ -35,6 +35,13 @@ import androidx.annotation.RequiresApi;
 import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageProxy;
 import androidx.exifinterface.media.ExifInterface;
+import com.google.mlkit.vision.demo.runtime.ProcessingRuntime;
+import com.google.mlkit.vision.demo.yuv.ParallelYuvConverter;
+import com.google.mlkit.vision.demo.yuv.YuvConverter;
+import com.google.mlkit.vision.demo.yuv.FrameRegion;
+import com.google.mlkit.vision.demo.yuv.YuvCropper;
+import com.google.mlkit.vision.demo.yuv.YuvFrame;
+import com.google.mlkit.vision.demo.yuv.YuvPlanes;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -43,12 +50,16 @@ import java.nio.ByteBuffer;
 /** Utils functions for bitmap conversions. */
 public class BitmapUtils {
   private static final String TAG = "BitmapUtils";
+  private static final int MAX_DOWNSCALE_THREADS = 2;
+
+  // Shared by every caller that converts frames at reduced size, created on first use.
+  @Nullable private static ParallelYuvConverter downscaler;
 
   /** Converts NV21 format byte buffer to bitmap. */
   @Nullable
   public static Bitmap getBitmap(ByteBuffer data, FrameMetadata metadata) {
     data.rewind();
-    byte[] imageInBuffer = new byte[data.limit()];
+    byte[] imageInBuffer = FrameBufferPool.getInstance().acquireByteArray(data.limit());
     data.get(imageInBuffer, 0, imageInBuffer.length);
     try {
       YuvImage image =
@@ -56,6 +67,7 @@ public class BitmapUtils {
               imageInBuffer, ImageFormat.NV21, metadata.getWidth(), metadata.getHeight(), null);
       ByteArrayOutputStream stream = new ByteArrayOutputStream();
       image.compressToJpeg(new Rect(0, 0, metadata.getWidth(), metadata.getHeight()), 80, stream);
+      FrameBufferPool.getInstance().releaseByteArray(imageInBuffer);
 
       Bitmap bmp = BitmapFactory.decodeByteArray(stream.toByteArray(), 0, stream.size());
 
@@ -81,7 +93,199 @@ public class BitmapUtils {
 
     ByteBuffer nv21Buffer =
         yuv420ThreePlanesToNV21(image.getImage().getPlanes(), image.getWidth(), image.getHeight());
-    return getBitmap(nv21Buffer, frameMetadata);
+    Bitmap bitmap = getBitmap(nv21Buffer, frameMetadata);
+    FrameBufferPool.getInstance().releaseByteArray(nv21Buffer.array());
+    return bitmap;
+  }
+
+  /**
+   * Converts NV21 format byte buffer to an upright bitmap directly, without the JPEG round trip of
+   * {@link #getBitmap(ByteBuffer, FrameMetadata)}.
+   *
+   * <p>The bitmap comes from {@link FrameBufferPool}, and can be released to it once it is no
+   * longer drawn.
+   */
+  public static Bitmap getBitmapDirect(ByteBuffer data, FrameMetadata metadata) {
+    int rotation = metadata.getRotation();
+    Bitmap bitmap =
+        FrameBufferPool.getInstance()
+            .acquireBitmap(
+                YuvConverter.getRotatedWidth(metadata.getWidth(), metadata.getHeight(), rotation),
+                YuvConverter.getRotatedHeight(metadata.getWidth(), metadata.getHeight(), rotation));
+    convertNv21ToBitmap(data, metadata, bitmap);
+    return bitmap;
+  }
+
+  /**
+   * Converts NV21 format byte buffer to an upright bitmap that is only as large as needed to fill a
+   * {@code viewWidth} x {@code viewHeight} view when center cropped into it.
+   *
+   * <p>Each output pixel averages the frame pixels under it while converting, so no full size
+   * bitmap is produced and scaled afterwards. Falls back to {@link #getBitmapDirect(ByteBuffer,
+   * FrameMetadata)} when the view is not smaller than the frame, or not laid out yet.
+   */
+  public static Bitmap getBitmapDirect(
+      ByteBuffer data, FrameMetadata metadata, int viewWidth, int viewHeight) {
+    int width = metadata.getWidth();
+    int height = metadata.getHeight();
+    int rotation = metadata.getRotation();
+    int rotatedWidth = YuvConverter.getRotatedWidth(width, height, rotation);
+    int rotatedHeight = YuvConverter.getRotatedHeight(width, height, rotation);
+    float scale = getFillScale(rotatedWidth, rotatedHeight, viewWidth, viewHeight);
+    int outWidth = Math.max(1, Math.round(rotatedWidth * scale));
+    int outHeight = Math.max(1, Math.round(rotatedHeight * scale));
+    if (outWidth >= rotatedWidth && outHeight >= rotatedHeight) {
+      return getBitmapDirect(data, metadata);
+    }
+
+    FrameBufferPool pool = FrameBufferPool.getInstance();
+    byte[] nv21;
+    byte[] copy = null;
+    if (data.hasArray() && data.arrayOffset() == 0) {
+      nv21 = data.array();
+    } else {
+      data.rewind();
+      copy = pool.acquireByteArray(data.limit());
+      data.get(copy);
+      nv21 = copy;
+    }
+    int[] argb = pool.acquireIntArray(outWidth * outHeight);
+    getDownscaler()
+        .convert(
+            YuvFrame.nv21(nv21, width, height),
+            rotation,
+            outWidth,
+            outHeight,
+            ParallelYuvConverter.Sampling.AREA,
+            argb);
+    Bitmap bitmap = pool.acquireBitmap(outWidth, outHeight);
+    bitmap.setPixels(argb, 0, outWidth, 0, 0, outWidth, outHeight);
+    pool.releaseIntArray(argb);
+    pool.releaseByteArray(copy);
+    return bitmap;
+  }
+
+  /** Converts a YUV_420_888 image from CameraX API to a bitmap without the JPEG round trip. */
+  @RequiresApi(VERSION_CODES.KITKAT)
+  @ExperimentalGetImage
+  public static Bitmap getBitmapDirect(ImageProxy image) {
+    return getBitmapDirect(image, /* viewWidth= */ 0, /* viewHeight= */ 0);
+  }
+
+  /**
+   * Converts a YUV_420_888 image from CameraX API to a bitmap sized for a {@code viewWidth} x
+   * {@code viewHeight} view, see {@link #getBitmapDirect(ByteBuffer, FrameMetadata, int, int)}.
+   */
+  @RequiresApi(VERSION_CODES.KITKAT)
+  @ExperimentalGetImage
+  public static Bitmap getBitmapDirect(ImageProxy image, int viewWidth, int viewHeight) {
+    FrameMetadata frameMetadata =
+        new FrameMetadata.Builder()
+            .setWidth(image.getWidth())
+            .setHeight(image.getHeight())
+            .setRotation(image.getImageInfo().getRotationDegrees())
+            .build();
+
+    ByteBuffer nv21Buffer =
+        yuv420ThreePlanesToNV21(image.getImage().getPlanes(), image.getWidth(), image.getHeight());
+    Bitmap bitmap = getBitmapDirect(nv21Buffer, frameMetadata, viewWidth, viewHeight);
+    FrameBufferPool.getInstance().releaseByteArray(nv21Buffer.array());
+    return bitmap;
+  }
+
+  /**
+   * Copies a YUV_420_888 image from CameraX API into an NV21 buffer. The backing array comes from
+   * {@link FrameBufferPool}, and should be released to it once the buffer is no longer used.
+   */
+  @RequiresApi(VERSION_CODES.KITKAT)
+  @ExperimentalGetImage
+  public static ByteBuffer getNv21(ImageProxy image) {
+    return yuv420ThreePlanesToNV21(
+        image.getImage().getPlanes(), image.getWidth(), image.getHeight());
+  }
+
+  /**
+   * Crops a region out of an NV21 frame into a new NV21 image, see {@link YuvCropper}. The array
+   * comes from {@link FrameBufferPool}, and should be released to it once the image is no longer
+   * used.
+   */
+  public static byte[] cropNv21(ByteBuffer data, int width, int height, FrameRegion region) {
+    FrameBufferPool pool = FrameBufferPool.getInstance();
+    byte[] nv21;
+    byte[] copy = null;
+    if (data.hasArray() && data.arrayOffset() == 0) {
+      nv21 = data.array();
+    } else {
+      data.rewind();
+      copy = pool.acquireByteArray(data.limit());
+      data.get(copy);
+      nv21 = copy;
+    }
+    byte[] cropped = pool.acquireByteArray(YuvCropper.getNv21Size(region));
+    YuvCropper.cropToNv21(YuvFrame.nv21(nv21, width, height), region, cropped);
+    pool.releaseByteArray(copy);
+    return cropped;
+  }
+
+  /**
+   * Returns the scale, at most 1, at which an image still covers the view when center cropped into
+   * it, or 1 when the view has no size yet.
+   */
+  private static float getFillScale(
+      int imageWidth, int imageHeight, int viewWidth, int viewHeight) {
+    if (viewWidth <= 0 || viewHeight <= 0) {
+      return 1f;
+    }
+    return Math.min(
+        1f, Math.max((float) viewWidth / imageWidth, (float) viewHeight / imageHeight));
+  }
+
+  private static synchronized ParallelYuvConverter getDownscaler() {
+    if (downscaler == null) {
+      // Converts one stripe on the caller, and the others on the shared conversion lane.
+      ProcessingRuntime.Lane lane = ProcessingRuntime.Lane.CONVERSION;
+      downscaler =
+          new ParallelYuvConverter(
+              Math.min(MAX_DOWNSCALE_THREADS, lane.getMaxThreads() + 1),
+              ProcessingThreads.getRuntime().getExecutor(lane));
+    }
+    return downscaler;
+  }
+
+  /**
+   * Converts NV21 format byte buffer into {@code out}, rotated by the rotation of the metadata.
+   *
+   * <p>{@code out} must be a mutable ARGB_8888 bitmap with the rotated size of the frame, so
+   * callers can keep reusing the same bitmap for every frame.
+   */
+  public static void convertNv21ToBitmap(ByteBuffer data, FrameMetadata metadata, Bitmap out) {
+    int width = metadata.getWidth();
+    int height = metadata.getHeight();
+    int rotation = metadata.getRotation();
+    int outWidth = YuvConverter.getRotatedWidth(width, height, rotation);
+    int outHeight = YuvConverter.getRotatedHeight(width, height, rotation);
+    if (out.getWidth() != outWidth || out.getHeight() != outHeight) {
+      throw new IllegalArgumentException(
+          "Expected a " + outWidth + "x" + outHeight + " bitmap but got "
+              + out.getWidth() + "x" + out.getHeight());
+    }
+
+    FrameBufferPool pool = FrameBufferPool.getInstance();
+    byte[] nv21;
+    byte[] copy = null;
+    if (data.hasArray() && data.arrayOffset() == 0) {
+      nv21 = data.array();
+    } else {
+      data.rewind();
+      copy = pool.acquireByteArray(data.limit());
+      data.get(copy);
+      nv21 = copy;
+    }
+    int[] argb = pool.acquireIntArray(width * height);
+    YuvConverter.nv21ToArgb(nv21, width, height, rotation, argb);
+    out.setPixels(argb, 0, outWidth, 0, 0, outWidth, outHeight);
+    pool.releaseIntArray(argb);
+    pool.releaseByteArray(copy);
   }
 
   /** Rotates a bitmap if it is converted from a bytebuffer. */
@@ -196,7 +400,8 @@ public class BitmapUtils {
   private static ByteBuffer yuv420ThreePlanesToNV21(
       Plane[] yuv420888planes, int width, int height) {
     int imageSize = width * height;
-    byte[] out = new byte[imageSize + 2 * (imageSize / 4)];
+    // Callers release the backing array to the pool once they are done with the buffer.
+    byte[] out = FrameBufferPool.getInstance().acquireByteArray(imageSize + 2 * (imageSize / 4));
 
     if (areUVPlanesNV21(yuv420888planes, width, height)) {
       // Copy the Y values.
@@ -258,29 +463,18 @@ public class BitmapUtils {
   @TargetApi(VERSION_CODES.KITKAT)
   private static void unpackPlane(
       Plane plane, int width, int height, byte[] out, int offset, int pixelStride) {
-    ByteBuffer buffer = plane.getBuffer();
-    buffer.rewind();
-
-    // Compute the size of the current plane.
-    // We assume that it has the aspect ratio as the original image.
-    int numRow = (buffer.limit() + plane.getRowStride() - 1) / plane.getRowStride();
-    if (numRow == 0) {
-      return;
-    }
-    int scaleFactor = height / numRow;
-    int numCol = width / scaleFactor;
-
-    // Extract the data in the output buffer.
-    int outputPos = offset;
-    int rowStart = 0;
-    for (int row = 0; row < numRow; row++) {
-      int inputPos = rowStart;
-      for (int col = 0; col < numCol; col++) {
-        out[outputPos] = buffer.get(inputPos);
-        outputPos += pixelStride;
-        inputPos += plane.getPixelStride();
-      }
-      rowStart += plane.getRowStride();
-    }
+    FrameBufferPool pool = FrameBufferPool.getInstance();
+    byte[] rowScratch = pool.acquireByteArray(plane.getRowStride());
+    YuvPlanes.unpackPlane(
+        plane.getBuffer(),
+        plane.getRowStride(),
+        plane.getPixelStride(),
+        width,
+        height,
+        out,
+        offset,
+        pixelStride,
+        rowScratch);
+    pool.releaseByteArray(rowScratch);
   }
 }
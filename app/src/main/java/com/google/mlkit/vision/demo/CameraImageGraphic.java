@@ -18,20 +18,31 @@ package com.google.mlkit.vision.demo;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
 import com.google.mlkit.vision.demo.GraphicOverlay.Graphic;
 
 /** Draw camera image to background. */
 public class CameraImageGraphic extends Graphic {
 
+  private final GraphicOverlay overlay;
   private final Bitmap bitmap;
+  private final Matrix drawMatrix = new Matrix();
+  private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
 
   public CameraImageGraphic(GraphicOverlay overlay, Bitmap bitmap) {
     super(overlay);
+    this.overlay = overlay;
     this.bitmap = bitmap;
   }
 
   @Override
   public void draw(Canvas canvas) {
-    canvas.drawBitmap(bitmap, getTransformationMatrix(), null);
+    // The bitmap may have been converted at display size rather than at the image size.
+    drawMatrix.set(getTransformationMatrix());
+    drawMatrix.preScale(
+        (float) overlay.getImageWidth() / bitmap.getWidth(),
+        (float) overlay.getImageHeight() / bitmap.getHeight());
+    canvas.drawBitmap(bitmap, drawMatrix, paint);
   }
 }
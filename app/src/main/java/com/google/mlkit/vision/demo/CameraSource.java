@@ -32,11 +32,14 @@ import android.view.WindowManager;
 import androidx.annotation.RequiresPermission;
 import com.google.android.gms.common.images.Size;
 import com.google.mlkit.vision.demo.preference.PreferenceUtils;
+import com.google.mlkit.vision.demo.runtime.ProcessingRuntime;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Manages the camera and allows UI updates on top of it (e.g. overlaying extra Graphics or
@@ -94,7 +97,8 @@ public class CameraSource {
    * Dedicated thread and associated runnable for calling into the detector with frames, as the
    * frames become available from the camera.
    */
-  private Thread processingThread;
+  // Runs the frame processing loop on the detection lane while the camera is started.
+  private Future<?> processingTask;
 
   private final FrameProcessingRunnable processingRunnable;
   private final Object processorLock = new Object();
@@ -152,9 +156,7 @@ public class CameraSource {
     camera.setPreviewTexture(dummySurfaceTexture);
     camera.startPreview();
 
-    processingThread = new Thread(processingRunnable);
-    processingRunnable.setActive(true);
-    processingThread.start();
+    startProcessing();
     return this;
   }
 
@@ -175,12 +177,17 @@ public class CameraSource {
     camera.setPreviewDisplay(surfaceHolder);
     camera.startPreview();
 
-    processingThread = new Thread(processingRunnable);
-    processingRunnable.setActive(true);
-    processingThread.start();
+    startProcessing();
     return this;
   }
 
+  private void startProcessing() {
+    processingRunnable.setActive(true);
+    processingTask =
+        ProcessingThreads.getRuntime()
+            .submit(ProcessingRuntime.Lane.DETECTION, processingRunnable);
+  }
+
   /**
    * Closes the camera and stops sending frames to the underlying frame detector.
    *
@@ -192,16 +199,18 @@ public class CameraSource {
    */
   public synchronized void stop() {
     processingRunnable.setActive(false);
-    if (processingThread != null) {
+    if (processingTask != null) {
       try {
-        // Wait for the thread to complete to ensure that we can't have multiple threads
+        // Wait for the loop to complete to ensure that we can't have multiple loops
         // executing at the same time (i.e., which would happen if we called start too
         // quickly after stop).
-        processingThread.join();
+        processingTask.get();
       } catch (InterruptedException e) {
         Log.d(TAG, "Frame processing thread interrupted on release.");
+      } catch (ExecutionException e) {
+        Log.e(TAG, "Frame processing failed", e.getCause());
       }
-      processingThread = null;
+      processingTask = null;
     }
 
     if (camera != null) {
@@ -558,7 +567,9 @@ public class CameraSource {
   private class CameraPreviewCallback implements Camera.PreviewCallback {
     @Override
     public void onPreviewFrame(byte[] data, Camera camera) {
+      FrameTrace.beginSection(FrameTrace.CAMERA_CALLBACK);
       processingRunnable.setNextFrame(data, camera);
+      FrameTrace.endSection();
     }
   }
 
@@ -679,6 +690,7 @@ public class CameraSource {
         // the camera to add pending frame(s) while we are running detection on the current
         // frame.
 
+        FrameTrace.beginSection(FrameTrace.SUBMIT_FRAME);
         try {
           synchronized (processorLock) {
             frameProcessor.processByteBuffer(
@@ -694,6 +706,7 @@ public class CameraSource {
           Log.e(TAG, "Exception thrown from receiver.", t);
         } finally {
           camera.addCallbackBuffer(data.array());
+          FrameTrace.endSection();
         }
       }
     }
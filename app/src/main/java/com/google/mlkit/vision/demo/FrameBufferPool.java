@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo;
+
+import android.graphics.Bitmap;
+import androidx.annotation.Nullable;
+import com.google.mlkit.vision.demo.memory.MemoryBudget;
+import com.google.mlkit.vision.demo.pool.SizeKeyedPool;
+import java.nio.ByteBuffer;
+
+/**
+ * Shared pool of the frame sized buffers used by the camera and video pipelines, so that steady
+ * state frame processing does not allocate large arrays or bitmaps.
+ *
+ * <p>Every acquire should be paired with a release once the frame is done with the buffer, see
+ * {@link com.google.mlkit.vision.demo.java.VisionProcessorBase}. Buffers that are never released
+ * are simply garbage collected.
+ *
+ * <p>The pools shrink with the memory pressure tier, and their capacity can be lowered to fit a
+ * {@link MemoryBudget}.
+ */
+public final class FrameBufferPool implements MemoryBudget.Consumer {
+  // A 1280x720 frame needs 1.4MB as NV21 and 3.7MB as ARGB, so these leave room for a few frames in
+  // flight at the largest preview sizes.
+  private static final long MAX_POOLED_ARRAY_BYTES = 8L * 1024 * 1024;
+  private static final long MAX_POOLED_BITMAP_BYTES = 16L * 1024 * 1024;
+  // There is a pool each for byte arrays, int arrays and direct buffers, besides bitmaps.
+  private static final long MAX_POOLED_BYTES = 3 * MAX_POOLED_ARRAY_BYTES + MAX_POOLED_BITMAP_BYTES;
+
+  private static final FrameBufferPool INSTANCE = new FrameBufferPool();
+
+  private final SizeKeyedPool<byte[]> byteArrays =
+      new SizeKeyedPool<>(MAX_POOLED_ARRAY_BYTES, array -> array.length);
+  private final SizeKeyedPool<int[]> intArrays =
+      new SizeKeyedPool<>(MAX_POOLED_ARRAY_BYTES, array -> 4L * array.length);
+  private final SizeKeyedPool<ByteBuffer> directBuffers =
+      new SizeKeyedPool<>(MAX_POOLED_ARRAY_BYTES, ByteBuffer::capacity);
+  private final SizeKeyedPool<Bitmap> bitmaps =
+      new SizeKeyedPool<>(
+          MAX_POOLED_BITMAP_BYTES, bitmap -> (long) bitmap.getRowBytes() * bitmap.getHeight());
+
+  // Guarded by this.
+  private long capacityBytes = MAX_POOLED_BYTES;
+  private MemoryBudget.Pressure pressure = MemoryBudget.Pressure.NONE;
+
+  public static FrameBufferPool getInstance() {
+    return INSTANCE;
+  }
+
+  private FrameBufferPool() {}
+
+  /** Returns a byte array of exactly {@code length} bytes with undefined content. */
+  public byte[] acquireByteArray(int length) {
+    byte[] array = byteArrays.acquire(length);
+    return array != null ? array : new byte[length];
+  }
+
+  public void releaseByteArray(@Nullable byte[] array) {
+    if (array != null) {
+      byteArrays.release(array.length, array);
+    }
+  }
+
+  /** Returns an int array of exactly {@code length} ints with undefined content. */
+  public int[] acquireIntArray(int length) {
+    int[] array = intArrays.acquire(length);
+    return array != null ? array : new int[length];
+  }
+
+  public void releaseIntArray(@Nullable int[] array) {
+    if (array != null) {
+      intArrays.release(array.length, array);
+    }
+  }
+
+  /**
+   * Returns a cleared direct buffer of exactly {@code capacity} bytes with undefined content. The
+   * byte order is left as the previous user set it, so callers should set the one they need.
+   */
+  public ByteBuffer acquireDirectBuffer(int capacity) {
+    ByteBuffer buffer = directBuffers.acquire(capacity);
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(capacity);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  public void releaseDirectBuffer(@Nullable ByteBuffer buffer) {
+    if (buffer != null && buffer.isDirect()) {
+      directBuffers.release(buffer.capacity(), buffer);
+    }
+  }
+
+  /** Returns a mutable ARGB_8888 bitmap of the given size with undefined content. */
+  public Bitmap acquireBitmap(int width, int height) {
+    Bitmap bitmap = bitmaps.acquire(bitmapKey(width, height));
+    return bitmap != null ? bitmap : Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+  }
+
+  /**
+   * Returns a bitmap to the pool. Bitmaps that {@link #acquireBitmap} would not return, such as
+   * immutable ones, are ignored.
+   */
+  public void releaseBitmap(@Nullable Bitmap bitmap) {
+    if (bitmap != null
+        && bitmap.isMutable()
+        && !bitmap.isRecycled()
+        && bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+      bitmaps.release(bitmapKey(bitmap.getWidth(), bitmap.getHeight()), bitmap);
+    }
+  }
+
+  /**
+   * Sets how many bytes all pools may hold together without memory pressure, up to the defaults.
+   */
+  public synchronized void setCapacityBytes(long capacityBytes) {
+    this.capacityBytes = Math.min(capacityBytes, MAX_POOLED_BYTES);
+    updateMaxSizes();
+  }
+
+  @Override
+  public synchronized void onPressureChanged(MemoryBudget.Pressure pressure) {
+    this.pressure = pressure;
+    updateMaxSizes();
+  }
+
+  @Override
+  public long getSizeBytes() {
+    return byteArrays.getSizeBytes()
+        + intArrays.getSizeBytes()
+        + directBuffers.getSizeBytes()
+        + bitmaps.getSizeBytes();
+  }
+
+  // Splits the capacity among the pools in the same ratio as their default sizes.
+  private void updateMaxSizes() {
+    long scaledBytes = pressure.scale(capacityBytes);
+    long arrayBytes = scaledBytes * MAX_POOLED_ARRAY_BYTES / MAX_POOLED_BYTES;
+    byteArrays.setMaxSizeBytes(arrayBytes);
+    intArrays.setMaxSizeBytes(arrayBytes);
+    directBuffers.setMaxSizeBytes(arrayBytes);
+    bitmaps.setMaxSizeBytes(scaledBytes * MAX_POOLED_BITMAP_BYTES / MAX_POOLED_BYTES);
+  }
+
+  /** Drops all pooled buffers. */
+  public void clear() {
+    byteArrays.clear();
+    intArrays.clear();
+    directBuffers.clear();
+    bitmaps.clear();
+  }
+
+  private static long bitmapKey(int width, int height) {
+    return ((long) width << 32) | height;
+  }
+}
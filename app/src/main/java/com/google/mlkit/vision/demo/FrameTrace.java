@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo;
+
+import androidx.core.os.TraceCompat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * System trace sections for the frame pipeline, so one trace shows where the time of each frame
+ * goes across the camera, detector, classification and main threads.
+ *
+ * <p>Sections cover work on one thread, and the async {@link #FRAME} and {@link #DETECTION} slices
+ * follow a frame across threads by its ID. Nothing is traced unless {@link #setEnabled} is on. It
+ * is only switched while no frames are being processed, so sections always begin and end in pairs.
+ */
+public final class FrameTrace {
+
+  public static final String CAMERA_CALLBACK = "Camera callback";
+  public static final String SUBMIT_FRAME = "Submit frame";
+  public static final String YUV_CONVERSION = "YUV conversion";
+  public static final String ROI_CROP = "ROI crop";
+  public static final String DETECT_IN_IMAGE = "detectInImage";
+  public static final String CLASSIFICATION = "Pose classification";
+  public static final String OVERLAY_BUILD = "onSuccess overlay build";
+  public static final String OVERLAY_DRAW = "GraphicOverlay.onDraw";
+
+  /** Async slice from receiving a frame until its results are drawn, or it is dropped. */
+  public static final String FRAME = "Frame";
+  /** Async slice from starting detection on a frame until the detector returns. */
+  public static final String DETECTION = "Detection";
+
+  private static final AtomicInteger lastFrameId = new AtomicInteger();
+  private static volatile boolean enabled;
+
+  public static void setEnabled(boolean enabled) {
+    FrameTrace.enabled = enabled;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Returns a new ID to tie the async slices of a frame together. */
+  public static int newFrameId() {
+    return lastFrameId.incrementAndGet();
+  }
+
+  public static void beginSection(String sectionName) {
+    if (enabled) {
+      TraceCompat.beginSection(sectionName);
+    }
+  }
+
+  public static void endSection() {
+    if (enabled) {
+      TraceCompat.endSection();
+    }
+  }
+
+  public static void beginAsyncSection(String sectionName, int frameId) {
+    if (enabled) {
+      TraceCompat.beginAsyncSection(sectionName, frameId);
+    }
+  }
+
+  public static void endAsyncSection(String sectionName, int frameId) {
+    if (enabled) {
+      TraceCompat.endAsyncSection(sectionName, frameId);
+    }
+  }
+
+  private FrameTrace() {}
+}
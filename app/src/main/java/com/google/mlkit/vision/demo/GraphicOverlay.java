@@ -21,6 +21,7 @@ import android.graphics.Canvas;
 import android.graphics.Matrix;
 import android.util.AttributeSet;
 import android.view.View;
+import androidx.annotation.Nullable;
 import com.google.common.base.Preconditions;
 import java.util.ArrayList;
 import java.util.List;
@@ -63,6 +64,12 @@ public class GraphicOverlay extends View {
   private float postScaleHeightOffset;
   private boolean isImageFlipped;
   private boolean needUpdateTransformation = true;
+  @Nullable private OnDrawListener onDrawListener;
+
+  /** Receives the time taken to draw the graphics of each frame, on the main thread. */
+  public interface OnDrawListener {
+    void onDraw(long drawNanos);
+  }
 
   /**
    * Base class for a custom graphics object to be rendered within the graphic overlay. Subclass
@@ -186,6 +193,10 @@ public class GraphicOverlay extends View {
     postInvalidate();
   }
 
+  public void setOnDrawListener(@Nullable OnDrawListener onDrawListener) {
+    this.onDrawListener = onDrawListener;
+  }
+
   public int getImageWidth() {
     return imageWidth;
   }
@@ -228,6 +239,8 @@ public class GraphicOverlay extends View {
   protected void onDraw(Canvas canvas) {
     super.onDraw(canvas);
 
+    long startNanos = System.nanoTime();
+    FrameTrace.beginSection(FrameTrace.OVERLAY_DRAW);
     synchronized (lock) {
       updateTransformationIfNeeded();
 
@@ -235,5 +248,9 @@ public class GraphicOverlay extends View {
         graphic.draw(canvas);
       }
     }
+    FrameTrace.endSection();
+    if (onDrawListener != null) {
+      onDrawListener.onDraw(System.nanoTime() - startNanos);
+    }
   }
 }
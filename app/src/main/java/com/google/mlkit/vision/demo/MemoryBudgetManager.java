@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo;
+
+import android.app.ActivityManager;
+import android.app.ActivityManager.MemoryInfo;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import com.google.mlkit.vision.demo.memory.MemoryBudget;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds the platform's memory signals to a {@link MemoryBudget}, so the app's caches and buffers
+ * shrink before the app is killed for memory.
+ *
+ * <p>The budget is a share of the app's heap class, and the {@link FrameBufferPool} gets most of
+ * it. Other consumers, such as the pose sample library and recorded-session buffers, are
+ * registered by their owners. Trim callbacks arrive on the main thread, and {@link #checkIfDue}
+ * should be called there too.
+ *
+ * <p>There is a single manager for the whole app, like the pool it resizes, so the pressure and the
+ * pool's capacity outlive the processors, which are recreated on every resume and settings change.
+ */
+public final class MemoryBudgetManager implements ComponentCallbacks2 {
+  private static final String TAG = "MemoryBudgetManager";
+  /** The name the frame buffer pool is tracked under. */
+  public static final String FRAME_BUFFERS = "frame_buffers";
+  private static final long BYTES_PER_MB = 0x100000L;
+  // Caches and buffers may hold an eighth of the heap class, which is 24MB on a 2GB device with a
+  // 192MB heap class.
+  private static final int HEAP_CLASS_SHARE = 8;
+  // The rest of the budget is left to the pose samples and session buffers.
+  private static final int FRAME_BUFFERS_BUDGET_PERCENT = 75;
+  private static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static MemoryBudgetManager instance;
+
+  private final ActivityManager activityManager;
+  private final MemoryBudget budget;
+
+  private long lastCheckNanos = System.nanoTime();
+
+  public static synchronized MemoryBudgetManager getInstance(Context context) {
+    if (instance == null) {
+      instance = new MemoryBudgetManager(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  private MemoryBudgetManager(Context context) {
+    activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+    budget =
+        new MemoryBudget(
+            activityManager.getMemoryClass() * BYTES_PER_MB / HEAP_CLASS_SHARE,
+            (pressure, reason) ->
+                Log.i(TAG, "Memory pressure changed to " + pressure + ". " + reason));
+    FrameBufferPool frameBuffers = FrameBufferPool.getInstance();
+    frameBuffers.setCapacityBytes(budget.getBudgetBytes() * FRAME_BUFFERS_BUDGET_PERCENT / 100);
+    budget.register(FRAME_BUFFERS, frameBuffers);
+    context.registerComponentCallbacks(this);
+  }
+
+  public MemoryBudget getBudget() {
+    return budget;
+  }
+
+  /** Judges the memory available to the system, at most once per second. */
+  public void checkIfDue(long nowNanos) {
+    if (nowNanos - lastCheckNanos < CHECK_INTERVAL_NANOS) {
+      return;
+    }
+    lastCheckNanos = nowNanos;
+    MemoryInfo mi = new MemoryInfo();
+    activityManager.getMemoryInfo(mi);
+    budget.update(nowNanos, mi.availMem, mi.threshold, mi.lowMemory);
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    budget.onPressure(
+        System.nanoTime(),
+        MemoryBudget.pressureForTrimLevel(level),
+        "Trim memory level " + level);
+  }
+
+  @Override
+  public void onLowMemory() {
+    budget.onPressure(System.nanoTime(), MemoryBudget.Pressure.CRITICAL, "Low memory");
+  }
+
+  @Override
+  public void onConfigurationChanged(@NonNull Configuration newConfig) {}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo;
+
+import android.content.Context;
+import android.util.Log;
+import com.google.mlkit.vision.demo.metrics.MetricsRegistry;
+import com.google.mlkit.vision.demo.metrics.MetricsSnapshot;
+import com.google.mlkit.vision.demo.runtime.ProcessingRuntime;
+import com.google.mlkit.vision.demo.runtime.SerialExecutor;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Periodically writes snapshots of a {@link MetricsRegistry} to a file in app-private storage, so
+ * testers can pull the files after a session and compare devices and builds offline.
+ *
+ * <p>Each session gets its own file, and only the most recent sessions are kept. Snapshots are
+ * taken and written in order on the I/O lane of the {@link ProcessingThreads#getRuntime runtime},
+ * and the file is closed after each one so it stays readable if the app is killed.
+ */
+public class MetricsExporter {
+  private static final String TAG = "MetricsExporter";
+  private static final String METRICS_DIR = "metrics";
+  private static final int MAX_SESSION_FILES = 20;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final MetricsRegistry registry;
+  private final MetricsSnapshot.Format format;
+  private final File metricsFile;
+  private final SerialExecutor executor =
+      ProcessingThreads.getRuntime().newSerialExecutor(ProcessingRuntime.Lane.IO);
+  private final ScheduledFuture<?> periodicSnapshots;
+
+  private boolean closed;
+
+  public MetricsExporter(
+      Context context, MetricsRegistry registry, MetricsSnapshot.Format format, long intervalMs) {
+    this.registry = registry;
+    this.format = format;
+    File metricsDir = getMetricsDir(context);
+    String name =
+        new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date())
+            + format.getFileExtension();
+    metricsFile = new File(metricsDir, name);
+    try {
+      executor.execute(() -> createMetricsFile(metricsDir));
+    } catch (RejectedExecutionException e) {
+      // The I/O lane is full. Snapshots are still tried, and log their own errors.
+      Log.w(TAG, "Unable to create " + metricsFile, e);
+    }
+    periodicSnapshots =
+        ProcessingThreads.getRuntime()
+            .scheduleAtFixedRate(executor, this::writeSnapshot, intervalMs);
+  }
+
+  /** Returns the directory that metrics files are written to. */
+  public static File getMetricsDir(Context context) {
+    return new File(context.getFilesDir(), METRICS_DIR);
+  }
+
+  public File getMetricsFile() {
+    return metricsFile;
+  }
+
+  /** Writes a last snapshot in the background and stops exporting. */
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    // Lets the last snapshot be written, but cancels the periodic ones.
+    periodicSnapshots.cancel(/* mayInterruptIfRunning= */ false);
+    try {
+      executor.execute(this::writeSnapshot);
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Unable to write the last snapshot to " + metricsFile, e);
+    }
+    executor.shutdown();
+  }
+
+  private void createMetricsFile(File metricsDir) {
+    if (!metricsDir.isDirectory() && !metricsDir.mkdirs()) {
+      Log.e(TAG, "Unable to create " + metricsDir);
+      return;
+    }
+    deleteOldSessions(metricsDir);
+    if (format == MetricsSnapshot.Format.CSV) {
+      append(MetricsSnapshot.CSV_HEADER);
+    }
+  }
+
+  // Keeps room for this session among the most recent ones.
+  private static void deleteOldSessions(File metricsDir) {
+    File[] files = metricsDir.listFiles();
+    if (files == null || files.length < MAX_SESSION_FILES) {
+      return;
+    }
+    // The files are named by their start time, so they sort from oldest to newest.
+    Arrays.sort(files);
+    for (int i = 0; i <= files.length - MAX_SESSION_FILES; i++) {
+      if (!files[i].delete()) {
+        Log.w(TAG, "Unable to delete " + files[i]);
+      }
+    }
+  }
+
+  private void writeSnapshot() {
+    append(registry.snapshot(System.currentTimeMillis(), System.nanoTime()).format(format));
+  }
+
+  private void append(String text) {
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(metricsFile, /* append= */ true), UTF_8)) {
+      writer.write(text);
+    } catch (IOException e) {
+      Log.e(TAG, "Error when writing metrics to " + metricsFile, e);
+    }
+  }
+}
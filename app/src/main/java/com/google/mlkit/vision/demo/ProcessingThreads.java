@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo;
+
+import android.os.Process;
+import com.google.mlkit.vision.demo.runtime.ProcessingRuntime;
+
+/**
+ * Holds the {@link ProcessingRuntime} shared by the whole app, whose threads run at the Android
+ * priority of their lane.
+ */
+public final class ProcessingThreads {
+
+  private static ProcessingRuntime runtime;
+
+  private ProcessingThreads() {}
+
+  public static synchronized ProcessingRuntime getRuntime() {
+    if (runtime == null) {
+      runtime =
+          new ProcessingRuntime(lane -> Process.setThreadPriority(lane.getNicePriority()));
+    }
+    return runtime;
+  }
+}
@@ -5,11 +5,15 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import android.os.PowerManager;
 import android.util.Log;
-import java.util.HashMap;
+import com.google.mlkit.vision.demo.governor.ThermalThrottle;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Monitors device temperature.
@@ -18,12 +22,15 @@ public final class TemperatureMonitor implements SensorEventListener {
 
   private static final String TAG = "TemperatureMonitor";
 
-  public Map<String, Float> sensorReadingsCelsius = new HashMap<>();
+  // Updated on the main thread, and read by the metrics exporter in the background.
+  public Map<String, Float> sensorReadingsCelsius = new ConcurrentHashMap<>();
 
   private final SensorManager sensorManager;
+  private final PowerManager powerManager;
 
   public TemperatureMonitor(Context context) {
     sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+    powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
     List<Sensor> allSensors = sensorManager.getSensorList(Sensor.TYPE_ALL);
     for (Sensor sensor : allSensors) {
       // Assumes sensors with "temperature" substring in their names are temperature sensors.
@@ -38,6 +45,17 @@ public final class TemperatureMonitor implements SensorEventListener {
     }
   }
 
+  /**
+   * Returns the platform thermal status, such as {@link PowerManager#THERMAL_STATUS_MODERATE}, or
+   * {@link ThermalThrottle#THERMAL_STATUS_UNKNOWN} before Android Q.
+   */
+  public int getThermalStatus() {
+    if (VERSION.SDK_INT < VERSION_CODES.Q || powerManager == null) {
+      return ThermalThrottle.THERMAL_STATUS_UNKNOWN;
+    }
+    return powerManager.getCurrentThermalStatus();
+  }
+
   public void stop() {
     sensorManager.unregisterListener(this);
   }
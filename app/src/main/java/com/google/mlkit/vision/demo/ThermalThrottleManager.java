@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import com.google.mlkit.vision.demo.governor.ThermalThrottle;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds the device temperatures to the app's {@link ThermalThrottle}.
+ *
+ * <p>There is a single throttle for the whole app, so its level and the lowest reading of each
+ * sensor outlive the processors, which are recreated on every resume and settings change. A hot
+ * device therefore stays throttled across them. The temperature sensors are only listened to while
+ * a processor is registered. All methods should be called on the main thread, and listeners are
+ * called there.
+ */
+public final class ThermalThrottleManager {
+  private static final String TAG = "ThermalThrottleManager";
+  private static final long CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static ThermalThrottleManager instance;
+
+  private final Context context;
+  private final ThermalThrottle throttle = new ThermalThrottle(this::onThrottleLevelChanged);
+  private final CopyOnWriteArrayList<ThermalThrottle.Listener> listeners =
+      new CopyOnWriteArrayList<>();
+
+  @Nullable private TemperatureMonitor temperatureMonitor;
+  private long lastCheckNanos = System.nanoTime();
+
+  public static synchronized ThermalThrottleManager getInstance(Context context) {
+    if (instance == null) {
+      instance = new ThermalThrottleManager(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  private ThermalThrottleManager(Context context) {
+    this.context = context;
+  }
+
+  public ThermalThrottle.Level getLevel() {
+    return throttle.getLevel();
+  }
+
+  /**
+   * Tells the listener every later change of the throttling level, and starts listening to the
+   * temperature sensors if it is the first one. Returns the current level.
+   */
+  public ThermalThrottle.Level addListener(ThermalThrottle.Listener listener) {
+    if (listeners.addIfAbsent(listener) && temperatureMonitor == null) {
+      temperatureMonitor = new TemperatureMonitor(context);
+    }
+    return throttle.getLevel();
+  }
+
+  /** Stops telling the listener, and the temperature sensors once no listener is left. */
+  public void removeListener(ThermalThrottle.Listener listener) {
+    if (listeners.remove(listener) && listeners.isEmpty() && temperatureMonitor != null) {
+      temperatureMonitor.stop();
+      temperatureMonitor = null;
+    }
+  }
+
+  /** Feeds the latest temperatures to the throttle, at most once per second. */
+  public void checkIfDue(long nowNanos) {
+    if (temperatureMonitor == null || nowNanos - lastCheckNanos < CHECK_INTERVAL_NANOS) {
+      return;
+    }
+    lastCheckNanos = nowNanos;
+    throttle.update(
+        nowNanos, temperatureMonitor.sensorReadingsCelsius, temperatureMonitor.getThermalStatus());
+  }
+
+  private void onThrottleLevelChanged(ThermalThrottle.Level level, String reason) {
+    Log.i(TAG, "Thermal throttling changed to " + level + ". " + reason);
+    for (ThermalThrottle.Listener listener : listeners) {
+      listener.onThrottleLevelChanged(level, reason);
+    }
+  }
+}
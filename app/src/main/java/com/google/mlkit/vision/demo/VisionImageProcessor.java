@@ -18,9 +18,12 @@ package com.google.mlkit.vision.demo;
 
 import android.graphics.Bitmap;
 import android.os.Build.VERSION_CODES;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.camera.core.ImageProxy;
 import com.google.mlkit.common.MlKitException;
+import com.google.mlkit.vision.demo.governor.QualityGovernor;
+import com.google.mlkit.vision.demo.scheduler.FrameScheduler;
 import java.nio.ByteBuffer;
 
 /** An interface to process the images with different vision detectors and custom image models. */
@@ -38,6 +41,19 @@ public interface VisionImageProcessor {
   @RequiresApi(VERSION_CODES.KITKAT)
   void processImageProxy(ImageProxy image, GraphicOverlay graphicOverlay) throws MlKitException;
 
+  /** Returns the scheduler that decides which of the incoming frames are processed. */
+  FrameScheduler getFrameScheduler();
+
+  /** Returns the governor adapting the quality of the session, or null if it is off. */
+  @Nullable
+  QualityGovernor getQualityGovernor();
+
+  /**
+   * Sets the listener told when the governor changes the quality level, such as to switch the
+   * camera resolution. Called on the main thread, after the processor has applied the level.
+   */
+  void setOnQualityLevelChangedListener(@Nullable QualityGovernor.Listener listener);
+
   /** Stops the underlying machine learning model and release resources. */
   void stop();
 }
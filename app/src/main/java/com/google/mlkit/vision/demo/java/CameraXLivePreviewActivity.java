@@ -22,6 +22,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
+import android.content.res.Configuration;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.os.Bundle;
@@ -53,14 +54,20 @@ import com.google.android.gms.common.annotation.KeepName;
 import com.google.mlkit.common.MlKitException;
 import com.google.mlkit.common.model.LocalModel;
 import com.google.mlkit.vision.demo.CameraXViewModel;
+import com.google.mlkit.vision.demo.FrameTrace;
 import com.google.mlkit.vision.demo.GraphicOverlay;
 import com.google.mlkit.vision.demo.R;
 import com.google.mlkit.vision.demo.VisionImageProcessor;
+import com.google.mlkit.vision.demo.governor.QualityGovernor;
+import com.google.mlkit.vision.demo.governor.QualityLevel;
+import com.google.mlkit.vision.demo.java.objectdetector.ObjectBranch;
+import com.google.mlkit.vision.demo.java.posedetector.PoseBranch;
 import com.google.mlkit.vision.demo.java.posedetector.PoseDetectorProcessor;
 import com.google.mlkit.vision.demo.preference.PreferenceUtils;
 import com.google.mlkit.vision.demo.preference.SettingsActivity;
 import com.google.mlkit.vision.pose.PoseDetectorOptionsBase;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /** Live preview demo app for ML Kit APIs using CameraX. */
@@ -74,6 +81,7 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
   private static final int PERMISSION_REQUESTS = 1;
 
   private static final String POSE_DETECTION = "Pose Detection";
+  private static final String POSE_AND_OBJECT_DETECTION = "Pose + Object Detection";
 
   private static final String STATE_SELECTED_MODEL = "selected_model";
 
@@ -83,6 +91,7 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
   @Nullable private ProcessCameraProvider cameraProvider;
   @Nullable private Preview previewUseCase;
   @Nullable private ImageAnalysis analysisUseCase;
+  @Nullable private Size analysisTargetResolution;
   @Nullable private VisionImageProcessor imageProcessor;
   private boolean needUpdateGraphicOverlayImageSourceInfo;
 
@@ -123,6 +132,7 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
     Spinner spinner = findViewById(R.id.spinner);
     List<String> options = new ArrayList<>();
     options.add(POSE_DETECTION);
+    options.add(POSE_AND_OBJECT_DETECTION);
 
 
     // Creating adapter for spinner
@@ -285,6 +295,7 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
           boolean visualizeZ = PreferenceUtils.shouldPoseDetectionVisualizeZ(this);
           boolean rescaleZ = PreferenceUtils.shouldPoseDetectionRescaleZForVisualization(this);
           boolean runClassification = PreferenceUtils.shouldPoseDetectionRunClassification(this);
+          boolean recordSession = PreferenceUtils.shouldPoseDetectionRecordSession(this);
           imageProcessor =
               new PoseDetectorProcessor(
                   this,
@@ -293,7 +304,20 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
                   visualizeZ,
                   rescaleZ,
                   runClassification,
-                  /* isStreamMode = */ true);
+                  /* isStreamMode = */ true,
+                  recordSession);
+          break;
+        case POSE_AND_OBJECT_DETECTION:
+          imageProcessor =
+              new FanOutProcessor(
+                  this,
+                  Arrays.asList(
+                      new PoseBranch(
+                          PreferenceUtils.getPoseDetectorOptionsForLivePreview(this),
+                          PreferenceUtils.shouldShowPoseDetectionAnglesLivePreview(this),
+                          PreferenceUtils.shouldPoseDetectionVisualizeZ(this),
+                          PreferenceUtils.shouldPoseDetectionRescaleZForVisualization(this)),
+                      new ObjectBranch()));
           break;
       }
     } catch (Exception e) {
@@ -306,11 +330,40 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
       return;
     }
 
-    ImageAnalysis.Builder builder = new ImageAnalysis.Builder();
-    Size targetResolution = PreferenceUtils.getCameraXTargetResolution(this, lensFacing);
+    QualityGovernor qualityGovernor = imageProcessor.getQualityGovernor();
+    if (qualityGovernor != null) {
+      imageProcessor.setOnQualityLevelChangedListener(
+          (level, reason) -> {
+            if (!getTargetResolution(level).equals(analysisTargetResolution)) {
+              bindImageAnalysis(level);
+            }
+          });
+    }
+    bindImageAnalysis(qualityGovernor != null ? qualityGovernor.getLevel() : null);
+  }
+
+  /** Binds the analysis use case to the processor, at the resolution of {@code qualityLevel}. */
+  private void bindImageAnalysis(@Nullable QualityLevel qualityLevel) {
+    if (cameraProvider == null || imageProcessor == null) {
+      return;
+    }
+    if (analysisUseCase != null) {
+      cameraProvider.unbind(analysisUseCase);
+    }
+    // Let every frame reach the analyzer, and leave dropping frames to the processor's scheduler,
+    // which may hold up to getMaxHeldFrames() images open at once.
+    ImageAnalysis.Builder builder =
+        new ImageAnalysis.Builder()
+            .setBackpressureStrategy(ImageAnalysis.STRATEGY_BLOCK_PRODUCER)
+            .setImageQueueDepth(imageProcessor.getFrameScheduler().getMaxHeldFrames());
+    Size targetResolution =
+        qualityLevel != null
+            ? getTargetResolution(qualityLevel)
+            : PreferenceUtils.getCameraXTargetResolution(this, lensFacing);
     if (targetResolution != null) {
       builder.setTargetResolution(targetResolution);
     }
+    analysisTargetResolution = targetResolution;
     analysisUseCase = builder.build();
 
     needUpdateGraphicOverlayImageSourceInfo = true;
@@ -319,6 +372,7 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
         // thus we can just runs the analyzer itself on main thread.
         ContextCompat.getMainExecutor(this),
         imageProxy -> {
+          FrameTrace.beginSection(FrameTrace.CAMERA_CALLBACK);
           if (needUpdateGraphicOverlayImageSourceInfo) {
             boolean isImageFlipped = lensFacing == CameraSelector.LENS_FACING_FRONT;
             int rotationDegrees = imageProxy.getImageInfo().getRotationDegrees();
@@ -338,11 +392,19 @@ public final class CameraXLivePreviewActivity extends AppCompatActivity
             Toast.makeText(getApplicationContext(), e.getLocalizedMessage(), Toast.LENGTH_SHORT)
                 .show();
           }
+          FrameTrace.endSection();
         });
 
     cameraProvider.bindToLifecycle(/* lifecycleOwner= */ this, cameraSelector, analysisUseCase);
   }
 
+  // Target resolutions are given in the orientation of the display.
+  private Size getTargetResolution(QualityLevel level) {
+    return getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT
+        ? new Size(level.getShortSide(), level.getLongSide())
+        : new Size(level.getLongSide(), level.getShortSide());
+  }
+
   private String[] getRequiredPermissions() {
     try {
       PackageInfo info =
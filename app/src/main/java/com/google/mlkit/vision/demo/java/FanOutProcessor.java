@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.demo.GraphicOverlay;
+import com.google.mlkit.vision.demo.scheduler.SharedFrame;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runs several analyses on the same frames, such as pose detection alongside object detection, and
+ * draws their results in one overlay update.
+ *
+ * <p>Each analysis is a {@link Branch}: a detector, an optional post-processing step and the
+ * drawing of its results, without frame scheduling, quality governor, thermal throttling, metrics
+ * or memory budget of its own. Those belong to this processor, so a fan-out behaves like any other
+ * processor however many branches it has.
+ *
+ * <p>Each frame is scheduled and converted once, and shared by the branches through a
+ * reference-counted {@link SharedFrame}. All detectors are started on the frame at once. Once the
+ * last of them drops its reference, the frame is released back to the camera, so in pipelined mode
+ * a fan-out holds camera buffers no longer than a single processor does, and only then are the
+ * results post-processed concurrently, each on the thread its branch picks. The post-processing is
+ * joined in a continuation, which hands the results on to be drawn in the order the branches were
+ * given. Nothing waits on a thread for the branches, so a fan-out never holds threads that the
+ * branches need. A branch that fails on a frame is logged, and doesn't keep the others from
+ * drawing.
+ */
+public class FanOutProcessor extends VisionProcessorBase<FanOutProcessor.Results> {
+  private static final String TAG = "FanOutProcessor";
+  private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+  /**
+   * One analysis of a fan-out. All methods but {@link #draw} may be called on any thread, and the
+   * tasks they return may complete on any thread.
+   */
+  public interface Branch<R> {
+    /** Starts detection on a frame, which is shared with the other branches. */
+    Task<R> detect(InputImage image);
+
+    /**
+     * Post-processes the results of a frame, such as classifying them, once all branches are done
+     * with the frame. The branch runs it on an executor of its own, or returns the results as is.
+     */
+    Task<R> postProcess(R results);
+
+    /** Draws the results on the overlay. Called on the main thread. */
+    void draw(R results, GraphicOverlay graphicOverlay);
+
+    /** Releases the detector. Called on the main thread. */
+    void stop();
+  }
+
+  private final List<Branch<?>> branches;
+
+  public FanOutProcessor(Context context, List<? extends Branch<?>> branches) {
+    super(context);
+    if (branches.isEmpty()) {
+      throw new IllegalArgumentException("No branches to fan out to");
+    }
+    this.branches = new ArrayList<>(branches);
+  }
+
+  /** The results of each branch on a frame, in the order the branches were given. */
+  protected static final class Results {
+    private final List<BranchResult<?>> results;
+
+    Results(List<BranchResult<?>> results) {
+      this.results = Collections.unmodifiableList(results);
+    }
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    for (Branch<?> branch : branches) {
+      branch.stop();
+    }
+  }
+
+  @Override
+  protected Task<Results> detectInImage(InputImage image) {
+    return detectInImage(image, () -> {});
+  }
+
+  @Override
+  protected Task<Results> detectInImage(InputImage image, Runnable releaseInput) {
+    TaskCompletionSource<Results> joined = new TaskCompletionSource<>();
+    // Written before each reference is released, so the last release sees all of them.
+    AtomicReferenceArray<BranchResult<?>> results = new AtomicReferenceArray<>(branches.size());
+    SharedFrame<InputImage> frame =
+        new SharedFrame<>(
+            image,
+            unused -> {
+              releaseInput.run();
+              List<Task<BranchResult<?>>> postProcessing = new ArrayList<>(branches.size());
+              for (int i = 0; i < branches.size(); i++) {
+                postProcessing.add(results.get(i).postProcess());
+              }
+              // Joined in a continuation rather than by waiting, see the class comment.
+              Tasks.whenAllComplete(postProcessing)
+                  .addOnCompleteListener(
+                      DIRECT_EXECUTOR,
+                      unusedTask -> {
+                        List<BranchResult<?>> frameResults = new ArrayList<>(branches.size());
+                        for (Task<BranchResult<?>> task : postProcessing) {
+                          frameResults.add(task.getResult());
+                        }
+                        joined.setResult(new Results(frameResults));
+                      });
+            });
+    for (int i = 0; i < branches.size(); i++) {
+      int index = i;
+      frame.acquire();
+      detect(
+          branches.get(i),
+          frame.get(),
+          result -> {
+            results.set(index, result);
+            frame.release();
+          });
+    }
+    frame.release();
+    return joined.getTask();
+  }
+
+  @Override
+  protected void onSuccess(@NonNull Results results, @NonNull GraphicOverlay graphicOverlay) {
+    for (BranchResult<?> result : results.results) {
+      result.draw(graphicOverlay);
+    }
+  }
+
+  @Override
+  protected void onFailure(@NonNull Exception e) {
+    Log.e(TAG, "Fan-out processing failed!", e);
+  }
+
+  private static <R> void detect(Branch<R> branch, InputImage image, BranchCallback callback) {
+    Task<R> task;
+    try {
+      task = branch.detect(image);
+    } catch (RuntimeException e) {
+      callback.onResult(BranchResult.failed(branch, e));
+      return;
+    }
+    task.addOnCompleteListener(
+        DIRECT_EXECUTOR, detection -> callback.onResult(BranchResult.of(branch, detection)));
+  }
+
+  /** Receives the result of one branch on a frame. */
+  private interface BranchCallback {
+    void onResult(BranchResult<?> result);
+  }
+
+  /** The result of one branch on a frame, or the reason it failed. */
+  private static final class BranchResult<R> {
+    final Branch<R> branch;
+    @Nullable final R result;
+    @Nullable final Exception failure;
+
+    private BranchResult(Branch<R> branch, @Nullable R result, @Nullable Exception failure) {
+      this.branch = branch;
+      this.result = result;
+      this.failure = failure;
+    }
+
+    static <R> BranchResult<R> of(Branch<R> branch, Task<R> task) {
+      if (task.isSuccessful()) {
+        return new BranchResult<>(branch, task.getResult(), null);
+      }
+      Exception failure = task.getException();
+      return failed(branch, failure != null ? failure : new IllegalStateException("Canceled"));
+    }
+
+    static <R> BranchResult<R> failed(Branch<R> branch, Exception failure) {
+      return new BranchResult<>(branch, null, failure);
+    }
+
+    /** Post-processes the result on the branch's own thread. The task never fails. */
+    Task<BranchResult<?>> postProcess() {
+      if (failure != null) {
+        return Tasks.forResult(this);
+      }
+      Task<R> task;
+      try {
+        task = branch.postProcess(result);
+      } catch (RuntimeException e) {
+        return Tasks.forResult(failed(branch, e));
+      }
+      return task.continueWith(DIRECT_EXECUTOR, postProcessed -> of(branch, postProcessed));
+    }
+
+    void draw(GraphicOverlay graphicOverlay) {
+      if (failure != null) {
+        Log.e(TAG, branch.getClass().getSimpleName() + " failed!", failure);
+      } else if (result != null) {
+        branch.draw(result, graphicOverlay);
+      }
+    }
+  }
+}
@@ -172,6 +172,7 @@ public final class LivePreviewActivity extends AppCompatActivity
           boolean visualizeZ = PreferenceUtils.shouldPoseDetectionVisualizeZ(this);
           boolean rescaleZ = PreferenceUtils.shouldPoseDetectionRescaleZForVisualization(this);
           boolean runClassification = PreferenceUtils.shouldPoseDetectionRunClassification(this);
+          boolean recordSession = PreferenceUtils.shouldPoseDetectionRecordSession(this);
           cameraSource.setMachineLearningFrameProcessor(
               new PoseDetectorProcessor(
                   this,
@@ -180,7 +181,8 @@ public final class LivePreviewActivity extends AppCompatActivity
                   visualizeZ,
                   rescaleZ,
                   runClassification,
-                  /* isStreamMode = */ true));
+                  /* isStreamMode = */ true,
+                  recordSession));
           break;
         default:
           Log.e(TAG, "Unknown model: " + model);
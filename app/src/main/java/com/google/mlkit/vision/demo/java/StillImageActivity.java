@@ -47,6 +47,7 @@ import com.google.mlkit.vision.demo.VisionImageProcessor;
 import com.google.mlkit.vision.demo.java.posedetector.PoseDetectorProcessor;
 import com.google.mlkit.vision.demo.preference.PreferenceUtils;
 import com.google.mlkit.vision.demo.preference.SettingsActivity;
+import com.google.mlkit.vision.demo.scheduler.FrameScheduler;
 import com.google.mlkit.vision.label.custom.CustomImageLabelerOptions;
 import com.google.mlkit.vision.label.defaults.ImageLabelerOptions;
 import com.google.mlkit.vision.objects.custom.CustomObjectDetectorOptions;
@@ -385,11 +386,23 @@ public final class StillImageActivity extends AppCompatActivity {
                   visualizeZ,
                   rescaleZ,
                   runClassification,
-                  /* isStreamMode = */ false);
+                  /* isStreamMode = */ false,
+                  /* recordSession = */ false);
           break;
         default:
           Log.e(TAG, "Unknown selectedMode: " + selectedMode);
       }
+      if (imageProcessor != null) {
+        // Still images are picked one at a time, so only skip one that a newer pick replaced,
+        // whatever the live preview frame scheduling is.
+        imageProcessor
+            .getFrameScheduler()
+            .configure(
+                FrameScheduler.Policy.LATEST_ONLY,
+                /* queueCapacity= */ 1,
+                /* frameInterval= */ 1,
+                /* maxFramesInFlight= */ 1);
+      }
     } catch (Exception e) {
       Log.e(TAG, "Can not create image processor: " + selectedMode, e);
       Toast.makeText(
@@ -428,26 +428,23 @@
 
 package com.google.mlkit.vision.demo.java;
 
-import static java.lang.Math.max;
-import static java.lang.Math.min;
-
 import android.app.ActivityManager;
 import android.app.ActivityManager.MemoryInfo;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.os.Build;
 import android.os.Build.VERSION_CODES;
-import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import android.util.Log;
 import android.widget.Toast;
-import androidx.annotation.GuardedBy;
 import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageProxy;
 
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
 import com.google.android.gms.tasks.TaskExecutors;
 import com.google.android.gms.tasks.Tasks;
 import com.google.android.odml.image.BitmapMlImageBuilder;
@@ -457,19 +454,44 @@ import com.google.android.odml.image.MlImage;
 import com.google.mlkit.common.MlKitException;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.demo.BitmapUtils;
+import com.google.mlkit.vision.demo.BuildConfig;
 import com.google.mlkit.vision.demo.CameraImageGraphic;
+import com.google.mlkit.vision.demo.FrameBufferPool;
 import com.google.mlkit.vision.demo.FrameMetadata;
+import com.google.mlkit.vision.demo.FrameTrace;
 import com.google.mlkit.vision.demo.GraphicOverlay;
+import com.google.mlkit.vision.demo.MemoryBudgetManager;
 import com.google.mlkit.vision.demo.InferenceInfoGraphic;
+import com.google.mlkit.vision.demo.MetricsExporter;
+import com.google.mlkit.vision.demo.ProcessingThreads;
 import com.google.mlkit.vision.demo.ScopedExecutor;
+import com.google.mlkit.vision.demo.TemperatureMonitor;
+import com.google.mlkit.vision.demo.ThermalThrottleManager;
 import com.google.mlkit.vision.demo.VisionImageProcessor;
+import com.google.mlkit.vision.demo.governor.QualityGovernor;
+import com.google.mlkit.vision.demo.governor.QualityLevel;
+import com.google.mlkit.vision.demo.governor.ThermalThrottle;
+import com.google.mlkit.vision.demo.memory.MemoryBudget;
+import com.google.mlkit.vision.demo.metrics.FrameMetrics;
+import com.google.mlkit.vision.demo.metrics.MetricsRegistry;
+import com.google.mlkit.vision.demo.metrics.MetricsSnapshot;
 import com.google.mlkit.vision.demo.preference.PreferenceUtils;
+import com.google.mlkit.vision.demo.scheduler.FrameScheduler;
+import com.google.mlkit.vision.demo.scheduler.PipelineStage;
+import com.google.mlkit.vision.demo.scheduler.StageMeter;
+import com.google.mlkit.vision.demo.stream.FrameResult;
+import com.google.mlkit.vision.demo.stream.ResultStream;
+import com.google.mlkit.vision.demo.yuv.FrameRegion;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.nio.ByteBuffer;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Abstract base class for vision frame processors. Subclasses need to implement {@link
@@ -482,118 +504,365 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
 
   protected static final String MANUAL_TESTING_LOG = "LogTagForTest";
   private static final String TAG = "VisionProcessorBase";
+  private static final Executor DIRECT_EXECUTOR = Runnable::run;
+  private static final long METRICS_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long METRICS_EXPORT_INTERVAL_MS = 5000;
+  private static final double BYTES_PER_MB = 0x100000L;
 
   private final ActivityManager activityManager;
-  private final Timer fpsTimer = new Timer();
   private final ScopedExecutor executor;
+  // Every frame, whatever its source, goes through the scheduler to be processed or dropped.
+  private final FrameScheduler frameScheduler;
+  // Whether the next frame is detected while the current one is post-processed and drawn.
+  private final boolean pipelined;
+  private final StageMeter detectionMeter = new StageMeter("detection");
+  private final PipelineStage<PipelineFrame> postProcessingStage;
+  private final PipelineStage<PipelineFrame> renderingStage;
 
-  private OnProcessingCompleteListener onProcessingCompleteListener;
-
-  // Whether this processor is already shut down
-  private boolean isShutdown;
-
-  // Used to calculate latency, running in the same thread, no sync needed.
-  private int numRuns = 0;
-  private long totalFrameMs = 0;
-  private long maxFrameMs = 0;
-  private long minFrameMs = Long.MAX_VALUE;
-  private long totalDetectorMs = 0;
-  private long maxDetectorMs = 0;
-  private long minDetectorMs = Long.MAX_VALUE;
+  @Nullable private volatile OnBitmapReleasedListener onBitmapReleasedListener;
 
-  // Frame count that have been processed so far in an one second interval to calculate FPS.
-  private int frameProcessedInOneSecondInterval = 0;
-  private int framesPerSecond = 0;
+  private final FrameMetrics frameMetrics = new FrameMetrics();
+  private final ResultStream<FrameResult<T>> resultStream = new ResultStream<>();
+  private final GraphicOverlay.OnDrawListener drawListener =
+          drawNanos -> frameMetrics.record(FrameMetrics.Stage.DRAW, drawNanos);
+  // Only accessed on the main thread.
+  private long lastMetricsLogNanos = System.nanoTime();
+  // Fed on the main thread.
+  private final MemoryBudgetManager memoryBudgetManager;
+  // Null unless metrics are exported.
+  @Nullable private final TemperatureMonitor temperatureMonitor;
+  @Nullable private final MetricsExporter metricsExporter;
+  // Null unless adaptive quality is on. Fed and applied on the main thread.
+  @Nullable private final QualityGovernor qualityGovernor;
+  @Nullable private QualityGovernor.Listener onQualityLevelChangedListener;
+  // Null unless thermal throttling is on. The throttle is shared by the whole app, so that its
+  // level survives the processor. Fed and applied on the main thread.
+  @Nullable private final ThermalThrottleManager thermalThrottleManager;
+  private final ThermalThrottle.Listener thermalThrottleListener = this::applyThermalThrottle;
+  private ThermalThrottle.Level thermalLevel = ThermalThrottle.Level.NONE;
+  // Analyzes every frame, unless the governor or the thermal throttle says otherwise.
+  private int qualityFrameInterval = 1;
+  // The scheduling to return to once every frame is analyzed again.
+  @Nullable private FrameScheduler.Policy savedPolicy;
+  private int savedFrameInterval;
 
-  // To keep the latest images and its metadata.
-  @GuardedBy("this")
-  private ByteBuffer latestImage;
-
-  @GuardedBy("this")
-  private FrameMetadata latestImageMetaData;
-  // To keep the images and metadata in process.
-  @GuardedBy("this")
-  private ByteBuffer processingImage;
-
-  @GuardedBy("this")
-  private FrameMetadata processingMetaData;
+  // The camera image drawn by the overlay, only accessed on the main thread. It goes back to the
+  // FrameBufferPool once the overlay is cleared for the next frame.
+  @Nullable private Bitmap displayedCameraImage;
 
   protected VisionProcessorBase(Context context) {
     activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
     executor = new ScopedExecutor(TaskExecutors.MAIN_THREAD);
-    fpsTimer.scheduleAtFixedRate(
-            new TimerTask() {
-              @Override
-              public void run() {
-                framesPerSecond = frameProcessedInOneSecondInterval;
-                frameProcessedInOneSecondInterval = 0;
+    frameScheduler = PreferenceUtils.createFrameScheduler(context);
+    pipelined = PreferenceUtils.shouldUsePipelinedDetection(context);
+    FrameTrace.setEnabled(PreferenceUtils.shouldTraceFramePipeline(context));
+    qualityGovernor = PreferenceUtils.createQualityGovernor(context, this::applyQualityLevel);
+    // Looks the executor up per frame, since subclasses only set theirs up after this constructor.
+    postProcessingStage =
+            new PipelineStage<>(
+                    "post-processing",
+                    command -> getPostProcessingExecutor().execute(command),
+                    new FrameStage(/* postProcessing= */ true));
+    renderingStage =
+            new PipelineStage<>("rendering", executor, new FrameStage(/* postProcessing= */ false));
+    memoryBudgetManager = MemoryBudgetManager.getInstance(context);
+    if (PreferenceUtils.shouldThrottleOnHeat(context)) {
+      thermalThrottleManager = ThermalThrottleManager.getInstance(context);
+      ThermalThrottle.Level level = thermalThrottleManager.addListener(thermalThrottleListener);
+      if (level != ThermalThrottle.Level.NONE) {
+        // Applied once the subclass is constructed too, since it may react to the level.
+        executor.execute(() -> applyThermalThrottle(level, "Carried over from an earlier session"));
+      }
+    } else {
+      thermalThrottleManager = null;
+    }
+    MetricsSnapshot.Format exportFormat = PreferenceUtils.getMetricsExportFormat(context);
+    temperatureMonitor = exportFormat != null ? new TemperatureMonitor(context) : null;
+    metricsExporter =
+            exportFormat != null
+                    ? new MetricsExporter(
+                            context,
+                            createMetricsRegistry(),
+                            exportFormat,
+                            METRICS_EXPORT_INTERVAL_MS)
+                    : null;
+  }
+
+  /** Describes this session, and samples frame drops, memory and temperatures for export. */
+  private MetricsRegistry createMetricsRegistry() {
+    MetricsRegistry registry = new MetricsRegistry(frameMetrics);
+    registry.putLabel("device", Build.MANUFACTURER + " " + Build.MODEL);
+    registry.putLabel("sdk", String.valueOf(Build.VERSION.SDK_INT));
+    registry.putLabel("app_version", BuildConfig.VERSION_NAME);
+    registry.putLabel("processor", getClass().getSimpleName());
+    registry.putLabel("frame_policy", frameScheduler.getPolicy().name());
+    registry.putLabel("pipelined", String.valueOf(pipelined));
+    registry.addGauge(
+            values -> {
+              values.put("frames.submitted", (double) frameScheduler.getSubmittedFrames());
+              values.put("frames.processed", (double) frameScheduler.getProcessedFrames());
+              values.put("frames.dropped", (double) frameScheduler.getDroppedFrames());
+              values.put(
+                      "frames.dropped.post_processing",
+                      (double) postProcessingStage.getDroppedItems());
+              values.put("frames.dropped.rendering", (double) renderingStage.getDroppedItems());
+            });
+    registry.addGauge(
+            values -> {
+              MemoryInfo mi = new MemoryInfo();
+              activityManager.getMemoryInfo(mi);
+              values.put("memory.available_mb", mi.availMem / BYTES_PER_MB);
+              values.put("memory.threshold_mb", mi.threshold / BYTES_PER_MB);
+              values.put("memory.low", mi.lowMemory ? 1.0 : 0.0);
+              Runtime runtime = Runtime.getRuntime();
+              values.put(
+                      "memory.heap_used_mb",
+                      (runtime.totalMemory() - runtime.freeMemory()) / BYTES_PER_MB);
+            });
+    QualityGovernor governor = qualityGovernor;
+    if (governor != null) {
+      registry.addGauge(values -> values.put("quality.level", (double) governor.getLevelIndex()));
+    }
+    TemperatureMonitor temperatures = temperatureMonitor;
+    registry.addGauge(
+            values -> {
+              for (Map.Entry<String, Float> reading :
+                      temperatures.sensorReadingsCelsius.entrySet()) {
+                values.put("temperature." + reading.getKey(), (double) reading.getValue());
+              }
+              values.put("thermal.status", (double) temperatures.getThermalStatus());
+            });
+    MemoryBudget budget = memoryBudgetManager.getBudget();
+    registry.addGauge(
+            values -> {
+              values.put("memory.budget_mb", budget.getBudgetBytes() / BYTES_PER_MB);
+              values.put("memory.pressure", (double) budget.getPressure().ordinal());
+              long trackedBytes = 0;
+              for (Map.Entry<String, Long> size : budget.getSizesBytes().entrySet()) {
+                values.put("memory.tracked_mb." + size.getKey(), size.getValue() / BYTES_PER_MB);
+                trackedBytes += size.getValue();
               }
-            },
-            /* delay= */ 0,
-            /* period= */ 1000);
+              values.put("memory.tracked_mb", trackedBytes / BYTES_PER_MB);
+            });
+    ThermalThrottleManager throttle = thermalThrottleManager;
+    if (throttle != null) {
+      registry.addGauge(
+              values ->
+                      values.put("thermal.throttle_level", (double) throttle.getLevel().ordinal()));
+    }
+    registry.addGauge(ProcessingThreads.getRuntime());
+    registry.addGauge(resultStream);
+    return registry;
+  }
+
+  /** Sets the listener to tell when bitmaps passed to {@link #processBitmap} can be reused. */
+  public void setOnBitmapReleasedListener(@Nullable OnBitmapReleasedListener listener) {
+    onBitmapReleasedListener = listener;
+  }
+
+  @Override
+  public FrameScheduler getFrameScheduler() {
+    return frameScheduler;
   }
 
-  public void setOnProcessingCompleteListener(OnProcessingCompleteListener onProcessingCompleteListener) {
-    this.onProcessingCompleteListener = onProcessingCompleteListener;
+  @Override
+  @Nullable
+  public QualityGovernor getQualityGovernor() {
+    return qualityGovernor;
+  }
+
+  @Override
+  public void setOnQualityLevelChangedListener(@Nullable QualityGovernor.Listener listener) {
+    onQualityLevelChangedListener = listener;
+  }
+
+  private void applyQualityLevel(QualityLevel level, String reason) {
+    Log.i(TAG, "Quality level changed to " + level + ". " + reason);
+    qualityFrameInterval = level.getFrameInterval();
+    updateFrameInterval();
+    onQualityLevelChanged(level);
+    QualityGovernor.Listener listener = onQualityLevelChangedListener;
+    if (listener != null) {
+      listener.onQualityLevelChanged(level, reason);
+    }
+  }
+
+  private void applyThermalThrottle(ThermalThrottle.Level level, String reason) {
+    if (level == thermalLevel) {
+      return;
+    }
+    thermalLevel = level;
+    updateFrameInterval();
+    onThermalThrottleChanged(level);
+  }
+
+  /** Analyzes every Nth frame, as the governor or the thermal throttle requires. */
+  private void updateFrameInterval() {
+    int frameInterval = Math.max(qualityFrameInterval, thermalLevel.getMinFrameInterval());
+    if (frameInterval > 1) {
+      if (savedPolicy == null) {
+        savedPolicy = frameScheduler.getPolicy();
+        savedFrameInterval = frameScheduler.getFrameInterval();
+      }
+      frameScheduler.configure(
+              FrameScheduler.Policy.EVERY_NTH,
+              frameScheduler.getQueueCapacity(),
+              frameInterval,
+              frameScheduler.getMaxFramesInFlight());
+    } else if (savedPolicy != null) {
+      frameScheduler.configure(
+              savedPolicy,
+              frameScheduler.getQueueCapacity(),
+              savedFrameInterval,
+              frameScheduler.getMaxFramesInFlight());
+      savedPolicy = null;
+    }
+  }
+
+  /** Returns the latency histograms of each processing stage, and the frame rate. */
+  public FrameMetrics getFrameMetrics() {
+    return frameMetrics;
   }
 
   // -----------------Code for processing single still image----------------------------------------
   @Override
   public void processBitmap(Bitmap bitmap, final GraphicOverlay graphicOverlay) {
-    long frameStartMs = SystemClock.elapsedRealtime();
+    long frameStartNanos = System.nanoTime();
+    int frameId = beginFrameTrace();
+    frameScheduler.submit(
+            new FrameScheduler.Frame() {
+              @Override
+              public void process() {
+                processScheduledBitmap(bitmap, graphicOverlay, frameStartNanos, frameId)
+                        .addOnCompleteListener(
+                                executor,
+                                task -> {
+                                  releaseBitmap(bitmap, /* processed= */ true);
+                                  frameScheduler.onFrameDone();
+                                });
+              }
+
+              @Override
+              public void drop() {
+                releaseBitmap(bitmap, /* processed= */ false);
+                FrameTrace.endAsyncSection(FrameTrace.FRAME, frameId);
+              }
+            });
+  }
 
+  private Task<Void> processScheduledBitmap(
+          Bitmap bitmap, final GraphicOverlay graphicOverlay, long frameStartNanos, int frameId) {
     if (isMlImageEnabled(graphicOverlay.getContext())) {
       MlImage mlImage = new BitmapMlImageBuilder(bitmap).build();
-      requestDetectInImage(
-              mlImage,
-              graphicOverlay,
-              /* originalCameraImage= */ null,
-              /* shouldShowFps= */ false,
-              frameStartMs);
+      Task<Void> task =
+              requestDetectInImage(
+                      mlImage,
+                      graphicOverlay,
+                      /* originalCameraImage= */ null,
+                      /* shouldShowFps= */ false,
+                      frameStartNanos,
+                      frameId);
       mlImage.close();
 
-      return;
+      return task;
     }
 
-    requestDetectInImage(
+    return requestDetectInImage(
             InputImage.fromBitmap(bitmap, 0),
             graphicOverlay,
             /* originalCameraImage= */ null,
             /* shouldShowFps= */ false,
-            frameStartMs);
+            frameStartNanos,
+            frameId);
   }
 
-  // -----------------Code for processing live preview frame from Camera1 API-----------------------
-  @Override
-  public synchronized void processByteBuffer(
-          ByteBuffer data, final FrameMetadata frameMetadata, final GraphicOverlay graphicOverlay) {
-    latestImage = data;
-    latestImageMetaData = frameMetadata;
-    if (processingImage == null && processingMetaData == null) {
-      processLatestImage(graphicOverlay);
-    }
+  /** Starts the async trace slice of a new frame, and returns the frame's ID. */
+  private static int beginFrameTrace() {
+    int frameId = FrameTrace.newFrameId();
+    FrameTrace.beginAsyncSection(FrameTrace.FRAME, frameId);
+    return frameId;
   }
 
-  private synchronized void processLatestImage(final GraphicOverlay graphicOverlay) {
-    processingImage = latestImage;
-    processingMetaData = latestImageMetaData;
-    latestImage = null;
-    latestImageMetaData = null;
-    if (processingImage != null && processingMetaData != null && !isShutdown) {
-      processImage(processingImage, processingMetaData, graphicOverlay);
+  private void releaseBitmap(Bitmap bitmap, boolean processed) {
+    OnBitmapReleasedListener listener = onBitmapReleasedListener;
+    if (listener != null) {
+      listener.onBitmapReleased(bitmap, processed);
     }
   }
 
-  private void processImage(
+  // -----------------Code for processing live preview frame from Camera1 API-----------------------
+  @Override
+  public void processByteBuffer(
           ByteBuffer data, final FrameMetadata frameMetadata, final GraphicOverlay graphicOverlay) {
-    long frameStartMs = SystemClock.elapsedRealtime();
+    long frameStartNanos = System.nanoTime();
+    int frameId = beginFrameTrace();
+    // The camera refills its buffer as soon as this returns, while the frame may still be waiting
+    // in the scheduler or in detection, so work on a pooled copy.
+    data.rewind();
+    byte[] frameData = FrameBufferPool.getInstance().acquireByteArray(data.limit());
+    data.get(frameData);
+    ByteBuffer frame = ByteBuffer.wrap(frameData);
+    frameScheduler.submit(
+            new FrameScheduler.Frame() {
+              @Override
+              public void process() {
+                processImage(frame, frameMetadata, graphicOverlay, frameStartNanos, frameId)
+                        .addOnCompleteListener(
+                                executor,
+                                task -> {
+                                  FrameBufferPool.getInstance().releaseByteArray(frameData);
+                                  frameScheduler.onFrameDone();
+                                });
+              }
+
+              @Override
+              public void drop() {
+                FrameBufferPool.getInstance().releaseByteArray(frameData);
+                FrameTrace.endAsyncSection(FrameTrace.FRAME, frameId);
+              }
+            });
+  }
+
+  private Task<Void> processImage(
+          ByteBuffer data,
+          final FrameMetadata frameMetadata,
+          final GraphicOverlay graphicOverlay,
+          long frameStartNanos,
+          int frameId) {
 
     // If live viewport is on (that is the underneath surface view takes care of the camera preview
     // drawing), skip the unnecessary bitmap creation that used for the manual preview drawing.
-    Bitmap bitmap =
-            PreferenceUtils.isCameraLiveViewportEnabled(graphicOverlay.getContext())
-                    ? null
-                    : BitmapUtils.getBitmap(data, frameMetadata);
+    Bitmap bitmap = null;
+    if (!PreferenceUtils.isCameraLiveViewportEnabled(graphicOverlay.getContext())) {
+      long conversionStartNanos = System.nanoTime();
+      FrameTrace.beginSection(FrameTrace.YUV_CONVERSION);
+      bitmap =
+              PreferenceUtils.shouldUseDirectYuvConversion(graphicOverlay.getContext())
+                      ? BitmapUtils.getBitmapDirect(
+                              data, frameMetadata, graphicOverlay.getWidth(),
+                              graphicOverlay.getHeight())
+                      : BitmapUtils.getBitmap(data, frameMetadata);
+      FrameTrace.endSection();
+      frameMetrics.record(
+              FrameMetrics.Stage.CONVERSION, System.nanoTime() - conversionStartNanos);
+    }
+
+    FrameRegion region =
+            getDetectionRegion(
+                    frameMetadata.getWidth(),
+                    frameMetadata.getHeight(),
+                    frameMetadata.getRotation());
+    if (region != null) {
+      return requestDetectInRegion(
+              data,
+              frameMetadata.getWidth(),
+              frameMetadata.getHeight(),
+              region,
+              graphicOverlay,
+              bitmap,
+              frameStartNanos,
+              frameId);
+    }
 
     if (isMlImageEnabled(graphicOverlay.getContext())) {
       MlImage mlImage =
@@ -605,15 +874,21 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
                       .setRotation(frameMetadata.getRotation())
                       .build();
 
-      requestDetectInImage(mlImage, graphicOverlay, bitmap, /* shouldShowFps= */ true, frameStartMs)
-              .addOnSuccessListener(executor, results -> processLatestImage(graphicOverlay));
+      Task<Void> task =
+              requestDetectInImage(
+                      mlImage,
+                      graphicOverlay,
+                      bitmap,
+                      /* shouldShowFps= */ true,
+                      frameStartNanos,
+                      frameId);
 
       // This is optional. Java Garbage collection can also close it eventually.
       mlImage.close();
-      return;
+      return task;
     }
 
-    requestDetectInImage(
+    return requestDetectInImage(
             InputImage.fromByteBuffer(
                     data,
                     frameMetadata.getWidth(),
@@ -623,8 +898,8 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
             graphicOverlay,
             bitmap,
             /* shouldShowFps= */ true,
-            frameStartMs)
-            .addOnSuccessListener(executor, results -> processLatestImage(graphicOverlay));
+            frameStartNanos,
+            frameId);
   }
 
   // -----------------Code for processing live preview frame from CameraX API-----------------------
@@ -632,15 +907,67 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
   @RequiresApi(VERSION_CODES.KITKAT)
   @ExperimentalGetImage
   public void processImageProxy(ImageProxy image, GraphicOverlay graphicOverlay) {
-    long frameStartMs = SystemClock.elapsedRealtime();
-    if (isShutdown) {
-      image.close();
-      return;
-    }
+    long frameStartNanos = System.nanoTime();
+    int frameId = beginFrameTrace();
+    frameScheduler.submit(
+            new FrameScheduler.Frame() {
+              @Override
+              public void process() {
+                processScheduledImageProxy(image, graphicOverlay, frameStartNanos, frameId)
+                        // When the image is from CameraX analysis use case, must call image.close()
+                        // on received images when finished using them. Otherwise, new images may
+                        // not be received or the camera may stall. This listener runs on the main
+                        // thread even after stop(), so the image is always closed.
+                        .addOnCompleteListener(
+                                results -> {
+                                  image.close();
+                                  frameScheduler.onFrameDone();
+                                });
+              }
+
+              @Override
+              public void drop() {
+                image.close();
+                FrameTrace.endAsyncSection(FrameTrace.FRAME, frameId);
+              }
+            });
+  }
 
+  @RequiresApi(VERSION_CODES.KITKAT)
+  @ExperimentalGetImage
+  private Task<Void> processScheduledImageProxy(
+          ImageProxy image, GraphicOverlay graphicOverlay, long frameStartNanos, int frameId) {
     Bitmap bitmap = null;
     if (!PreferenceUtils.isCameraLiveViewportEnabled(graphicOverlay.getContext())) {
-      bitmap = BitmapUtils.getBitmap(image);
+      long conversionStartNanos = System.nanoTime();
+      FrameTrace.beginSection(FrameTrace.YUV_CONVERSION);
+      bitmap =
+              PreferenceUtils.shouldUseDirectYuvConversion(graphicOverlay.getContext())
+                      ? BitmapUtils.getBitmapDirect(
+                              image, graphicOverlay.getWidth(), graphicOverlay.getHeight())
+                      : BitmapUtils.getBitmap(image);
+      FrameTrace.endSection();
+      frameMetrics.record(
+              FrameMetrics.Stage.CONVERSION, System.nanoTime() - conversionStartNanos);
+    }
+
+    FrameRegion region =
+            getDetectionRegion(
+                    image.getWidth(), image.getHeight(), image.getImageInfo().getRotationDegrees());
+    if (region != null) {
+      ByteBuffer nv21 = BitmapUtils.getNv21(image);
+      Task<Void> task =
+              requestDetectInRegion(
+                      nv21,
+                      image.getWidth(),
+                      image.getHeight(),
+                      region,
+                      graphicOverlay,
+                      /* originalCameraImage= */ bitmap,
+                      frameStartNanos,
+                      frameId);
+      FrameBufferPool.getInstance().releaseByteArray(nv21.array());
+      return task;
     }
 
     if (isMlImageEnabled(graphicOverlay.getContext())) {
@@ -649,162 +976,407 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
                       .setRotation(image.getImageInfo().getRotationDegrees())
                       .build();
 
-      requestDetectInImage(
+      // Currently MlImage doesn't support ImageProxy directly, so the caller still needs to call
+      // ImageProxy.close().
+      return requestDetectInImage(
               mlImage,
               graphicOverlay,
               /* originalCameraImage= */ bitmap,
               /* shouldShowFps= */ true,
-              frameStartMs)
-              // When the image is from CameraX analysis use case, must call image.close() on received
-              // images when finished using them. Otherwise, new images may not be received or the
-              // camera may stall.
-              // Currently MlImage doesn't support ImageProxy directly, so we still need to call
-              // ImageProxy.close() here.
-              .addOnCompleteListener(results -> image.close());
-      return;
+              frameStartNanos,
+              frameId);
     }
 
-    requestDetectInImage(
+    return requestDetectInImage(
             InputImage.fromMediaImage(image.getImage(), image.getImageInfo().getRotationDegrees()),
             graphicOverlay,
             /* originalCameraImage= */ bitmap,
             /* shouldShowFps= */ true,
-            frameStartMs)
-            // When the image is from CameraX analysis use case, must call image.close() on received
-            // images when finished using them. Otherwise, new images may not be received or the camera
-            // may stall.
-            .addOnCompleteListener(results -> image.close());
+            frameStartNanos,
+            frameId);
   }
 
   // -----------------Common processing logic-------------------------------------------------------
-  private Task<T> requestDetectInImage(
+  private Task<Void> requestDetectInImage(
           final InputImage image,
           final GraphicOverlay graphicOverlay,
           @Nullable final Bitmap originalCameraImage,
           boolean shouldShowFps,
-          long frameStartMs) {
-    return setUpListener(
-            detectInImage(image), graphicOverlay, originalCameraImage, shouldShowFps, frameStartMs);
+          long frameStartNanos,
+          int frameId) {
+    PipelineFrame frame =
+            new PipelineFrame(
+                    graphicOverlay, originalCameraImage, shouldShowFps, frameStartNanos, frameId);
+    FrameTrace.beginAsyncSection(FrameTrace.DETECTION, frameId);
+    FrameTrace.beginSection(FrameTrace.DETECT_IN_IMAGE);
+    Task<T> task = detectInImage(image, frame::releaseInput);
+    FrameTrace.endSection();
+    return setUpListener(task, frame);
   }
 
-  private Task<T> requestDetectInImage(
+  private Task<Void> requestDetectInImage(
           final MlImage image,
           final GraphicOverlay graphicOverlay,
           @Nullable final Bitmap originalCameraImage,
           boolean shouldShowFps,
-          long frameStartMs) {
-    return setUpListener(
-            detectInImage(image), graphicOverlay, originalCameraImage, shouldShowFps, frameStartMs);
+          long frameStartNanos,
+          int frameId) {
+    PipelineFrame frame =
+            new PipelineFrame(
+                    graphicOverlay, originalCameraImage, shouldShowFps, frameStartNanos, frameId);
+    FrameTrace.beginAsyncSection(FrameTrace.DETECTION, frameId);
+    FrameTrace.beginSection(FrameTrace.DETECT_IN_IMAGE);
+    Task<T> task = detectInImage(image);
+    FrameTrace.endSection();
+    return setUpListener(task, frame);
   }
 
-  private Task<T> setUpListener(
-          Task<T> task,
+  /** Crops the region out of an NV21 camera frame, and detects in the cropped image. */
+  private Task<Void> requestDetectInRegion(
+          ByteBuffer nv21,
+          int width,
+          int height,
+          FrameRegion region,
           final GraphicOverlay graphicOverlay,
           @Nullable final Bitmap originalCameraImage,
-          boolean shouldShowFps,
-          long frameStartMs) {
-    final long detectorStartMs = SystemClock.elapsedRealtime();
-    return task.addOnSuccessListener(
-            executor,
-            results -> {
-              long endMs = SystemClock.elapsedRealtime();
-              long currentFrameLatencyMs = endMs - frameStartMs;
-              long currentDetectorLatencyMs = endMs - detectorStartMs;
-              if (numRuns >= 500) {
-                resetLatencyStats();
-              }
-              numRuns++;
-              frameProcessedInOneSecondInterval++;
-              totalFrameMs += currentFrameLatencyMs;
-              maxFrameMs = max(currentFrameLatencyMs, maxFrameMs);
-              minFrameMs = min(currentFrameLatencyMs, minFrameMs);
-              totalDetectorMs += currentDetectorLatencyMs;
-              maxDetectorMs = max(currentDetectorLatencyMs, maxDetectorMs);
-              minDetectorMs = min(currentDetectorLatencyMs, minDetectorMs);
-
-              // Only log inference info once per second. When frameProcessedInOneSecondInterval is
-              // equal to 1, it means this is the first frame processed during the current second.
-              if (frameProcessedInOneSecondInterval == 1) {
-                Log.d(TAG, "Num of Runs: " + numRuns);
-                Log.d(
-                        TAG,
-                        "Frame latency: max="
-                                + maxFrameMs
-                                + ", min="
-                                + minFrameMs
-                                + ", avg="
-                                + totalFrameMs / numRuns);
-                Log.d(
-                        TAG,
-                        "Detector latency: max="
-                                + maxDetectorMs
-                                + ", min="
-                                + minDetectorMs
-                                + ", avg="
-                                + totalDetectorMs / numRuns);
-                MemoryInfo mi = new MemoryInfo();
-                activityManager.getMemoryInfo(mi);
-                long availableMegs = mi.availMem / 0x100000L;
-                Log.d(TAG, "Memory available in system: " + availableMegs + " MB");
-              }
+          long frameStartNanos,
+          int frameId) {
+    FrameTrace.beginSection(FrameTrace.ROI_CROP);
+    byte[] cropped = BitmapUtils.cropNv21(nv21, width, height, region);
+    FrameTrace.endSection();
+    InputImage image =
+            InputImage.fromByteBuffer(
+                    ByteBuffer.wrap(cropped),
+                    region.getOutputWidth(),
+                    region.getOutputHeight(),
+                    region.getRotationDegrees(),
+                    InputImage.IMAGE_FORMAT_NV21);
+    FrameTrace.beginAsyncSection(FrameTrace.DETECTION, frameId);
+    FrameTrace.beginSection(FrameTrace.DETECT_IN_IMAGE);
+    Task<T> task = detectInRegion(image, region);
+    FrameTrace.endSection();
+    task.addOnCompleteListener(
+            DIRECT_EXECUTOR, detection -> FrameBufferPool.getInstance().releaseByteArray(cropped));
+    return setUpListener(
+            task,
+            new PipelineFrame(
+                    graphicOverlay,
+                    originalCameraImage,
+                    /* shouldShowFps= */ true,
+                    frameStartNanos,
+                    frameId));
+  }
 
-              graphicOverlay.clear();
-              if (originalCameraImage != null) {
-                graphicOverlay.add(new CameraImageGraphic(graphicOverlay, originalCameraImage));
+  /**
+   * Sends the detection results of a frame through post-processing and rendering, and returns a
+   * task that completes once the frame's input may be released and the next frame processed.
+   *
+   * <p>In pipelined mode that is as soon as detection finishes, or sooner if the subclass releases
+   * the input itself, so the detector works on the next frame while this one is post-processed and
+   * drawn. Otherwise it is once the frame is drawn.
+   */
+  private Task<Void> setUpListener(Task<T> task, PipelineFrame frame) {
+    final long detectorStartNanos = System.nanoTime();
+    detectionMeter.begin();
+    task.addOnCompleteListener(
+            DIRECT_EXECUTOR,
+            detection -> {
+              detectionMeter.end();
+              FrameTrace.endAsyncSection(FrameTrace.DETECTION, frame.frameId);
+              frame.detectorLatencyNanos = System.nanoTime() - detectorStartNanos;
+              frame.predicted =
+                      detection.isSuccessful()
+                              && detection.getResult() != null
+                              && isPredicted(detection.getResult());
+              // Predicted frames take next to no time, and would hide the cost of the detector.
+              if (!frame.predicted) {
+                frameMetrics.record(FrameMetrics.Stage.DETECTION, frame.detectorLatencyNanos);
               }
-              VisionProcessorBase.this.onSuccess(results, graphicOverlay);
-              if (!PreferenceUtils.shouldHideDetectionInfo(graphicOverlay.getContext())) {
-                graphicOverlay.add(
-                        new InferenceInfoGraphic(
-                                graphicOverlay,
-                                currentFrameLatencyMs,
-                                currentDetectorLatencyMs,
-                                shouldShowFps ? framesPerSecond : null));
-              }
-              graphicOverlay.postInvalidate();
-            })
-            .addOnFailureListener(
-                    executor,
-                    e -> {
-                      graphicOverlay.clear();
-                      graphicOverlay.postInvalidate();
-                      String error = "Failed to process. Error: " + e.getLocalizedMessage();
-                      Toast.makeText(
-                              graphicOverlay.getContext(),
-                              error + "\nCause: " + e.getCause(),
-                              Toast.LENGTH_SHORT)
-                              .show();
-                      Log.d(TAG, error);
-                      e.printStackTrace();
-                      VisionProcessorBase.this.onFailure(e);
-                    })
-            .addOnCompleteListener(executor, results ->{
-              if(onProcessingCompleteListener != null){
-                onProcessingCompleteListener.onProcessingComplete();
+              frame.releaseInput();
+              if (detection.isSuccessful()) {
+                frame.results = detection.getResult();
+                postProcessingStage.offer(frame);
+              } else if (detection.getException() != null) {
+                frame.failure = detection.getException();
+                renderingStage.offer(frame);
+              } else {
+                frame.drop();
               }
             });
+    return frame.released.getTask();
+  }
+
+  private void postProcessFrame(PipelineFrame frame) {
+    long startNanos = System.nanoTime();
+    try {
+      frame.results = postProcess(frame.results);
+    } catch (RuntimeException e) {
+      frame.failure = e;
+    }
+    long endNanos = System.nanoTime();
+    frame.postProcessingNanos = endNanos - startNanos;
+    frameMetrics.record(FrameMetrics.Stage.POST_PROCESSING, frame.postProcessingNanos);
+    if (frame.failure == null && resultStream.hasSubscribers()) {
+      resultStream.publish(
+              new FrameResult<>(
+                      frame.frameId,
+                      frame.results,
+                      extractFeatures(frame.results),
+                      frame.frameStartNanos,
+                      frame.detectorLatencyNanos,
+                      frame.postProcessingNanos,
+                      endNanos));
+    }
+    renderingStage.offer(frame);
+  }
+
+  private void renderFrame(PipelineFrame frame) {
+    GraphicOverlay graphicOverlay = frame.graphicOverlay;
+    @Nullable Bitmap originalCameraImage = frame.originalCameraImage;
+    if (frame.failure != null) {
+      Exception e = frame.failure;
+      graphicOverlay.clear();
+      graphicOverlay.postInvalidate();
+      replaceDisplayedCameraImage(null);
+      FrameBufferPool.getInstance().releaseBitmap(originalCameraImage);
+      frame.release();
+      FrameTrace.endAsyncSection(FrameTrace.FRAME, frame.frameId);
+      String error = "Failed to process. Error: " + e.getLocalizedMessage();
+      Toast.makeText(
+              graphicOverlay.getContext(),
+              error + "\nCause: " + e.getCause(),
+              Toast.LENGTH_SHORT)
+              .show();
+      Log.d(TAG, error);
+      e.printStackTrace();
+      VisionProcessorBase.this.onFailure(e);
+      return;
+    }
+
+    long overlayStartNanos = System.nanoTime();
+    FrameTrace.beginSection(FrameTrace.OVERLAY_BUILD);
+    graphicOverlay.clear();
+    if (originalCameraImage != null) {
+      graphicOverlay.add(new CameraImageGraphic(graphicOverlay, originalCameraImage));
+    }
+    replaceDisplayedCameraImage(originalCameraImage);
+    VisionProcessorBase.this.onSuccess(frame.results, graphicOverlay);
+    FrameTrace.endSection();
+    long endNanos = System.nanoTime();
+    long frameLatencyNanos = endNanos - frame.frameStartNanos;
+    long overlayBuildNanos = endNanos - overlayStartNanos;
+    frameMetrics.record(FrameMetrics.Stage.OVERLAY_BUILD, overlayBuildNanos);
+    frameMetrics.record(FrameMetrics.Stage.FRAME, frameLatencyNanos);
+    frameMetrics.onFrameShown(endNanos);
+    if (!PreferenceUtils.shouldHideDetectionInfo(graphicOverlay.getContext())) {
+      graphicOverlay.add(
+              new InferenceInfoGraphic(
+                      graphicOverlay,
+                      TimeUnit.NANOSECONDS.toMillis(frameLatencyNanos),
+                      TimeUnit.NANOSECONDS.toMillis(frame.detectorLatencyNanos),
+                      frame.shouldShowFps
+                              ? Math.round(frameMetrics.getFramesPerSecond(endNanos))
+                              : null));
+    }
+    graphicOverlay.setOnDrawListener(drawListener);
+    graphicOverlay.postInvalidate();
+    frame.release();
+    FrameTrace.endAsyncSection(FrameTrace.FRAME, frame.frameId);
+    // The thermal throttle overrides the governor, whose measurements it would skew.
+    if (qualityGovernor != null && thermalLevel == ThermalThrottle.Level.NONE) {
+      if (frame.predicted) {
+        qualityGovernor.onPredictedFrame(endNanos);
+      } else {
+        // The slowest stage limits the frame rate when the stages overlap, and all of them
+        // otherwise.
+        long costNanos =
+                pipelined
+                        ? Math.max(
+                                frame.detectorLatencyNanos,
+                                Math.max(frame.postProcessingNanos, overlayBuildNanos))
+                        : frame.detectorLatencyNanos
+                                + frame.postProcessingNanos
+                                + overlayBuildNanos;
+        qualityGovernor.onFrame(endNanos, costNanos);
+      }
+    }
+    if (thermalThrottleManager != null) {
+      thermalThrottleManager.checkIfDue(endNanos);
+    }
+    memoryBudgetManager.checkIfDue(endNanos);
+    logMetricsIfDue(endNanos);
+  }
+
+  /** Logs the latency percentiles of each stage, at most once per second. */
+  private void logMetricsIfDue(long nowNanos) {
+    if (nowNanos - lastMetricsLogNanos < METRICS_LOG_INTERVAL_NANOS) {
+      return;
+    }
+    lastMetricsLogNanos = nowNanos;
+    for (FrameMetrics.Stage stage : FrameMetrics.Stage.values()) {
+      Log.d(TAG, stage + " latency: " + frameMetrics.getHistogram(stage));
+    }
+    Log.d(
+            TAG,
+            String.format(
+                    Locale.US,
+                    "FPS: %.1f, stage occupancy: detection=%.0f%%, post-processing=%.0f%%,"
+                            + " rendering=%.0f%%",
+                    frameMetrics.getFramesPerSecond(nowNanos),
+                    detectionMeter.getOccupancy() * 100,
+                    postProcessingStage.getMeter().getOccupancy() * 100,
+                    renderingStage.getMeter().getOccupancy() * 100));
+    MemoryInfo mi = new MemoryInfo();
+    activityManager.getMemoryInfo(mi);
+    long availableMegs = mi.availMem / 0x100000L;
+    Log.d(TAG, "Memory available in system: " + availableMegs + " MB");
+    MemoryBudget budget = memoryBudgetManager.getBudget();
+    Log.d(
+            TAG,
+            String.format(
+                    Locale.US,
+                    "Memory budget: %.1f of %.1f MB tracked, pressure %s",
+                    budget.getTrackedBytes() / BYTES_PER_MB,
+                    budget.getBudgetBytes() / BYTES_PER_MB,
+                    budget.getPressure()));
+    Log.d(TAG, "Processing threads: " + ProcessingThreads.getRuntime());
+  }
+
+  /**
+   * Returns the stream of post-processed results, published as each frame leaves post-processing
+   * and before it is drawn. Subscribers run on executors of their own, so neither the pipeline nor
+   * the overlay waits for them. The stream is closed when the processor stops.
+   */
+  public ResultStream<FrameResult<T>> getResultStream() {
+    return resultStream;
+  }
+
+  /** Returns the budget that subclasses can track their caches and buffers in. */
+  protected MemoryBudget getMemoryBudget() {
+    return memoryBudgetManager.getBudget();
+  }
+
+  /**
+   * Returns the meters of the detection, post-processing and rendering stages, in pipeline order.
+   * The stage closest to fully occupied is the one that limits the frame rate.
+   */
+  public List<StageMeter> getStageMeters() {
+    return Arrays.asList(
+            detectionMeter, postProcessingStage.getMeter(), renderingStage.getMeter());
+  }
+
+  /** Runs the post-processing or the rendering of frames. */
+  private final class FrameStage implements PipelineStage.Handler<PipelineFrame> {
+    private final boolean postProcessing;
+
+    FrameStage(boolean postProcessing) {
+      this.postProcessing = postProcessing;
+    }
+
+    @Override
+    public void process(PipelineFrame frame) {
+      if (postProcessing) {
+        postProcessFrame(frame);
+      } else {
+        renderFrame(frame);
+      }
+    }
+
+    @Override
+    public void drop(PipelineFrame frame) {
+      frame.drop();
+    }
+  }
+
+  /** A frame on its way from detection through post-processing to rendering. */
+  private final class PipelineFrame {
+    final GraphicOverlay graphicOverlay;
+    @Nullable final Bitmap originalCameraImage;
+    final boolean shouldShowFps;
+    final long frameStartNanos;
+    final int frameId;
+    // Completes once the input of the frame is no longer needed.
+    final TaskCompletionSource<Void> released = new TaskCompletionSource<>();
+
+    long detectorLatencyNanos;
+    // Whether the subclass predicted the results instead of running the detector.
+    boolean predicted;
+    long postProcessingNanos;
+    T results;
+    @Nullable Exception failure;
+
+    PipelineFrame(
+            GraphicOverlay graphicOverlay,
+            @Nullable Bitmap originalCameraImage,
+            boolean shouldShowFps,
+            long frameStartNanos,
+            int frameId) {
+      this.graphicOverlay = graphicOverlay;
+      this.originalCameraImage = originalCameraImage;
+      this.shouldShowFps = shouldShowFps;
+      this.frameStartNanos = frameStartNanos;
+      this.frameId = frameId;
+    }
+
+    void release() {
+      released.trySetResult(null);
+    }
+
+    /** Releases the input once the detector is done with it, if the stages overlap. */
+    void releaseInput() {
+      if (pipelined) {
+        release();
+      }
+    }
+
+    /** Gives up on the frame when a newer one overtook it, or the processor stopped. */
+    void drop() {
+      FrameBufferPool.getInstance().releaseBitmap(originalCameraImage);
+      release();
+      FrameTrace.endAsyncSection(FrameTrace.FRAME, frameId);
+    }
+  }
+
+  private void replaceDisplayedCameraImage(@Nullable Bitmap cameraImage) {
+    if (displayedCameraImage != null && displayedCameraImage != cameraImage) {
+      FrameBufferPool.getInstance().releaseBitmap(displayedCameraImage);
+    }
+    displayedCameraImage = cameraImage;
   }
 
   @Override
   public void stop() {
+    resultStream.close();
+    frameScheduler.close();
+    postProcessingStage.close();
+    renderingStage.close();
     executor.shutdown();
-    isShutdown = true;
-    resetLatencyStats();
-    fpsTimer.cancel();
-  }
-
-  private void resetLatencyStats() {
-    numRuns = 0;
-    totalFrameMs = 0;
-    maxFrameMs = 0;
-    minFrameMs = Long.MAX_VALUE;
-    totalDetectorMs = 0;
-    maxDetectorMs = 0;
-    minDetectorMs = Long.MAX_VALUE;
+    if (metricsExporter != null) {
+      metricsExporter.close();
+    }
+    if (temperatureMonitor != null) {
+      temperatureMonitor.stop();
+    }
+    if (thermalThrottleManager != null) {
+      thermalThrottleManager.removeListener(thermalThrottleListener);
+    }
+    // The overlay may still draw the last camera image, so leave it to the garbage collector.
+    displayedCameraImage = null;
   }
 
   protected abstract Task<T> detectInImage(InputImage image);
 
+  /**
+   * Starts detection like {@link #detectInImage(InputImage)}, for subclasses whose results are
+   * ready only some time after the detector is done with the image, such as a fan-out that
+   * post-processes its results itself. They run {@code releaseInput} once nothing reads the image
+   * any more, which in pipelined mode hands the frame's input back to the camera right away rather
+   * than when the returned task completes. It may be run on any thread, and more than once.
+   */
+  protected Task<T> detectInImage(InputImage image, Runnable releaseInput) {
+    return detectInImage(image);
+  }
+
   protected Task<T> detectInImage(MlImage image) {
     return Tasks.forException(
             new MlKitException(
@@ -812,6 +1384,84 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
                     MlKitException.INVALID_ARGUMENT));
   }
 
+  /**
+   * Returns the region of the next live camera frame to detect in, or null to detect in the whole
+   * frame, which is the default. Called on the thread frames are processed on.
+   *
+   * @param width the width of the frame as delivered by the camera.
+   * @param height the height of the frame as delivered by the camera.
+   * @param rotationDegrees the clockwise rotation that makes the frame upright.
+   */
+  @Nullable
+  protected FrameRegion getDetectionRegion(int width, int height, int rotationDegrees) {
+    return null;
+  }
+
+  /**
+   * Detects in the region of a frame returned by {@link #getDetectionRegion}, and maps the
+   * results back to the whole upright frame with the region. Subclasses that return regions must
+   * override this.
+   */
+  protected Task<T> detectInRegion(InputImage image, FrameRegion region) {
+    return Tasks.forException(
+            new MlKitException(
+                    "Detecting in a region is not supported for this feature",
+                    MlKitException.INVALID_ARGUMENT));
+  }
+
+  /**
+   * Returns whether the results were predicted rather than detected, as on frames the subclass
+   * skips the detector on. Predicted frames are left out of the detection latencies and of the
+   * governor's frame costs. Returns false by default.
+   */
+  protected boolean isPredicted(@NonNull T results) {
+    return false;
+  }
+
+  /**
+   * Returns the features the results were derived from, as published with them on the {@link
+   * #getResultStream() result stream}. Only called on the post-processing executor, while the
+   * stream has subscribers. Returns null by default.
+   */
+  @Nullable
+  protected float[] extractFeatures(@NonNull T results) {
+    return null;
+  }
+
+  /**
+   * Runs the work that follows detection and doesn't touch the UI, such as classification, on
+   * {@link #getPostProcessingExecutor()}. In pipelined mode this overlaps with detection of the
+   * next frame. Returns the results as they are by default.
+   */
+  protected T postProcess(@NonNull T results) {
+    return results;
+  }
+
+  /**
+   * Returns the executor {@link #postProcess} runs on, which by default is the thread that
+   * completed detection.
+   */
+  protected Executor getPostProcessingExecutor() {
+    return DIRECT_EXECUTOR;
+  }
+
+  /**
+   * Applies a quality level chosen by the governor that concerns the processor, such as the
+   * detector model. Called on the main thread. Does nothing by default.
+   */
+  protected void onQualityLevelChanged(QualityLevel level) {}
+
+  /**
+   * Applies a thermal throttling level that concerns the processor, such as keeping to the fast
+   * detector. Called on the main thread. Does nothing by default.
+   */
+  protected void onThermalThrottleChanged(ThermalThrottle.Level level) {}
+
+  /** Returns whether to draw less detail on the overlay, to keep the device from heating up. */
+  protected boolean shouldReduceOverlay() {
+    return thermalLevel.shouldReduceOverlay();
+  }
+
   protected abstract void onSuccess(@NonNull T results, @NonNull GraphicOverlay graphicOverlay);
 
   protected abstract void onFailure(@NonNull Exception e);
@@ -820,8 +1470,13 @@ public abstract class VisionProcessorBase<T> implements VisionImageProcessor {
     return false;
   }
 
-  public interface OnProcessingCompleteListener{
-    void onProcessingComplete();
+  /** Tells when a bitmap passed to {@link #processBitmap} is no longer used by the processor. */
+  public interface OnBitmapReleasedListener {
+    /**
+     * Called once {@code bitmap} has been processed, or dropped by the frame scheduler without
+     * being processed. Runs on the main thread for bitmaps submitted from it.
+     */
+    void onBitmapReleased(Bitmap bitmap, boolean processed);
   }
 }
 
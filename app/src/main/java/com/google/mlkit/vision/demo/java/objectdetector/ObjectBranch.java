@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.objectdetector;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.demo.GraphicOverlay;
+import com.google.mlkit.vision.demo.java.FanOutProcessor;
+import com.google.mlkit.vision.objects.DetectedObject;
+import com.google.mlkit.vision.objects.ObjectDetection;
+import com.google.mlkit.vision.objects.ObjectDetector;
+import com.google.mlkit.vision.objects.defaults.ObjectDetectorOptions;
+import java.util.List;
+
+/** Object detection with the base model, as a branch of a {@link FanOutProcessor}. */
+public class ObjectBranch implements FanOutProcessor.Branch<List<DetectedObject>> {
+  private final ObjectDetector detector;
+
+  public ObjectBranch() {
+    detector =
+        ObjectDetection.getClient(
+            new ObjectDetectorOptions.Builder()
+                .setDetectorMode(ObjectDetectorOptions.STREAM_MODE)
+                .enableClassification()
+                .build());
+  }
+
+  @Override
+  public Task<List<DetectedObject>> detect(InputImage image) {
+    return detector.process(image);
+  }
+
+  @Override
+  public Task<List<DetectedObject>> postProcess(List<DetectedObject> objects) {
+    return Tasks.forResult(objects);
+  }
+
+  @Override
+  public void draw(List<DetectedObject> objects, GraphicOverlay graphicOverlay) {
+    for (DetectedObject object : objects) {
+      graphicOverlay.add(new ObjectGraphic(graphicOverlay, object));
+    }
+  }
+
+  @Override
+  public void stop() {
+    detector.close();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.objectdetector;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import com.google.mlkit.vision.demo.GraphicOverlay;
+import com.google.mlkit.vision.demo.GraphicOverlay.Graphic;
+import com.google.mlkit.vision.objects.DetectedObject;
+import java.util.Locale;
+
+/** Draws the bounding box of a detected object, with its tracking id and labels. */
+public class ObjectGraphic extends Graphic {
+  private static final float TEXT_SIZE = 30.0f;
+  private static final float STROKE_WIDTH = 4.0f;
+
+  private final DetectedObject object;
+  private final Paint boxPaint;
+  private final Paint textPaint;
+
+  ObjectGraphic(GraphicOverlay overlay, DetectedObject object) {
+    super(overlay);
+    this.object = object;
+
+    boxPaint = new Paint();
+    boxPaint.setColor(Color.CYAN);
+    boxPaint.setStyle(Paint.Style.STROKE);
+    boxPaint.setStrokeWidth(STROKE_WIDTH);
+
+    textPaint = new Paint();
+    textPaint.setColor(Color.CYAN);
+    textPaint.setTextSize(TEXT_SIZE);
+    textPaint.setShadowLayer(5.0f, 0f, 0f, Color.BLACK);
+  }
+
+  @Override
+  public void draw(Canvas canvas) {
+    Rect box = object.getBoundingBox();
+    // The overlay may be mirrored, so the translated edges can swap.
+    float left = min(translateX(box.left), translateX(box.right));
+    float right = max(translateX(box.left), translateX(box.right));
+    float top = translateY(box.top);
+    float bottom = translateY(box.bottom);
+    canvas.drawRect(left, top, right, bottom, boxPaint);
+
+    float y = top - STROKE_WIDTH;
+    if (object.getTrackingId() != null) {
+      canvas.drawText("Tracking ID: " + object.getTrackingId(), left, y, textPaint);
+      y -= TEXT_SIZE;
+    }
+    for (DetectedObject.Label label : object.getLabels()) {
+      canvas.drawText(
+          String.format(Locale.US, "%s (%.2f)", label.getText(), label.getConfidence()),
+          left,
+          y,
+          textPaint);
+      y -= TEXT_SIZE;
+    }
+  }
+}
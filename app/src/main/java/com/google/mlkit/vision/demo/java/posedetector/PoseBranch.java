@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.demo.GraphicOverlay;
+import com.google.mlkit.vision.demo.java.FanOutProcessor;
+import com.google.mlkit.vision.pose.PoseDetection;
+import com.google.mlkit.vision.pose.PoseDetector;
+import com.google.mlkit.vision.pose.PoseDetectorOptionsBase;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+/**
+ * Pose detection as a branch of a {@link FanOutProcessor}. Every frame is detected, without the
+ * landmark prediction, region of interest or classification of {@link PoseDetectorProcessor}.
+ */
+public class PoseBranch implements FanOutProcessor.Branch<TrackedPose> {
+  private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+  private final PoseDetector detector;
+  private final boolean showInFrameLikelihood;
+  private final boolean visualizeZ;
+  private final boolean rescaleZForVisualization;
+
+  public PoseBranch(
+      PoseDetectorOptionsBase options,
+      boolean showInFrameLikelihood,
+      boolean visualizeZ,
+      boolean rescaleZForVisualization) {
+    detector = PoseDetection.getClient(options);
+    this.showInFrameLikelihood = showInFrameLikelihood;
+    this.visualizeZ = visualizeZ;
+    this.rescaleZForVisualization = rescaleZForVisualization;
+  }
+
+  @Override
+  public Task<TrackedPose> detect(InputImage image) {
+    return detector
+        .process(image)
+        .continueWith(DIRECT_EXECUTOR, task -> TrackedPose.detected(task.getResult()));
+  }
+
+  @Override
+  public Task<TrackedPose> postProcess(TrackedPose pose) {
+    return Tasks.forResult(pose);
+  }
+
+  @Override
+  public void draw(TrackedPose pose, GraphicOverlay graphicOverlay) {
+    graphicOverlay.add(
+        new PoseGraphic(
+            graphicOverlay,
+            pose,
+            showInFrameLikelihood,
+            visualizeZ,
+            rescaleZForVisualization,
+            Collections.emptyList()));
+  }
+
+  @Override
+  public void stop() {
+    detector.close();
+  }
+}
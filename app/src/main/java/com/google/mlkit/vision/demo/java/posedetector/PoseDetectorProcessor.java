@@ -17,55 +17,124 @@
 package com.google.mlkit.vision.demo.java.posedetector;
 
 import android.content.Context;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import android.util.Log;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.android.odml.image.MlImage;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.demo.GraphicOverlay;
+import com.google.mlkit.vision.demo.ProcessingThreads;
+import com.google.mlkit.vision.demo.governor.QualityLevel;
+import com.google.mlkit.vision.demo.governor.ThermalThrottle;
 import com.google.mlkit.vision.demo.java.VisionProcessorBase;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseClassification;
 import com.google.mlkit.vision.demo.java.posedetector.classification.PoseClassifierProcessor;
+import com.google.mlkit.vision.demo.java.posedetector.classification.RepFeedbackPlayer;
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkFrame;
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkSessionRecorder;
+import com.google.mlkit.vision.demo.java.posedetector.tracking.LandmarkPredictor;
+import com.google.mlkit.vision.demo.java.posedetector.tracking.RoiTracker;
+import com.google.mlkit.vision.demo.memory.MemoryBudget;
+import com.google.mlkit.vision.demo.preference.PreferenceUtils;
+import com.google.mlkit.vision.demo.runtime.ProcessingRuntime;
+import com.google.mlkit.vision.demo.runtime.SerialExecutor;
+import com.google.mlkit.vision.demo.yuv.FrameRegion;
 import com.google.mlkit.vision.pose.Pose;
 import com.google.mlkit.vision.pose.PoseDetection;
 import com.google.mlkit.vision.pose.PoseDetector;
 import com.google.mlkit.vision.pose.PoseDetectorOptionsBase;
-import java.util.ArrayList;
+import com.google.mlkit.vision.pose.accurate.AccuratePoseDetectorOptions;
 import java.util.List;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /** A processor to run pose detector. */
 public class PoseDetectorProcessor
     extends VisionProcessorBase<PoseDetectorProcessor.PoseWithClassification> {
   private static final String TAG = "PoseDetectorProcessor";
+  private static final Executor DIRECT_EXECUTOR = Runnable::run;
+  // The names the memory budget tracks the sample library and recorded-session buffers under.
+  private static final String POSE_SAMPLES = "pose_samples";
+  private static final String SESSION_BUFFERS = "session_buffers";
+  // The names the rep feedback and the session recorder subscribe to the result stream under.
+  private static final String REP_FEEDBACK = "rep_feedback";
+  private static final String SESSION_RECORDING = "session_recording";
+  // Only keeps the stream from conflating frames that the recorder should all see, since the
+  // recorder bounds its own queue.
+  private static final int SESSION_RECORDING_CAPACITY = 8;
 
-  private final PoseDetector detector;
+  // Replaced when the quality governor or the thermal throttle switches between the fast and
+  // accurate detectors.
+  private volatile PoseDetector detector;
+  // The latest detection, which the replaced detector is closed after. Guarded by this.
+  private Task<Pose> lastDetection = Tasks.forResult(null);
 
   private final boolean showInFrameLikelihood;
   private final boolean visualizeZ;
   private final boolean rescaleZForVisualization;
   private final boolean runClassification;
   private final boolean isStreamMode;
+  // Guarded by this. The accurate detector runs only if requested and allowed.
+  private boolean isAccurateDetector;
+  private boolean isAccurateDetectorRequested;
+  private boolean isAccurateDetectorAllowed = true;
   private final Context context;
-  private final Executor classificationExecutor;
+  // Runs classification in order on the shared classification lane, so the classifier needs no
+  // locking.
+  private final SerialExecutor classificationExecutor;
+  @Nullable private final LandmarkSessionRecorder sessionRecorder;
+  // Null unless landmarks are predicted between detections.
+  @Nullable private final LandmarkPredictor landmarkPredictor;
+  // Null unless live frames are cropped to the tracked pose before detection.
+  @Nullable private final RoiTracker roiTracker;
+  // Null unless reps are counted, which only happens in stream mode.
+  @Nullable private final RepFeedbackPlayer repFeedbackPlayer;
 
   private PoseClassifierProcessor poseClassifierProcessor;
-  /** Internal class to hold Pose and classification results. */
-  protected static class PoseWithClassification {
-    private final Pose pose;
-    private final List<String> classificationResult;
+  // Set once the classifier is released, so a frame that was already on its way doesn't create it
+  // again. Only accessed on the classification executor.
+  private boolean classifierReleased;
+  // Set on the classification thread, and read by the memory budget.
+  private volatile long poseSamplesSizeBytes;
+  // The samples are needed for every frame, so they are tracked but never dropped.
+  private final MemoryBudget.Consumer poseSamples =
+      new MemoryBudget.Consumer() {
+        @Override
+        public long getSizeBytes() {
+          return poseSamplesSizeBytes;
+        }
 
-    public PoseWithClassification(Pose pose, List<String> classificationResult) {
+        @Override
+        public void onPressureChanged(MemoryBudget.Pressure pressure) {}
+      };
+  /**
+   * Class to hold Pose and classification results, as drawn and as published on the {@link
+   * #getResultStream() result stream}. The pose may have been predicted rather than detected, see
+   * {@link TrackedPose#isPredicted()}.
+   */
+  public static class PoseWithClassification {
+    private final TrackedPose pose;
+    private final PoseClassification classification;
+
+    public PoseWithClassification(TrackedPose pose, PoseClassification classification) {
       this.pose = pose;
-      this.classificationResult = classificationResult;
+      this.classification = classification;
     }
 
-    public Pose getPose() {
+    public TrackedPose getPose() {
       return pose;
     }
 
+    public PoseClassification getClassification() {
+      return classification;
+    }
+
     public List<String> getClassificationResult() {
-      return classificationResult;
+      return classification.getDisplayLines();
     }
   }
 
@@ -76,74 +145,269 @@ public class PoseDetectorProcessor
       boolean visualizeZ,
       boolean rescaleZForVisualization,
       boolean runClassification,
-      boolean isStreamMode) {
+      boolean isStreamMode,
+      boolean recordSession) {
     super(context);
     this.showInFrameLikelihood = showInFrameLikelihood;
     this.visualizeZ = visualizeZ;
     this.rescaleZForVisualization = rescaleZForVisualization;
     detector = PoseDetection.getClient(options);
+    isAccurateDetector = options instanceof AccuratePoseDetectorOptions;
+    isAccurateDetectorRequested = isAccurateDetector;
     this.runClassification = runClassification;
     this.isStreamMode = isStreamMode;
     this.context = context;
-    classificationExecutor = Executors.newSingleThreadExecutor();
+    classificationExecutor =
+        ProcessingThreads.getRuntime().newSerialExecutor(ProcessingRuntime.Lane.CLASSIFICATION);
+    sessionRecorder = recordSession ? new LandmarkSessionRecorder(context) : null;
+    landmarkPredictor = isStreamMode ? PreferenceUtils.createLandmarkPredictor(context) : null;
+    roiTracker =
+        isStreamMode && PreferenceUtils.shouldCropToTrackedPose(context) ? new RoiTracker() : null;
+    MemoryBudget memoryBudget = getMemoryBudget();
+    memoryBudget.register(POSE_SAMPLES, poseSamples);
+    if (sessionRecorder != null) {
+      memoryBudget.register(SESSION_BUFFERS, sessionRecorder);
+      // The recorder only queues the landmarks for its writer, so it is called on the publishing
+      // thread. Predicted poses are left out, so a session only holds what the detector saw.
+      getResultStream()
+          .subscribe(
+              SESSION_RECORDING,
+              DIRECT_EXECUTOR,
+              SESSION_RECORDING_CAPACITY,
+              result -> {
+                TrackedPose pose = result.getResults().getPose();
+                if (!pose.isPredicted()) {
+                  sessionRecorder.record(
+                      pose.toLandmarkFrame(
+                          TimeUnit.NANOSECONDS.toMillis(result.getFrameStartNanos())));
+                }
+              });
+    }
+    if (runClassification && isStreamMode) {
+      RepFeedbackPlayer player = new RepFeedbackPlayer();
+      repFeedbackPlayer = player;
+      // Play a fun beep when rep counter updates. The player only queues the beep for its audio
+      // thread, so it is called on the publishing thread, and keeps up with every rep.
+      getResultStream()
+          .subscribe(
+              REP_FEEDBACK,
+              DIRECT_EXECUTOR,
+              /* capacity= */ 1,
+              result -> {
+                if (result.getResults().getClassification().getCompletedRep() != null) {
+                  player.onRepCompleted();
+                }
+              });
+    } else {
+      repFeedbackPlayer = null;
+    }
   }
 
   @Override
   public void stop() {
+    getMemoryBudget().unregister(POSE_SAMPLES, poseSamples);
+    if (sessionRecorder != null) {
+      getMemoryBudget().unregister(SESSION_BUFFERS, sessionRecorder);
+    }
     super.stop();
-    detector.close();
+    closeAfterLastDetection(detector);
+    if (sessionRecorder != null) {
+      sessionRecorder.close();
+    }
+    if (repFeedbackPlayer != null) {
+      repFeedbackPlayer.release();
+    }
+    // The classifier is only touched on the classification executor, so release it there too,
+    // after the frames already queued. Frames offered later are rejected.
+    try {
+      classificationExecutor.execute(
+          () -> {
+            classifierReleased = true;
+            if (poseClassifierProcessor != null) {
+              poseClassifierProcessor = null;
+              poseSamplesSizeBytes = 0;
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // The lane is full, so no frame is queued either. The classifier goes with the processor.
+      Log.w(TAG, "Unable to release the pose classifier", e);
+    }
+    classificationExecutor.shutdown();
   }
 
+  // Classification runs as a separate stage, see postProcess(), so detection results are passed on
+  // from the detector's callback thread without waiting for the classification thread.
   @Override
   protected Task<PoseWithClassification> detectInImage(InputImage image) {
-    return detector
-        .process(image)
-        .continueWith(
-            classificationExecutor,
-            task -> {
-              Pose pose = task.getResult();
-              List<String> classificationResult = new ArrayList<>();
-              if (runClassification) {
-                if (poseClassifierProcessor == null) {
-                  poseClassifierProcessor = new PoseClassifierProcessor(context, isStreamMode);
-                }
-                classificationResult = poseClassifierProcessor.getPoseResult(pose);
-              }
-              return new PoseWithClassification(pose, classificationResult);
-            });
+    long timestampNanos = SystemClock.elapsedRealtimeNanos();
+    PoseWithClassification predicted = predictOrSkip(timestampNanos);
+    if (predicted != null) {
+      return Tasks.forResult(predicted);
+    }
+    Task<Pose> detection;
+    synchronized (this) {
+      detection = detector.process(image);
+      lastDetection = detection;
+    }
+    return detection.continueWith(
+        DIRECT_EXECUTOR, task -> onPose(task.getResult(), timestampNanos, /* region= */ null));
   }
 
   @Override
   protected Task<PoseWithClassification> detectInImage(MlImage image) {
-    return detector
-        .process(image)
-        .continueWith(
-            classificationExecutor,
-            task -> {
-              Pose pose = task.getResult();
-              List<String> classificationResult = new ArrayList<>();
-              if (runClassification) {
-                if (poseClassifierProcessor == null) {
-                  poseClassifierProcessor = new PoseClassifierProcessor(context, isStreamMode);
-                }
-                classificationResult = poseClassifierProcessor.getPoseResult(pose);
-              }
-              return new PoseWithClassification(pose, classificationResult);
-            });
+    long timestampNanos = SystemClock.elapsedRealtimeNanos();
+    PoseWithClassification predicted = predictOrSkip(timestampNanos);
+    if (predicted != null) {
+      return Tasks.forResult(predicted);
+    }
+    Task<Pose> detection;
+    synchronized (this) {
+      detection = detector.process(image);
+      lastDetection = detection;
+    }
+    return detection.continueWith(
+        DIRECT_EXECUTOR, task -> onPose(task.getResult(), timestampNanos, /* region= */ null));
+  }
+
+  @Override
+  protected boolean isPredicted(@NonNull PoseWithClassification results) {
+    return results.getPose().isPredicted();
+  }
+
+  @Nullable
+  @Override
+  protected FrameRegion getDetectionRegion(int width, int height, int rotationDegrees) {
+    // Predicted frames are not detected, so cropping them would be wasted.
+    if (roiTracker == null
+        || (landmarkPredictor != null
+            && landmarkPredictor.wouldPredict(SystemClock.elapsedRealtimeNanos()))) {
+      return null;
+    }
+    return roiTracker.getRegion(width, height, rotationDegrees);
+  }
+
+  @Override
+  protected Task<PoseWithClassification> detectInRegion(InputImage image, FrameRegion region) {
+    long timestampNanos = SystemClock.elapsedRealtimeNanos();
+    PoseWithClassification predicted = predictOrSkip(timestampNanos);
+    if (predicted != null) {
+      return Tasks.forResult(predicted);
+    }
+    Task<Pose> detection;
+    synchronized (this) {
+      detection = detector.process(image);
+      lastDetection = detection;
+    }
+    return detection.continueWith(
+        DIRECT_EXECUTOR, task -> onPose(task.getResult(), timestampNanos, region));
+  }
+
+  @Override
+  protected void onQualityLevelChanged(QualityLevel level) {
+    synchronized (this) {
+      isAccurateDetectorRequested = level.isAccurateDetector();
+    }
+    updateDetector();
+  }
+
+  @Override
+  protected void onThermalThrottleChanged(ThermalThrottle.Level level) {
+    synchronized (this) {
+      isAccurateDetectorAllowed = level.isAccurateDetectorAllowed();
+    }
+    updateDetector();
+  }
+
+  private void updateDetector() {
+    PoseDetector replaced;
+    synchronized (this) {
+      boolean accurate = isAccurateDetectorRequested && isAccurateDetectorAllowed;
+      if (accurate == isAccurateDetector) {
+        return;
+      }
+      isAccurateDetector = accurate;
+      replaced = detector;
+      detector =
+          PoseDetection.getClient(
+              PreferenceUtils.getPoseDetectorOptions(isAccurateDetector, isStreamMode));
+    }
+    closeAfterLastDetection(replaced);
+  }
+
+  // Frames may still be in the detector, so let them finish rather than fail.
+  private synchronized void closeAfterLastDetection(PoseDetector closing) {
+    lastDetection.addOnCompleteListener(DIRECT_EXECUTOR, task -> closing.close());
+  }
+
+  // Returns the predicted pose of the frame, or null if the frame should be detected.
+  @Nullable
+  private PoseWithClassification predictOrSkip(long timestampNanos) {
+    if (landmarkPredictor == null) {
+      return null;
+    }
+    LandmarkFrame predicted = landmarkPredictor.predictOrSkip(timestampNanos);
+    return predicted != null
+        ? new PoseWithClassification(TrackedPose.predicted(predicted), PoseClassification.NONE)
+        : null;
+  }
+
+  // The region is the one the pose was detected in, or null for the whole frame.
+  private PoseWithClassification onPose(
+      Pose pose, long timestampNanos, @Nullable FrameRegion region) {
+    TrackedPose trackedPose = TrackedPose.detected(pose, region);
+    if (landmarkPredictor != null || roiTracker != null) {
+      LandmarkFrame frame = trackedPose.toLandmarkFrame(timestampNanos / 1_000_000);
+      if (landmarkPredictor != null) {
+        landmarkPredictor.onDetected(timestampNanos, frame);
+      }
+      if (roiTracker != null) {
+        roiTracker.onDetected(frame, region);
+      }
+    }
+    return new PoseWithClassification(trackedPose, PoseClassification.NONE);
+  }
+
+  @Override
+  protected PoseWithClassification postProcess(@NonNull PoseWithClassification results) {
+    TrackedPose pose = results.getPose();
+    PoseClassification classification = PoseClassification.NONE;
+    if (runClassification && !classifierReleased) {
+      if (poseClassifierProcessor == null) {
+        poseClassifierProcessor = new PoseClassifierProcessor(context, isStreamMode);
+        poseSamplesSizeBytes = poseClassifierProcessor.estimateSampleLibrarySizeBytes();
+      }
+      classification = poseClassifierProcessor.getPoseResult(pose);
+    }
+    return new PoseWithClassification(pose, classification);
+  }
+
+  @Override
+  @Nullable
+  protected float[] extractFeatures(@NonNull PoseWithClassification results) {
+    // Computed by the classifier anyway, so this costs nothing.
+    return results.getClassification().getEmbedding();
+  }
+
+  @Override
+  protected Executor getPostProcessingExecutor() {
+    // The classifier is only touched on the classification executor.
+    return classificationExecutor;
   }
 
   @Override
   protected void onSuccess(
       @NonNull PoseWithClassification poseWithClassification,
       @NonNull GraphicOverlay graphicOverlay) {
+    // Likelihood labels and depth shading are the costliest parts to draw.
+    boolean reduceOverlay = shouldReduceOverlay();
     graphicOverlay.add(
         new PoseGraphic(
             graphicOverlay,
             poseWithClassification.pose,
-            showInFrameLikelihood,
-            visualizeZ,
+            showInFrameLikelihood && !reduceOverlay,
+            visualizeZ && !reduceOverlay,
             rescaleZForVisualization,
-            poseWithClassification.classificationResult));
+            poseWithClassification.getClassificationResult()));
   }
 
   @Override
@@ -27,21 +27,21 @@ import com.google.common.primitives.Ints;
 import com.google.mlkit.vision.common.PointF3D;
 import com.google.mlkit.vision.demo.GraphicOverlay;
 import com.google.mlkit.vision.demo.GraphicOverlay.Graphic;
-import com.google.mlkit.vision.pose.Pose;
 import com.google.mlkit.vision.pose.PoseLandmark;
 
 import java.util.List;
 import java.util.Locale;
 
 /**
- * Draw the detected pose in preview.
+ * Draw the detected pose in preview. Predicted poses are drawn the same, see {@link TrackedPose}.
  */
 public class PoseGraphic extends Graphic {
 
     /**
      * my own code
      **/
-    static double getAngle(PoseLandmark firstPoint, PoseLandmark midPoint, PoseLandmark lastPoint) {
+    static double getAngle(
+            TrackedLandmark firstPoint, TrackedLandmark midPoint, TrackedLandmark lastPoint) {
         double result =
                 Math.toDegrees(
                         java.lang.Math.atan2(lastPoint.getPosition().y - midPoint.getPosition().y,
@@ -55,7 +55,8 @@ public class PoseGraphic extends Graphic {
         return result;
     }
 
-    static double getAngle3D(PoseLandmark firstPoint, PoseLandmark midPoint, PoseLandmark lastPoint) {
+    static double getAngle3D(
+            TrackedLandmark firstPoint, TrackedLandmark midPoint, TrackedLandmark lastPoint) {
         float Ax = firstPoint.getPosition3D().getX();
         float Ay = firstPoint.getPosition3D().getY();
         float Az = firstPoint.getPosition3D().getZ();
@@ -125,7 +126,7 @@ public class PoseGraphic extends Graphic {
     // changes bottom text "squats_up: 1.00 confidence" etc.
     private static final float POSE_CLASSIFICATION_TEXT_SIZE = 30.0f;
 
-    private final Pose pose;
+    private final TrackedPose pose;
     private final boolean showAngles;
     private final boolean visualizeZ;
     private final boolean rescaleZForVisualization;
@@ -149,7 +150,7 @@ public class PoseGraphic extends Graphic {
 
     PoseGraphic(
             GraphicOverlay overlay,
-            Pose pose,
+            TrackedPose pose,
             boolean showAngles,
             boolean visualizeZ,
             boolean rescaleZForVisualization,
@@ -207,7 +208,7 @@ public class PoseGraphic extends Graphic {
 
     @Override
     public void draw(Canvas canvas) {
-        List<PoseLandmark> landmarks = pose.getAllPoseLandmarks();
+        List<TrackedLandmark> landmarks = pose.getAllPoseLandmarks();
         if (landmarks.isEmpty()) {
             return;
         }
@@ -239,7 +240,7 @@ public class PoseGraphic extends Graphic {
 
 
         // Draw all the points
-//    for (PoseLandmark landmark : landmarks) {
+//    for (TrackedLandmark landmark : landmarks) {
 //      drawPoint(canvas, landmark, whitePaint);
 //      if (visualizeZ && rescaleZForVisualization) {
 //        zMin = min(zMin, landmark.getPosition3D().getZ());
@@ -257,41 +258,41 @@ public class PoseGraphic extends Graphic {
         }
 
         // Face
-        PoseLandmark nose = pose.getPoseLandmark(PoseLandmark.NOSE);
-        PoseLandmark lefyEyeInner = pose.getPoseLandmark(PoseLandmark.LEFT_EYE_INNER);
-        PoseLandmark lefyEye = pose.getPoseLandmark(PoseLandmark.LEFT_EYE);
-        PoseLandmark leftEyeOuter = pose.getPoseLandmark(PoseLandmark.LEFT_EYE_OUTER);
-        PoseLandmark rightEyeInner = pose.getPoseLandmark(PoseLandmark.RIGHT_EYE_INNER);
-        PoseLandmark rightEye = pose.getPoseLandmark(PoseLandmark.RIGHT_EYE);
-        PoseLandmark rightEyeOuter = pose.getPoseLandmark(PoseLandmark.RIGHT_EYE_OUTER);
-        PoseLandmark leftEar = pose.getPoseLandmark(PoseLandmark.LEFT_EAR);
-        PoseLandmark rightEar = pose.getPoseLandmark(PoseLandmark.RIGHT_EAR);
-        PoseLandmark leftMouth = pose.getPoseLandmark(PoseLandmark.LEFT_MOUTH);
-        PoseLandmark rightMouth = pose.getPoseLandmark(PoseLandmark.RIGHT_MOUTH);
-
-        PoseLandmark leftShoulder = pose.getPoseLandmark(PoseLandmark.LEFT_SHOULDER);
-        PoseLandmark rightShoulder = pose.getPoseLandmark(PoseLandmark.RIGHT_SHOULDER);
-        PoseLandmark leftElbow = pose.getPoseLandmark(PoseLandmark.LEFT_ELBOW);
-        PoseLandmark rightElbow = pose.getPoseLandmark(PoseLandmark.RIGHT_ELBOW);
-        PoseLandmark leftWrist = pose.getPoseLandmark(PoseLandmark.LEFT_WRIST);
-        PoseLandmark rightWrist = pose.getPoseLandmark(PoseLandmark.RIGHT_WRIST);
-        PoseLandmark leftHip = pose.getPoseLandmark(PoseLandmark.LEFT_HIP);
-        PoseLandmark rightHip = pose.getPoseLandmark(PoseLandmark.RIGHT_HIP);
-        PoseLandmark leftKnee = pose.getPoseLandmark(PoseLandmark.LEFT_KNEE);
-        PoseLandmark rightKnee = pose.getPoseLandmark(PoseLandmark.RIGHT_KNEE);
-        PoseLandmark leftAnkle = pose.getPoseLandmark(PoseLandmark.LEFT_ANKLE);
-        PoseLandmark rightAnkle = pose.getPoseLandmark(PoseLandmark.RIGHT_ANKLE);
-
-        PoseLandmark leftPinky = pose.getPoseLandmark(PoseLandmark.LEFT_PINKY);
-        PoseLandmark rightPinky = pose.getPoseLandmark(PoseLandmark.RIGHT_PINKY);
-        PoseLandmark leftIndex = pose.getPoseLandmark(PoseLandmark.LEFT_INDEX);
-        PoseLandmark rightIndex = pose.getPoseLandmark(PoseLandmark.RIGHT_INDEX);
-        PoseLandmark leftThumb = pose.getPoseLandmark(PoseLandmark.LEFT_THUMB);
-        PoseLandmark rightThumb = pose.getPoseLandmark(PoseLandmark.RIGHT_THUMB);
-        PoseLandmark leftHeel = pose.getPoseLandmark(PoseLandmark.LEFT_HEEL);
-        PoseLandmark rightHeel = pose.getPoseLandmark(PoseLandmark.RIGHT_HEEL);
-        PoseLandmark leftFootIndex = pose.getPoseLandmark(PoseLandmark.LEFT_FOOT_INDEX);
-        PoseLandmark rightFootIndex = pose.getPoseLandmark(PoseLandmark.RIGHT_FOOT_INDEX);
+        TrackedLandmark nose = pose.getPoseLandmark(PoseLandmark.NOSE);
+        TrackedLandmark lefyEyeInner = pose.getPoseLandmark(PoseLandmark.LEFT_EYE_INNER);
+        TrackedLandmark lefyEye = pose.getPoseLandmark(PoseLandmark.LEFT_EYE);
+        TrackedLandmark leftEyeOuter = pose.getPoseLandmark(PoseLandmark.LEFT_EYE_OUTER);
+        TrackedLandmark rightEyeInner = pose.getPoseLandmark(PoseLandmark.RIGHT_EYE_INNER);
+        TrackedLandmark rightEye = pose.getPoseLandmark(PoseLandmark.RIGHT_EYE);
+        TrackedLandmark rightEyeOuter = pose.getPoseLandmark(PoseLandmark.RIGHT_EYE_OUTER);
+        TrackedLandmark leftEar = pose.getPoseLandmark(PoseLandmark.LEFT_EAR);
+        TrackedLandmark rightEar = pose.getPoseLandmark(PoseLandmark.RIGHT_EAR);
+        TrackedLandmark leftMouth = pose.getPoseLandmark(PoseLandmark.LEFT_MOUTH);
+        TrackedLandmark rightMouth = pose.getPoseLandmark(PoseLandmark.RIGHT_MOUTH);
+
+        TrackedLandmark leftShoulder = pose.getPoseLandmark(PoseLandmark.LEFT_SHOULDER);
+        TrackedLandmark rightShoulder = pose.getPoseLandmark(PoseLandmark.RIGHT_SHOULDER);
+        TrackedLandmark leftElbow = pose.getPoseLandmark(PoseLandmark.LEFT_ELBOW);
+        TrackedLandmark rightElbow = pose.getPoseLandmark(PoseLandmark.RIGHT_ELBOW);
+        TrackedLandmark leftWrist = pose.getPoseLandmark(PoseLandmark.LEFT_WRIST);
+        TrackedLandmark rightWrist = pose.getPoseLandmark(PoseLandmark.RIGHT_WRIST);
+        TrackedLandmark leftHip = pose.getPoseLandmark(PoseLandmark.LEFT_HIP);
+        TrackedLandmark rightHip = pose.getPoseLandmark(PoseLandmark.RIGHT_HIP);
+        TrackedLandmark leftKnee = pose.getPoseLandmark(PoseLandmark.LEFT_KNEE);
+        TrackedLandmark rightKnee = pose.getPoseLandmark(PoseLandmark.RIGHT_KNEE);
+        TrackedLandmark leftAnkle = pose.getPoseLandmark(PoseLandmark.LEFT_ANKLE);
+        TrackedLandmark rightAnkle = pose.getPoseLandmark(PoseLandmark.RIGHT_ANKLE);
+
+        TrackedLandmark leftPinky = pose.getPoseLandmark(PoseLandmark.LEFT_PINKY);
+        TrackedLandmark rightPinky = pose.getPoseLandmark(PoseLandmark.RIGHT_PINKY);
+        TrackedLandmark leftIndex = pose.getPoseLandmark(PoseLandmark.LEFT_INDEX);
+        TrackedLandmark rightIndex = pose.getPoseLandmark(PoseLandmark.RIGHT_INDEX);
+        TrackedLandmark leftThumb = pose.getPoseLandmark(PoseLandmark.LEFT_THUMB);
+        TrackedLandmark rightThumb = pose.getPoseLandmark(PoseLandmark.RIGHT_THUMB);
+        TrackedLandmark leftHeel = pose.getPoseLandmark(PoseLandmark.LEFT_HEEL);
+        TrackedLandmark rightHeel = pose.getPoseLandmark(PoseLandmark.RIGHT_HEEL);
+        TrackedLandmark leftFootIndex = pose.getPoseLandmark(PoseLandmark.LEFT_FOOT_INDEX);
+        TrackedLandmark rightFootIndex = pose.getPoseLandmark(PoseLandmark.RIGHT_FOOT_INDEX);
 
         // Face [commented out to remove lines on face]
 //    drawLine(canvas, nose, lefyEyeInner, whitePaint);
@@ -336,7 +337,7 @@ public class PoseGraphic extends Graphic {
         /**
          // Draw inFrameLikelihood for all points
          if (showAngles) {
-         for (PoseLandmark landmark : landmarks) {
+         for (TrackedLandmark landmark : landmarks) {
          canvas.drawText(
          String.format(Locale.US, "%.2f", landmark.getInFrameLikelihood()),
          translateX(landmark.getPosition().x),
@@ -840,13 +841,13 @@ public class PoseGraphic extends Graphic {
     }
 
 
-    void drawPoint(Canvas canvas, PoseLandmark landmark, Paint paint) {
+    void drawPoint(Canvas canvas, TrackedLandmark landmark, Paint paint) {
         PointF3D point = landmark.getPosition3D();
         maybeUpdatePaintColor(paint, canvas, point.getZ());
         canvas.drawCircle(translateX(point.getX()), translateY(point.getY()), DOT_RADIUS, paint);
     }
 
-    void drawLine(Canvas canvas, PoseLandmark startLandmark, PoseLandmark endLandmark, Paint paint) {
+    void drawLine(Canvas canvas, TrackedLandmark startLandmark, TrackedLandmark endLandmark, Paint paint) {
         PointF3D start = startLandmark.getPosition3D();
         PointF3D end = endLandmark.getPosition3D();
 
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector;
+
+import android.graphics.PointF;
+import com.google.mlkit.vision.common.PointF3D;
+import com.google.mlkit.vision.pose.PoseLandmark;
+
+/**
+ * A landmark of a {@link TrackedPose}, with the same accessors as {@link PoseLandmark}, that was
+ * either detected or predicted.
+ */
+public final class TrackedLandmark {
+  private final int landmarkType;
+  private final PointF position;
+  private final PointF3D position3D;
+  private final float inFrameLikelihood;
+  private final boolean predicted;
+
+  TrackedLandmark(
+      int landmarkType, float x, float y, float z, float inFrameLikelihood, boolean predicted) {
+    this.landmarkType = landmarkType;
+    position = new PointF(x, y);
+    position3D = PointF3D.from(x, y, z);
+    this.inFrameLikelihood = inFrameLikelihood;
+    this.predicted = predicted;
+  }
+
+  /** Returns the type of the landmark, such as {@link PoseLandmark#LEFT_KNEE}. */
+  public int getLandmarkType() {
+    return landmarkType;
+  }
+
+  public PointF getPosition() {
+    return position;
+  }
+
+  public PointF3D getPosition3D() {
+    return position3D;
+  }
+
+  /** Returns the likelihood of the landmark being in frame, as of the latest detection. */
+  public float getInFrameLikelihood() {
+    return inFrameLikelihood;
+  }
+
+  /** Returns whether the landmark was predicted from earlier detections, not detected. */
+  public boolean isPredicted() {
+    return predicted;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector;
+
+import androidx.annotation.Nullable;
+import com.google.mlkit.vision.common.PointF3D;
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkFrame;
+import com.google.mlkit.vision.demo.yuv.FrameRegion;
+import com.google.mlkit.vision.pose.Pose;
+import com.google.mlkit.vision.pose.PoseLandmark;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A pose that was either detected by ML Kit, or predicted between detections by a {@link
+ * com.google.mlkit.vision.demo.java.posedetector.tracking.LandmarkPredictor}. It has the same
+ * accessors as {@link Pose}, and tells which of its landmarks were predicted.
+ */
+public final class TrackedPose {
+  private final List<TrackedLandmark> landmarks;
+  private final boolean predicted;
+
+  private TrackedPose(List<TrackedLandmark> landmarks, boolean predicted) {
+    this.landmarks = Collections.unmodifiableList(landmarks);
+    this.predicted = predicted;
+  }
+
+  /** Wraps a detected pose. */
+  public static TrackedPose detected(Pose pose) {
+    return detected(pose, /* region= */ null);
+  }
+
+  /**
+   * Wraps a pose detected in the given region of the frame, mapping its landmarks back to the
+   * whole upright frame. A null region means the pose was detected in the whole frame.
+   */
+  public static TrackedPose detected(Pose pose, @Nullable FrameRegion region) {
+    List<TrackedLandmark> landmarks = new ArrayList<>();
+    for (PoseLandmark landmark : pose.getAllPoseLandmarks()) {
+      PointF3D position = landmark.getPosition3D();
+      landmarks.add(
+          new TrackedLandmark(
+              landmark.getLandmarkType(),
+              region != null ? region.toFrameX(position.getX()) : position.getX(),
+              region != null ? region.toFrameY(position.getY()) : position.getY(),
+              region != null ? region.toFrameZ(position.getZ()) : position.getZ(),
+              landmark.getInFrameLikelihood(),
+              /* predicted= */ false));
+    }
+    return new TrackedPose(landmarks, /* predicted= */ false);
+  }
+
+  /** Wraps predicted landmarks, which keep the likelihoods of the latest detection. */
+  public static TrackedPose predicted(LandmarkFrame frame) {
+    List<TrackedLandmark> landmarks = new ArrayList<>();
+    if (!frame.isEmpty()) {
+      for (int i = 0; i < LandmarkFrame.NUM_LANDMARKS; i++) {
+        landmarks.add(
+            new TrackedLandmark(
+                i,
+                frame.getX(i),
+                frame.getY(i),
+                frame.getZ(i),
+                frame.getInFrameLikelihood(i),
+                /* predicted= */ true));
+      }
+    }
+    return new TrackedPose(landmarks, /* predicted= */ true);
+  }
+
+  /** Returns all landmarks, in landmark type order, or an empty list if no pose was found. */
+  public List<TrackedLandmark> getAllPoseLandmarks() {
+    return landmarks;
+  }
+
+  /** Returns the landmark of the given type, or null if no pose was found. */
+  @Nullable
+  public TrackedLandmark getPoseLandmark(int landmarkType) {
+    return landmarkType < landmarks.size() ? landmarks.get(landmarkType) : null;
+  }
+
+  /** Returns whether any landmark was predicted rather than detected. */
+  public boolean isPredicted() {
+    return predicted;
+  }
+
+  /** Returns the landmarks in the packed form the predictor and recorder use. */
+  public LandmarkFrame toLandmarkFrame(long timestampMs) {
+    if (landmarks.size() != LandmarkFrame.NUM_LANDMARKS) {
+      return LandmarkFrame.empty(timestampMs);
+    }
+    float[] positions = new float[LandmarkFrame.NUM_LANDMARKS * LandmarkFrame.NUM_DIMS];
+    float[] likelihoods = new float[LandmarkFrame.NUM_LANDMARKS];
+    for (TrackedLandmark landmark : landmarks) {
+      int index = landmark.getLandmarkType();
+      PointF3D position = landmark.getPosition3D();
+      positions[index * LandmarkFrame.NUM_DIMS] = position.getX();
+      positions[index * LandmarkFrame.NUM_DIMS + 1] = position.getY();
+      positions[index * LandmarkFrame.NUM_DIMS + 2] = position.getZ();
+      likelihoods[index] = landmark.getInFrameLikelihood();
+    }
+    return new LandmarkFrame(timestampMs, positions, likelihoods);
+  }
+}
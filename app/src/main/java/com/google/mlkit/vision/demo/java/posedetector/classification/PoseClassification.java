@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+import androidx.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The classification of one pose, the rep it completed, if any, and the embedding it was classified
+ * on.
+ */
+public final class PoseClassification {
+
+  /** The classification of a frame that wasn't classified. */
+  public static final PoseClassification NONE =
+      new PoseClassification(
+          Collections.emptyList(),
+          /* poseClass= */ null,
+          /* confidence= */ 0,
+          /* rep= */ null,
+          /* embedding= */ null);
+
+  /** A rep completed by a pose. */
+  public static final class Rep {
+    private final String className;
+    private final int numRepeats;
+
+    public Rep(String className, int numRepeats) {
+      this.className = className;
+      this.numRepeats = numRepeats;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    /** Returns how many reps of the class were completed so far, including this one. */
+    public int getNumRepeats() {
+      return numRepeats;
+    }
+  }
+
+  private final List<String> displayLines;
+  @Nullable private final String poseClass;
+  private final float confidence;
+  @Nullable private final Rep completedRep;
+  @Nullable private final float[] embedding;
+
+  public PoseClassification(
+      List<String> displayLines,
+      @Nullable String poseClass,
+      float confidence,
+      @Nullable Rep completedRep,
+      @Nullable float[] embedding) {
+    this.displayLines = Collections.unmodifiableList(displayLines);
+    this.poseClass = poseClass;
+    this.confidence = confidence;
+    this.completedRep = completedRep;
+    this.embedding = embedding;
+  }
+
+  /** Returns the formatted rep count and confidence, as drawn on the overlay. */
+  public List<String> getDisplayLines() {
+    return displayLines;
+  }
+
+  /** Returns the most likely pose class, or null if no pose was found. */
+  @Nullable
+  public String getPoseClass() {
+    return poseClass;
+  }
+
+  /** Returns the confidence in the most likely pose class, from 0 to 1. */
+  public float getConfidence() {
+    return confidence;
+  }
+
+  /** Returns the rep this pose completed, or null if it completed none. */
+  @Nullable
+  public Rep getCompletedRep() {
+    return completedRep;
+  }
+
+  /**
+   * Returns the embedding the classifier compared the pose with its samples on, as consecutive x, y
+   * and z values, or null if no pose was found or the pose wasn't classified.
+   */
+  @Nullable
+  public float[] getEmbedding() {
+    return embedding;
+  }
+}
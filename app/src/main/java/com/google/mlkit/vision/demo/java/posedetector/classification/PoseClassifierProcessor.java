@@ -17,62 +17,67 @@
 package com.google.mlkit.vision.demo.java.posedetector.classification;
 
 import android.content.Context;
-import android.media.AudioManager;
-import android.media.ToneGenerator;
 import android.os.Looper;
 import android.util.Log;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 import com.google.common.base.Preconditions;
-import com.google.mlkit.vision.pose.Pose;
+import com.google.mlkit.vision.common.PointF3D;
+import com.google.mlkit.vision.demo.FrameTrace;
+import com.google.mlkit.vision.demo.java.posedetector.TrackedLandmark;
+import com.google.mlkit.vision.demo.java.posedetector.TrackedPose;
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
 /**
- * Accepts a stream of {@link Pose} for classification and Rep counting.
+ * Accepts a stream of {@link TrackedPose} for classification and Rep counting. Predicted poses are
+ * classified like detected ones, so the rep counters keep up between detections.
  */
 public class PoseClassifierProcessor {
   private static final String TAG = "PoseClassifierProcessor";
   private static final String POSE_SAMPLES_FILE = "pose/fitness_pose_mine3.csv";
-
-  // Specify classes for which we want rep counting.
-  // These are the labels in the given {@code POSE_SAMPLES_FILE}. You can set your own class labels
-  // for your pose samples.
-//  private static final String PUSHUPS_CLASS = "pushups_down";
-//  private static final String SQUATS_CLASS = "squats_down";
-//  private static final String[] POSE_CLASSES = {
-//    PUSHUPS_CLASS, SQUATS_CLASS
-//  };
-
-//  my own code
-  private static final String BICEPCURLS_CLASS = "bicepcurls_down";
-  private static final String PUSHUPS_CLASS = "pushups_up";
-  private static final String SQUATS_CLASS = "squats_up";
-  private static final String SUMODEADLIFT_CLASS = "sumodeadlift_down";
-  private static final String[] POSE_CLASSES = {
-          BICEPCURLS_CLASS, PUSHUPS_CLASS, SQUATS_CLASS, SUMODEADLIFT_CLASS
-  };
+  // Written by the hyperparameter search in the core module. Defaults are used if it is missing.
+  private static final String CONFIG_FILE = "pose/pose_classifier_config.properties";
 
   private final boolean isStreamMode;
 
-  private EMASmoothing emaSmoothing;
-  private List<RepetitionCounter> repCounters;
+  private PoseClassifierConfig config;
   private PoseClassifier poseClassifier;
+  private PoseStreamClassifier poseStreamClassifier;
   private String lastRepResult;
 
   @WorkerThread
   public PoseClassifierProcessor(Context context, boolean isStreamMode) {
     Preconditions.checkState(Looper.myLooper() != Looper.getMainLooper());
     this.isStreamMode = isStreamMode;
+    loadConfig(context);
+    loadPoseSamples(context);
     if (isStreamMode) {
-      emaSmoothing = new EMASmoothing();
-      repCounters = new ArrayList<>();
+      poseStreamClassifier =
+          new PoseStreamClassifier(
+              poseClassifier,
+              new EMASmoothing(),
+              config.createRepCounters(PoseStreamClassifier.POSE_CLASSES));
       lastRepResult = "";
     }
-    loadPoseSamples(context);
+  }
+
+  private void loadConfig(Context context) {
+    config = PoseClassifierConfig.defaults();
+    try (Reader reader = new InputStreamReader(context.getAssets().open(CONFIG_FILE))) {
+      config = PoseClassifierConfig.load(reader);
+      Log.i(TAG, "Loaded pose classifier config: " + config);
+    } catch (FileNotFoundException e) {
+      // No tuned config bundled, keep the defaults.
+    } catch (IOException | IllegalArgumentException e) {
+      Log.e(TAG, "Error when loading pose classifier config, using defaults.\n" + e);
+    }
   }
 
   private void loadPoseSamples(Context context) {
@@ -80,79 +85,112 @@ public class PoseClassifierProcessor {
     try {
       BufferedReader reader = new BufferedReader(
           new InputStreamReader(context.getAssets().open(POSE_SAMPLES_FILE)));
-      String csvLine = reader.readLine();
-      while (csvLine != null) {
-        // If line is not a valid {@link PoseSample}, we'll get null and skip adding to the list.
-        PoseSample poseSample = PoseSample.getPoseSample(csvLine, ",");
-        if (poseSample != null) {
-          poseSamples.add(poseSample);
-        }
-        csvLine = reader.readLine();
-      }
+      poseSamples = PoseSample.readPoseSamples(reader, ",");
     } catch (IOException e) {
       Log.e(TAG, "Error when loading pose samples.\n" + e);
     }
-    poseClassifier = new PoseClassifier(poseSamples);
-    if (isStreamMode) {
-      for (String className : POSE_CLASSES) {
-        repCounters.add(new RepetitionCounter(className));
-      }
-    }
+    poseClassifier = config.createPoseClassifier(poseSamples);
   }
 
   /**
-   * Given a new {@link Pose} input, returns a list of formatted {@link String}s with Pose
-   * classification results.
+   * Given a new {@link TrackedPose} input, returns its classification, and the rep it completed
+   * if any.
    *
-   * <p>Currently it returns up to 2 strings as following:
+   * <p>The classification is also formatted into up to 2 display lines as following:
    * 0: PoseClass : X reps
    * 1: PoseClass : [0.0-1.0] confidence
    */
   @WorkerThread
-  public List<String> getPoseResult(Pose pose) {
+  public PoseClassification getPoseResult(TrackedPose pose) {
     Preconditions.checkState(Looper.myLooper() != Looper.getMainLooper());
+    FrameTrace.beginSection(FrameTrace.CLASSIFICATION);
+    try {
+      return classify(pose);
+    } finally {
+      FrameTrace.endSection();
+    }
+  }
+
+  private PoseClassification classify(TrackedPose pose) {
     List<String> result = new ArrayList<>();
-    ClassificationResult classification = poseClassifier.classify(pose);
+    List<Point3D> landmarks = extractPoseLandmarks(pose);
+    ClassificationResult classification;
+    List<Point3D> embedding;
+    PoseClassification.Rep rep = null;
 
     // Update {@link RepetitionCounter}s if {@code isStreamMode}.
     if (isStreamMode) {
-      // Feed pose to smoothing even if no pose found.
-      classification = emaSmoothing.getSmoothedResult(classification);
-
-      // Return early without updating repCounter if no pose found.
-      if (pose.getAllPoseLandmarks().isEmpty()) {
-        result.add(lastRepResult);
-        return result;
-      }
-
-      for (RepetitionCounter repCounter : repCounters) {
-        int repsBefore = repCounter.getNumRepeats();
-        int repsAfter = repCounter.addClassificationResult(classification);
-        if (repsAfter > repsBefore) {
-          // Play a fun beep when rep counter updates.
-          ToneGenerator tg = new ToneGenerator(AudioManager.STREAM_NOTIFICATION, 100);
-          tg.startTone(ToneGenerator.TONE_PROP_BEEP);
-          lastRepResult = String.format(
-              Locale.US, "%s : %d reps", repCounter.getClassName(), repsAfter);
-          break;
-        }
+      // Feeds pose to smoothing even if no pose found, but only updates the rep counters if a pose
+      // was found.
+      PoseStreamClassifier.Result streamResult = poseStreamClassifier.process(landmarks);
+      classification = streamResult.getClassification();
+      embedding = streamResult.getEmbedding();
+      RepetitionCounter completedRep = streamResult.getCompletedRep();
+      if (completedRep != null) {
+        rep = new PoseClassification.Rep(completedRep.getClassName(), completedRep.getNumRepeats());
+        lastRepResult = String.format(
+            Locale.US,
+            "%s : %d reps",
+            completedRep.getClassName(),
+            completedRep.getNumRepeats());
       }
       result.add(lastRepResult);
+      // Return early if no pose found.
+      if (landmarks.isEmpty()) {
+        return new PoseClassification(
+            result, /* poseClass= */ null, /* confidence= */ 0, rep, /* embedding= */ null);
+      }
+    } else {
+      classification = poseClassifier.classify(landmarks);
+      embedding = classification.getEmbedding();
     }
 
     // Add maxConfidence class of current frame to result if pose is found.
-    if (!pose.getAllPoseLandmarks().isEmpty()) {
-      String maxConfidenceClass = classification.getMaxConfidenceClass();
+    String maxConfidenceClass = null;
+    float confidence = 0;
+    if (!landmarks.isEmpty()) {
+      maxConfidenceClass = classification.getMaxConfidenceClass();
+      confidence =
+          classification.getClassConfidence(maxConfidenceClass) / poseClassifier.confidenceRange();
       String maxConfidenceClassResult = String.format(
           Locale.US,
           "%s : %.2f confidence",
           maxConfidenceClass,
-          classification.getClassConfidence(maxConfidenceClass)
-              / poseClassifier.confidenceRange());
+          confidence);
       result.add(maxConfidenceClassResult);
     }
 
-    return result;
+    return new PoseClassification(
+        result, maxConfidenceClass, confidence, rep, toFeatures(embedding));
   }
 
+  // Flattens an embedding into consecutive x, y and z values.
+  @Nullable
+  private static float[] toFeatures(@Nullable List<Point3D> embedding) {
+    if (embedding == null) {
+      return null;
+    }
+    float[] features = new float[embedding.size() * 3];
+    for (int i = 0; i < embedding.size(); i++) {
+      Point3D point = embedding.get(i);
+      features[3 * i] = point.getX();
+      features[3 * i + 1] = point.getY();
+      features[3 * i + 2] = point.getZ();
+    }
+    return features;
+  }
+
+  private static List<Point3D> extractPoseLandmarks(TrackedPose pose) {
+    List<Point3D> landmarks = new ArrayList<>();
+    for (TrackedLandmark poseLandmark : pose.getAllPoseLandmarks()) {
+      PointF3D position = poseLandmark.getPosition3D();
+      landmarks.add(Point3D.from(position.getX(), position.getY(), position.getZ()));
+    }
+    return landmarks;
+  }
+
+  /** Estimates how many bytes the pose sample library takes on the heap. */
+  public long estimateSampleLibrarySizeBytes() {
+    return poseClassifier.estimateSizeBytes();
+  }
 }
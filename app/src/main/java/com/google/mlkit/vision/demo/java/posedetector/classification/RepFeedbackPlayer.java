@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+import android.media.AudioManager;
+import android.media.ToneGenerator;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+/**
+ * Plays a short beep for every completed rep.
+ *
+ * <p>A single {@link ToneGenerator} is created up front and reused for the whole session on a
+ * dedicated audio thread. Rep events are posted to that thread, so the classification thread never
+ * waits on the audio stack and long sessions do not run out of native audio handles.
+ */
+public class RepFeedbackPlayer {
+  private static final String TAG = "RepFeedbackPlayer";
+  private static final int TONE_VOLUME = 100;
+  private static final int TONE_DURATION_MS = 150;
+
+  private final HandlerThread audioThread;
+  private final Handler audioHandler;
+
+  // Only touched on the audio thread.
+  @Nullable private ToneGenerator toneGenerator;
+  private boolean released;
+
+  public RepFeedbackPlayer() {
+    audioThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_AUDIO);
+    audioThread.start();
+    audioHandler = new Handler(audioThread.getLooper());
+    // Preload the generator so the first rep does not pay for its construction.
+    audioHandler.post(this::ensureToneGenerator);
+  }
+
+  /** Queues a beep for a completed rep. Returns immediately. */
+  public void onRepCompleted() {
+    audioHandler.post(
+        () -> {
+          ToneGenerator generator = ensureToneGenerator();
+          if (generator != null) {
+            generator.startTone(ToneGenerator.TONE_PROP_BEEP, TONE_DURATION_MS);
+          }
+        });
+  }
+
+  /** Releases the tone generator and stops the audio thread. Pending beeps are dropped. */
+  public void release() {
+    audioHandler.removeCallbacksAndMessages(null);
+    audioHandler.post(
+        () -> {
+          released = true;
+          if (toneGenerator != null) {
+            toneGenerator.release();
+            toneGenerator = null;
+          }
+          audioThread.quit();
+        });
+  }
+
+  @Nullable
+  private ToneGenerator ensureToneGenerator() {
+    if (toneGenerator == null && !released) {
+      try {
+        toneGenerator = new ToneGenerator(AudioManager.STREAM_NOTIFICATION, TONE_VOLUME);
+      } catch (RuntimeException e) {
+        // The audio service may refuse new generators, e.g. while another app holds them all.
+        Log.e(TAG, "Unable to create tone generator.", e);
+      }
+    }
+    return toneGenerator;
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.recording;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import com.google.mlkit.vision.demo.ProcessingThreads;
+import com.google.mlkit.vision.demo.memory.MemoryBudget;
+import com.google.mlkit.vision.demo.runtime.ProcessingRuntime;
+import com.google.mlkit.vision.demo.runtime.SerialExecutor;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the landmarks of a live session into app-private storage.
+ *
+ * <p>{@link #record} only copies the landmarks into a queue, so it can be called from the
+ * detection continuation without slowing it down. Whenever the queue goes from empty to non-empty,
+ * one task is scheduled on a serial executor of the I/O lane of the {@link
+ * ProcessingThreads#getRuntime runtime}, which writes all frames queued by then. The recorder
+ * therefore only holds a thread of the lane while it has frames to write. If the writing falls
+ * behind, frames are dropped rather than queued without bound. Fewer frames are queued under memory
+ * pressure.
+ */
+public class LandmarkSessionRecorder implements MemoryBudget.Consumer {
+  private static final String TAG = "LandmarkSessionRecorder";
+  private static final String SESSIONS_DIR = "pose_sessions";
+  private static final String SESSION_FILE_EXTENSION = ".plms";
+  private static final int MAX_PENDING_FRAMES = 120;
+  private static final int MIN_PENDING_FRAMES = 8;
+  // Positions and likelihoods of all landmarks, plus the frame and array headers.
+  private static final long FRAME_SIZE_BYTES =
+      4L * LandmarkFrame.NUM_LANDMARKS * (LandmarkFrame.NUM_DIMS + 1) + 64;
+
+  private final File sessionFile;
+  private final SerialExecutor writeExecutor =
+      ProcessingThreads.getRuntime().newSerialExecutor(ProcessingRuntime.Lane.IO);
+  private final BlockingQueue<LandmarkFrame> pendingFrames =
+      new ArrayBlockingQueue<>(MAX_PENDING_FRAMES);
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  private final AtomicInteger droppedFrames = new AtomicInteger();
+
+  private volatile boolean closed;
+  private volatile int maxPendingFrames = MAX_PENDING_FRAMES;
+
+  // Only touched on writeExecutor.
+  @Nullable private LandmarkSessionWriter writer;
+  private boolean finished;
+  private int framesWritten;
+
+  public LandmarkSessionRecorder(Context context) {
+    File sessionsDir = getSessionsDir(context);
+    if (!sessionsDir.isDirectory() && !sessionsDir.mkdirs()) {
+      Log.e(TAG, "Unable to create " + sessionsDir);
+    }
+    String name =
+        new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date())
+            + SESSION_FILE_EXTENSION;
+    sessionFile = new File(sessionsDir, name);
+  }
+
+  /** Returns the directory that recorded sessions are written to. */
+  public static File getSessionsDir(Context context) {
+    return new File(context.getFilesDir(), SESSIONS_DIR);
+  }
+
+  public File getSessionFile() {
+    return sessionFile;
+  }
+
+  public int getDroppedFrames() {
+    return droppedFrames.get();
+  }
+
+  /**
+   * Queues the landmarks of a detected pose for writing, in the coordinates of the whole upright
+   * frame. Never blocks.
+   */
+  public void record(LandmarkFrame frame) {
+    if (closed) {
+      return;
+    }
+    if (pendingFrames.size() >= maxPendingFrames
+        || !pendingFrames.offer(frame)) {
+      droppedFrames.incrementAndGet();
+      return;
+    }
+    scheduleDrain();
+  }
+
+  @Override
+  public long getSizeBytes() {
+    return pendingFrames.size() * FRAME_SIZE_BYTES;
+  }
+
+  @Override
+  public void onPressureChanged(MemoryBudget.Pressure pressure) {
+    // Keeps a few frames even under critical pressure, so the writing is not starved.
+    maxPendingFrames = Math.max((int) pressure.scale(MAX_PENDING_FRAMES), MIN_PENDING_FRAMES);
+  }
+
+  /** Finishes writing the queued frames in the background and closes the session file. */
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      // Not through scheduleDrain(), since a drain scheduled before closing may already be past
+      // checking whether the session is closed.
+      writeExecutor.execute(this::drain);
+    } catch (RejectedExecutionException e) {
+      Log.e(TAG, "Unable to finish writing " + sessionFile, e);
+    }
+  }
+
+  private void scheduleDrain() {
+    if (!drainScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      writeExecutor.execute(this::drain);
+    } catch (RejectedExecutionException e) {
+      // The lane is saturated, so drop what is queued rather than hold on to it.
+      int dropped = 0;
+      while (pendingFrames.poll() != null) {
+        dropped++;
+      }
+      droppedFrames.addAndGet(dropped);
+      drainScheduled.set(false);
+    }
+  }
+
+  /** Writes the frames queued so far, and closes the file if the session is closed. */
+  private void drain() {
+    // Cleared first, so a frame queued from now on schedules another drain.
+    drainScheduled.set(false);
+    if (finished) {
+      return;
+    }
+    try {
+      if (writer == null) {
+        writer = new LandmarkSessionWriter(new FileOutputStream(sessionFile));
+      }
+      LandmarkFrame frame;
+      while ((frame = pendingFrames.poll()) != null) {
+        writer.write(frame);
+        framesWritten++;
+      }
+      if (closed) {
+        finish();
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Error when writing session " + sessionFile, e);
+      closed = true;
+      pendingFrames.clear();
+      finish();
+    }
+  }
+
+  private void finish() {
+    finished = true;
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        Log.e(TAG, "Error when closing session " + sessionFile, e);
+      }
+      writer = null;
+    }
+    Log.i(
+        TAG,
+        String.format(
+            Locale.US,
+            "Recorded %d frames to %s, dropped %d",
+            framesWritten,
+            sessionFile,
+            droppedFrames.get()));
+  }
+}
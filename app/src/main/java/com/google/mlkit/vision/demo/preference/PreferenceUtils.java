@@ -30,6 +30,11 @@ import com.google.mlkit.common.model.LocalModel;
 import com.google.mlkit.vision.demo.CameraSource;
 import com.google.mlkit.vision.demo.CameraSource.SizePair;
 import com.google.mlkit.vision.demo.R;
+import com.google.mlkit.vision.demo.governor.QualityGovernor;
+import com.google.mlkit.vision.demo.governor.QualityLevel;
+import com.google.mlkit.vision.demo.java.posedetector.tracking.LandmarkPredictor;
+import com.google.mlkit.vision.demo.metrics.MetricsSnapshot;
+import com.google.mlkit.vision.demo.scheduler.FrameScheduler;
 import com.google.mlkit.vision.face.FaceDetectorOptions;
 import com.google.mlkit.vision.objects.ObjectDetectorOptionsBase.DetectorMode;
 import com.google.mlkit.vision.objects.custom.CustomObjectDetectorOptions;
@@ -37,6 +42,8 @@ import com.google.mlkit.vision.objects.defaults.ObjectDetectorOptions;
 import com.google.mlkit.vision.pose.PoseDetectorOptionsBase;
 import com.google.mlkit.vision.pose.accurate.AccuratePoseDetectorOptions;
 import com.google.mlkit.vision.pose.defaults.PoseDetectorOptions;
+import java.util.Arrays;
+import java.util.List;
 
 /** Utility class to retrieve shared preferences. */
 public class PreferenceUtils {
@@ -230,18 +237,35 @@ public class PreferenceUtils {
 //  }
 
   public static PoseDetectorOptionsBase getPoseDetectorOptionsForLivePreview(Context context) {
+    return getPoseDetectorOptions(
+        isLivePreviewPoseDetectorAccurate(context), /* isStreamMode= */ true);
+  }
+
+  private static boolean isLivePreviewPoseDetectorAccurate(Context context) {
     int performanceMode =
         getModeTypePreferenceValue(
             context,
             R.string.pref_key_live_preview_pose_detection_performance_mode,
             POSE_DETECTOR_PERFORMANCE_MODE_FAST);
-    if (performanceMode == POSE_DETECTOR_PERFORMANCE_MODE_FAST) {
+    return performanceMode != POSE_DETECTOR_PERFORMANCE_MODE_FAST;
+  }
+
+  /** Returns the options of the fast or accurate pose detector, for streams or single images. */
+  public static PoseDetectorOptionsBase getPoseDetectorOptions(
+      boolean accurateDetector, boolean isStreamMode) {
+    if (!accurateDetector) {
       return new PoseDetectorOptions.Builder()
-          .setDetectorMode(PoseDetectorOptions.STREAM_MODE)
+          .setDetectorMode(
+              isStreamMode
+                  ? PoseDetectorOptions.STREAM_MODE
+                  : PoseDetectorOptions.SINGLE_IMAGE_MODE)
           .build();
     } else {
       return new AccuratePoseDetectorOptions.Builder()
-          .setDetectorMode(AccuratePoseDetectorOptions.STREAM_MODE)
+          .setDetectorMode(
+              isStreamMode
+                  ? AccuratePoseDetectorOptions.STREAM_MODE
+                  : AccuratePoseDetectorOptions.SINGLE_IMAGE_MODE)
           .build();
     }
   }
@@ -252,15 +276,8 @@ public class PreferenceUtils {
             context,
             R.string.pref_key_still_image_pose_detection_performance_mode,
             POSE_DETECTOR_PERFORMANCE_MODE_FAST);
-    if (performanceMode == POSE_DETECTOR_PERFORMANCE_MODE_FAST) {
-      return new PoseDetectorOptions.Builder()
-          .setDetectorMode(PoseDetectorOptions.SINGLE_IMAGE_MODE)
-          .build();
-    } else {
-      return new AccuratePoseDetectorOptions.Builder()
-          .setDetectorMode(AccuratePoseDetectorOptions.SINGLE_IMAGE_MODE)
-          .build();
-    }
+    return getPoseDetectorOptions(
+        performanceMode != POSE_DETECTOR_PERFORMANCE_MODE_FAST, /* isStreamMode= */ false);
   }
 
 //  public static boolean shouldGroupRecognizedTextInBlocks(Context context) {
@@ -301,6 +318,12 @@ public class PreferenceUtils {
     return sharedPreferences.getBoolean(prefKey, false);
   }
 
+  public static boolean shouldPoseDetectionRecordSession(Context context) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String prefKey = context.getString(R.string.pref_key_pose_detector_record_session);
+    return sharedPreferences.getBoolean(prefKey, false);
+  }
+
   public static boolean shouldSegmentationEnableRawSizeMask(Context context) {
     SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
     String prefKey = context.getString(R.string.pref_key_segmentation_raw_size_mask);
@@ -325,5 +348,105 @@ public class PreferenceUtils {
     return sharedPreferences.getBoolean(prefKey, false);
   }
 
+  public static boolean shouldUseDirectYuvConversion(Context context) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String prefKey = context.getString(R.string.pref_key_camera_direct_yuv_conversion);
+    return sharedPreferences.getBoolean(prefKey, true);
+  }
+
+  /** Creates a frame scheduler for streaming sources, as set up in the live preview settings. */
+  public static FrameScheduler createFrameScheduler(Context context) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String policy =
+        sharedPreferences.getString(
+            context.getString(R.string.pref_key_frame_scheduler_policy),
+            FrameScheduler.Policy.LATEST_ONLY.name());
+    return new FrameScheduler(
+        FrameScheduler.Policy.valueOf(policy),
+        getModeTypePreferenceValue(
+            context, R.string.pref_key_frame_scheduler_queue_capacity, /* defaultValue= */ 3),
+        getModeTypePreferenceValue(
+            context, R.string.pref_key_frame_scheduler_frame_interval, /* defaultValue= */ 2),
+        getModeTypePreferenceValue(
+            context,
+            R.string.pref_key_frame_scheduler_max_frames_in_flight,
+            /* defaultValue= */ 1));
+  }
+
+  public static boolean shouldThrottleOnHeat(Context context) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String prefKey = context.getString(R.string.pref_key_thermal_throttling);
+    return sharedPreferences.getBoolean(prefKey, true);
+  }
+
+  /**
+   * Creates the governor that adapts the quality of live sessions, or returns null if adaptive
+   * quality is off. It starts from the detector chosen in the settings at a medium resolution.
+   */
+  @Nullable
+  public static QualityGovernor createQualityGovernor(
+      Context context, QualityGovernor.Listener listener) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String prefKey = context.getString(R.string.pref_key_adaptive_quality);
+    if (!sharedPreferences.getBoolean(prefKey, false)) {
+      return null;
+    }
+    List<QualityLevel> levels =
+        Arrays.asList(
+            new QualityLevel("fast-360p-half-rate", false, 480, 360, /* frameInterval= */ 2),
+            new QualityLevel("fast-360p", false, 480, 360, /* frameInterval= */ 1),
+            new QualityLevel("fast-480p", false, 640, 480, /* frameInterval= */ 1),
+            new QualityLevel("accurate-480p", true, 640, 480, /* frameInterval= */ 1),
+            new QualityLevel("accurate-720p", true, 1280, 720, /* frameInterval= */ 1));
+    int initialLevel = isLivePreviewPoseDetectorAccurate(context) ? 3 : 2;
+    int targetFps =
+        getModeTypePreferenceValue(
+            context, R.string.pref_key_adaptive_quality_target_fps, /* defaultValue= */ 30);
+    return new QualityGovernor(levels, initialLevel, targetFps, listener);
+  }
+
+  /**
+   * Creates the predictor that fills in the landmarks of frames between detections, or returns
+   * null if every frame is detected.
+   */
+  @Nullable
+  public static LandmarkPredictor createLandmarkPredictor(Context context) {
+    int detectionInterval =
+        getModeTypePreferenceValue(
+            context, R.string.pref_key_landmark_prediction, /* defaultValue= */ 1);
+    return detectionInterval != 1 ? new LandmarkPredictor(detectionInterval) : null;
+  }
+
+  public static boolean shouldCropToTrackedPose(Context context) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String prefKey = context.getString(R.string.pref_key_crop_to_tracked_pose);
+    return sharedPreferences.getBoolean(prefKey, false);
+  }
+
+  public static boolean shouldUsePipelinedDetection(Context context) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String prefKey = context.getString(R.string.pref_key_pipelined_detection);
+    return sharedPreferences.getBoolean(prefKey, true);
+  }
+
+  public static boolean shouldTraceFramePipeline(Context context) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String prefKey = context.getString(R.string.pref_key_trace_frame_pipeline);
+    return sharedPreferences.getBoolean(prefKey, false);
+  }
+
+  /** Returns the format to export metrics snapshots in, or null if they are not exported. */
+  @Nullable
+  public static MetricsSnapshot.Format getMetricsExportFormat(Context context) {
+    SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+    String format =
+        sharedPreferences.getString(
+            context.getString(R.string.pref_key_metrics_export),
+            context.getString(R.string.pref_entry_values_metrics_export_off));
+    return format.equals(context.getString(R.string.pref_entry_values_metrics_export_off))
+        ? null
+        : MetricsSnapshot.Format.valueOf(format);
+  }
+
   private PreferenceUtils() {}
 }
@@ -47,9 +47,12 @@ public abstract class VideoBaseActivity extends AppCompatActivity{
 
     private int frameWidth, frameHeight;
 
-    private boolean processing;
-    private boolean pending;
     private Bitmap lastFrame;
+    // Frames handed to the processor that it has neither processed nor dropped yet.
+    private final List<Bitmap> submittedFrames = new ArrayList<>();
+    // Frames that were still being detected when their processor was stopped, so they can't be
+    // reused.
+    private final List<Bitmap> abandonedFrames = new ArrayList<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -90,31 +93,44 @@ public abstract class VideoBaseActivity extends AppCompatActivity{
     }
 
     protected void processFrame(Bitmap frame){
+        Bitmap previousFrame = lastFrame;
         lastFrame = frame;
+        if(previousFrame != null && !isFrameInUse(previousFrame)){
+            onFrameUnused(previousFrame);
+        }
         if(imageProcessor != null){
-            pending = processing;
-            if(!processing){
-                processing = true;
-                if(frameWidth != frame.getWidth() || frameHeight != frame.getHeight()){
-                    frameWidth = frame.getWidth();
-                    frameHeight = frame.getHeight();
-                    graphicOverlay.setImageSourceInfo(frameWidth, frameHeight, false);
-                }
-                imageProcessor.setOnProcessingCompleteListener(new VisionProcessorBase.OnProcessingCompleteListener() {
-                    @Override
-                    public void onProcessingComplete() {
-                        processing = false;
-                        onProcessComplete(frame);
-                        if(pending) processFrame(lastFrame);
-                    }
-                });
-                imageProcessor.processBitmap(frame, graphicOverlay);
+            if(frameWidth != frame.getWidth() || frameHeight != frame.getHeight()){
+                frameWidth = frame.getWidth();
+                frameHeight = frame.getHeight();
+                graphicOverlay.setImageSourceInfo(frameWidth, frameHeight, false);
             }
+            // The processor's frame scheduler decides whether this frame is detected or dropped.
+            submittedFrames.add(frame);
+            imageProcessor.processBitmap(frame, graphicOverlay);
         }
     }
 
+    private void onFrameReleased(Bitmap frame, boolean processed){
+        submittedFrames.remove(frame);
+        if(processed) onProcessComplete(frame);
+        if(!isFrameInUse(frame)) onFrameUnused(frame);
+    }
+
     protected void onProcessComplete(Bitmap frame){ }
 
+    /** Returns whether the frame may still be processed, so it must not be reused yet. */
+    protected boolean isFrameInUse(Bitmap frame){
+        return frame == lastFrame
+                || submittedFrames.contains(frame)
+                || abandonedFrames.contains(frame);
+    }
+
+    /**
+     * Called once a frame passed to {@link #processFrame} is no longer needed for processing, so
+     * subclasses can reuse it unless they still display it.
+     */
+    protected void onFrameUnused(Bitmap frame){ }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -208,10 +224,14 @@ public abstract class VideoBaseActivity extends AppCompatActivity{
                                     visualizeZ,
                                     rescaleZ,
                                     runClassification,
-                                    /* isStreamMode = */ false);
+                                    /* isStreamMode = */ false,
+                                    /* recordSession = */ false);
                     break;
                 default:
             }
+            if(imageProcessor != null){
+                imageProcessor.setOnBitmapReleasedListener(this::onFrameReleased);
+            }
         } catch (Exception e) {
             Log.e(TAG, "Can not create image processor: " + selectedProcessor, e);
             Toast.makeText(
@@ -224,10 +244,13 @@ public abstract class VideoBaseActivity extends AppCompatActivity{
 
     private void stopImageProcessor(){
         if(imageProcessor != null){
+            // Stopping drops the waiting frames, so only the ones in detection are left over.
             imageProcessor.stop();
             imageProcessor = null;
-            processing = false;
-            pending = false;
+            // Frames abandoned by an earlier processor have long finished by now.
+            abandonedFrames.clear();
+            abandonedFrames.addAll(submittedFrames);
+            submittedFrames.clear();
         }
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import android.graphics.Bitmap;
 import android.view.View;
 
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.mlkit.vision.demo.FrameBufferPool;
 import com.google.mlkit.vision.demo.video.gles.GlPlayerRenderer;
 import com.google.mlkit.vision.demo.video.gles.GlPlayerView;
 
@@ -30,4 +31,9 @@ public class VideoGLESActivity extends VideoBaseActivity implements GlPlayerRend
     public void onFrame(Bitmap bitmap) {
         processFrame(bitmap);
     }
+
+    @Override
+    protected void onFrameUnused(Bitmap frame) {
+        FrameBufferPool.getInstance().releaseBitmap(frame);
+    }
 }
@@ -1,7 +1,7 @@
 package com.google.mlkit.vision.demo.video;
 
 import android.graphics.Bitmap;
-import android.graphics.ImageFormat;
+import android.media.MediaCodecInfo;
 import android.media.MediaFormat;
 import android.util.Log;
 import android.util.Size;
@@ -13,16 +13,29 @@ import androidx.annotation.Nullable;
 
 import com.google.android.exoplayer2.Format;
 import com.google.android.exoplayer2.SimpleExoPlayer;
-import com.google.mlkit.vision.demo.java.videoactivity.YuvToRgbConverter;
+import com.google.mlkit.vision.demo.FrameBufferPool;
+import com.google.mlkit.vision.demo.ProcessingThreads;
+import com.google.mlkit.vision.demo.runtime.ProcessingRuntime;
+import com.google.mlkit.vision.demo.yuv.ParallelYuvConverter;
+import com.google.mlkit.vision.demo.yuv.YuvConverter;
+import com.google.mlkit.vision.demo.yuv.YuvFrame;
 
 import java.nio.ByteBuffer;
 
 public class VideoRawDecoderDataActivity extends VideoBaseActivity implements
         CustomRenderersFactory.VideoFrameDataListener{
 
+    // Conversion runs on the decoder thread, which it shares with up to this many threads in total.
+    private static final int MAX_CONVERSION_THREADS = 4;
+
     private ImageView frameImageView;
-    private YuvToRgbConverter yuvToRgbConverter;
-    private int frameWidth, frameHeight;
+    private final ParallelYuvConverter yuvConverter =
+            new ParallelYuvConverter(
+                    Math.min(
+                            MAX_CONVERSION_THREADS,
+                            ProcessingRuntime.Lane.CONVERSION.getMaxThreads() + 1),
+                    ProcessingThreads.getRuntime().getExecutor(ProcessingRuntime.Lane.CONVERSION));
+    private Bitmap displayedFrame;
 
     @NonNull
     @Override
@@ -41,6 +54,18 @@ public class VideoRawDecoderDataActivity extends VideoBaseActivity implements
     protected void onProcessComplete(Bitmap frame) {
         super.onProcessComplete(frame);
         frameImageView.setImageBitmap(frame);
+        Bitmap previousFrame = displayedFrame;
+        displayedFrame = frame;
+        if(previousFrame != null && previousFrame != frame && !isFrameInUse(previousFrame)){
+            FrameBufferPool.getInstance().releaseBitmap(previousFrame);
+        }
+    }
+
+    @Override
+    protected void onFrameUnused(Bitmap frame) {
+        if(frame != displayedFrame){
+            FrameBufferPool.getInstance().releaseBitmap(frame);
+        }
     }
 
     @Override
@@ -59,35 +84,35 @@ public class VideoRawDecoderDataActivity extends VideoBaseActivity implements
                 int height = playerFormat.height;
                 int rotation = playerFormat.rotationDegrees;
                 int colorFormat = androidMediaFormat.getInteger(MediaFormat.KEY_COLOR_FORMAT);
-                /*if(rotation == 90 || rotation == 270){
-                    int t = width;
-                    width = height;
-                    height = t;
-                }*/
 
+                FrameBufferPool pool = FrameBufferPool.getInstance();
                 data.rewind();
-                byte[] bytes = new byte[data.remaining()];
+                byte[] bytes = pool.acquireByteArray(data.remaining());
                 data.get(bytes);
-
-                Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-                if(frameWidth != bitmap.getWidth() || frameHeight != bitmap.getHeight()){
-                    frameWidth = bitmap.getWidth();
-                    frameHeight = bitmap.getHeight();
-                    if(yuvToRgbConverter != null) yuvToRgbConverter.release();
-                    yuvToRgbConverter = new YuvToRgbConverter(this);
+                YuvFrame frame;
+                switch (colorFormat) {
+                    case MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Planar:
+                        frame = YuvFrame.i420(bytes, width, height);
+                        break;
+                    case MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420SemiPlanar:
+                        frame = YuvFrame.nv12(bytes, width, height);
+                        break;
+                    default:
+                        frame = YuvFrame.nv21(bytes, width, height);
                 }
-                yuvToRgbConverter.yuvToRgb(bytes, bitmap, ImageFormat.NV21);
-
-                /*Bitmap bitmap = BitmapUtils.getBitmap(data, new FrameMetadata.Builder()
-                        .setWidth(width)
-                        .setHeight(height)
-                        .setRotation(rotation)
-                        .build());*/
 
-                /*Renderscript tool-kit can also be used for conversion*/
-
-                Size size = getSizeForDesiredSize(width, height, 500);
-                Bitmap finalBitmap = Bitmap.createScaledBitmap(bitmap, size.getWidth(), size.getHeight(), true);
+                // Rotate and scale down while converting, so no full size bitmap is made.
+                int rotatedWidth = YuvConverter.getRotatedWidth(width, height, rotation);
+                int rotatedHeight = YuvConverter.getRotatedHeight(width, height, rotation);
+                Size size = Math.max(rotatedWidth, rotatedHeight) > 500
+                        ? getSizeForDesiredSize(rotatedWidth, rotatedHeight, 500)
+                        : new Size(rotatedWidth, rotatedHeight);
+                int[] argb = pool.acquireIntArray(size.getWidth() * size.getHeight());
+                yuvConverter.convert(frame, rotation, size.getWidth(), size.getHeight(), argb);
+                Bitmap finalBitmap = pool.acquireBitmap(size.getWidth(), size.getHeight());
+                finalBitmap.setPixels(argb, 0, size.getWidth(), 0, 0, size.getWidth(), size.getHeight());
+                pool.releaseIntArray(argb);
+                pool.releaseByteArray(bytes);
 
                 runOnUiThread(()->{
                     //frameImageView.setImageBitmap(finalBitmap);
@@ -102,8 +127,6 @@ public class VideoRawDecoderDataActivity extends VideoBaseActivity implements
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if(yuvToRgbConverter != null){
-            yuvToRgbConverter.release();
-        }
+        yuvConverter.close();
     }
 }
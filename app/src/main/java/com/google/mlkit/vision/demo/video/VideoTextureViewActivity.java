@@ -1,5 +1,6 @@
 package com.google.mlkit.vision.demo.video;
 
+import android.graphics.Bitmap;
 import android.graphics.SurfaceTexture;
 import android.util.Size;
 import android.view.Surface;
@@ -9,6 +10,7 @@ import android.view.View;
 import androidx.annotation.NonNull;
 
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.mlkit.vision.demo.FrameBufferPool;
 
 public class VideoTextureViewActivity extends VideoBaseActivity implements TextureView.SurfaceTextureListener {
 
@@ -55,6 +57,12 @@ public class VideoTextureViewActivity extends VideoBaseActivity implements Textu
     @Override
     public void onSurfaceTextureUpdated(@NonNull SurfaceTexture surface) {
         Size size = getSizeForDesiredSize(textureView.getWidth(), textureView.getHeight(), 500);
-        processFrame(textureView.getBitmap(size.getWidth(), size.getHeight()));
+        Bitmap frame = FrameBufferPool.getInstance().acquireBitmap(size.getWidth(), size.getHeight());
+        processFrame(textureView.getBitmap(frame));
+    }
+
+    @Override
+    protected void onFrameUnused(Bitmap frame) {
+        FrameBufferPool.getInstance().releaseBitmap(frame);
     }
 }
@@ -1,6 +1,10 @@
 package com.google.mlkit.vision.demo.video.gles;
 
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
 import android.graphics.SurfaceTexture;
 import android.opengl.GLES11Ext;
 import android.opengl.GLES20;
@@ -11,6 +15,7 @@ import android.os.Looper;
 import android.view.Surface;
 
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.mlkit.vision.demo.FrameBufferPool;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -29,6 +34,9 @@ public class GlPlayerRenderer implements SurfaceTexture.OnFrameAvailableListener
     private float[] MMatrix = new float[16];
     private float[] VMatrix = new float[16];
     private float[] STMatrix = new float[16];
+    private final android.graphics.Matrix flipMatrix = new android.graphics.Matrix();
+    // Pooled bitmaps hold stale pixels, so copy instead of blending over them.
+    private final Paint copyPaint = new Paint();
 
     private int texName;
     private SurfaceTexture previewTexture;
@@ -47,6 +55,7 @@ public class GlPlayerRenderer implements SurfaceTexture.OnFrameAvailableListener
     GlPlayerRenderer(GlPlayerView glPreview) {
         super();
         Matrix.setIdentityM(STMatrix, 0);
+        copyPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
         this.glPreview = glPreview;
         handler = new Handler(Looper.getMainLooper());
     }
@@ -135,18 +144,22 @@ public class GlPlayerRenderer implements SurfaceTexture.OnFrameAvailableListener
         previewFilter.draw(texName, MVPMatrix, STMatrix, aspectRatio);
 
         if(frameListener != null){
-            ByteBuffer pixelBuffer = ByteBuffer.allocateDirect(width * height * 4);
+            FrameBufferPool pool = FrameBufferPool.getInstance();
+            ByteBuffer pixelBuffer = pool.acquireDirectBuffer(width * height * 4);
             pixelBuffer.order(ByteOrder.LITTLE_ENDIAN);
             GLES20.glReadPixels(0, 0, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixelBuffer);
             pixelBuffer.rewind();
-            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            Bitmap bitmap = pool.acquireBitmap(width, height);
             bitmap.copyPixelsFromBuffer(pixelBuffer);
+            pool.releaseDirectBuffer(pixelBuffer);
 
             // for vertical flip
-            android.graphics.Matrix matrix = new android.graphics.Matrix();
-            matrix.setScale( 1,-1);
-            matrix.postTranslate( 0, bitmap.getHeight());
-            Bitmap finalBitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+            flipMatrix.setScale( 1,-1);
+            flipMatrix.postTranslate( 0, bitmap.getHeight());
+            // The listener releases the frame to the pool once it is done with it.
+            Bitmap finalBitmap = pool.acquireBitmap(width, height);
+            new Canvas(finalBitmap).drawBitmap(bitmap, flipMatrix, copyPaint);
+            pool.releaseBitmap(bitmap);
 
             handler.post(()->{
                 frameListener.onFrame(finalBitmap);
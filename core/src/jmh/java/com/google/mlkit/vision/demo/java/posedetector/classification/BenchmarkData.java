@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+import com.google.mlkit.vision.demo.java.posedetector.synthetic.SyntheticPoseGenerator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Loads the app's pose samples for the benchmarks. */
+final class BenchmarkData {
+  static final String POSE_SAMPLES_RESOURCE = "/pose/fitness_pose_mine3.csv";
+  // Fixed so that every run benchmarks the same synthetic corpus.
+  private static final long SEED = 42;
+
+  private BenchmarkData() {}
+
+  static List<String> readSampleLines() {
+    List<String> lines = new ArrayList<>();
+    try (BufferedReader reader = openSamples()) {
+      String line = reader.readLine();
+      while (line != null) {
+        lines.add(line);
+        line = reader.readLine();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return lines;
+  }
+
+  static BufferedReader openSamples() {
+    InputStream in = BenchmarkData.class.getResourceAsStream(POSE_SAMPLES_RESOURCE);
+    if (in == null) {
+      throw new IllegalStateException(POSE_SAMPLES_RESOURCE + " not found on the classpath");
+    }
+    return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+  }
+
+  /** Returns the raw landmarks of every valid sample line, to be used as classifier queries. */
+  static List<List<Point3D>> readLandmarks() {
+    List<List<Point3D>> allLandmarks = new ArrayList<>();
+    for (String line : readSampleLines()) {
+      List<Point3D> landmarks = PoseSample.parseLandmarks(Arrays.asList(line.split(",", -1)));
+      if (landmarks != null) {
+        allLandmarks.add(landmarks);
+      }
+    }
+    return allLandmarks;
+  }
+
+  /** Returns a synthetic corpus of the given size generated from the real samples. */
+  static List<PoseSample> syntheticCorpus(int size) {
+    try (BufferedReader reader = openSamples()) {
+      return new SyntheticPoseGenerator(LabeledPose.readLabeledPoses(reader, ","), SEED)
+          .generateSamples(size);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
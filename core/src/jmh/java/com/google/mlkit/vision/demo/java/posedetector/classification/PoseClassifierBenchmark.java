@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PoseClassifier#classify} against corpora of different sizes.
+ *
+ * <p>The corpora are generated by {@link
+ * com.google.mlkit.vision.demo.java.posedetector.synthetic.SyntheticPoseGenerator} from the real
+ * samples. Run with {@code -p corpusSize=1000000} for the largest size, which needs a few GB of
+ * heap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PoseClassifierBenchmark {
+  @Param({"1000", "10000", "100000"})
+  public int corpusSize;
+
+  private PoseClassifier poseClassifier;
+  private List<List<Point3D>> queries;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    poseClassifier = new PoseClassifier(BenchmarkData.syntheticCorpus(corpusSize));
+    queries = BenchmarkData.readLandmarks();
+  }
+
+  @Benchmark
+  public ClassificationResult classify() {
+    List<Point3D> landmarks = queries.get(next);
+    next = (next + 1) % queries.size();
+    return poseClassifier.classify(landmarks);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-frame stages that run after classification: {@link EMASmoothing} and the
+ * {@link RepetitionCounter}s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StreamStagesBenchmark {
+  // Enough frames to cover several enter/exit cycles of the rep counters.
+  private static final int NUM_RESULTS = 64;
+
+  private final List<ClassificationResult> results = new ArrayList<>();
+  private EMASmoothing emaSmoothing;
+  private List<RepetitionCounter> repCounters;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    // Alternates between the rep classes so the counters keep entering and exiting poses.
+    for (int i = 0; i < NUM_RESULTS; i++) {
+      ClassificationResult result = new ClassificationResult();
+      String[] classes = PoseStreamClassifier.POSE_CLASSES;
+      String className = classes[(i / 8) % classes.length];
+      result.putClassConfidence(className, (i % 8) < 4 ? 10 : 0);
+      result.putClassConfidence("other", (i % 8) < 4 ? 0 : 10);
+      results.add(result);
+    }
+    emaSmoothing = new EMASmoothing();
+    repCounters = PoseStreamClassifier.createRepCounters(PoseStreamClassifier.POSE_CLASSES);
+  }
+
+  @Benchmark
+  public ClassificationResult smooth() {
+    ClassificationResult result = results.get(next);
+    next = (next + 1) % NUM_RESULTS;
+    return emaSmoothing.getSmoothedResult(result);
+  }
+
+  @Benchmark
+  public int countReps() {
+    ClassificationResult result = results.get(next);
+    next = (next + 1) % NUM_RESULTS;
+    int reps = 0;
+    for (RepetitionCounter repCounter : repCounters) {
+      reps += repCounter.addClassificationResult(result);
+    }
+    return reps;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how {@link ParallelYuvConverter} scales with threads on a 1280x720 video frame.
+ * ParallelYuvConverterTest checks its output against reference conversions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelYuvConverterBenchmark {
+  private static final int WIDTH = 1280;
+  private static final int HEIGHT = 720;
+  // The size the video activities scale frames to before detection.
+  private static final int SCALED_WIDTH = 500;
+  private static final int SCALED_HEIGHT = 281;
+
+  @Param({"1", "2", "4"})
+  public int threads;
+
+  @Param({"0", "90"})
+  public int rotation;
+
+  private ParallelYuvConverter converter;
+  private YuvFrame frame;
+  private int[] argb;
+
+  @Setup
+  public void setUp() {
+    byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+    new Random(0).nextBytes(nv21);
+    frame = YuvFrame.nv21(nv21, WIDTH, HEIGHT);
+    converter = new ParallelYuvConverter(threads);
+    argb = new int[WIDTH * HEIGHT];
+  }
+
+  @TearDown
+  public void tearDown() {
+    converter.close();
+  }
+
+  @Benchmark
+  public int[] fullSize() {
+    converter.convert(frame, rotation, argb);
+    return argb;
+  }
+
+  @Benchmark
+  public int[] downscaledPoint() {
+    return downscaled(ParallelYuvConverter.Sampling.POINT);
+  }
+
+  @Benchmark
+  public int[] downscaledArea() {
+    return downscaled(ParallelYuvConverter.Sampling.AREA);
+  }
+
+  private int[] downscaled(ParallelYuvConverter.Sampling sampling) {
+    int outWidth = rotation % 180 == 0 ? SCALED_WIDTH : SCALED_HEIGHT;
+    int outHeight = rotation % 180 == 0 ? SCALED_HEIGHT : SCALED_WIDTH;
+    converter.convert(frame, rotation, outWidth, outHeight, sampling, argb);
+    return argb;
+  }
+}
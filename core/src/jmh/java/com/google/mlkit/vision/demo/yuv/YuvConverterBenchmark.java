@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link YuvConverter} on preview sized frames.
+ *
+ * <p>{@link #convertThenRotate} is the cost of converting and rotating in separate passes, as the
+ * JPEG path in BitmapUtils does with a Matrix. {@link #jpegRoundTrip} uses javax.imageio as a
+ * stand in for YuvImage and BitmapFactory, which are only available on Android, so it only gives
+ * the order of magnitude of that path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class YuvConverterBenchmark {
+  @Param({"640x480", "1280x720"})
+  public String size;
+
+  @Param({"0", "90"})
+  public int rotation;
+
+  private int width;
+  private int height;
+  private byte[] nv21;
+  private int[] argb;
+  private int[] rotated;
+
+  @Setup
+  public void setUp() {
+    String[] dimensions = size.split("x", -1);
+    width = Integer.parseInt(dimensions[0]);
+    height = Integer.parseInt(dimensions[1]);
+    // Noise is the worst case for JPEG, so use a smooth gradient with a little noise instead.
+    Random random = new Random(0);
+    nv21 = new byte[width * height * 3 / 2];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        nv21[y * width + x] = (byte) ((x + y) / 8 + random.nextInt(8));
+      }
+    }
+    for (int i = width * height; i < nv21.length; i++) {
+      nv21[i] = (byte) (128 + (i % width) / 16);
+    }
+    argb = new int[width * height];
+    rotated = new int[width * height];
+  }
+
+  @Benchmark
+  public int[] fused() {
+    YuvConverter.nv21ToArgb(nv21, width, height, rotation, argb);
+    return argb;
+  }
+
+  @Benchmark
+  public int[] convertThenRotate() {
+    YuvConverter.nv21ToArgb(nv21, width, height, 0, argb);
+    if (rotation == 0) {
+      return argb;
+    }
+    // Clockwise rotation by 90 degrees, the common case for portrait preview.
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        rotated[x * height + (height - 1 - y)] = argb[y * width + x];
+      }
+    }
+    return rotated;
+  }
+
+  @Benchmark
+  public BufferedImage jpegRoundTrip() throws IOException {
+    YuvConverter.nv21ToArgb(nv21, width, height, 0, argb);
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    image.setRGB(0, 0, width, height, argb, 0, width);
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    ImageIO.write(image, "jpg", stream);
+    BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(stream.toByteArray()));
+    if (rotation == 0) {
+      return decoded;
+    }
+    BufferedImage rotatedImage = new BufferedImage(height, width, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        rotatedImage.setRGB(height - 1 - y, x, decoded.getRGB(x, y));
+      }
+    }
+    return rotatedImage;
+  }
+}
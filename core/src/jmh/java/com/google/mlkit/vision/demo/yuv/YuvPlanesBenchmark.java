@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link YuvPlanes#unpackPlane} with the byte by byte copy that BitmapUtils used before,
+ * on a synthetic 640x480 plane laid out like a camera plane. YuvPlanesTest checks that both
+ * produce the same output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class YuvPlanesBenchmark {
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+
+  /** Pixel stride of the plane, 1 for planar chroma and 2 for interleaved chroma. */
+  @Param({"1", "2"})
+  public int pixelStride;
+
+  /** Bytes of padding at the end of each row. */
+  @Param({"0", "64"})
+  public int rowPadding;
+
+  /** Pixel stride of the output, 1 for luma and 2 for the interleaved NV21 chroma. */
+  @Param({"1", "2"})
+  public int outputPixelStride;
+
+  private ByteBuffer plane;
+  private int rowStride;
+  private byte[] out;
+  private byte[] rowScratch;
+
+  @Setup
+  public void setUp() {
+    rowStride = WIDTH * pixelStride + rowPadding;
+    plane = createPlane(new Random(0), WIDTH, HEIGHT, rowStride, pixelStride, true);
+    out = new byte[2 * WIDTH * HEIGHT];
+    rowScratch = new byte[rowStride];
+  }
+
+  @Benchmark
+  public byte[] legacy() {
+    legacyUnpackPlane(plane, rowStride, pixelStride, WIDTH, HEIGHT, out, 1, outputPixelStride);
+    return out;
+  }
+
+  @Benchmark
+  public byte[] bulk() {
+    YuvPlanes.unpackPlane(
+        plane, rowStride, pixelStride, WIDTH, HEIGHT, out, 1, outputPixelStride, rowScratch);
+    return out;
+  }
+
+  /**
+   * Creates a plane with random content. Like camera planes, the last row is only as long as its
+   * last pixel.
+   */
+  private static ByteBuffer createPlane(
+      Random random, int width, int height, int rowStride, int pixelStride, boolean direct) {
+    int size = (height - 1) * rowStride + (width - 1) * pixelStride + 1;
+    byte[] bytes = new byte[size];
+    random.nextBytes(bytes);
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    buffer.put(bytes);
+    buffer.rewind();
+    return buffer;
+  }
+
+  /** The byte by byte unpacking that {@link YuvPlanes#unpackPlane} replaced. */
+  private static void legacyUnpackPlane(
+      ByteBuffer buffer,
+      int rowStride,
+      int inputPixelStride,
+      int width,
+      int height,
+      byte[] out,
+      int offset,
+      int pixelStride) {
+    buffer.rewind();
+    int numRow = (buffer.limit() + rowStride - 1) / rowStride;
+    if (numRow == 0) {
+      return;
+    }
+    int scaleFactor = height / numRow;
+    int numCol = width / scaleFactor;
+
+    int outputPos = offset;
+    int rowStart = 0;
+    for (int row = 0; row < numRow; row++) {
+      int inputPos = rowStart;
+      for (int col = 0; col < numCol; col++) {
+        out[outputPos] = buffer.get(inputPos);
+        outputPos += pixelStride;
+        inputPos += inputPixelStride;
+      }
+      rowStart += rowStride;
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.governor;
+
+import com.google.mlkit.vision.demo.metrics.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Steps a live session up and down a ladder of {@link QualityLevel}s to hold a target frame rate,
+ * so slow phones get smooth tracking and fast phones the accurate model.
+ *
+ * <p>The governor is fed the cost of each frame, the time the pipeline was busy with it, and judges
+ * it once a second against the frame budget of the current level. It steps down after {@link
+ * #WINDOWS_TO_STEP_DOWN} overloaded seconds in a row and up after {@link #WINDOWS_TO_STEP_UP}
+ * seconds with plenty of headroom. Stepping down from a level also bars stepping back up to it
+ * for a while, doubling each time, so a level that is just too slow isn't retried every few
+ * seconds. This class is thread safe, and calls its listener on the thread that fed the frame.
+ */
+public final class QualityGovernor {
+
+  /** Told every decision to change the quality level. */
+  public interface Listener {
+    void onQualityLevelChanged(QualityLevel level, String reason);
+  }
+
+  static final long WINDOW_NANOS = 1_000_000_000L;
+  static final int WINDOWS_TO_STEP_DOWN = 2;
+  static final int WINDOWS_TO_STEP_UP = 5;
+  // Windows with fewer frames don't tell enough about the load.
+  private static final int MIN_FRAMES_PER_WINDOW = 3;
+  // A window is overloaded when its p90 cost is over budget, or the frame rate falls short while
+  // the pipeline is not idle, and has headroom when the p90 cost leaves room for a slower level.
+  private static final float OVERLOADED_LOAD = 1f;
+  private static final float HEADROOM_LOAD = 0.5f;
+  private static final float MIN_FRAME_RATE_RATIO = 0.8f;
+  private static final long MIN_BACKOFF_NANOS = 5 * WINDOW_NANOS;
+  private static final long MAX_BACKOFF_NANOS = 80 * WINDOW_NANOS;
+
+  private final List<QualityLevel> levels;
+  private final float targetFps;
+  private final Listener listener;
+  private final LatencyHistogram windowCosts = new LatencyHistogram();
+  // When stepping up to each level is allowed again, and how long the next bar lasts.
+  private final long[] barredUntilNanos;
+  private final long[] backoffNanos;
+
+  private int levelIndex;
+  private boolean started;
+  private long windowStartNanos;
+  private int windowFrames;
+  // The first window after a change includes the switch itself, such as loading a model.
+  private boolean settling;
+  private int overloadedWindows;
+  private int headroomWindows;
+
+  /**
+   * @param levels the quality ladder, from the cheapest level to the best one.
+   * @param initialLevel the index of the level to start at.
+   * @param targetFps the frame rate to hold when analyzing every camera frame.
+   */
+  public QualityGovernor(
+      List<QualityLevel> levels, int initialLevel, float targetFps, Listener listener) {
+    if (levels.isEmpty() || initialLevel < 0 || initialLevel >= levels.size() || targetFps <= 0) {
+      throw new IllegalArgumentException("Invalid quality ladder");
+    }
+    this.levels = new ArrayList<>(levels);
+    this.levelIndex = initialLevel;
+    this.targetFps = targetFps;
+    this.listener = listener;
+    barredUntilNanos = new long[levels.size()];
+    backoffNanos = new long[levels.size()];
+  }
+
+  public synchronized QualityLevel getLevel() {
+    return levels.get(levelIndex);
+  }
+
+  public synchronized int getLevelIndex() {
+    return levelIndex;
+  }
+
+  public float getTargetFps() {
+    return targetFps;
+  }
+
+  /**
+   * Records a frame whose results were shown at {@code timestampNanos}, from {@link
+   * System#nanoTime}, and may change the quality level.
+   *
+   * @param costNanos the time the pipeline was busy with the frame, which limits the frame rate.
+   */
+  public void onFrame(long timestampNanos, long costNanos) {
+    onFrame(timestampNanos, costNanos, /* measured= */ true);
+  }
+
+  /**
+   * Records a frame whose results were shown at {@code timestampNanos} without running the
+   * detector, such as one with predicted landmarks. It counts towards the frame rate, but not
+   * towards the frame cost, which it would make look lower than the detector allows.
+   */
+  public void onPredictedFrame(long timestampNanos) {
+    onFrame(timestampNanos, /* costNanos= */ 0, /* measured= */ false);
+  }
+
+  private void onFrame(long timestampNanos, long costNanos, boolean measured) {
+    QualityLevel newLevel;
+    String reason;
+    synchronized (this) {
+      if (!started) {
+        // Frames are counted from the end of this one.
+        started = true;
+        windowStartNanos = timestampNanos;
+        return;
+      }
+      if (measured) {
+        windowCosts.recordNanos(costNanos);
+      }
+      windowFrames++;
+      long windowNanos = timestampNanos - windowStartNanos;
+      if (windowNanos < WINDOW_NANOS) {
+        return;
+      }
+      reason = evaluateWindow(timestampNanos, windowNanos);
+      windowCosts.reset();
+      windowFrames = 0;
+      windowStartNanos = timestampNanos;
+      if (reason == null) {
+        return;
+      }
+      newLevel = levels.get(levelIndex);
+    }
+    listener.onQualityLevelChanged(newLevel, reason);
+  }
+
+  /** Judges the window that just ended, and returns why the level changed, or null. */
+  private String evaluateWindow(long nowNanos, long windowNanos) {
+    if (settling
+        || windowFrames < MIN_FRAMES_PER_WINDOW
+        || windowCosts.getCount() < MIN_FRAMES_PER_WINDOW) {
+      settling = false;
+      return null;
+    }
+    QualityLevel level = levels.get(levelIndex);
+    float levelFps = targetFps / level.getFrameInterval();
+    float fps = windowFrames * 1e9f / windowNanos;
+    double budgetNanos = 1e9 / levelFps;
+    long p90CostNanos = windowCosts.getPercentileNanos(90);
+    float load = (float) (p90CostNanos / budgetNanos);
+    String measurements =
+        String.format(
+            Locale.US,
+            "p90 frame cost %.1f ms of %.1f ms budget, %.1f of %.1f fps",
+            p90CostNanos / 1e6,
+            budgetNanos / 1e6,
+            fps,
+            levelFps);
+
+    boolean overloaded =
+        load > OVERLOADED_LOAD || (fps < MIN_FRAME_RATE_RATIO * levelFps && load > HEADROOM_LOAD);
+    overloadedWindows = overloaded ? overloadedWindows + 1 : 0;
+    headroomWindows = load < HEADROOM_LOAD ? headroomWindows + 1 : 0;
+
+    if (overloadedWindows >= WINDOWS_TO_STEP_DOWN && levelIndex > 0) {
+      // Bars this level for longer each time it turns out to be too slow.
+      backoffNanos[levelIndex] =
+          Math.min(Math.max(2 * backoffNanos[levelIndex], MIN_BACKOFF_NANOS), MAX_BACKOFF_NANOS);
+      barredUntilNanos[levelIndex] = nowNanos + backoffNanos[levelIndex];
+      return changeLevel(levelIndex - 1, "Overloaded: " + measurements);
+    }
+    if (headroomWindows >= WINDOWS_TO_STEP_UP
+        && levelIndex < levels.size() - 1
+        && nowNanos >= barredUntilNanos[levelIndex + 1]) {
+      return changeLevel(levelIndex + 1, "Headroom: " + measurements);
+    }
+    return null;
+  }
+
+  private String changeLevel(int newLevelIndex, String reason) {
+    String decision =
+        String.format(
+            Locale.US,
+            "%s -> %s. %s",
+            levels.get(levelIndex).getName(),
+            levels.get(newLevelIndex).getName(),
+            reason);
+    levelIndex = newLevelIndex;
+    settling = true;
+    overloadedWindows = 0;
+    headroomWindows = 0;
+    return decision;
+  }
+}
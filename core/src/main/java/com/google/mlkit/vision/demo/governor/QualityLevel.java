@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.governor;
+
+import java.util.Locale;
+
+/**
+ * One step of the quality ladder of a {@link QualityGovernor}: which detector model runs, at what
+ * camera resolution, and on which share of the camera frames.
+ */
+public final class QualityLevel {
+
+  private final String name;
+  private final boolean accurateDetector;
+  private final int longSide;
+  private final int shortSide;
+  private final int frameInterval;
+
+  /**
+   * @param longSide the long side of the target camera resolution, regardless of orientation.
+   * @param shortSide the short side of the target camera resolution.
+   * @param frameInterval analyze every {@code frameInterval}th camera frame, 1 for all of them.
+   */
+  public QualityLevel(
+      String name, boolean accurateDetector, int longSide, int shortSide, int frameInterval) {
+    if (longSide < shortSide || shortSide <= 0 || frameInterval < 1) {
+      throw new IllegalArgumentException(
+          String.format(
+              Locale.US,
+              "Invalid quality level %dx%d every %d",
+              longSide,
+              shortSide,
+              frameInterval));
+    }
+    this.name = name;
+    this.accurateDetector = accurateDetector;
+    this.longSide = longSide;
+    this.shortSide = shortSide;
+    this.frameInterval = frameInterval;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isAccurateDetector() {
+    return accurateDetector;
+  }
+
+  public int getLongSide() {
+    return longSide;
+  }
+
+  public int getShortSide() {
+    return shortSide;
+  }
+
+  public int getFrameInterval() {
+    return frameInterval;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "%s (%s detector, %dx%d, every %d frame%s)",
+        name,
+        accurateDetector ? "accurate" : "fast",
+        longSide,
+        shortSide,
+        frameInterval,
+        frameInterval == 1 ? "" : "s");
+  }
+}
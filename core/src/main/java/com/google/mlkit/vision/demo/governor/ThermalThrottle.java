@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.governor;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Degrades a live session step by step as the device heats up, and recovers on cooldown, so long
+ * sessions slow down gracefully rather than being throttled hard by the OS.
+ *
+ * <p>It is fed the temperature sensor readings, judged by how far each sensor rose above the
+ * lowest reading it ever had, and the platform thermal status where available. A throttle should
+ * therefore outlive the sessions, or a session started on a hot device would take its heat as the
+ * baseline. Heating up raises the throttling level at once. Cooling down lowers it by one level at
+ * a time, once the lower level has held for {@link #COOLDOWN_NANOS}. This class is thread safe,
+ * and calls its listener on the thread that fed the readings.
+ */
+public final class ThermalThrottle {
+
+  /** How much a session is throttled. Each level includes the cuts of the ones before. */
+  public enum Level {
+    NONE(/* accurateDetectorAllowed= */ true, /* minFrameInterval= */ 1, false),
+    /** Runs the fast detector only. */
+    WARM(/* accurateDetectorAllowed= */ false, /* minFrameInterval= */ 1, false),
+    /** Also analyzes every other frame. */
+    HOT(/* accurateDetectorAllowed= */ false, /* minFrameInterval= */ 2, false),
+    /** Also analyzes every third frame, and draws less on the overlay. */
+    CRITICAL(/* accurateDetectorAllowed= */ false, /* minFrameInterval= */ 3, true);
+
+    private final boolean accurateDetectorAllowed;
+    private final int minFrameInterval;
+    private final boolean reduceOverlay;
+
+    Level(boolean accurateDetectorAllowed, int minFrameInterval, boolean reduceOverlay) {
+      this.accurateDetectorAllowed = accurateDetectorAllowed;
+      this.minFrameInterval = minFrameInterval;
+      this.reduceOverlay = reduceOverlay;
+    }
+
+    public boolean isAccurateDetectorAllowed() {
+      return accurateDetectorAllowed;
+    }
+
+    public int getMinFrameInterval() {
+      return minFrameInterval;
+    }
+
+    public boolean shouldReduceOverlay() {
+      return reduceOverlay;
+    }
+  }
+
+  /** Told every change of the throttling level. */
+  public interface Listener {
+    void onThrottleLevelChanged(Level level, String reason);
+  }
+
+  /** The thermal status is not known, as before Android Q. */
+  public static final int THERMAL_STATUS_UNKNOWN = -1;
+  // Platform thermal statuses, as in android.os.PowerManager.
+  private static final int THERMAL_STATUS_LIGHT = 1;
+  private static final int THERMAL_STATUS_MODERATE = 2;
+  private static final int THERMAL_STATUS_SEVERE = 3;
+
+  static final long COOLDOWN_NANOS = 30_000_000_000L;
+  // Temperature rises that enter WARM, HOT and CRITICAL, and how far below them a level is left.
+  private static final float[] RISE_THRESHOLDS_CELSIUS = {4f, 7f, 10f};
+  private static final float HYSTERESIS_CELSIUS = 2f;
+
+  private final Listener listener;
+  private final Map<String, Float> baselinesCelsius = new HashMap<>();
+
+  private Level level = Level.NONE;
+  // The level judged from the temperatures alone, which keeps its own hysteresis.
+  private Level temperatureLevel = Level.NONE;
+  // Since when the readings have called for a lower level, or -1.
+  private long coolingSinceNanos = -1;
+
+  public ThermalThrottle(Listener listener) {
+    this.listener = listener;
+  }
+
+  public synchronized Level getLevel() {
+    return level;
+  }
+
+  /**
+   * Judges the latest readings, and may change the throttling level.
+   *
+   * @param nowNanos the current time, from {@link System#nanoTime}.
+   * @param readingsCelsius the latest reading of each temperature sensor. Negative readings are
+   *     taken as invalid and skipped.
+   * @param thermalStatus the platform thermal status, or {@link #THERMAL_STATUS_UNKNOWN}.
+   */
+  public void update(long nowNanos, Map<String, Float> readingsCelsius, int thermalStatus) {
+    Level newLevel;
+    String reason;
+    synchronized (this) {
+      String hottestSensor = null;
+      float maxRiseCelsius = 0;
+      for (Map.Entry<String, Float> reading : readingsCelsius.entrySet()) {
+        float celsius = reading.getValue();
+        if (celsius < 0) {
+          continue;
+        }
+        Float baseline = baselinesCelsius.get(reading.getKey());
+        if (baseline == null || celsius < baseline) {
+          baselinesCelsius.put(reading.getKey(), celsius);
+          baseline = celsius;
+        }
+        if (hottestSensor == null || celsius - baseline > maxRiseCelsius) {
+          hottestSensor = reading.getKey();
+          maxRiseCelsius = celsius - baseline;
+        }
+      }
+      temperatureLevel = levelForRise(maxRiseCelsius);
+      Level statusLevel = levelForThermalStatus(thermalStatus);
+      Level target =
+          temperatureLevel.compareTo(statusLevel) >= 0 ? temperatureLevel : statusLevel;
+
+      if (target.compareTo(level) > 0) {
+        newLevel = target;
+        coolingSinceNanos = -1;
+      } else if (target.compareTo(level) < 0) {
+        if (coolingSinceNanos < 0) {
+          coolingSinceNanos = nowNanos;
+        }
+        if (nowNanos - coolingSinceNanos < COOLDOWN_NANOS) {
+          return;
+        }
+        newLevel = Level.values()[level.ordinal() - 1];
+        // The next step down needs another cooldown.
+        coolingSinceNanos = target.compareTo(newLevel) < 0 ? nowNanos : -1;
+      } else {
+        coolingSinceNanos = -1;
+        return;
+      }
+      reason =
+          String.format(
+              Locale.US,
+              "%s -> %s. Temperature rise %.1fC%s, thermal status %s",
+              level,
+              newLevel,
+              maxRiseCelsius,
+              hottestSensor != null ? " (" + hottestSensor + ")" : "",
+              thermalStatus == THERMAL_STATUS_UNKNOWN ? "unknown" : thermalStatus);
+      level = newLevel;
+    }
+    listener.onThrottleLevelChanged(newLevel, reason);
+  }
+
+  // Rises to a level at its threshold, and only falls back once below it by the hysteresis.
+  private Level levelForRise(float riseCelsius) {
+    int newLevel = 0;
+    for (int i = 0; i < RISE_THRESHOLDS_CELSIUS.length; i++) {
+      float threshold = RISE_THRESHOLDS_CELSIUS[i];
+      if (i < temperatureLevel.ordinal()) {
+        threshold -= HYSTERESIS_CELSIUS;
+      }
+      if (riseCelsius >= threshold) {
+        newLevel = i + 1;
+      }
+    }
+    return Level.values()[newLevel];
+  }
+
+  private static Level levelForThermalStatus(int thermalStatus) {
+    if (thermalStatus >= THERMAL_STATUS_SEVERE) {
+      return Level.CRITICAL;
+    } else if (thermalStatus >= THERMAL_STATUS_MODERATE) {
+      return Level.HOT;
+    } else if (thermalStatus >= THERMAL_STATUS_LIGHT) {
+      return Level.WARM;
+    }
+    return Level.NONE;
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.mlkit.vision.demo.java.posedetector.classification;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -30,6 +31,8 @@ public class ClassificationResult {
   // appears in the top K nearest neighbors. The value is in range [0, K] and could be a float after
   // EMA smoothing. We use this number to represent the confidence of a pose being in this class.
   private final Map<String, Float> classConfidences;
+  // The embedding of the classified pose, see getEmbedding().
+  private List<Point3D> embedding;
 
   public ClassificationResult() {
     classConfidences = new HashMap<>();
@@ -58,4 +61,16 @@ public class ClassificationResult {
   public void putClassConfidence(String className, float confidence) {
     classConfidences.put(className, confidence);
   }
+
+  /**
+   * Returns the embedding that {@link PoseClassifier} compared the pose with its samples on, or
+   * null if no pose was found. Smoothed results have none.
+   */
+  public List<Point3D> getEmbedding() {
+    return embedding;
+  }
+
+  void setEmbedding(List<Point3D> embedding) {
+    this.embedding = embedding;
+  }
 }
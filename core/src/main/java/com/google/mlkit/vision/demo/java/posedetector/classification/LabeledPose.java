@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Landmarks of a pose with its name and class, as in a row of the pose samples csv.
+ *
+ * <p>Unlike {@link PoseSample}, keeps the landmarks instead of the embedding, so the pose can be
+ * transformed or fed to {@link PoseClassifier#classify} as a query.
+ */
+public class LabeledPose {
+  private final String name;
+  private final String className;
+  private final List<Point3D> landmarks;
+
+  public LabeledPose(String name, String className, List<Point3D> landmarks) {
+    this.name = name;
+    this.className = className;
+    this.landmarks = landmarks;
+  }
+
+  /** Reads the valid rows of a pose samples csv. */
+  public static List<LabeledPose> readLabeledPoses(BufferedReader reader, String separator)
+      throws IOException {
+    List<LabeledPose> poses = new ArrayList<>();
+    String csvLine = reader.readLine();
+    while (csvLine != null) {
+      List<String> tokens = Arrays.asList(csvLine.split(separator, -1));
+      List<Point3D> landmarks = PoseSample.parseLandmarks(tokens);
+      if (landmarks != null) {
+        poses.add(new LabeledPose(tokens.get(0), tokens.get(1), landmarks));
+      }
+      csvLine = reader.readLine();
+    }
+    return poses;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getClassName() {
+    return className;
+  }
+
+  public List<Point3D> getLandmarks() {
+    return landmarks;
+  }
+
+  public PoseSample toPoseSample() {
+    return new PoseSample(name, className, landmarks);
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+/**
+ * Immutable 3D point used by the classification code.
+ *
+ * <p>Mirrors ML Kit's {@code PointF3D}, so that the classifier does not depend on ML Kit and can
+ * run on a plain JVM.
+ */
+public final class Point3D {
+  private final float x;
+  private final float y;
+  private final float z;
+
+  private Point3D(float x, float y, float z) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+  }
+
+  public static Point3D from(float x, float y, float z) {
+    return new Point3D(x, y, z);
+  }
+
+  public float getX() {
+    return x;
+  }
+
+  public float getY() {
+    return y;
+  }
+
+  public float getZ() {
+    return z;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Point3D)) {
+      return false;
+    }
+    Point3D other = (Point3D) o;
+    return Float.compare(x, other.x) == 0
+        && Float.compare(y, other.y) == 0
+        && Float.compare(z, other.z) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Float.floatToIntBits(x);
+    result = 31 * result + Float.floatToIntBits(y);
+    result = 31 * result + Float.floatToIntBits(z);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "Point3D(" + x + ", " + y + ", " + z + ")";
+  }
+}
@@ -25,52 +25,44 @@ import static com.google.mlkit.vision.demo.java.posedetector.classification.Util
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
-import android.util.Pair;
-import com.google.mlkit.vision.common.PointF3D;
-import com.google.mlkit.vision.pose.Pose;
-import com.google.mlkit.vision.pose.PoseLandmark;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.PriorityQueue;
 
 /**
- * Classifies {link Pose} based on given {@link PoseSample}s.
+ * Classifies pose landmarks based on given {@link PoseSample}s.
  *
  * <p>Inspired by K-Nearest Neighbors Algorithm with outlier filtering.
  * https://en.wikipedia.org/wiki/K-nearest_neighbors_algorithm
  */
 public class PoseClassifier {
   private static final String TAG = "PoseClassifier";
-  private static final int MAX_DISTANCE_TOP_K = 30;
-  private static final int MEAN_DISTANCE_TOP_K = 10;
+  static final int MAX_DISTANCE_TOP_K = 30;
+  static final int MEAN_DISTANCE_TOP_K = 10;
   // Note Z has a lower weight as it is generally less accurate than X & Y.
-  private static final PointF3D AXES_WEIGHTS = PointF3D.from(1, 1, 0.2f);
+  static final Point3D AXES_WEIGHTS = Point3D.from(1, 1, 0.2f);
+  // A point takes about 24 bytes on the heap, plus the reference to it in the embedding list.
+  private static final long POINT_SIZE_BYTES = 28;
+  // The sample itself, its names and its embedding list.
+  private static final long SAMPLE_OVERHEAD_BYTES = 128;
 
   private final List<PoseSample> poseSamples;
   private final int maxDistanceTopK;
   private final int meanDistanceTopK;
-  private final PointF3D axesWeights;
+  private final Point3D axesWeights;
 
   public PoseClassifier(List<PoseSample> poseSamples) {
     this(poseSamples, MAX_DISTANCE_TOP_K, MEAN_DISTANCE_TOP_K, AXES_WEIGHTS);
   }
 
   public PoseClassifier(List<PoseSample> poseSamples, int maxDistanceTopK,
-      int meanDistanceTopK, PointF3D axesWeights) {
+      int meanDistanceTopK, Point3D axesWeights) {
     this.poseSamples = poseSamples;
     this.maxDistanceTopK = maxDistanceTopK;
     this.meanDistanceTopK = meanDistanceTopK;
     this.axesWeights = axesWeights;
   }
 
-  private static List<PointF3D> extractPoseLandmarks(Pose pose) {
-    List<PointF3D> landmarks = new ArrayList<>();
-    for (PoseLandmark poseLandmark : pose.getAllPoseLandmarks()) {
-      landmarks.add(poseLandmark.getPosition3D());
-    }
-    return landmarks;
-  }
-
   /**
    * Returns the max range of confidence values.
    *
@@ -81,11 +73,16 @@ public class PoseClassifier {
     return min(maxDistanceTopK, meanDistanceTopK);
   }
 
-  public ClassificationResult classify(Pose pose) {
-    return classify(extractPoseLandmarks(pose));
+  /** Estimates how many bytes the pose samples take on the heap. */
+  public long estimateSizeBytes() {
+    long sizeBytes = 0;
+    for (PoseSample poseSample : poseSamples) {
+      sizeBytes += SAMPLE_OVERHEAD_BYTES + POINT_SIZE_BYTES * poseSample.getEmbedding().size();
+    }
+    return sizeBytes;
   }
 
-  public ClassificationResult classify(List<PointF3D> landmarks) {
+  public ClassificationResult classify(List<Point3D> landmarks) {
     ClassificationResult result = new ClassificationResult();
     // Return early if no landmarks detected.
     if (landmarks.isEmpty()) {
@@ -93,11 +90,12 @@ public class PoseClassifier {
     }
 
     // We do flipping on X-axis so we are horizontal (mirror) invariant.
-    List<PointF3D> flippedLandmarks = new ArrayList<>(landmarks);
-    multiplyAll(flippedLandmarks, PointF3D.from(-1, 1, 1));
+    List<Point3D> flippedLandmarks = new ArrayList<>(landmarks);
+    multiplyAll(flippedLandmarks, Point3D.from(-1, 1, 1));
 
-    List<PointF3D> embedding = getPoseEmbedding(landmarks);
-    List<PointF3D> flippedEmbedding = getPoseEmbedding(flippedLandmarks);
+    List<Point3D> embedding = getPoseEmbedding(landmarks);
+    List<Point3D> flippedEmbedding = getPoseEmbedding(flippedLandmarks);
+    result.setEmbedding(embedding);
 
 
     // Classification is done in two stages:
@@ -107,11 +105,11 @@ public class PoseClassifier {
     //    that are closest by average.
 
     // Keeps max distance on top so we can pop it when top_k size is reached.
-    PriorityQueue<Pair<PoseSample, Float>> maxDistances = new PriorityQueue<>(
-        maxDistanceTopK, (o1, o2) -> -Float.compare(o1.second, o2.second));
+    PriorityQueue<SampleDistance> maxDistances = new PriorityQueue<>(
+        maxDistanceTopK, (o1, o2) -> -Float.compare(o1.distance, o2.distance));
     // Retrieve top K poseSamples by least distance to remove outliers.
     for (PoseSample poseSample : poseSamples) {
-      List<PointF3D> sampleEmbedding = poseSample.getEmbedding();
+      List<Point3D> sampleEmbedding = poseSample.getEmbedding();
 
       float originalMax = 0;
       float flippedMax = 0;
@@ -128,7 +126,7 @@ public class PoseClassifier {
                         subtract(flippedEmbedding.get(i), sampleEmbedding.get(i)), axesWeights)));
       }
       // Set the max distance as min of original and flipped max distance.
-      maxDistances.add(new Pair<>(poseSample, min(originalMax, flippedMax)));
+      maxDistances.add(new SampleDistance(poseSample, min(originalMax, flippedMax)));
       // We only want to retain top n so pop the highest distance.
       if (maxDistances.size() > maxDistanceTopK) {
         maxDistances.poll();
@@ -136,12 +134,12 @@ public class PoseClassifier {
     }
 
     // Keeps higher mean distances on top so we can pop it when top_k size is reached.
-    PriorityQueue<Pair<PoseSample, Float>> meanDistances = new PriorityQueue<>(
-        meanDistanceTopK, (o1, o2) -> -Float.compare(o1.second, o2.second));
+    PriorityQueue<SampleDistance> meanDistances = new PriorityQueue<>(
+        meanDistanceTopK, (o1, o2) -> -Float.compare(o1.distance, o2.distance));
     // Retrive top K poseSamples by least mean distance to remove outliers.
-    for (Pair<PoseSample, Float> sampleDistances : maxDistances) {
-      PoseSample poseSample = sampleDistances.first;
-      List<PointF3D> sampleEmbedding = poseSample.getEmbedding();
+    for (SampleDistance sampleDistances : maxDistances) {
+      PoseSample poseSample = sampleDistances.poseSample;
+      List<Point3D> sampleEmbedding = poseSample.getEmbedding();
 
       float originalSum = 0;
       float flippedSum = 0;
@@ -153,18 +151,28 @@ public class PoseClassifier {
       }
       // Set the mean distance as min of original and flipped mean distances.
       float meanDistance = min(originalSum, flippedSum) / (embedding.size() * 2);
-      meanDistances.add(new Pair<>(poseSample, meanDistance));
+      meanDistances.add(new SampleDistance(poseSample, meanDistance));
       // We only want to retain top k so pop the highest mean distance.
       if (meanDistances.size() > meanDistanceTopK) {
         meanDistances.poll();
       }
     }
 
-    for (Pair<PoseSample, Float> sampleDistances : meanDistances) {
-      String className = sampleDistances.first.getClassName();
+    for (SampleDistance sampleDistances : meanDistances) {
+      String className = sampleDistances.poseSample.getClassName();
       result.incrementClassConfidence(className);
     }
 
     return result;
   }
+
+  private static class SampleDistance {
+    final PoseSample poseSample;
+    final float distance;
+
+    SampleDistance(PoseSample poseSample, float distance) {
+      this.poseSample = poseSample;
+      this.distance = distance;
+    }
+  }
 }
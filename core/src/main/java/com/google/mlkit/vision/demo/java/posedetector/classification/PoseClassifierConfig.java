@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Tunable parameters of {@link PoseClassifier} and {@link RepetitionCounter}.
+ *
+ * <p>Stored as a properties file, e.g. the one written by the hyperparameter search. Keys that are
+ * missing keep their default value.
+ */
+public class PoseClassifierConfig {
+  static final String KEY_MAX_DISTANCE_TOP_K = "maxDistanceTopK";
+  static final String KEY_MEAN_DISTANCE_TOP_K = "meanDistanceTopK";
+  static final String KEY_AXES_WEIGHT_X = "axesWeightX";
+  static final String KEY_AXES_WEIGHT_Y = "axesWeightY";
+  static final String KEY_AXES_WEIGHT_Z = "axesWeightZ";
+  static final String KEY_ENTER_THRESHOLD = "repEnterThreshold";
+  static final String KEY_EXIT_THRESHOLD = "repExitThreshold";
+
+  private final int maxDistanceTopK;
+  private final int meanDistanceTopK;
+  private final Point3D axesWeights;
+  private final float enterThreshold;
+  private final float exitThreshold;
+
+  public PoseClassifierConfig(
+      int maxDistanceTopK,
+      int meanDistanceTopK,
+      Point3D axesWeights,
+      float enterThreshold,
+      float exitThreshold) {
+    if (maxDistanceTopK < 1 || meanDistanceTopK < 1) {
+      throw new IllegalArgumentException("Top K values must be positive");
+    }
+    if (exitThreshold > enterThreshold) {
+      throw new IllegalArgumentException("Exit threshold must not be above the enter threshold");
+    }
+    this.maxDistanceTopK = maxDistanceTopK;
+    this.meanDistanceTopK = meanDistanceTopK;
+    this.axesWeights = axesWeights;
+    this.enterThreshold = enterThreshold;
+    this.exitThreshold = exitThreshold;
+  }
+
+  /** Returns the parameters {@link PoseClassifier} and {@link RepetitionCounter} default to. */
+  public static PoseClassifierConfig defaults() {
+    return new PoseClassifierConfig(
+        PoseClassifier.MAX_DISTANCE_TOP_K,
+        PoseClassifier.MEAN_DISTANCE_TOP_K,
+        PoseClassifier.AXES_WEIGHTS,
+        RepetitionCounter.DEFAULT_ENTER_THRESHOLD,
+        RepetitionCounter.DEFAULT_EXIT_THRESHOLD);
+  }
+
+  /**
+   * Reads a config from properties.
+   *
+   * @throws IllegalArgumentException if a value is malformed or out of range.
+   */
+  public static PoseClassifierConfig load(Reader reader) throws IOException {
+    Properties properties = new Properties();
+    properties.load(reader);
+    PoseClassifierConfig defaults = defaults();
+    try {
+      return new PoseClassifierConfig(
+          getInt(properties, KEY_MAX_DISTANCE_TOP_K, defaults.maxDistanceTopK),
+          getInt(properties, KEY_MEAN_DISTANCE_TOP_K, defaults.meanDistanceTopK),
+          Point3D.from(
+              getFloat(properties, KEY_AXES_WEIGHT_X, defaults.axesWeights.getX()),
+              getFloat(properties, KEY_AXES_WEIGHT_Y, defaults.axesWeights.getY()),
+              getFloat(properties, KEY_AXES_WEIGHT_Z, defaults.axesWeights.getZ())),
+          getFloat(properties, KEY_ENTER_THRESHOLD, defaults.enterThreshold),
+          getFloat(properties, KEY_EXIT_THRESHOLD, defaults.exitThreshold));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed pose classifier config", e);
+    }
+  }
+
+  public void store(Writer writer, String comments) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty(KEY_MAX_DISTANCE_TOP_K, Integer.toString(maxDistanceTopK));
+    properties.setProperty(KEY_MEAN_DISTANCE_TOP_K, Integer.toString(meanDistanceTopK));
+    properties.setProperty(KEY_AXES_WEIGHT_X, Float.toString(axesWeights.getX()));
+    properties.setProperty(KEY_AXES_WEIGHT_Y, Float.toString(axesWeights.getY()));
+    properties.setProperty(KEY_AXES_WEIGHT_Z, Float.toString(axesWeights.getZ()));
+    properties.setProperty(KEY_ENTER_THRESHOLD, Float.toString(enterThreshold));
+    properties.setProperty(KEY_EXIT_THRESHOLD, Float.toString(exitThreshold));
+    properties.store(writer, comments);
+  }
+
+  private static int getInt(Properties properties, String key, int defaultValue) {
+    String value = properties.getProperty(key);
+    return value == null ? defaultValue : Integer.parseInt(value.trim());
+  }
+
+  private static float getFloat(Properties properties, String key, float defaultValue) {
+    String value = properties.getProperty(key);
+    return value == null ? defaultValue : Float.parseFloat(value.trim());
+  }
+
+  public PoseClassifier createPoseClassifier(List<PoseSample> poseSamples) {
+    return new PoseClassifier(poseSamples, maxDistanceTopK, meanDistanceTopK, axesWeights);
+  }
+
+  public List<RepetitionCounter> createRepCounters(String[] classNames) {
+    List<RepetitionCounter> repCounters = new ArrayList<>();
+    for (String className : classNames) {
+      repCounters.add(new RepetitionCounter(className, enterThreshold, exitThreshold));
+    }
+    return repCounters;
+  }
+
+  /** Returns a copy of this config with the given rep counter thresholds. */
+  public PoseClassifierConfig withRepThresholds(float enterThreshold, float exitThreshold) {
+    return new PoseClassifierConfig(
+        maxDistanceTopK, meanDistanceTopK, axesWeights, enterThreshold, exitThreshold);
+  }
+
+  public int getMaxDistanceTopK() {
+    return maxDistanceTopK;
+  }
+
+  public int getMeanDistanceTopK() {
+    return meanDistanceTopK;
+  }
+
+  public Point3D getAxesWeights() {
+    return axesWeights;
+  }
+
+  public float getEnterThreshold() {
+    return enterThreshold;
+  }
+
+  public float getExitThreshold() {
+    return exitThreshold;
+  }
+
+  /** Returns the range of confidences the rep thresholds apply to, see {@link PoseClassifier}. */
+  public int confidenceRange() {
+    return Math.min(maxDistanceTopK, meanDistanceTopK);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        Locale.US,
+        "topK=%d/%d weights=(%.2f, %.2f, %.2f) reps=%.1f/%.1f",
+        maxDistanceTopK,
+        meanDistanceTopK,
+        axesWeights.getX(),
+        axesWeights.getY(),
+        axesWeights.getZ(),
+        enterThreshold,
+        exitThreshold);
+  }
+}
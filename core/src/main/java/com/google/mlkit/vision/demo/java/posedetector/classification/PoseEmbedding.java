@@ -22,8 +22,6 @@ import static com.google.mlkit.vision.demo.java.posedetector.classification.Util
 import static com.google.mlkit.vision.demo.java.posedetector.classification.Utils.subtract;
 import static com.google.mlkit.vision.demo.java.posedetector.classification.Utils.subtractAll;
 
-import com.google.mlkit.vision.common.PointF3D;
-import com.google.mlkit.vision.pose.PoseLandmark;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,16 +32,16 @@ public class PoseEmbedding {
   // Multiplier to apply to the torso to get minimal body size. Picked this by experimentation.
   private static final float TORSO_MULTIPLIER = 2.5f;
 
-  public static List<PointF3D> getPoseEmbedding(List<PointF3D> landmarks) {
-    List<PointF3D> normalizedLandmarks = normalize(landmarks);
+  public static List<Point3D> getPoseEmbedding(List<Point3D> landmarks) {
+    List<Point3D> normalizedLandmarks = normalize(landmarks);
     return getEmbedding(normalizedLandmarks);
   }
 
-  private static List<PointF3D> normalize(List<PointF3D> landmarks) {
-    List<PointF3D> normalizedLandmarks = new ArrayList<>(landmarks);
+  private static List<Point3D> normalize(List<Point3D> landmarks) {
+    List<Point3D> normalizedLandmarks = new ArrayList<>(landmarks);
     // Normalize translation.
-    PointF3D center = average(
-        landmarks.get(PoseLandmark.LEFT_HIP), landmarks.get(PoseLandmark.RIGHT_HIP));
+    Point3D center = average(
+        landmarks.get(PoseLandmarkType.LEFT_HIP), landmarks.get(PoseLandmarkType.RIGHT_HIP));
     subtractAll(center, normalizedLandmarks);
 
     // Normalize scale.
@@ -54,22 +52,22 @@ public class PoseEmbedding {
   }
 
   // Translation normalization should've been done prior to calling this method.
-  private static float getPoseSize(List<PointF3D> landmarks) {
+  private static float getPoseSize(List<Point3D> landmarks) {
     // Note: This approach uses only 2D landmarks to compute pose size as using Z wasn't helpful
     // in our experimentation but you're welcome to tweak.
-    PointF3D hipsCenter = average(
-        landmarks.get(PoseLandmark.LEFT_HIP), landmarks.get(PoseLandmark.RIGHT_HIP));
+    Point3D hipsCenter = average(
+        landmarks.get(PoseLandmarkType.LEFT_HIP), landmarks.get(PoseLandmarkType.RIGHT_HIP));
 
-    PointF3D shouldersCenter = average(
-        landmarks.get(PoseLandmark.LEFT_SHOULDER),
-        landmarks.get(PoseLandmark.RIGHT_SHOULDER));
+    Point3D shouldersCenter = average(
+        landmarks.get(PoseLandmarkType.LEFT_SHOULDER),
+        landmarks.get(PoseLandmarkType.RIGHT_SHOULDER));
 
     float torsoSize = l2Norm2D(subtract(hipsCenter, shouldersCenter));
 
     float maxDistance = torsoSize * TORSO_MULTIPLIER;
     // torsoSize * TORSO_MULTIPLIER is the floor we want based on experimentation but actual size
     // can be bigger for a given pose depending on extension of limbs etc so we calculate that.
-    for (PointF3D landmark : landmarks) {
+    for (Point3D landmark : landmarks) {
       float distance = l2Norm2D(subtract(hipsCenter, landmark));
       if (distance > maxDistance) {
         maxDistance = distance;
@@ -78,8 +76,8 @@ public class PoseEmbedding {
     return maxDistance;
   }
 
-  private static List<PointF3D> getEmbedding(List<PointF3D> lm) {
-    List<PointF3D> embedding = new ArrayList<>();
+  private static List<Point3D> getEmbedding(List<Point3D> lm) {
+    List<Point3D> embedding = new ArrayList<>();
 
     // We use several pairwise 3D distances to form pose embedding. These were selected
     // based on experimentation for best results with our default pose classes as captued in the
@@ -88,52 +86,52 @@ public class PoseEmbedding {
     // We group our distances by number of joints between the pairs.
     // One joint.
     embedding.add(subtract(
-        average(lm.get(PoseLandmark.LEFT_HIP), lm.get(PoseLandmark.RIGHT_HIP)),
-        average(lm.get(PoseLandmark.LEFT_SHOULDER), lm.get(PoseLandmark.RIGHT_SHOULDER))
+        average(lm.get(PoseLandmarkType.LEFT_HIP), lm.get(PoseLandmarkType.RIGHT_HIP)),
+        average(lm.get(PoseLandmarkType.LEFT_SHOULDER), lm.get(PoseLandmarkType.RIGHT_SHOULDER))
     ));
 
     embedding.add(subtract(
-        lm.get(PoseLandmark.LEFT_SHOULDER), lm.get(PoseLandmark.LEFT_ELBOW)));
+        lm.get(PoseLandmarkType.LEFT_SHOULDER), lm.get(PoseLandmarkType.LEFT_ELBOW)));
     embedding.add(subtract(
-        lm.get(PoseLandmark.RIGHT_SHOULDER), lm.get(PoseLandmark.RIGHT_ELBOW)));
+        lm.get(PoseLandmarkType.RIGHT_SHOULDER), lm.get(PoseLandmarkType.RIGHT_ELBOW)));
 
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_ELBOW), lm.get(PoseLandmark.LEFT_WRIST)));
-    embedding.add(subtract(lm.get(PoseLandmark.RIGHT_ELBOW), lm.get(PoseLandmark.RIGHT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_ELBOW), lm.get(PoseLandmarkType.LEFT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.RIGHT_ELBOW), lm.get(PoseLandmarkType.RIGHT_WRIST)));
 
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_HIP), lm.get(PoseLandmark.LEFT_KNEE)));
-    embedding.add(subtract(lm.get(PoseLandmark.RIGHT_HIP), lm.get(PoseLandmark.RIGHT_KNEE)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_HIP), lm.get(PoseLandmarkType.LEFT_KNEE)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.RIGHT_HIP), lm.get(PoseLandmarkType.RIGHT_KNEE)));
 
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_KNEE), lm.get(PoseLandmark.LEFT_ANKLE)));
-    embedding.add(subtract(lm.get(PoseLandmark.RIGHT_KNEE), lm.get(PoseLandmark.RIGHT_ANKLE)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_KNEE), lm.get(PoseLandmarkType.LEFT_ANKLE)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.RIGHT_KNEE), lm.get(PoseLandmarkType.RIGHT_ANKLE)));
 
     // Two joints.
     embedding.add(subtract(
-        lm.get(PoseLandmark.LEFT_SHOULDER), lm.get(PoseLandmark.LEFT_WRIST)));
+        lm.get(PoseLandmarkType.LEFT_SHOULDER), lm.get(PoseLandmarkType.LEFT_WRIST)));
     embedding.add(subtract(
-        lm.get(PoseLandmark.RIGHT_SHOULDER), lm.get(PoseLandmark.RIGHT_WRIST)));
+        lm.get(PoseLandmarkType.RIGHT_SHOULDER), lm.get(PoseLandmarkType.RIGHT_WRIST)));
 
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_HIP), lm.get(PoseLandmark.LEFT_ANKLE)));
-    embedding.add(subtract(lm.get(PoseLandmark.RIGHT_HIP), lm.get(PoseLandmark.RIGHT_ANKLE)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_HIP), lm.get(PoseLandmarkType.LEFT_ANKLE)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.RIGHT_HIP), lm.get(PoseLandmarkType.RIGHT_ANKLE)));
 
     // Four joints.
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_HIP), lm.get(PoseLandmark.LEFT_WRIST)));
-    embedding.add(subtract(lm.get(PoseLandmark.RIGHT_HIP), lm.get(PoseLandmark.RIGHT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_HIP), lm.get(PoseLandmarkType.LEFT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.RIGHT_HIP), lm.get(PoseLandmarkType.RIGHT_WRIST)));
 
     // Five joints.
     embedding.add(subtract(
-        lm.get(PoseLandmark.LEFT_SHOULDER), lm.get(PoseLandmark.LEFT_ANKLE)));
+        lm.get(PoseLandmarkType.LEFT_SHOULDER), lm.get(PoseLandmarkType.LEFT_ANKLE)));
     embedding.add(subtract(
-        lm.get(PoseLandmark.RIGHT_SHOULDER), lm.get(PoseLandmark.RIGHT_ANKLE)));
+        lm.get(PoseLandmarkType.RIGHT_SHOULDER), lm.get(PoseLandmarkType.RIGHT_ANKLE)));
 
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_HIP), lm.get(PoseLandmark.LEFT_WRIST)));
-    embedding.add(subtract(lm.get(PoseLandmark.RIGHT_HIP), lm.get(PoseLandmark.RIGHT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_HIP), lm.get(PoseLandmarkType.LEFT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.RIGHT_HIP), lm.get(PoseLandmarkType.RIGHT_WRIST)));
 
     // Cross body.
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_ELBOW), lm.get(PoseLandmark.RIGHT_ELBOW)));
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_KNEE), lm.get(PoseLandmark.RIGHT_KNEE)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_ELBOW), lm.get(PoseLandmarkType.RIGHT_ELBOW)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_KNEE), lm.get(PoseLandmarkType.RIGHT_KNEE)));
 
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_WRIST), lm.get(PoseLandmark.RIGHT_WRIST)));
-    embedding.add(subtract(lm.get(PoseLandmark.LEFT_ANKLE), lm.get(PoseLandmark.RIGHT_ANKLE)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_WRIST), lm.get(PoseLandmarkType.RIGHT_WRIST)));
+    embedding.add(subtract(lm.get(PoseLandmarkType.LEFT_ANKLE), lm.get(PoseLandmarkType.RIGHT_ANKLE)));
 
     return embedding;
   }
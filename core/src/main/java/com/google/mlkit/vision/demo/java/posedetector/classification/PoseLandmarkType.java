@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+/**
+ * Indices of the pose landmarks in the lists passed to {@link PoseClassifier}.
+ *
+ * <p>These match ML Kit's {@code PoseLandmark} types and the landmark order of the pose samples csv.
+ */
+public final class PoseLandmarkType {
+  public static final int NUM_LANDMARKS = 33;
+
+  public static final int NOSE = 0;
+  public static final int LEFT_EYE_INNER = 1;
+  public static final int LEFT_EYE = 2;
+  public static final int LEFT_EYE_OUTER = 3;
+  public static final int RIGHT_EYE_INNER = 4;
+  public static final int RIGHT_EYE = 5;
+  public static final int RIGHT_EYE_OUTER = 6;
+  public static final int LEFT_EAR = 7;
+  public static final int RIGHT_EAR = 8;
+  public static final int LEFT_MOUTH = 9;
+  public static final int RIGHT_MOUTH = 10;
+  public static final int LEFT_SHOULDER = 11;
+  public static final int RIGHT_SHOULDER = 12;
+  public static final int LEFT_ELBOW = 13;
+  public static final int RIGHT_ELBOW = 14;
+  public static final int LEFT_WRIST = 15;
+  public static final int RIGHT_WRIST = 16;
+  public static final int LEFT_PINKY = 17;
+  public static final int RIGHT_PINKY = 18;
+  public static final int LEFT_INDEX = 19;
+  public static final int RIGHT_INDEX = 20;
+  public static final int LEFT_THUMB = 21;
+  public static final int RIGHT_THUMB = 22;
+  public static final int LEFT_HIP = 23;
+  public static final int RIGHT_HIP = 24;
+  public static final int LEFT_KNEE = 25;
+  public static final int RIGHT_KNEE = 26;
+  public static final int LEFT_ANKLE = 27;
+  public static final int RIGHT_ANKLE = 28;
+  public static final int LEFT_HEEL = 29;
+  public static final int RIGHT_HEEL = 30;
+  public static final int LEFT_FOOT_INDEX = 31;
+  public static final int RIGHT_FOOT_INDEX = 32;
+
+  private PoseLandmarkType() {}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs classification, EMA smoothing and rep counting over a stream of poses.
+ *
+ * <p>This is the part of {@link PoseClassifierProcessor} that does not need a device, so the same
+ * code can be driven by recorded sessions. {@link #process} is exactly {@link #classify}, {@link
+ * #smooth} and {@link #countReps} in that order; callers that time the stages individually must call
+ * them in the same order to get the same results.
+ */
+public class PoseStreamClassifier {
+
+  // Specify classes for which we want rep counting.
+  // These are the labels in the given {@code POSE_SAMPLES_FILE}. You can set your own class labels
+  // for your pose samples.
+//  private static final String PUSHUPS_CLASS = "pushups_down";
+//  private static final String SQUATS_CLASS = "squats_down";
+//  private static final String[] POSE_CLASSES = {
+//    PUSHUPS_CLASS, SQUATS_CLASS
+//  };
+
+//  my own code
+  private static final String BICEPCURLS_CLASS = "bicepcurls_down";
+  private static final String PUSHUPS_CLASS = "pushups_up";
+  private static final String SQUATS_CLASS = "squats_up";
+  private static final String SUMODEADLIFT_CLASS = "sumodeadlift_down";
+  public static final String[] POSE_CLASSES = {
+          BICEPCURLS_CLASS, PUSHUPS_CLASS, SQUATS_CLASS, SUMODEADLIFT_CLASS
+  };
+
+  private final PoseClassifier poseClassifier;
+  private final EMASmoothing emaSmoothing;
+  private final List<RepetitionCounter> repCounters;
+
+  public PoseStreamClassifier(PoseClassifier poseClassifier) {
+    this(poseClassifier, new EMASmoothing(), createRepCounters(POSE_CLASSES));
+  }
+
+  public PoseStreamClassifier(
+      PoseClassifier poseClassifier,
+      EMASmoothing emaSmoothing,
+      List<RepetitionCounter> repCounters) {
+    this.poseClassifier = poseClassifier;
+    this.emaSmoothing = emaSmoothing;
+    this.repCounters = repCounters;
+  }
+
+  public static List<RepetitionCounter> createRepCounters(String[] classNames) {
+    List<RepetitionCounter> repCounters = new ArrayList<>();
+    for (String className : classNames) {
+      repCounters.add(new RepetitionCounter(className));
+    }
+    return repCounters;
+  }
+
+  /**
+   * Feeds the landmarks of the next frame through all stages.
+   *
+   * @param landmarks the pose landmarks, empty if no pose was found in the frame.
+   * @return the smoothed classification and the rep counter that completed a rep, if any.
+   */
+  public Result process(List<Point3D> landmarks) {
+    ClassificationResult classification = classify(landmarks);
+    ClassificationResult smoothed = smooth(classification);
+    RepetitionCounter completedRep = landmarks.isEmpty() ? null : countReps(smoothed);
+    return new Result(smoothed, completedRep, classification.getEmbedding());
+  }
+
+  public ClassificationResult classify(List<Point3D> landmarks) {
+    return poseClassifier.classify(landmarks);
+  }
+
+  /** Smooths the given result over the recent frames. Must be fed even if no pose was found. */
+  public ClassificationResult smooth(ClassificationResult classification) {
+    return emaSmoothing.getSmoothedResult(classification);
+  }
+
+  /**
+   * Updates the rep counters with a smoothed result. Should only be called when a pose was found.
+   *
+   * @return the first counter whose reps went up in this frame, or null. Counters after it are not
+   *     updated in this frame.
+   */
+  public RepetitionCounter countReps(ClassificationResult smoothedClassification) {
+    for (RepetitionCounter repCounter : repCounters) {
+      int repsBefore = repCounter.getNumRepeats();
+      int repsAfter = repCounter.addClassificationResult(smoothedClassification);
+      if (repsAfter > repsBefore) {
+        return repCounter;
+      }
+    }
+    return null;
+  }
+
+  public PoseClassifier getPoseClassifier() {
+    return poseClassifier;
+  }
+
+  public List<RepetitionCounter> getRepCounters() {
+    return repCounters;
+  }
+
+  /** Output of {@link #process} for a single frame. */
+  public static class Result {
+    private final ClassificationResult classification;
+    private final RepetitionCounter completedRep;
+    private final List<Point3D> embedding;
+
+    Result(
+        ClassificationResult classification,
+        RepetitionCounter completedRep,
+        List<Point3D> embedding) {
+      this.classification = classification;
+      this.completedRep = completedRep;
+      this.embedding = embedding;
+    }
+
+    public ClassificationResult getClassification() {
+      return classification;
+    }
+
+    /** Returns the counter that completed a rep in this frame, or null. */
+    public RepetitionCounter getCompletedRep() {
+      return completedRep;
+    }
+
+    /** Returns the embedding the frame was classified on, or null if no pose was found. */
+    public List<Point3D> getEmbedding() {
+      return embedding;
+    }
+  }
+}
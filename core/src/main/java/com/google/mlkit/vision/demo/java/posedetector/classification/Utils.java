@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.classification;
+
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Utility methods for operations on {@link Point3D}.
+ */
+public class Utils {
+  private Utils() {}
+
+  public static Point3D add(Point3D a, Point3D b) {
+    return Point3D.from(a.getX() + b.getX(), a.getY() + b.getY(), a.getZ() + b.getZ());
+  }
+
+  public static Point3D subtract(Point3D b, Point3D a) {
+    return Point3D.from(a.getX() - b.getX(), a.getY() - b.getY(), a.getZ() - b.getZ());
+  }
+
+  public static Point3D multiply(Point3D a, float multiple) {
+    return Point3D.from(a.getX() * multiple, a.getY() * multiple, a.getZ() * multiple);
+  }
+
+  public static Point3D multiply(Point3D a, Point3D multiple) {
+    return Point3D.from(
+        a.getX() * multiple.getX(), a.getY() * multiple.getY(), a.getZ() * multiple.getZ());
+  }
+
+  public static Point3D average(Point3D a, Point3D b) {
+    return Point3D.from(
+        (a.getX() + b.getX()) * 0.5f, (a.getY() + b.getY()) * 0.5f, (a.getZ() + b.getZ()) * 0.5f);
+  }
+
+  public static float l2Norm2D(Point3D point) {
+    return (float) Math.hypot(point.getX(), point.getY());
+  }
+
+  public static float maxAbs(Point3D point) {
+    return Math.max(
+        Math.abs(point.getX()), Math.max(Math.abs(point.getY()), Math.abs(point.getZ())));
+  }
+
+  public static float sumAbs(Point3D point) {
+    return Math.abs(point.getX()) + Math.abs(point.getY()) + Math.abs(point.getZ());
+  }
+
+  public static void addAll(List<Point3D> pointsList, Point3D p) {
+    ListIterator<Point3D> iterator = pointsList.listIterator();
+    while (iterator.hasNext()) {
+      iterator.set(add(iterator.next(), p));
+    }
+  }
+
+  public static void subtractAll(Point3D p, List<Point3D> pointsList) {
+    ListIterator<Point3D> iterator = pointsList.listIterator();
+    while (iterator.hasNext()) {
+      iterator.set(subtract(p, iterator.next()));
+    }
+  }
+
+  public static void multiplyAll(List<Point3D> pointsList, float multiple) {
+    ListIterator<Point3D> iterator = pointsList.listIterator();
+    while (iterator.hasNext()) {
+      iterator.set(multiply(iterator.next(), multiple));
+    }
+  }
+
+  public static void multiplyAll(List<Point3D> pointsList, Point3D multiple) {
+    ListIterator<Point3D> iterator = pointsList.listIterator();
+    while (iterator.hasNext()) {
+      iterator.set(multiply(iterator.next(), multiple));
+    }
+  }
+}
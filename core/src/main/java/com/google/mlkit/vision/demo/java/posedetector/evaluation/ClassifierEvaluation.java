@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.evaluation;
+
+import com.google.mlkit.vision.demo.java.posedetector.classification.LabeledPose;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cross-validates the default {@link
+ * com.google.mlkit.vision.demo.java.posedetector.classification.PoseClassifier} on pose samples
+ * csvs and reports accuracy, latency and memory as JSON.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * ClassifierEvaluation [--folds 10 | --folds loo] [--threads n] [--seed 42] [--output report.json]
+ *     app/src/main/assets/pose [more.csv ...]
+ * </pre>
+ *
+ * <p>Directories are expanded to the csv files they contain. Latencies are measured while all
+ * threads classify, so use {@code --threads 1} to compare them with on-device numbers.
+ */
+public final class ClassifierEvaluation {
+  private ClassifierEvaluation() {}
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int numFolds = 10;
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    long seed = 42;
+    String outputFile = null;
+    List<File> csvFiles = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--folds":
+          String folds = args[++i];
+          numFolds = folds.equals("loo") ? CrossValidator.LEAVE_ONE_OUT : Integer.parseInt(folds);
+          break;
+        case "--threads":
+          numThreads = Integer.parseInt(args[++i]);
+          break;
+        case "--seed":
+          seed = Long.parseLong(args[++i]);
+          break;
+        case "--output":
+          outputFile = args[++i];
+          break;
+        default:
+          addCsvFiles(new File(args[i]), csvFiles);
+      }
+    }
+    if (csvFiles.isEmpty()) {
+      System.err.println(
+          "Usage: ClassifierEvaluation [--folds k|loo] [--threads n] [--seed n]"
+              + " [--output file] <csv or directory>...");
+      System.exit(2);
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    StringBuilder json = new StringBuilder("[\n");
+    try {
+      for (int i = 0; i < csvFiles.size(); i++) {
+        File csvFile = csvFiles.get(i);
+        List<LabeledPose> poses;
+        try (BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(new FileInputStream(csvFile), StandardCharsets.UTF_8))) {
+          poses = LabeledPose.readLabeledPoses(reader, ",");
+        }
+        if (poses.size() < 2) {
+          System.err.println("Skipping " + csvFile + ", not enough samples");
+          continue;
+        }
+
+        long heapBefore = usedHeapAfterGc();
+        CrossValidator crossValidator = new CrossValidator(poses, numFolds, seed);
+        long libraryBytes = usedHeapAfterGc() - heapBefore;
+        EvaluationResult result = crossValidator.evaluate(executor);
+
+        System.err.println(
+            csvFile.getName() + ": accuracy " + EvaluationResult.format(result.getAccuracy()));
+        json.append(json.length() > 2 ? ",\n" : "").append("  {\n");
+        json.append("    \"corpus\": ").append(EvaluationResult.quote(csvFile.getName()));
+        json.append(",\n    \"samples\": ").append(poses.size());
+        json.append(",\n    \"folds\": ").append(crossValidator.getNumFolds());
+        json.append(",\n    \"threads\": ").append(numThreads);
+        json.append(",\n    \"memory\": {\"libraryBytes\": ")
+            .append(libraryBytes)
+            .append(", \"bytesPerSample\": ")
+            .append(libraryBytes / poses.size())
+            .append("},\n");
+        result.appendJsonFields(json, "    ");
+        json.append("\n  }");
+      }
+    } finally {
+      executor.shutdown();
+    }
+    json.append("\n]\n");
+
+    if (outputFile == null) {
+      System.out.print(json);
+    } else {
+      try (Writer writer =
+          new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8)) {
+        writer.write(json.toString());
+      }
+    }
+  }
+
+  private static void addCsvFiles(File file, List<File> csvFiles) {
+    if (!file.isDirectory()) {
+      csvFiles.add(file);
+      return;
+    }
+    File[] files = file.listFiles((dir, name) -> name.endsWith(".csv"));
+    if (files != null) {
+      Arrays.sort(files);
+      csvFiles.addAll(Arrays.asList(files));
+    }
+  }
+
+  /**
+   * Returns the used heap after asking for a full GC. Only an estimate, as the JVM may ignore the
+   * request, but stable enough to compare sample formats.
+   */
+  private static long usedHeapAfterGc() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
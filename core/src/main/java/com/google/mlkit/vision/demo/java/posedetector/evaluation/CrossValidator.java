@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.evaluation;
+
+import com.google.mlkit.vision.demo.java.posedetector.classification.ClassificationResult;
+import com.google.mlkit.vision.demo.java.posedetector.classification.LabeledPose;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseClassifier;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseSample;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Cross-validates {@link PoseClassifier}s over a labeled corpus.
+ *
+ * <p>Every pose is classified exactly once by a classifier built from the poses of all other folds.
+ * Folds are evaluated in parallel on the given executor, and each classify call is timed on the
+ * thread that runs it. The fold assignment only depends on the seed.
+ */
+public class CrossValidator {
+  /** Number of folds that makes the evaluation leave-one-out. */
+  public static final int LEAVE_ONE_OUT = 0;
+
+  private final List<LabeledPose> poses;
+  private final List<PoseSample> poseSamples;
+  private final List<String> classNames;
+  private final int[] foldOfPose;
+  private final int numFolds;
+
+  /**
+   * @param numFolds number of folds, or {@link #LEAVE_ONE_OUT} for one fold per pose.
+   */
+  public CrossValidator(List<LabeledPose> poses, int numFolds, long seed) {
+    if (poses.size() < 2) {
+      throw new IllegalArgumentException("Need at least 2 poses to cross-validate");
+    }
+    this.poses = poses;
+    this.numFolds =
+        numFolds == LEAVE_ONE_OUT ? poses.size() : Math.max(2, Math.min(numFolds, poses.size()));
+    // Embeddings only depend on the pose, so they are computed once and shared by all folds.
+    poseSamples = new ArrayList<>(poses.size());
+    TreeSet<String> classes = new TreeSet<>();
+    for (LabeledPose pose : poses) {
+      poseSamples.add(pose.toPoseSample());
+      classes.add(pose.getClassName());
+    }
+    classNames = new ArrayList<>(classes);
+
+    List<Integer> order = new ArrayList<>(poses.size());
+    for (int i = 0; i < poses.size(); i++) {
+      order.add(i);
+    }
+    Collections.shuffle(order, new Random(seed));
+    foldOfPose = new int[poses.size()];
+    for (int i = 0; i < order.size(); i++) {
+      foldOfPose[order.get(i)] = i % this.numFolds;
+    }
+  }
+
+  public int getNumFolds() {
+    return numFolds;
+  }
+
+  public List<String> getClassNames() {
+    return classNames;
+  }
+
+  /** Evaluates classifiers with the default parameters. */
+  public EvaluationResult evaluate(ExecutorService executor) throws InterruptedException {
+    return evaluate(PoseClassifier::new, executor);
+  }
+
+  /**
+   * Evaluates the classifiers created by {@code classifierFactory} from the training samples of
+   * each fold.
+   */
+  public EvaluationResult evaluate(
+      Function<List<PoseSample>, PoseClassifier> classifierFactory, ExecutorService executor)
+      throws InterruptedException {
+    List<Callable<EvaluationResult>> tasks = new ArrayList<>(numFolds);
+    for (int fold = 0; fold < numFolds; fold++) {
+      int testFold = fold;
+      tasks.add(() -> evaluateFold(testFold, classifierFactory));
+    }
+    EvaluationResult result = new EvaluationResult(classNames);
+    for (Future<EvaluationResult> future : executor.invokeAll(tasks)) {
+      try {
+        result.merge(future.get());
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Fold evaluation failed", e.getCause());
+      }
+    }
+    return result;
+  }
+
+  private EvaluationResult evaluateFold(
+      int testFold, Function<List<PoseSample>, PoseClassifier> classifierFactory) {
+    List<PoseSample> trainingSamples = new ArrayList<>(poses.size());
+    List<LabeledPose> testPoses = new ArrayList<>();
+    for (int i = 0; i < poses.size(); i++) {
+      if (foldOfPose[i] == testFold) {
+        testPoses.add(poses.get(i));
+      } else {
+        trainingSamples.add(poseSamples.get(i));
+      }
+    }
+    PoseClassifier poseClassifier = classifierFactory.apply(trainingSamples);
+
+    EvaluationResult result = new EvaluationResult(classNames);
+    for (LabeledPose pose : testPoses) {
+      long start = System.nanoTime();
+      ClassificationResult classification = poseClassifier.classify(pose.getLandmarks());
+      long latencyNanos = System.nanoTime() - start;
+      String predictedClass =
+          classification.getAllClasses().isEmpty()
+              ? null
+              : classification.getMaxConfidenceClass();
+      result.add(pose.getClassName(), predictedClass, latencyNanos);
+    }
+    return result;
+  }
+}
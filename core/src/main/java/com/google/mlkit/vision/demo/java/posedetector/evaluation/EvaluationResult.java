@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.evaluation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Confusion matrix and classify latencies of a {@link CrossValidator} run.
+ *
+ * <p>Rows of the confusion matrix are the actual classes and columns the predicted classes, both in
+ * the order of {@link #getClassNames}. Poses for which no class was predicted are only counted in
+ * {@link #getNumUnclassified}.
+ */
+public class EvaluationResult {
+  private final List<String> classNames;
+  private final int[][] confusionMatrix;
+  private long[] latenciesNanos = new long[64];
+  private int count;
+  private int numUnclassified;
+  private boolean sorted = true;
+
+  EvaluationResult(List<String> classNames) {
+    this.classNames = classNames;
+    confusionMatrix = new int[classNames.size()][classNames.size()];
+  }
+
+  void add(String actualClass, String predictedClass, long latencyNanos) {
+    if (predictedClass == null) {
+      numUnclassified++;
+    } else {
+      confusionMatrix[classNames.indexOf(actualClass)][classNames.indexOf(predictedClass)]++;
+    }
+    addLatency(latencyNanos);
+  }
+
+  void merge(EvaluationResult other) {
+    for (int i = 0; i < confusionMatrix.length; i++) {
+      for (int j = 0; j < confusionMatrix.length; j++) {
+        confusionMatrix[i][j] += other.confusionMatrix[i][j];
+      }
+    }
+    numUnclassified += other.numUnclassified;
+    for (int i = 0; i < other.count; i++) {
+      addLatency(other.latenciesNanos[i]);
+    }
+  }
+
+  private void addLatency(long latencyNanos) {
+    if (count == latenciesNanos.length) {
+      latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+    }
+    latenciesNanos[count++] = latencyNanos;
+    sorted = false;
+  }
+
+  public List<String> getClassNames() {
+    return classNames;
+  }
+
+  public int[][] getConfusionMatrix() {
+    return confusionMatrix;
+  }
+
+  /** Returns the number of evaluated poses. */
+  public int getCount() {
+    return count;
+  }
+
+  public int getNumUnclassified() {
+    return numUnclassified;
+  }
+
+  /** Returns the fraction of poses whose predicted class is the actual class. */
+  public double getAccuracy() {
+    if (count == 0) {
+      return 0;
+    }
+    int correct = 0;
+    for (int i = 0; i < confusionMatrix.length; i++) {
+      correct += confusionMatrix[i][i];
+    }
+    return (double) correct / count;
+  }
+
+  public double getPrecision(int classIndex) {
+    int predicted = 0;
+    for (int[] row : confusionMatrix) {
+      predicted += row[classIndex];
+    }
+    return predicted == 0 ? 0 : (double) confusionMatrix[classIndex][classIndex] / predicted;
+  }
+
+  public double getRecall(int classIndex) {
+    int support = getSupport(classIndex);
+    return support == 0 ? 0 : (double) confusionMatrix[classIndex][classIndex] / support;
+  }
+
+  /** Returns the number of classified poses of the given actual class. */
+  public int getSupport(int classIndex) {
+    int support = 0;
+    for (int value : confusionMatrix[classIndex]) {
+      support += value;
+    }
+    return support;
+  }
+
+  public double getMeanLatencyMicros() {
+    if (count == 0) {
+      return 0;
+    }
+    long sum = 0;
+    for (int i = 0; i < count; i++) {
+      sum += latenciesNanos[i];
+    }
+    return sum / 1000.0 / count;
+  }
+
+  /** Returns the classify latency at the given percentile in [0, 100], in microseconds. */
+  public double getLatencyMicros(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    if (!sorted) {
+      Arrays.sort(latenciesNanos, 0, count);
+      sorted = true;
+    }
+    int index = (int) Math.ceil(percentile / 100 * count) - 1;
+    return latenciesNanos[Math.max(0, Math.min(count - 1, index))] / 1000.0;
+  }
+
+  /** Appends this result as the fields of a JSON object, without the enclosing braces. */
+  void appendJsonFields(StringBuilder json, String indent) {
+    json.append(indent).append("\"count\": ").append(count).append(",\n");
+    json.append(indent).append("\"unclassified\": ").append(numUnclassified).append(",\n");
+    json.append(indent).append("\"accuracy\": ").append(format(getAccuracy())).append(",\n");
+    json.append(indent)
+        .append("\"latencyMicros\": {\"mean\": ")
+        .append(format(getMeanLatencyMicros()))
+        .append(", \"p50\": ")
+        .append(format(getLatencyMicros(50)))
+        .append(", \"p99\": ")
+        .append(format(getLatencyMicros(99)))
+        .append(", \"max\": ")
+        .append(format(getLatencyMicros(100)))
+        .append("},\n");
+
+    json.append(indent).append("\"classes\": [");
+    for (int i = 0; i < classNames.size(); i++) {
+      json.append(i == 0 ? "" : ", ").append(quote(classNames.get(i)));
+    }
+    json.append("],\n");
+
+    json.append(indent).append("\"confusionMatrix\": [\n");
+    for (int i = 0; i < confusionMatrix.length; i++) {
+      json.append(indent).append("  [");
+      for (int j = 0; j < confusionMatrix[i].length; j++) {
+        json.append(j == 0 ? "" : ", ").append(confusionMatrix[i][j]);
+      }
+      json.append(i == confusionMatrix.length - 1 ? "]\n" : "],\n");
+    }
+    json.append(indent).append("],\n");
+
+    json.append(indent).append("\"perClass\": {\n");
+    for (int i = 0; i < classNames.size(); i++) {
+      json.append(indent)
+          .append("  ")
+          .append(quote(classNames.get(i)))
+          .append(": {\"precision\": ")
+          .append(format(getPrecision(i)))
+          .append(", \"recall\": ")
+          .append(format(getRecall(i)))
+          .append(", \"support\": ")
+          .append(getSupport(i))
+          .append(i == classNames.size() - 1 ? "}\n" : "},\n");
+    }
+    json.append(indent).append("}");
+  }
+
+  static String format(double value) {
+    return String.format(Locale.US, "%.4f", value);
+  }
+
+  static String quote(String value) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < 0x20) {
+        quoted.append(String.format(Locale.US, "\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.evaluation;
+
+import com.google.mlkit.vision.demo.java.posedetector.classification.ClassificationResult;
+import com.google.mlkit.vision.demo.java.posedetector.classification.EMASmoothing;
+import com.google.mlkit.vision.demo.java.posedetector.classification.LabeledPose;
+import com.google.mlkit.vision.demo.java.posedetector.classification.Point3D;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseClassifier;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseClassifierConfig;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseSample;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseStreamClassifier;
+import com.google.mlkit.vision.demo.java.posedetector.classification.RepetitionCounter;
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkFrame;
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkSessionReader;
+import com.google.mlkit.vision.demo.java.posedetector.recording.SessionReplayHarness;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Grid search over the {@link PoseClassifierConfig} parameters.
+ *
+ * <p>For every top K and Z weight combination, measures the cross-validated accuracy on a corpus
+ * (folds run in parallel on all cores) and the single-threaded p99 classify latency. Combinations
+ * over the latency budget are dropped. If recorded sessions with expected rep counts are given, the
+ * rep counter thresholds are tuned on them as well, and the score is the accuracy scaled down by the
+ * relative rep count error. The best score wins, and among scores that are equal to 3 decimals the
+ * fastest.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * HyperparameterSearch --samples fitness_pose_mine3.csv [--folds 5] [--threads n]
+ *     [--latency-budget-micros 5000] [--session s.plms --expected s.properties ...]
+ *     [--output app/src/main/assets/pose/pose_classifier_config.properties]
+ * </pre>
+ *
+ * <p>Expected rep counts use the {@code reps.<class>} keys of the session replay harness report.
+ */
+public final class HyperparameterSearch {
+  private static final int[] MAX_DISTANCE_TOP_KS = {10, 20, 30, 50};
+  private static final int[] MEAN_DISTANCE_TOP_KS = {5, 10, 15};
+  private static final float[] Z_WEIGHTS = {0f, 0.2f, 0.5f, 1f};
+  // Rep thresholds as fractions of the confidence range, so they stay meaningful for any top K.
+  private static final float[] ENTER_FRACTIONS = {0.5f, 0.6f, 0.7f, 0.8f};
+  private static final float[] EXIT_FRACTIONS = {0.2f, 0.3f, 0.4f};
+  private static final float DEFAULT_ENTER_FRACTION = 0.6f;
+  private static final float DEFAULT_EXIT_FRACTION = 0.4f;
+
+  private static final int LATENCY_QUERIES = 300;
+  private static final String KEY_REPS_PREFIX = "reps.";
+
+  private final List<LabeledPose> poses;
+  private final List<PoseSample> poseSamples = new ArrayList<>();
+  private final List<Session> sessions;
+  private final CrossValidator crossValidator;
+  private final ExecutorService executor;
+  private final double latencyBudgetMicros;
+
+  public HyperparameterSearch(
+      List<LabeledPose> poses,
+      List<Session> sessions,
+      int numFolds,
+      long seed,
+      double latencyBudgetMicros,
+      ExecutorService executor) {
+    this.poses = poses;
+    this.sessions = sessions;
+    this.crossValidator = new CrossValidator(poses, numFolds, seed);
+    this.latencyBudgetMicros = latencyBudgetMicros;
+    this.executor = executor;
+    for (LabeledPose pose : poses) {
+      poseSamples.add(pose.toPoseSample());
+    }
+  }
+
+  /** Evaluates the whole grid and returns the candidates, best first. */
+  public List<Candidate> search() throws InterruptedException {
+    List<Candidate> candidates = new ArrayList<>();
+    for (int maxDistanceTopK : MAX_DISTANCE_TOP_KS) {
+      for (int meanDistanceTopK : MEAN_DISTANCE_TOP_KS) {
+        if (meanDistanceTopK > maxDistanceTopK) {
+          continue;
+        }
+        for (float zWeight : Z_WEIGHTS) {
+          int range = Math.min(maxDistanceTopK, meanDistanceTopK);
+          PoseClassifierConfig config =
+              new PoseClassifierConfig(
+                  maxDistanceTopK,
+                  meanDistanceTopK,
+                  Point3D.from(1, 1, zWeight),
+                  DEFAULT_ENTER_FRACTION * range,
+                  DEFAULT_EXIT_FRACTION * range);
+          Candidate candidate = evaluate(config);
+          candidates.add(candidate);
+          System.err.println(candidate);
+        }
+      }
+    }
+    Collections.sort(candidates, HyperparameterSearch::compareCandidates);
+    return candidates;
+  }
+
+  private static int compareCandidates(Candidate a, Candidate b) {
+    if (a.isWithinBudget() != b.isWithinBudget()) {
+      return a.isWithinBudget() ? -1 : 1;
+    }
+    long scoreA = Math.round(a.getScore() * 1000);
+    long scoreB = Math.round(b.getScore() * 1000);
+    if (scoreA != scoreB) {
+      return Long.compare(scoreB, scoreA);
+    }
+    return Double.compare(a.getLatencyMicros(), b.getLatencyMicros());
+  }
+
+  private Candidate evaluate(PoseClassifierConfig config) throws InterruptedException {
+    EvaluationResult result = crossValidator.evaluate(config::createPoseClassifier, executor);
+    PoseClassifier poseClassifier = config.createPoseClassifier(poseSamples);
+    // Measured with the executor idle, so the numbers are not skewed by other threads.
+    double latencyMicros = measureP99LatencyMicros(poseClassifier);
+    if (latencyMicros > latencyBudgetMicros || sessions.isEmpty()) {
+      return new Candidate(config, result.getAccuracy(), latencyMicros, 0, latencyBudgetMicros);
+    }
+
+    List<SmoothedSession> smoothedSessions = smoothSessions(poseClassifier);
+    PoseClassifierConfig bestConfig = config;
+    double bestRepError = Double.MAX_VALUE;
+    int range = config.confidenceRange();
+    for (float enterFraction : ENTER_FRACTIONS) {
+      for (float exitFraction : EXIT_FRACTIONS) {
+        PoseClassifierConfig thresholdConfig =
+            config.withRepThresholds(enterFraction * range, exitFraction * range);
+        double repError = getRepError(thresholdConfig, poseClassifier, smoothedSessions);
+        if (repError < bestRepError) {
+          bestRepError = repError;
+          bestConfig = thresholdConfig;
+        }
+      }
+    }
+    return new Candidate(
+        bestConfig, result.getAccuracy(), latencyMicros, bestRepError, latencyBudgetMicros);
+  }
+
+  private double measureP99LatencyMicros(PoseClassifier poseClassifier) {
+    int numQueries = Math.min(LATENCY_QUERIES, poses.size());
+    long[] latenciesNanos = new long[numQueries];
+    // First pass warms up the JIT.
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < numQueries; i++) {
+        List<Point3D> landmarks = poses.get(i * poses.size() / numQueries).getLandmarks();
+        long start = System.nanoTime();
+        poseClassifier.classify(landmarks);
+        latenciesNanos[i] = System.nanoTime() - start;
+      }
+    }
+    Arrays.sort(latenciesNanos);
+    return latenciesNanos[(int) Math.ceil(0.99 * numQueries) - 1] / 1000.0;
+  }
+
+  /** Classifies and smooths every session frame once, as this does not depend on thresholds. */
+  private List<SmoothedSession> smoothSessions(PoseClassifier poseClassifier)
+      throws InterruptedException {
+    List<Callable<SmoothedSession>> tasks = new ArrayList<>();
+    for (Session session : sessions) {
+      tasks.add(
+          () -> {
+            PoseStreamClassifier streamClassifier = new PoseStreamClassifier(poseClassifier);
+            SmoothedSession smoothed = new SmoothedSession(session);
+            for (List<Point3D> landmarks : session.frames) {
+              ClassificationResult result =
+                  streamClassifier.smooth(streamClassifier.classify(landmarks));
+              // Rep counters only see frames with a pose, as in PoseStreamClassifier.
+              if (!landmarks.isEmpty()) {
+                smoothed.results.add(result);
+              }
+            }
+            return smoothed;
+          });
+    }
+    List<SmoothedSession> smoothedSessions = new ArrayList<>();
+    for (Future<SmoothedSession> future : executor.invokeAll(tasks)) {
+      try {
+        smoothedSessions.add(future.get());
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Session replay failed", e.getCause());
+      }
+    }
+    return smoothedSessions;
+  }
+
+  /** Returns the total absolute rep count error relative to the total expected reps. */
+  private static double getRepError(
+      PoseClassifierConfig config,
+      PoseClassifier poseClassifier,
+      List<SmoothedSession> smoothedSessions) {
+    int errors = 0;
+    int expectedTotal = 0;
+    for (SmoothedSession smoothed : smoothedSessions) {
+      PoseStreamClassifier streamClassifier =
+          new PoseStreamClassifier(
+              poseClassifier,
+              new EMASmoothing(),
+              config.createRepCounters(PoseStreamClassifier.POSE_CLASSES));
+      for (ClassificationResult result : smoothed.results) {
+        streamClassifier.countReps(result);
+      }
+      for (RepetitionCounter repCounter : streamClassifier.getRepCounters()) {
+        String expected =
+            smoothed.session.expectedReps.getProperty(
+                KEY_REPS_PREFIX + repCounter.getClassName(), "0");
+        int expectedReps = Integer.parseInt(expected.trim());
+        errors += Math.abs(repCounter.getNumRepeats() - expectedReps);
+        expectedTotal += expectedReps;
+      }
+    }
+    return (double) errors / Math.max(1, expectedTotal);
+  }
+
+  /** A recorded session with the reps that were actually done in it. */
+  public static class Session {
+    private final String name;
+    private final List<List<Point3D>> frames;
+    private final Properties expectedReps;
+
+    public Session(String name, List<List<Point3D>> frames, Properties expectedReps) {
+      this.name = name;
+      this.frames = frames;
+      this.expectedReps = expectedReps;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  private static class SmoothedSession {
+    final Session session;
+    final List<ClassificationResult> results = new ArrayList<>();
+
+    SmoothedSession(Session session) {
+      this.session = session;
+    }
+  }
+
+  /** A config with its measurements. */
+  public static class Candidate {
+    private final PoseClassifierConfig config;
+    private final double accuracy;
+    private final double latencyMicros;
+    private final double repError;
+    private final boolean withinBudget;
+
+    Candidate(
+        PoseClassifierConfig config,
+        double accuracy,
+        double latencyMicros,
+        double repError,
+        double latencyBudgetMicros) {
+      this.config = config;
+      this.accuracy = accuracy;
+      this.latencyMicros = latencyMicros;
+      this.repError = repError;
+      this.withinBudget = latencyMicros <= latencyBudgetMicros;
+    }
+
+    public PoseClassifierConfig getConfig() {
+      return config;
+    }
+
+    public double getAccuracy() {
+      return accuracy;
+    }
+
+    /** Returns the p99 classify latency, in microseconds. */
+    public double getLatencyMicros() {
+      return latencyMicros;
+    }
+
+    /** Returns the rep count error relative to the expected reps, 0 if there are no sessions. */
+    public double getRepError() {
+      return repError;
+    }
+
+    public double getScore() {
+      return accuracy * (1 - Math.min(1, repError));
+    }
+
+    public boolean isWithinBudget() {
+      return withinBudget;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.US,
+          "%s accuracy=%.4f repError=%.4f p99=%.1fus%s",
+          config,
+          accuracy,
+          repError,
+          latencyMicros,
+          withinBudget ? "" : " (over budget)");
+    }
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    String samplesFile = null;
+    String outputFile = null;
+    int numFolds = 5;
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    long seed = 42;
+    double latencyBudgetMicros = Double.MAX_VALUE;
+    List<String> sessionFiles = new ArrayList<>();
+    List<String> expectedFiles = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--samples":
+          samplesFile = args[++i];
+          break;
+        case "--output":
+          outputFile = args[++i];
+          break;
+        case "--folds":
+          numFolds = Integer.parseInt(args[++i]);
+          break;
+        case "--threads":
+          numThreads = Integer.parseInt(args[++i]);
+          break;
+        case "--seed":
+          seed = Long.parseLong(args[++i]);
+          break;
+        case "--latency-budget-micros":
+          latencyBudgetMicros = Double.parseDouble(args[++i]);
+          break;
+        case "--session":
+          sessionFiles.add(args[++i]);
+          break;
+        case "--expected":
+          expectedFiles.add(args[++i]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown argument " + args[i]);
+      }
+    }
+    if (samplesFile == null || sessionFiles.size() != expectedFiles.size()) {
+      System.err.println(
+          "Usage: HyperparameterSearch --samples <csv> [--folds k] [--threads n] [--seed n]"
+              + " [--latency-budget-micros us] [--session <plms> --expected <properties>]..."
+              + " [--output <properties>]");
+      System.exit(2);
+      return;
+    }
+
+    List<LabeledPose> poses;
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(samplesFile), StandardCharsets.UTF_8))) {
+      poses = LabeledPose.readLabeledPoses(reader, ",");
+    }
+    List<Session> sessions = new ArrayList<>();
+    for (int i = 0; i < sessionFiles.size(); i++) {
+      List<List<Point3D>> frames = new ArrayList<>();
+      for (LandmarkFrame frame : LandmarkSessionReader.readAll(new File(sessionFiles.get(i)))) {
+        frames.add(SessionReplayHarness.toLandmarks(frame));
+      }
+      Properties expectedReps = new Properties();
+      try (InputStream in = new FileInputStream(expectedFiles.get(i))) {
+        expectedReps.load(in);
+      }
+      sessions.add(new Session(sessionFiles.get(i), frames, expectedReps));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    List<Candidate> candidates;
+    try {
+      candidates =
+          new HyperparameterSearch(
+                  poses, sessions, numFolds, seed, latencyBudgetMicros, executor)
+              .search();
+    } finally {
+      executor.shutdown();
+    }
+
+    Candidate best = candidates.get(0);
+    if (!best.isWithinBudget()) {
+      System.err.println("No config is within the latency budget");
+      System.exit(1);
+      return;
+    }
+    System.out.println("Best: " + best);
+    if (outputFile != null) {
+      try (Writer writer =
+          new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8)) {
+        best.getConfig()
+            .store(
+                writer,
+                String.format(
+                    Locale.US,
+                    "Tuned on %s: accuracy %.4f, rep error %.4f, p99 classify %.1fus",
+                    new File(samplesFile).getName(),
+                    best.getAccuracy(),
+                    best.getRepError(),
+                    best.getLatencyMicros()));
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.recording;
+
+/**
+ * Landmarks of a single frame as stored in a recorded session.
+ *
+ * <p>Positions are packed as X1,Y1,Z1,X2,Y2,Z2... in image coordinates, in the same landmark order
+ * as the pose samples csv. A frame in which no pose was found has no landmarks.
+ */
+public class LandmarkFrame {
+  public static final int NUM_LANDMARKS = 33;
+  public static final int NUM_DIMS = 3;
+
+  private static final float[] NO_VALUES = new float[0];
+
+  private final long timestampMs;
+  private final float[] positions;
+  private final float[] inFrameLikelihoods;
+
+  public LandmarkFrame(long timestampMs, float[] positions, float[] inFrameLikelihoods) {
+    if (positions.length != 0 && positions.length != NUM_LANDMARKS * NUM_DIMS) {
+      throw new IllegalArgumentException("Invalid number of positions: " + positions.length);
+    }
+    if (inFrameLikelihoods.length != positions.length / NUM_DIMS) {
+      throw new IllegalArgumentException(
+          "Invalid number of likelihoods: " + inFrameLikelihoods.length);
+    }
+    this.timestampMs = timestampMs;
+    this.positions = positions;
+    this.inFrameLikelihoods = inFrameLikelihoods;
+  }
+
+  /** Creates a frame in which no pose was detected. */
+  public static LandmarkFrame empty(long timestampMs) {
+    return new LandmarkFrame(timestampMs, NO_VALUES, NO_VALUES);
+  }
+
+  public long getTimestampMs() {
+    return timestampMs;
+  }
+
+  public boolean isEmpty() {
+    return positions.length == 0;
+  }
+
+  public float getX(int landmark) {
+    return positions[landmark * NUM_DIMS];
+  }
+
+  public float getY(int landmark) {
+    return positions[landmark * NUM_DIMS + 1];
+  }
+
+  public float getZ(int landmark) {
+    return positions[landmark * NUM_DIMS + 2];
+  }
+
+  public float getInFrameLikelihood(int landmark) {
+    return inFrameLikelihoods[landmark];
+  }
+
+  /** Returns the packed positions. The array is shared and must not be modified. */
+  public float[] getPositions() {
+    return positions;
+  }
+
+  /** Returns the per-landmark likelihoods. The array is shared and must not be modified. */
+  public float[] getInFrameLikelihoods() {
+    return inFrameLikelihoods;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.recording;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Constants and varint helpers shared by {@link LandmarkSessionWriter} and {@link
+ * LandmarkSessionReader}.
+ *
+ * <p>A session file is a header followed by self-delimited frame records, so it can be appended to
+ * while recording and a truncated tail only loses the last frame:
+ *
+ * <pre>
+ *   header:   magic (4 bytes) | version (1) | landmarks (1) | keyframe interval (varint)
+ *   frame:    type (1) | timestamp (varint) | values (varints)
+ * </pre>
+ *
+ * <p>Positions are quantized to 1/{@link #POSITION_SCALE} pixel and likelihoods to 1/{@link
+ * #LIKELIHOOD_SCALE}. Keyframes store the absolute timestamp and quantized values. Delta frames
+ * store the timestamp and every value as a zigzag-encoded difference to the previous frame, which
+ * is a byte or two per value for a person moving at camera frame rate. A frame whose timestamp is
+ * before the previous one's is always written as a keyframe.
+ */
+final class LandmarkSessionFormat {
+  static final int MAGIC = 0x504C4D53; // "PLMS"
+  static final int VERSION = 1;
+
+  static final int FRAME_KEY = 1;
+  static final int FRAME_DELTA = 2;
+  static final int FRAME_EMPTY = 3;
+
+  static final float POSITION_SCALE = 16f;
+  static final float LIKELIHOOD_SCALE = 255f;
+
+  static final int DEFAULT_KEYFRAME_INTERVAL = 30;
+
+  /** Number of quantized values in a non-empty frame: positions followed by likelihoods. */
+  static final int NUM_VALUES =
+      LandmarkFrame.NUM_LANDMARKS * LandmarkFrame.NUM_DIMS + LandmarkFrame.NUM_LANDMARKS;
+
+  /** Quantizes a frame into {@code out}, which must hold {@link #NUM_VALUES} ints. */
+  static void quantize(LandmarkFrame frame, int[] out) {
+    float[] positions = frame.getPositions();
+    float[] likelihoods = frame.getInFrameLikelihoods();
+    for (int i = 0; i < positions.length; i++) {
+      out[i] = Math.round(positions[i] * POSITION_SCALE);
+    }
+    for (int i = 0; i < likelihoods.length; i++) {
+      out[positions.length + i] = Math.round(likelihoods[i] * LIKELIHOOD_SCALE);
+    }
+  }
+
+  static LandmarkFrame dequantize(long timestampMs, int[] values) {
+    int numPositions = LandmarkFrame.NUM_LANDMARKS * LandmarkFrame.NUM_DIMS;
+    float[] positions = new float[numPositions];
+    float[] likelihoods = new float[LandmarkFrame.NUM_LANDMARKS];
+    for (int i = 0; i < numPositions; i++) {
+      positions[i] = values[i] / POSITION_SCALE;
+    }
+    for (int i = 0; i < likelihoods.length; i++) {
+      likelihoods[i] = values[numPositions + i] / LIKELIHOOD_SCALE;
+    }
+    return new LandmarkFrame(timestampMs, positions, likelihoods);
+  }
+
+  static void writeVarLong(OutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  static long readVarLong(InputStream in) throws IOException {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      result |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  static void writeSignedVarInt(OutputStream out, int value) throws IOException {
+    writeVarLong(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+  }
+
+  static int readSignedVarInt(InputStream in) throws IOException {
+    int raw = (int) readVarLong(in);
+    return (raw >>> 1) ^ -(raw & 1);
+  }
+
+  private LandmarkSessionFormat() {}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.recording;
+
+import static com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkSessionFormat.NUM_VALUES;
+import static com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkSessionFormat.readSignedVarInt;
+import static com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkSessionFormat.readVarLong;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes {@link LandmarkFrame}s written by {@link LandmarkSessionWriter}. Not thread safe.
+ *
+ * <p>A frame cut off at the end of the file, e.g. because recording was interrupted, is treated as
+ * the end of the session.
+ */
+public class LandmarkSessionReader implements Closeable {
+  private final InputStream in;
+  private final int keyframeInterval;
+
+  private final int[] values = new int[NUM_VALUES];
+  private boolean hasPrevious;
+  private long previousTimestampMs;
+
+  public LandmarkSessionReader(InputStream in) throws IOException {
+    this.in = new BufferedInputStream(in);
+    int magic = 0;
+    for (int i = 0; i < 4; i++) {
+      magic = (magic << 8) | readByte();
+    }
+    if (magic != LandmarkSessionFormat.MAGIC) {
+      throw new IOException("Not a landmark session file");
+    }
+    int version = readByte();
+    if (version != LandmarkSessionFormat.VERSION) {
+      throw new IOException("Unsupported session version " + version);
+    }
+    int numLandmarks = readByte();
+    if (numLandmarks != LandmarkFrame.NUM_LANDMARKS) {
+      throw new IOException("Unsupported number of landmarks " + numLandmarks);
+    }
+    keyframeInterval = (int) readVarLong(this.in);
+  }
+
+  /** Reads all frames of the given session file. */
+  public static List<LandmarkFrame> readAll(File file) throws IOException {
+    List<LandmarkFrame> frames = new ArrayList<>();
+    try (LandmarkSessionReader reader = new LandmarkSessionReader(new FileInputStream(file))) {
+      LandmarkFrame frame = reader.read();
+      while (frame != null) {
+        frames.add(frame);
+        frame = reader.read();
+      }
+    }
+    return frames;
+  }
+
+  public int getKeyframeInterval() {
+    return keyframeInterval;
+  }
+
+  /** Returns the next frame, or null at the end of the session. */
+  public LandmarkFrame read() throws IOException {
+    int type = in.read();
+    if (type < 0) {
+      return null;
+    }
+    try {
+      switch (type) {
+        case LandmarkSessionFormat.FRAME_EMPTY:
+          hasPrevious = false;
+          return LandmarkFrame.empty(readVarLong(in));
+        case LandmarkSessionFormat.FRAME_KEY:
+          previousTimestampMs = readVarLong(in);
+          for (int i = 0; i < NUM_VALUES; i++) {
+            values[i] = readSignedVarInt(in);
+          }
+          break;
+        case LandmarkSessionFormat.FRAME_DELTA:
+          if (!hasPrevious) {
+            throw new IOException("Delta frame without a preceding keyframe");
+          }
+          previousTimestampMs += readVarLong(in);
+          for (int i = 0; i < NUM_VALUES; i++) {
+            values[i] += readSignedVarInt(in);
+          }
+          break;
+        default:
+          throw new IOException("Unknown frame type " + type);
+      }
+    } catch (EOFException e) {
+      return null;
+    }
+    hasPrevious = true;
+    return LandmarkSessionFormat.dequantize(previousTimestampMs, values);
+  }
+
+  private int readByte() throws IOException {
+    int b = in.read();
+    if (b < 0) {
+      throw new EOFException();
+    }
+    return b;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.recording;
+
+import static com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkSessionFormat.NUM_VALUES;
+import static com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkSessionFormat.writeSignedVarInt;
+import static com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkSessionFormat.writeVarLong;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes {@link LandmarkFrame}s into the session format described in {@link
+ * LandmarkSessionFormat}. Not thread safe.
+ */
+public class LandmarkSessionWriter implements Closeable {
+  private final OutputStream out;
+  private final int keyframeInterval;
+
+  private final int[] values = new int[NUM_VALUES];
+  private final int[] previousValues = new int[NUM_VALUES];
+  private boolean hasPrevious;
+  private long previousTimestampMs;
+  private int framesSinceKeyframe;
+
+  public LandmarkSessionWriter(OutputStream out) throws IOException {
+    this(out, LandmarkSessionFormat.DEFAULT_KEYFRAME_INTERVAL);
+  }
+
+  public LandmarkSessionWriter(OutputStream out, int keyframeInterval) throws IOException {
+    if (keyframeInterval < 1) {
+      throw new IllegalArgumentException("keyframeInterval must be positive");
+    }
+    this.out = new BufferedOutputStream(out);
+    this.keyframeInterval = keyframeInterval;
+    writeHeader();
+  }
+
+  private void writeHeader() throws IOException {
+    int magic = LandmarkSessionFormat.MAGIC;
+    out.write(magic >>> 24);
+    out.write(magic >>> 16);
+    out.write(magic >>> 8);
+    out.write(magic);
+    out.write(LandmarkSessionFormat.VERSION);
+    out.write(LandmarkFrame.NUM_LANDMARKS);
+    writeVarLong(out, keyframeInterval);
+  }
+
+  public void write(LandmarkFrame frame) throws IOException {
+    if (frame.isEmpty()) {
+      out.write(LandmarkSessionFormat.FRAME_EMPTY);
+      writeVarLong(out, frame.getTimestampMs());
+      // The next pose has nothing to be diffed against.
+      hasPrevious = false;
+      return;
+    }
+
+    LandmarkSessionFormat.quantize(frame, values);
+    // Time going backwards, such as after a clock change, can't be stored as an unsigned delta.
+    if (!hasPrevious
+        || framesSinceKeyframe >= keyframeInterval - 1
+        || frame.getTimestampMs() < previousTimestampMs) {
+      out.write(LandmarkSessionFormat.FRAME_KEY);
+      writeVarLong(out, frame.getTimestampMs());
+      for (int value : values) {
+        writeSignedVarInt(out, value);
+      }
+      framesSinceKeyframe = 0;
+      // Flush on keyframes so a session cut short by the process being killed stays readable up
+      // to the last keyframe interval.
+      out.flush();
+    } else {
+      out.write(LandmarkSessionFormat.FRAME_DELTA);
+      writeVarLong(out, frame.getTimestampMs() - previousTimestampMs);
+      for (int i = 0; i < NUM_VALUES; i++) {
+        writeSignedVarInt(out, values[i] - previousValues[i]);
+      }
+      framesSinceKeyframe++;
+    }
+
+    System.arraycopy(values, 0, previousValues, 0, NUM_VALUES);
+    previousTimestampMs = frame.getTimestampMs();
+    hasPrevious = true;
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.recording;
+
+import com.google.mlkit.vision.demo.java.posedetector.classification.Point3D;
+import com.google.mlkit.vision.demo.java.posedetector.classification.ClassificationResult;
+import com.google.mlkit.vision.demo.java.posedetector.classification.EMASmoothing;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseClassifier;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseClassifierConfig;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseSample;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseStreamClassifier;
+import com.google.mlkit.vision.demo.java.posedetector.classification.RepetitionCounter;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Replays recorded sessions through {@link PoseStreamClassifier} as fast as possible.
+ *
+ * <p>Runs on a plain JVM, without a camera or the pose detector. The samples csv and the sessions
+ * are loaded up front, so only classification, smoothing and rep counting are measured. Each
+ * session is replayed from fresh smoothing and rep counter state, as if it was the first of the
+ * app's run, so its rep counts don't depend on the other sessions and any difference between runs
+ * is a change in behaviour.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * SessionReplayHarness --samples fitness_pose_mine3.csv [--config config.properties]
+ *     [--iterations 5] [--warmup 1]
+ *     [--report report.properties] [--baseline baseline.properties] [--tolerance 0.05]
+ *     session1.plms [session2.plms ...]
+ * </pre>
+ *
+ * <p>{@code --config} builds the classifier and rep counters from a {@link PoseClassifierConfig},
+ * as the app does with the one bundled in its assets. Without it the defaults are used.
+ *
+ * <p>Rep counts are reported per session, keyed by the session's file name. With {@code
+ * --baseline}, exits with status 1 if the rep counts of any session differ from the baseline
+ * report, or the throughput over all sessions dropped by more than the tolerance.
+ */
+public final class SessionReplayHarness {
+  private static final String[] STAGES = {"classify", "smooth", "count", "total"};
+  private static final int CLASSIFY = 0;
+  private static final int SMOOTH = 1;
+  private static final int COUNT = 2;
+  private static final int TOTAL = 3;
+
+  private static final String KEY_FRAMES_PER_SECOND = "framesPerSecond";
+  private static final String KEY_REPS_PREFIX = "reps.";
+
+  private final PoseClassifierConfig config;
+  private final PoseClassifier poseClassifier;
+  private final Map<String, List<List<Point3D>>> sessions;
+  private final int numFrames;
+
+  /** @param sessions the frames of each session, by session name, in replay order. */
+  public SessionReplayHarness(
+      PoseClassifierConfig config,
+      List<PoseSample> poseSamples,
+      Map<String, List<List<Point3D>>> sessions) {
+    this.config = config;
+    this.poseClassifier = config.createPoseClassifier(poseSamples);
+    this.sessions = sessions;
+    int numFrames = 0;
+    for (List<List<Point3D>> frames : sessions.values()) {
+      numFrames += frames.size();
+    }
+    this.numFrames = numFrames;
+  }
+
+  /** Converts a recorded frame into the landmarks expected by {@link PoseClassifier}. */
+  public static List<Point3D> toLandmarks(LandmarkFrame frame) {
+    if (frame.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Point3D> landmarks = new ArrayList<>(LandmarkFrame.NUM_LANDMARKS);
+    for (int i = 0; i < LandmarkFrame.NUM_LANDMARKS; i++) {
+      landmarks.add(Point3D.from(frame.getX(i), frame.getY(i), frame.getZ(i)));
+    }
+    return landmarks;
+  }
+
+  /** Replays all sessions once and returns the measurements. */
+  public Report run() {
+    long[][] stageNanos = new long[STAGES.length][numFrames];
+    Map<String, Properties> repCounts = new LinkedHashMap<>();
+
+    long allocatedBefore = getThreadAllocatedBytes();
+    long start = System.nanoTime();
+    int i = 0;
+    for (Map.Entry<String, List<List<Point3D>>> session : sessions.entrySet()) {
+      // Built like PoseClassifierProcessor builds it.
+      PoseStreamClassifier streamClassifier =
+          new PoseStreamClassifier(
+              poseClassifier,
+              new EMASmoothing(),
+              config.createRepCounters(PoseStreamClassifier.POSE_CLASSES));
+      for (List<Point3D> landmarks : session.getValue()) {
+        // Same order as PoseStreamClassifier#process.
+        long t0 = System.nanoTime();
+        ClassificationResult classification = streamClassifier.classify(landmarks);
+        long t1 = System.nanoTime();
+        ClassificationResult smoothed = streamClassifier.smooth(classification);
+        long t2 = System.nanoTime();
+        if (!landmarks.isEmpty()) {
+          streamClassifier.countReps(smoothed);
+        }
+        long t3 = System.nanoTime();
+        stageNanos[CLASSIFY][i] = t1 - t0;
+        stageNanos[SMOOTH][i] = t2 - t1;
+        stageNanos[COUNT][i] = t3 - t2;
+        stageNanos[TOTAL][i] = t3 - t0;
+        i++;
+      }
+      Properties sessionRepCounts = new Properties();
+      for (RepetitionCounter repCounter : streamClassifier.getRepCounters()) {
+        sessionRepCounts.setProperty(
+            repCounter.getClassName(), Integer.toString(repCounter.getNumRepeats()));
+      }
+      repCounts.put(session.getKey(), sessionRepCounts);
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    long allocatedAfter = getThreadAllocatedBytes();
+
+    Report report = new Report();
+    report.frames = numFrames;
+    report.elapsedNanos = elapsedNanos;
+    report.allocatedBytes =
+        allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+    for (int stage = 0; stage < STAGES.length; stage++) {
+      Arrays.sort(stageNanos[stage]);
+    }
+    report.stageNanos = stageNanos;
+    report.repCounts = repCounts;
+    return report;
+  }
+
+  /**
+   * Returns the bytes allocated by the current thread so far, or -1 if the JVM does not expose it.
+   *
+   * <p>Looked up reflectively because {@code com.sun.management} is not available on every JVM.
+   */
+  private static long getThreadAllocatedBytes() {
+    try {
+      Object threadBean =
+          Class.forName("java.lang.management.ManagementFactory")
+              .getMethod("getThreadMXBean")
+              .invoke(null);
+      Method getAllocatedBytes =
+          Class.forName("com.sun.management.ThreadMXBean")
+              .getMethod("getThreadAllocatedBytes", long.class);
+      return (Long) getAllocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+    } catch (Exception e) {
+      return -1;
+    }
+  }
+
+  /** Measurements of a single replay. */
+  public static class Report {
+    private int frames;
+    private long elapsedNanos;
+    private long allocatedBytes;
+    private long[][] stageNanos;
+    private Map<String, Properties> repCounts;
+
+    public double getFramesPerSecond() {
+      return elapsedNanos == 0 ? 0 : frames * 1e9 / elapsedNanos;
+    }
+
+    /** Returns the final rep count per class of each session, by session name. */
+    public Map<String, Properties> getRepCounts() {
+      return repCounts;
+    }
+
+    /** Returns the latency of a stage at the given percentile in [0, 100], in microseconds. */
+    public double getLatencyMicros(int stage, double percentile) {
+      long[] sorted = stageNanos[stage];
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+    }
+
+    public Properties toProperties() {
+      Properties properties = new Properties();
+      properties.setProperty("frames", Integer.toString(frames));
+      properties.setProperty(KEY_FRAMES_PER_SECOND, format(getFramesPerSecond()));
+      for (int stage = 0; stage < STAGES.length; stage++) {
+        String prefix = "latencyMicros." + STAGES[stage] + ".";
+        properties.setProperty(prefix + "p50", format(getLatencyMicros(stage, 50)));
+        properties.setProperty(prefix + "p90", format(getLatencyMicros(stage, 90)));
+        properties.setProperty(prefix + "p99", format(getLatencyMicros(stage, 99)));
+        properties.setProperty(prefix + "max", format(getLatencyMicros(stage, 100)));
+      }
+      if (allocatedBytes >= 0 && frames > 0) {
+        properties.setProperty("allocatedBytesPerFrame", format((double) allocatedBytes / frames));
+        properties.setProperty(
+            "allocatedMegabytesPerSecond",
+            format(allocatedBytes / (1024.0 * 1024.0) / (elapsedNanos / 1e9)));
+      }
+      for (Map.Entry<String, Properties> session : repCounts.entrySet()) {
+        for (String className : session.getValue().stringPropertyNames()) {
+          properties.setProperty(
+              KEY_REPS_PREFIX + session.getKey() + "." + className,
+              session.getValue().getProperty(className));
+        }
+      }
+      return properties;
+    }
+
+    private static String format(double value) {
+      return String.format(Locale.US, "%.2f", value);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    String samplesFile = null;
+    String configFile = null;
+    String reportFile = null;
+    String baselineFile = null;
+    int iterations = 5;
+    int warmup = 1;
+    double tolerance = 0.05;
+    List<File> sessionFiles = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--samples":
+          samplesFile = args[++i];
+          break;
+        case "--config":
+          configFile = args[++i];
+          break;
+        case "--iterations":
+          iterations = Integer.parseInt(args[++i]);
+          break;
+        case "--warmup":
+          warmup = Integer.parseInt(args[++i]);
+          break;
+        case "--report":
+          reportFile = args[++i];
+          break;
+        case "--baseline":
+          baselineFile = args[++i];
+          break;
+        case "--tolerance":
+          tolerance = Double.parseDouble(args[++i]);
+          break;
+        default:
+          sessionFiles.add(new File(args[i]));
+      }
+    }
+    if (samplesFile == null || sessionFiles.isEmpty() || iterations < 1) {
+      System.err.println(
+          "Usage: SessionReplayHarness --samples <csv> [--config properties] [--iterations n]"
+              + " [--warmup n]"
+              + " [--report file] [--baseline file] [--tolerance fraction] <session>...");
+      System.exit(2);
+      return;
+    }
+
+    List<PoseSample> poseSamples;
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(samplesFile), StandardCharsets.UTF_8))) {
+      poseSamples = PoseSample.readPoseSamples(reader, ",");
+    }
+    PoseClassifierConfig config = PoseClassifierConfig.defaults();
+    if (configFile != null) {
+      try (Reader reader =
+          new InputStreamReader(new FileInputStream(configFile), StandardCharsets.UTF_8)) {
+        config = PoseClassifierConfig.load(reader);
+      }
+    }
+    Map<String, List<List<Point3D>>> sessions = new LinkedHashMap<>();
+    for (File sessionFile : sessionFiles) {
+      List<List<Point3D>> frames = new ArrayList<>();
+      for (LandmarkFrame frame : LandmarkSessionReader.readAll(sessionFile)) {
+        frames.add(toLandmarks(frame));
+      }
+      // Sessions are reported by file name, which has to tell them apart.
+      if (sessions.put(sessionFile.getName(), frames) != null) {
+        System.err.println("Session file names must be unique: " + sessionFile.getName());
+        System.exit(2);
+        return;
+      }
+    }
+    SessionReplayHarness harness = new SessionReplayHarness(config, poseSamples, sessions);
+
+    for (int i = 0; i < warmup; i++) {
+      harness.run();
+    }
+    // Keep the fastest iteration, the others are mostly measuring noise from the machine.
+    Report best = null;
+    for (int i = 0; i < iterations; i++) {
+      Report report = harness.run();
+      if (best != null && !best.getRepCounts().equals(report.getRepCounts())) {
+        throw new IllegalStateException("Replay is not deterministic");
+      }
+      if (best == null || report.getFramesPerSecond() > best.getFramesPerSecond()) {
+        best = report;
+      }
+    }
+
+    Properties properties = best.toProperties();
+    for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+      System.out.println(key + " = " + properties.getProperty(key));
+    }
+    if (reportFile != null) {
+      try (OutputStream out = new FileOutputStream(reportFile)) {
+        properties.store(
+            out,
+            String.format(
+                Locale.US,
+                "Session replay of %d frames in %d sessions",
+                harness.numFrames,
+                sessions.size()));
+      }
+    }
+    if (baselineFile != null && !matchesBaseline(properties, baselineFile, tolerance)) {
+      System.exit(1);
+    }
+  }
+
+  private static boolean matchesBaseline(Properties current, String baselineFile, double tolerance)
+      throws IOException {
+    Properties baseline = new Properties();
+    try (InputStream in = new FileInputStream(baselineFile)) {
+      baseline.load(in);
+    }
+    boolean matches = true;
+    // Both ways, so a session missing from either report is caught too.
+    Set<String> repKeys = new TreeSet<>();
+    for (Properties properties : Arrays.asList(baseline, current)) {
+      for (String key : properties.stringPropertyNames()) {
+        if (key.startsWith(KEY_REPS_PREFIX)) {
+          repKeys.add(key);
+        }
+      }
+    }
+    for (String key : repKeys) {
+      String baselineReps = baseline.getProperty(key);
+      String currentReps = current.getProperty(key);
+      if (baselineReps == null || !baselineReps.equals(currentReps)) {
+        System.err.println(
+            "Rep count changed for " + key.substring(KEY_REPS_PREFIX.length()) + ": "
+                + baselineReps + " -> " + currentReps);
+        matches = false;
+      }
+    }
+    double baselineFps = Double.parseDouble(baseline.getProperty(KEY_FRAMES_PER_SECOND, "0"));
+    double currentFps = Double.parseDouble(current.getProperty(KEY_FRAMES_PER_SECOND));
+    if (currentFps < baselineFps * (1 - tolerance)) {
+      System.err.println(
+          String.format(
+              Locale.US, "Throughput dropped: %.2f -> %.2f frames/s", baselineFps, currentFps));
+      matches = false;
+    }
+    return matches;
+  }
+}
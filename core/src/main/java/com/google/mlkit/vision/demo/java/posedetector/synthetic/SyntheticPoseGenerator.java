@@ -0,0 +1,432 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.synthetic;
+
+import static com.google.mlkit.vision.demo.java.posedetector.classification.Utils.average;
+import static com.google.mlkit.vision.demo.java.posedetector.classification.Utils.l2Norm2D;
+import static com.google.mlkit.vision.demo.java.posedetector.classification.Utils.subtract;
+
+import com.google.mlkit.vision.demo.java.posedetector.classification.LabeledPose;
+import com.google.mlkit.vision.demo.java.posedetector.classification.Point3D;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseLandmarkType;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseSample;
+import com.google.mlkit.vision.demo.java.posedetector.classification.PoseStreamClassifier;
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkFrame;
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkSessionWriter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Generates large synthetic pose libraries and query streams from a real pose samples csv.
+ *
+ * <p>Every generated pose interpolates between two real samples of the same class, then gets a
+ * random camera yaw and roll, scale and translation, and per-landmark jitter relative to the torso
+ * size. Classes keep their relative frequency in the source csv. The output only depends on the
+ * source samples and the seed.
+ *
+ * <p>Query streams move between the two states of an exercise (e.g. {@code pushups_down} and {@code
+ * pushups_up}) a rep at a time, with the camera fixed for a set of reps, and are written in the
+ * recorded session format so they can be fed to the session replay harness.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * SyntheticPoseGenerator --input fitness_pose_mine3.csv [--seed 42] [--jitter 0.02]
+ *     [--samples 100000 --output corpus.csv]
+ *     [--frames 9000 --session-output stream.plms [--expected-output stream.properties]]
+ * </pre>
+ *
+ * <p>{@code --expected-output} writes the reps done in the stream for the classes that the app
+ * counts, as {@code reps.<class>} properties in the format of the session replay harness report.
+ */
+public class SyntheticPoseGenerator {
+  private static final float DEFAULT_JITTER = 0.02f;
+  private static final float DEFAULT_MAX_ROLL_DEGREES = 10f;
+  private static final float DEFAULT_MAX_YAW_DEGREES = 20f;
+  private static final float DEFAULT_MAX_SCALE_CHANGE = 0.15f;
+  private static final float DEFAULT_MAX_TRANSLATION = 0.5f;
+
+  private static final int FRAMES_PER_REP = 45;
+  private static final int REPS_PER_SET = 5;
+  private static final long FRAME_INTERVAL_MS = 33;
+
+  private final List<LabeledPose> sourcePoses;
+  private final Map<String, List<LabeledPose>> posesByClass = new LinkedHashMap<>();
+  private final Random random;
+  private final float jitter;
+  private final float maxRollDegrees;
+  private final float maxYawDegrees;
+  private final float maxScaleChange;
+  private final float maxTranslation;
+
+  public SyntheticPoseGenerator(List<LabeledPose> sourcePoses, long seed) {
+    this(
+        sourcePoses,
+        seed,
+        DEFAULT_JITTER,
+        DEFAULT_MAX_ROLL_DEGREES,
+        DEFAULT_MAX_YAW_DEGREES,
+        DEFAULT_MAX_SCALE_CHANGE,
+        DEFAULT_MAX_TRANSLATION);
+  }
+
+  /**
+   * @param jitter standard deviation of the per-landmark noise, relative to the torso size.
+   * @param maxScaleChange poses are scaled by a random factor in [1 - max, 1 + max].
+   * @param maxTranslation max shift of the pose in x and y, relative to the torso size.
+   */
+  public SyntheticPoseGenerator(
+      List<LabeledPose> sourcePoses,
+      long seed,
+      float jitter,
+      float maxRollDegrees,
+      float maxYawDegrees,
+      float maxScaleChange,
+      float maxTranslation) {
+    if (sourcePoses.isEmpty()) {
+      throw new IllegalArgumentException("No source poses");
+    }
+    this.sourcePoses = sourcePoses;
+    this.random = new Random(seed);
+    this.jitter = jitter;
+    this.maxRollDegrees = maxRollDegrees;
+    this.maxYawDegrees = maxYawDegrees;
+    this.maxScaleChange = maxScaleChange;
+    this.maxTranslation = maxTranslation;
+    for (LabeledPose pose : sourcePoses) {
+      List<LabeledPose> poses = posesByClass.get(pose.getClassName());
+      if (poses == null) {
+        poses = new ArrayList<>();
+        posesByClass.put(pose.getClassName(), poses);
+      }
+      poses.add(pose);
+    }
+  }
+
+  public List<String> getClassNames() {
+    return new ArrayList<>(posesByClass.keySet());
+  }
+
+  /** Returns the next synthetic pose. */
+  public LabeledPose nextPose(String name) {
+    LabeledPose first = sourcePoses.get(random.nextInt(sourcePoses.size()));
+    List<LabeledPose> sameClass = posesByClass.get(first.getClassName());
+    LabeledPose second = sameClass.get(random.nextInt(sameClass.size()));
+    List<Point3D> landmarks =
+        interpolate(first.getLandmarks(), second.getLandmarks(), random.nextFloat());
+    return new LabeledPose(
+        name, first.getClassName(), transform(landmarks, randomTransform(), jitter));
+  }
+
+  /** Returns a library of {@code numSamples} synthetic {@link PoseSample}s. */
+  public List<PoseSample> generateSamples(int numSamples) {
+    List<PoseSample> poseSamples = new ArrayList<>(numSamples);
+    for (int i = 0; i < numSamples; i++) {
+      LabeledPose pose = nextPose(sampleName(i));
+      poseSamples.add(pose.toPoseSample());
+    }
+    return poseSamples;
+  }
+
+  /** Writes {@code numSamples} synthetic poses in the pose samples csv format. */
+  public void writeSamples(int numSamples, Writer writer) throws IOException {
+    StringBuilder line = new StringBuilder();
+    for (int i = 0; i < numSamples; i++) {
+      LabeledPose pose = nextPose(sampleName(i));
+      line.setLength(0);
+      line.append(pose.getName()).append(',').append(pose.getClassName());
+      for (Point3D landmark : pose.getLandmarks()) {
+        line.append(',').append(landmark.getX());
+        line.append(',').append(landmark.getY());
+        line.append(',').append(landmark.getZ());
+      }
+      writer.write(line.append('\n').toString());
+    }
+  }
+
+  /**
+   * Writes a query stream of {@code numFrames} frames as a recorded session.
+   *
+   * <p>Exercises are the classes that share a prefix and differ in a {@code _suffix}, e.g. {@code
+   * squats_down} and {@code squats_up}. Each set does {@link #REPS_PER_SET} reps of a random
+   * exercise, from one state to the other and back.
+   *
+   * @return the number of complete reps written per class. Both classes of an exercise get the
+   *     same count.
+   */
+  public Map<String, Integer> writeSession(int numFrames, OutputStream out) throws IOException {
+    List<String[]> exercises = findExercises();
+    if (exercises.isEmpty()) {
+      throw new IllegalStateException("No exercise with two states in the source poses");
+    }
+    Map<String, Integer> reps = new LinkedHashMap<>();
+    for (String className : getClassNames()) {
+      reps.put(className, 0);
+    }
+    try (LandmarkSessionWriter writer = new LandmarkSessionWriter(out)) {
+      int frame = 0;
+      while (frame < numFrames) {
+        String[] exercise = exercises.get(random.nextInt(exercises.size()));
+        // Same person and camera for the whole set.
+        Transform setTransform = randomTransform();
+        for (int rep = 0; rep < REPS_PER_SET && frame < numFrames; rep++) {
+          List<Point3D> start = randomPoseOf(exercise[0]);
+          List<Point3D> end = randomPoseOf(exercise[1]);
+          for (int i = 0; i < FRAMES_PER_REP && frame < numFrames; i++, frame++) {
+            // Eases from start to end and back over a rep.
+            float t = (float) (1 - Math.cos(2 * Math.PI * i / FRAMES_PER_REP)) / 2;
+            List<Point3D> landmarks =
+                transform(interpolate(start, end, t), setTransform, jitter);
+            writer.write(toFrame(frame * FRAME_INTERVAL_MS, landmarks));
+            if (i == FRAMES_PER_REP - 1) {
+              reps.put(exercise[0], reps.get(exercise[0]) + 1);
+              reps.put(exercise[1], reps.get(exercise[1]) + 1);
+            }
+          }
+        }
+      }
+    }
+    return reps;
+  }
+
+  private List<String[]> findExercises() {
+    List<String[]> exercises = new ArrayList<>();
+    List<String> classNames = getClassNames();
+    Collections.sort(classNames);
+    for (int i = 0; i < classNames.size(); i++) {
+      for (int j = i + 1; j < classNames.size(); j++) {
+        String a = classNames.get(i);
+        String b = classNames.get(j);
+        int separator = a.lastIndexOf('_');
+        if (separator > 0
+            && separator == b.lastIndexOf('_')
+            && a.regionMatches(0, b, 0, separator)) {
+          exercises.add(new String[] {a, b});
+        }
+      }
+    }
+    return exercises;
+  }
+
+  private List<Point3D> randomPoseOf(String className) {
+    List<LabeledPose> poses = posesByClass.get(className);
+    return poses.get(random.nextInt(poses.size())).getLandmarks();
+  }
+
+  private Transform randomTransform() {
+    return new Transform(
+        (float) Math.toRadians(uniform(maxYawDegrees)),
+        (float) Math.toRadians(uniform(maxRollDegrees)),
+        1 + uniform(maxScaleChange),
+        uniform(maxTranslation),
+        uniform(maxTranslation));
+  }
+
+  /** Returns a uniform random value in [-max, max]. */
+  private float uniform(float max) {
+    return (random.nextFloat() * 2 - 1) * max;
+  }
+
+  private static List<Point3D> interpolate(List<Point3D> from, List<Point3D> to, float t) {
+    List<Point3D> landmarks = new ArrayList<>(from.size());
+    for (int i = 0; i < from.size(); i++) {
+      Point3D a = from.get(i);
+      Point3D b = to.get(i);
+      landmarks.add(
+          Point3D.from(
+              a.getX() + (b.getX() - a.getX()) * t,
+              a.getY() + (b.getY() - a.getY()) * t,
+              a.getZ() + (b.getZ() - a.getZ()) * t));
+    }
+    return landmarks;
+  }
+
+  /** Rotates and scales the pose around its hips center, then translates and jitters it. */
+  private List<Point3D> transform(List<Point3D> landmarks, Transform transform, float jitter) {
+    Point3D center =
+        average(
+            landmarks.get(PoseLandmarkType.LEFT_HIP), landmarks.get(PoseLandmarkType.RIGHT_HIP));
+    Point3D shouldersCenter =
+        average(
+            landmarks.get(PoseLandmarkType.LEFT_SHOULDER),
+            landmarks.get(PoseLandmarkType.RIGHT_SHOULDER));
+    float torsoSize = l2Norm2D(subtract(center, shouldersCenter));
+    float noise = jitter * torsoSize;
+    float cosYaw = (float) Math.cos(transform.yaw);
+    float sinYaw = (float) Math.sin(transform.yaw);
+    float cosRoll = (float) Math.cos(transform.roll);
+    float sinRoll = (float) Math.sin(transform.roll);
+    float offsetX = center.getX() + transform.translationX * torsoSize;
+    float offsetY = center.getY() + transform.translationY * torsoSize;
+
+    List<Point3D> transformed = new ArrayList<>(landmarks.size());
+    for (Point3D landmark : landmarks) {
+      float x = landmark.getX() - center.getX();
+      float y = landmark.getY() - center.getY();
+      float z = landmark.getZ();
+      // Yaw turns the person around the vertical axis, roll tilts the camera.
+      float yawedX = x * cosYaw + z * sinYaw;
+      float yawedZ = -x * sinYaw + z * cosYaw;
+      float rolledX = yawedX * cosRoll - y * sinRoll;
+      float rolledY = yawedX * sinRoll + y * cosRoll;
+      transformed.add(
+          Point3D.from(
+              offsetX + rolledX * transform.scale + (float) random.nextGaussian() * noise,
+              offsetY + rolledY * transform.scale + (float) random.nextGaussian() * noise,
+              yawedZ * transform.scale + (float) random.nextGaussian() * noise));
+    }
+    return transformed;
+  }
+
+  private static LandmarkFrame toFrame(long timestampMs, List<Point3D> landmarks) {
+    float[] positions = new float[LandmarkFrame.NUM_LANDMARKS * LandmarkFrame.NUM_DIMS];
+    float[] likelihoods = new float[LandmarkFrame.NUM_LANDMARKS];
+    for (int i = 0; i < LandmarkFrame.NUM_LANDMARKS; i++) {
+      Point3D landmark = landmarks.get(i);
+      positions[i * LandmarkFrame.NUM_DIMS] = landmark.getX();
+      positions[i * LandmarkFrame.NUM_DIMS + 1] = landmark.getY();
+      positions[i * LandmarkFrame.NUM_DIMS + 2] = landmark.getZ();
+      likelihoods[i] = 1f;
+    }
+    return new LandmarkFrame(timestampMs, positions, likelihoods);
+  }
+
+  private static String sampleName(int index) {
+    return "synthetic_" + index;
+  }
+
+  private static class Transform {
+    final float yaw;
+    final float roll;
+    final float scale;
+    final float translationX;
+    final float translationY;
+
+    Transform(float yaw, float roll, float scale, float translationX, float translationY) {
+      this.yaw = yaw;
+      this.roll = roll;
+      this.scale = scale;
+      this.translationX = translationX;
+      this.translationY = translationY;
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    String inputFile = null;
+    String outputFile = null;
+    String sessionOutputFile = null;
+    String expectedOutputFile = null;
+    long seed = 42;
+    float jitter = DEFAULT_JITTER;
+    int numSamples = 0;
+    int numFrames = 0;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--input":
+          inputFile = args[++i];
+          break;
+        case "--output":
+          outputFile = args[++i];
+          break;
+        case "--session-output":
+          sessionOutputFile = args[++i];
+          break;
+        case "--expected-output":
+          expectedOutputFile = args[++i];
+          break;
+        case "--seed":
+          seed = Long.parseLong(args[++i]);
+          break;
+        case "--jitter":
+          jitter = Float.parseFloat(args[++i]);
+          break;
+        case "--samples":
+          numSamples = Integer.parseInt(args[++i]);
+          break;
+        case "--frames":
+          numFrames = Integer.parseInt(args[++i]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown argument " + args[i]);
+      }
+    }
+    if (inputFile == null
+        || (outputFile == null && sessionOutputFile == null)
+        || (outputFile != null && numSamples <= 0)
+        || (sessionOutputFile != null && numFrames <= 0)) {
+      System.err.println(
+          "Usage: SyntheticPoseGenerator --input <csv> [--seed n] [--jitter fraction]"
+              + " [--samples n --output <csv>]"
+              + " [--frames n --session-output <plms> [--expected-output <properties>]]");
+      System.exit(2);
+      return;
+    }
+
+    List<LabeledPose> sourcePoses;
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(inputFile), StandardCharsets.UTF_8))) {
+      sourcePoses = LabeledPose.readLabeledPoses(reader, ",");
+    }
+    SyntheticPoseGenerator generator =
+        new SyntheticPoseGenerator(
+            sourcePoses,
+            seed,
+            jitter,
+            DEFAULT_MAX_ROLL_DEGREES,
+            DEFAULT_MAX_YAW_DEGREES,
+            DEFAULT_MAX_SCALE_CHANGE,
+            DEFAULT_MAX_TRANSLATION);
+    if (outputFile != null) {
+      try (Writer writer =
+          new BufferedWriter(
+              new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8))) {
+        generator.writeSamples(numSamples, writer);
+      }
+    }
+    if (sessionOutputFile != null) {
+      Map<String, Integer> reps =
+          generator.writeSession(numFrames, new FileOutputStream(sessionOutputFile));
+      if (expectedOutputFile != null) {
+        Properties expected = new Properties();
+        for (String className : PoseStreamClassifier.POSE_CLASSES) {
+          if (reps.containsKey(className)) {
+            expected.setProperty("reps." + className, Integer.toString(reps.get(className)));
+          }
+        }
+        try (OutputStream expectedOut = new FileOutputStream(expectedOutputFile)) {
+          expected.store(expectedOut, "Reps in " + sessionOutputFile);
+        }
+      }
+    }
+  }
+}
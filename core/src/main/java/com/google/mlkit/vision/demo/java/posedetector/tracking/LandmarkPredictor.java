@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.tracking;
+
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkFrame;
+
+/**
+ * Decides which frames to run the pose detector on, and predicts the landmarks of the frames in
+ * between, so the overlay and rep counters keep their update rate at a fraction of the detector
+ * cost.
+ *
+ * <p>Each landmark coordinate is tracked by a constant-velocity Kalman filter, updated with the
+ * detected landmarks. The detector either runs on every Nth frame, or adaptively, once the
+ * fastest landmark is predicted to have moved a set share of the pose height since the last
+ * detection. Without a tracked pose, as at the start or once the pose is lost, every frame is
+ * detected.
+ *
+ * <p>This class is thread safe. Frames are predicted from the latest detection, even if later
+ * detections are still running.
+ */
+public final class LandmarkPredictor {
+
+  /** The detection interval that detects adaptively, depending on how fast the pose moves. */
+  public static final int ADAPTIVE = 0;
+
+  /** The most frames in a row that are predicted in adaptive mode. */
+  static final int MAX_ADAPTIVE_PREDICTED_FRAMES = 3;
+  // Adaptive mode detects once the predicted motion exceeds this share of the pose height.
+  private static final float MAX_ADAPTIVE_MOTION = 0.05f;
+  // Predicting further than this from the last detection is more guess than prediction.
+  private static final long MAX_PREDICTION_NANOS = 400_000_000L;
+  private static final double NANOS_PER_SECOND = 1e9;
+  // Variance of the detected positions, in square pixels.
+  private static final double MEASUREMENT_VARIANCE = 16;
+  // Spectral density of the acceleration noise, in square pixels per cubed second. Limbs can
+  // change direction within a few frames, so the filter follows the detections closely.
+  private static final double ACCELERATION_NOISE = 1e6;
+  // Variance of the velocity of a newly tracked landmark, in square pixels per square second.
+  private static final double INITIAL_VELOCITY_VARIANCE = 1e6;
+
+  private final int detectionInterval;
+  private final int numValues;
+
+  // The state of each coordinate: position, velocity, and their covariance.
+  private final double[] positions;
+  private final double[] velocities;
+  private final double[] positionVariances;
+  private final double[] covariances;
+  private final double[] velocityVariances;
+  private float[] inFrameLikelihoods;
+  private boolean tracking;
+  private long lastDetectionNanos;
+  private float poseHeight;
+  private int predictedFrames;
+
+  /**
+   * @param detectionInterval runs the detector on every Nth frame, or adaptively if {@link
+   *     #ADAPTIVE}. 1 detects every frame.
+   */
+  public LandmarkPredictor(int detectionInterval) {
+    if (detectionInterval < 0) {
+      throw new IllegalArgumentException("Invalid detection interval: " + detectionInterval);
+    }
+    this.detectionInterval = detectionInterval;
+    numValues = LandmarkFrame.NUM_LANDMARKS * LandmarkFrame.NUM_DIMS;
+    positions = new double[numValues];
+    velocities = new double[numValues];
+    positionVariances = new double[numValues];
+    covariances = new double[numValues];
+    velocityVariances = new double[numValues];
+  }
+
+  public int getDetectionInterval() {
+    return detectionInterval;
+  }
+
+  /**
+   * Returns the predicted landmarks of the frame at the given time, or null if the frame should
+   * be detected instead. Every frame is either detected or predicted, so this is called once per
+   * frame, in frame order.
+   */
+  public synchronized LandmarkFrame predictOrSkip(long timestampNanos) {
+    if (!wouldPredict(timestampNanos)) {
+      predictedFrames = 0;
+      return null;
+    }
+    predictedFrames++;
+    float[] predicted = new float[numValues];
+    double seconds = (timestampNanos - lastDetectionNanos) / NANOS_PER_SECOND;
+    for (int i = 0; i < numValues; i++) {
+      predicted[i] = (float) (positions[i] + velocities[i] * seconds);
+    }
+    return new LandmarkFrame(
+        timestampNanos / 1_000_000, predicted, inFrameLikelihoods.clone());
+  }
+
+  /**
+   * Returns whether {@link #predictOrSkip} would predict the frame at the given time, without
+   * counting it as predicted.
+   */
+  public synchronized boolean wouldPredict(long timestampNanos) {
+    return tracking
+        && detectionInterval != 1
+        && timestampNanos - lastDetectionNanos <= MAX_PREDICTION_NANOS
+        && shouldPredict(timestampNanos);
+  }
+
+  /**
+   * Updates the tracked landmarks with the ones detected in the frame at the given time. An empty
+   * frame means the pose was lost, and detections older than the latest one are ignored.
+   */
+  public synchronized void onDetected(long timestampNanos, LandmarkFrame detected) {
+    if (tracking && timestampNanos <= lastDetectionNanos) {
+      return;
+    }
+    if (detected.isEmpty()) {
+      tracking = false;
+      return;
+    }
+    float[] measured = detected.getPositions();
+    if (!tracking) {
+      for (int i = 0; i < numValues; i++) {
+        positions[i] = measured[i];
+        velocities[i] = 0;
+        positionVariances[i] = MEASUREMENT_VARIANCE;
+        covariances[i] = 0;
+        velocityVariances[i] = INITIAL_VELOCITY_VARIANCE;
+      }
+    } else {
+      double dt = (timestampNanos - lastDetectionNanos) / NANOS_PER_SECOND;
+      for (int i = 0; i < numValues; i++) {
+        update(i, dt, measured[i]);
+      }
+    }
+    inFrameLikelihoods = detected.getInFrameLikelihoods().clone();
+    poseHeight = getPoseHeight(measured);
+    lastDetectionNanos = timestampNanos;
+    tracking = true;
+  }
+
+  /** Forgets the tracked pose, so the next frame is detected. */
+  public synchronized void reset() {
+    tracking = false;
+    predictedFrames = 0;
+  }
+
+  private boolean shouldPredict(long timestampNanos) {
+    if (detectionInterval != ADAPTIVE) {
+      return predictedFrames < detectionInterval - 1;
+    }
+    if (predictedFrames >= MAX_ADAPTIVE_PREDICTED_FRAMES) {
+      return false;
+    }
+    double seconds = (timestampNanos - lastDetectionNanos) / NANOS_PER_SECOND;
+    double maxMotion = 0;
+    for (int i = 0; i < numValues; i += LandmarkFrame.NUM_DIMS) {
+      // Depth is too noisy to judge the motion by.
+      maxMotion = Math.max(maxMotion, Math.hypot(velocities[i], velocities[i + 1]) * seconds);
+    }
+    return maxMotion < MAX_ADAPTIVE_MOTION * poseHeight;
+  }
+
+  // Predicts coordinate i forward by dt seconds, then corrects it with the measured value.
+  private void update(int i, double dt, float measured) {
+    double p00 = positionVariances[i];
+    double p01 = covariances[i];
+    double p11 = velocityVariances[i];
+    double position = positions[i] + velocities[i] * dt;
+    double q = ACCELERATION_NOISE;
+    double predicted00 = p00 + dt * (2 * p01 + dt * p11) + q * dt * dt * dt / 3;
+    double predicted01 = p01 + dt * p11 + q * dt * dt / 2;
+    double predicted11 = p11 + q * dt;
+
+    double residual = measured - position;
+    double innovationVariance = predicted00 + MEASUREMENT_VARIANCE;
+    double positionGain = predicted00 / innovationVariance;
+    double velocityGain = predicted01 / innovationVariance;
+    positions[i] = position + positionGain * residual;
+    velocities[i] += velocityGain * residual;
+    positionVariances[i] = (1 - positionGain) * predicted00;
+    covariances[i] = (1 - positionGain) * predicted01;
+    velocityVariances[i] = predicted11 - velocityGain * predicted01;
+  }
+
+  private static float getPoseHeight(float[] positions) {
+    float minY = Float.MAX_VALUE;
+    float maxY = -Float.MAX_VALUE;
+    for (int i = 1; i < positions.length; i += LandmarkFrame.NUM_DIMS) {
+      minY = Math.min(minY, positions[i]);
+      maxY = Math.max(maxY, positions[i]);
+    }
+    return maxY - minY;
+  }
+}
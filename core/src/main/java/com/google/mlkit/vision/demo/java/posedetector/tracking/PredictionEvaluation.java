@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.tracking;
+
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkFrame;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures how close the landmarks predicted by {@link LandmarkPredictor} are to the truth, on a
+ * synthetic squat, compared with repeating the last detection on the frames that are not detected.
+ *
+ * <p>Usage:
+ *
+ * <pre>
+ * PredictionEvaluation [--seconds 20] [--fps 30] [--noise 3] [--seed 42]
+ * </pre>
+ *
+ * <p>Every landmark moves up and down, and a third as much sideways, at one squat every two
+ * seconds, with amplitudes of 20 to 180 pixels from the head down. Detections add gaussian noise of
+ * the given deviation in pixels. Errors are the mean 2D distance to the truth on the predicted
+ * frames only, for each detection interval.
+ */
+public final class PredictionEvaluation {
+  private static final double SQUAT_PERIOD_SECONDS = 2;
+  private static final int[] DETECTION_INTERVALS = {2, 3, LandmarkPredictor.ADAPTIVE};
+
+  private PredictionEvaluation() {}
+
+  public static void main(String[] args) {
+    double seconds = 20;
+    double fps = 30;
+    double noisePixels = 3;
+    long seed = 42;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--seconds":
+          seconds = Double.parseDouble(args[++i]);
+          break;
+        case "--fps":
+          fps = Double.parseDouble(args[++i]);
+          break;
+        case "--noise":
+          noisePixels = Double.parseDouble(args[++i]);
+          break;
+        case "--seed":
+          seed = Long.parseLong(args[++i]);
+          break;
+        default:
+          System.err.println(
+              "Usage: PredictionEvaluation [--seconds s] [--fps n] [--noise px] [--seed n]");
+          System.exit(2);
+          return;
+      }
+    }
+    int numFrames = (int) (seconds * fps);
+    for (int detectionInterval : DETECTION_INTERVALS) {
+      LandmarkPredictor predictor = new LandmarkPredictor(detectionInterval);
+      Random random = new Random(seed);
+      float[] lastDetected = null;
+      int detectedFrames = 0;
+      int predictedFrames = 0;
+      double predictionError = 0;
+      double repeatError = 0;
+      for (int frame = 0; frame < numFrames; frame++) {
+        long timestampNanos = (long) (frame * 1e9 / fps);
+        float[] truth = squat(frame / fps);
+        LandmarkFrame predicted = predictor.predictOrSkip(timestampNanos);
+        if (predicted == null) {
+          float[] detected = truth.clone();
+          for (int i = 0; i < detected.length; i++) {
+            detected[i] += (float) (random.nextGaussian() * noisePixels);
+          }
+          predictor.onDetected(
+              timestampNanos,
+              new LandmarkFrame(
+                  timestampNanos / 1_000_000, detected, new float[LandmarkFrame.NUM_LANDMARKS]));
+          lastDetected = detected;
+          detectedFrames++;
+        } else {
+          predictionError += meanDistance(predicted.getPositions(), truth);
+          repeatError += meanDistance(lastDetected, truth);
+          predictedFrames++;
+        }
+      }
+      System.out.println(
+          String.format(
+              Locale.US,
+              "interval %s: %d detected, %d predicted, mean error %.2fpx predicted vs %.2fpx"
+                  + " repeated (%.0f%% lower)",
+              detectionInterval == LandmarkPredictor.ADAPTIVE
+                  ? "adaptive"
+                  : String.valueOf(detectionInterval),
+              detectedFrames,
+              predictedFrames,
+              predictionError / predictedFrames,
+              repeatError / predictedFrames,
+              100 * (1 - predictionError / repeatError)));
+    }
+  }
+
+  private static float[] squat(double seconds) {
+    float[] positions = new float[LandmarkFrame.NUM_LANDMARKS * LandmarkFrame.NUM_DIMS];
+    for (int landmark = 0; landmark < LandmarkFrame.NUM_LANDMARKS; landmark++) {
+      double amplitude = 20 + 5 * landmark;
+      double phase = 2 * Math.PI * seconds / SQUAT_PERIOD_SECONDS + 0.1 * landmark;
+      int offset = landmark * LandmarkFrame.NUM_DIMS;
+      positions[offset] = (float) (200 + 5 * landmark + amplitude / 3 * Math.sin(phase));
+      positions[offset + 1] = (float) (100 + 12 * landmark + amplitude * Math.sin(phase));
+    }
+    return positions;
+  }
+
+  private static double meanDistance(float[] positions, float[] truth) {
+    double distance = 0;
+    for (int i = 0; i < positions.length; i += LandmarkFrame.NUM_DIMS) {
+      distance += Math.hypot(positions[i] - truth[i], positions[i + 1] - truth[i + 1]);
+    }
+    return distance / LandmarkFrame.NUM_LANDMARKS;
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.tracking;
+
+import com.google.mlkit.vision.demo.java.posedetector.recording.LandmarkFrame;
+import com.google.mlkit.vision.demo.yuv.FrameRegion;
+
+/**
+ * Chooses the region of the next frame to run the pose detector in, from the landmarks of earlier
+ * detections, so the detector spends its input on the athlete rather than the background.
+ *
+ * <p>The region is the bounding box of the confident landmarks, padded for motion and the parts of
+ * the body landmarks do not cover. It is kept fixed while the athlete stays well inside it, so a
+ * stream mode detector keeps getting inputs of the same size and offset and can track the pose
+ * from frame to frame. Only once the pose comes within {@link #RECENTER_MARGIN} of the region's
+ * edge, or shrinks to a small part of it, is the region placed around it again. The padding leaves
+ * a wide band of hysteresis between the two. The whole frame is detected instead when there is no
+ * tracked pose, when the pose reaches the very edge of its region and may be cut off, and when the
+ * region would cover most of the frame anyway. This class is thread safe.
+ */
+public final class RoiTracker {
+
+  // The longest side the cropped detector input may have.
+  private static final int MAX_OUTPUT_SIDE = 640;
+  // Padding on each side, as a share of the long side of the landmarks' bounding box, so that a
+  // standing athlete still has room to spread their arms.
+  private static final float PADDING = 0.25f;
+  // Landmarks below this likelihood are likely guessed, so they neither place nor bound the region.
+  private static final float MIN_LIKELIHOOD = 0.5f;
+  // How few confident landmarks still make a tracked pose.
+  private static final int MIN_CONFIDENT_LANDMARKS = 8;
+  // A landmark this close to the edge of its region, as a share of the region, may be cut off.
+  private static final float EDGE_MARGIN = 0.02f;
+  /** How close to its edge, as a share of the region, the pose may come before it is recentered. */
+  static final float RECENTER_MARGIN = 0.05f;
+  // The pose is recentered once its long side shrinks below this share of the region's, as when
+  // the athlete steps back, so the detector does not spend its input on the background again.
+  private static final float MIN_FILL = 0.4f;
+  // Regions covering more of the frame than this save too little to be worth cropping.
+  private static final float MAX_AREA_SHARE = 0.7f;
+
+  private boolean tracking;
+  // The padded region around the tracked pose, in upright frame coordinates.
+  private float left;
+  private float top;
+  private float right;
+  private float bottom;
+  // The region last returned, which is returned again until the pose is recentered.
+  private FrameRegion region;
+
+  /**
+   * Returns the region of a frame to detect in, or null to detect in the whole frame.
+   *
+   * @param frameWidth the width of the frame as delivered by the camera.
+   * @param frameHeight the height of the frame as delivered by the camera.
+   * @param rotationDegrees the clockwise rotation that makes the frame upright.
+   */
+  public synchronized FrameRegion getRegion(
+      int frameWidth, int frameHeight, int rotationDegrees) {
+    if (!tracking) {
+      return null;
+    }
+    if (region != null
+        && region.getFrameWidth() == frameWidth
+        && region.getFrameHeight() == frameHeight
+        && region.getRotationDegrees() == rotationDegrees) {
+      return region;
+    }
+    region =
+        FrameRegion.fromUpright(
+            frameWidth, frameHeight, rotationDegrees, left, top, right, bottom, MAX_OUTPUT_SIDE);
+    if (region != null
+        && region.getWidth() * region.getHeight() > MAX_AREA_SHARE * frameWidth * frameHeight) {
+      region = null;
+    }
+    return region;
+  }
+
+  /**
+   * Tracks the landmarks of a detection.
+   *
+   * @param detected the landmarks in upright frame coordinates, or an empty frame if no pose was
+   *     found.
+   * @param detectedRegion the region the landmarks were detected in, or null for the whole frame.
+   */
+  public synchronized void onDetected(LandmarkFrame detected, FrameRegion detectedRegion) {
+    if (detected.isEmpty()) {
+      reset();
+      return;
+    }
+    float minX = Float.MAX_VALUE;
+    float minY = Float.MAX_VALUE;
+    float maxX = -Float.MAX_VALUE;
+    float maxY = -Float.MAX_VALUE;
+    int confidentLandmarks = 0;
+    for (int i = 0; i < LandmarkFrame.NUM_LANDMARKS; i++) {
+      if (detected.getInFrameLikelihood(i) < MIN_LIKELIHOOD) {
+        continue;
+      }
+      confidentLandmarks++;
+      minX = Math.min(minX, detected.getX(i));
+      minY = Math.min(minY, detected.getY(i));
+      maxX = Math.max(maxX, detected.getX(i));
+      maxY = Math.max(maxY, detected.getY(i));
+    }
+    if (confidentLandmarks < MIN_CONFIDENT_LANDMARKS) {
+      reset();
+      return;
+    }
+    if (detectedRegion != null && isNearEdge(detectedRegion, EDGE_MARGIN, minX, minY, maxX, maxY)) {
+      reset();
+      return;
+    }
+    if (detectedRegion != null && detectedRegion != region) {
+      // Detected in a region that was replaced since, which says nothing about the current one.
+      return;
+    }
+    if (region != null
+        && !isNearEdge(region, RECENTER_MARGIN, minX, minY, maxX, maxY)
+        && Math.max(maxX - minX, maxY - minY)
+            >= MIN_FILL * Math.max(right - left, bottom - top)) {
+      return;
+    }
+    float padding = Math.max(maxX - minX, maxY - minY) * PADDING;
+    left = minX - padding;
+    top = minY - padding;
+    right = maxX + padding;
+    bottom = maxY + padding;
+    region = null;
+    tracking = true;
+  }
+
+  /** Forgets the tracked pose, so the next frame is detected whole. */
+  public synchronized void reset() {
+    tracking = false;
+    region = null;
+  }
+
+  private static boolean isNearEdge(
+      FrameRegion region, float margin, float minX, float minY, float maxX, float maxY) {
+    // The region's upright edges, found by mapping the corners of the cropped image back. Edges of
+    // the frame cut nothing off that the whole frame would show.
+    boolean sideways = region.getRotationDegrees() % 180 != 0;
+    float frameWidth = sideways ? region.getFrameHeight() : region.getFrameWidth();
+    float frameHeight = sideways ? region.getFrameWidth() : region.getFrameHeight();
+    float croppedWidth = sideways ? region.getOutputHeight() : region.getOutputWidth();
+    float croppedHeight = sideways ? region.getOutputWidth() : region.getOutputHeight();
+    float regionLeft = region.toFrameX(0);
+    float regionTop = region.toFrameY(0);
+    float regionRight = region.toFrameX(croppedWidth);
+    float regionBottom = region.toFrameY(croppedHeight);
+    float marginX = (regionRight - regionLeft) * margin;
+    float marginY = (regionBottom - regionTop) * margin;
+    return (regionLeft > 0 && minX < regionLeft + marginX)
+        || (regionTop > 0 && minY < regionTop + marginY)
+        || (regionRight < frameWidth && maxX > regionRight - marginX)
+        || (regionBottom < frameHeight && maxY > regionBottom - marginY);
+  }
+}
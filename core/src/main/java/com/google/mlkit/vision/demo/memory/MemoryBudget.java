@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.memory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tracks how much memory the app's caches, buffer pools and session buffers hold, and shrinks them
+ * in tiers under memory pressure, so long sessions keep to a known footprint rather than being
+ * killed in the background.
+ *
+ * <p>Pressure is signalled by the platform, see {@link #pressureForTrimLevel}, or judged from the
+ * available memory in {@link #update}. It rises at once. It falls by one tier at a time, once no
+ * pressure was signalled for {@link #RELIEF_NANOS}. This class is thread safe, and tells its
+ * consumers and listener of changes on the thread that signalled them.
+ */
+public final class MemoryBudget {
+
+  /** How hard consumers should shrink. Each tier includes the cuts of the ones before. */
+  public enum Pressure {
+    NONE,
+    /** Consumers keep half of their usual capacity. */
+    MODERATE,
+    /** Consumers keep a quarter of their usual capacity. */
+    HIGH,
+    /** Consumers drop all they can do without. */
+    CRITICAL;
+
+    /** Scales a consumer's usual capacity for this tier. */
+    public long scale(long capacity) {
+      switch (this) {
+        case MODERATE:
+          return capacity / 2;
+        case HIGH:
+          return capacity / 4;
+        case CRITICAL:
+          return 0;
+        default:
+          return capacity;
+      }
+    }
+  }
+
+  /** Holds memory that it can give back under pressure. */
+  public interface Consumer {
+    /** Returns how many bytes the consumer holds. Called from any thread. */
+    long getSizeBytes();
+
+    /** Shrinks to, or grows back to, the capacity for the given tier. */
+    void onPressureChanged(Pressure pressure);
+  }
+
+  /** Told every change of the pressure tier. */
+  public interface Listener {
+    void onPressureChanged(Pressure pressure, String reason);
+  }
+
+  /** How long no pressure has to be signalled before it falls by one tier. */
+  static final long RELIEF_NANOS = 60_000_000_000L;
+  // The available memory under which pressure is judged moderate, as a multiple of the threshold
+  // at which the platform considers memory low.
+  private static final int MODERATE_AVAILABLE_THRESHOLDS = 2;
+
+  // Trim levels, as in android.content.ComponentCallbacks2.
+  private static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+  private static final int TRIM_MEMORY_RUNNING_LOW = 10;
+  private static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+  private static final int TRIM_MEMORY_UI_HIDDEN = 20;
+  private static final int TRIM_MEMORY_BACKGROUND = 40;
+  private static final int TRIM_MEMORY_MODERATE = 60;
+
+  private final long budgetBytes;
+  private final Listener listener;
+  private final Map<String, Consumer> consumers = new LinkedHashMap<>();
+
+  private Pressure pressure = Pressure.NONE;
+  private long lastPressureNanos;
+
+  /**
+   * @param budgetBytes the footprint that the consumers should keep to without pressure. It is
+   *     reported with their sizes, and is for the owner to split among the consumers.
+   */
+  public MemoryBudget(long budgetBytes, Listener listener) {
+    this.budgetBytes = budgetBytes;
+    this.listener = listener;
+  }
+
+  /** Maps a platform trim level, such as {@code TRIM_MEMORY_RUNNING_LOW}, to a pressure tier. */
+  public static Pressure pressureForTrimLevel(int trimLevel) {
+    if (trimLevel >= TRIM_MEMORY_MODERATE) {
+      // The app is next in line to be killed, so give back all it can.
+      return Pressure.CRITICAL;
+    } else if (trimLevel >= TRIM_MEMORY_BACKGROUND) {
+      return Pressure.HIGH;
+    } else if (trimLevel >= TRIM_MEMORY_UI_HIDDEN) {
+      // Nothing is shown, but the session may be resumed shortly.
+      return Pressure.MODERATE;
+    } else if (trimLevel >= TRIM_MEMORY_RUNNING_CRITICAL) {
+      return Pressure.CRITICAL;
+    } else if (trimLevel >= TRIM_MEMORY_RUNNING_LOW) {
+      return Pressure.HIGH;
+    } else if (trimLevel >= TRIM_MEMORY_RUNNING_MODERATE) {
+      return Pressure.MODERATE;
+    }
+    return Pressure.NONE;
+  }
+
+  /** Tracks a consumer under the given name, and tells it the current tier. */
+  public void register(String name, Consumer consumer) {
+    Pressure current;
+    synchronized (this) {
+      consumers.put(name, consumer);
+      current = pressure;
+    }
+    consumer.onPressureChanged(current);
+  }
+
+  /**
+   * Stops tracking the consumer. Does nothing if another consumer was registered under the name
+   * since, such as by the next session.
+   */
+  public synchronized void unregister(String name, Consumer consumer) {
+    // Not Map.remove(key, value), which Android only has from API 24.
+    if (consumers.get(name) == consumer) {
+      consumers.remove(name);
+    }
+  }
+
+  /**
+   * Signals pressure of the given tier, such as from a platform trim callback. Raises the current
+   * tier if it is lower, and holds it otherwise.
+   */
+  public void onPressure(long nowNanos, Pressure signalled, String reason) {
+    if (signalled == Pressure.NONE) {
+      return;
+    }
+    List<Consumer> notified;
+    synchronized (this) {
+      if (signalled.compareTo(pressure) >= 0) {
+        lastPressureNanos = nowNanos;
+      }
+      if (signalled.compareTo(pressure) <= 0) {
+        return;
+      }
+      reason = String.format(Locale.US, "%s -> %s. %s", pressure, signalled, reason);
+      pressure = signalled;
+      notified = new ArrayList<>(consumers.values());
+    }
+    notifyConsumers(notified, signalled, reason);
+  }
+
+  /**
+   * Judges the available memory, as reported by the platform, and lowers the tier by one if no
+   * pressure was signalled for {@link #RELIEF_NANOS}.
+   *
+   * @param nowNanos the current time, from {@link System#nanoTime}.
+   * @param availableBytes the memory available to the system.
+   * @param thresholdBytes the available memory under which the system considers memory low.
+   * @param lowMemory whether the system considers memory low.
+   */
+  public void update(long nowNanos, long availableBytes, long thresholdBytes, boolean lowMemory) {
+    String availability =
+        String.format(
+            Locale.US,
+            "Available memory %dMB, low at %dMB",
+            availableBytes >> 20,
+            thresholdBytes >> 20);
+    if (lowMemory) {
+      onPressure(nowNanos, Pressure.HIGH, availability);
+      return;
+    } else if (availableBytes < MODERATE_AVAILABLE_THRESHOLDS * thresholdBytes) {
+      onPressure(nowNanos, Pressure.MODERATE, availability);
+      return;
+    }
+    Pressure relieved;
+    String reason;
+    List<Consumer> notified;
+    synchronized (this) {
+      if (pressure == Pressure.NONE || nowNanos - lastPressureNanos < RELIEF_NANOS) {
+        return;
+      }
+      relieved = Pressure.values()[pressure.ordinal() - 1];
+      reason = String.format(Locale.US, "%s -> %s. %s", pressure, relieved, availability);
+      pressure = relieved;
+      // The next step down needs another relief period.
+      lastPressureNanos = nowNanos;
+      notified = new ArrayList<>(consumers.values());
+    }
+    notifyConsumers(notified, relieved, reason);
+  }
+
+  public synchronized Pressure getPressure() {
+    return pressure;
+  }
+
+  public long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  /** Returns how many bytes the consumers hold in total. */
+  public long getTrackedBytes() {
+    long trackedBytes = 0;
+    for (long sizeBytes : getSizesBytes().values()) {
+      trackedBytes += sizeBytes;
+    }
+    return trackedBytes;
+  }
+
+  /** Returns how many bytes each consumer holds, by name, in the order they were registered. */
+  public Map<String, Long> getSizesBytes() {
+    Map<String, Consumer> tracked;
+    synchronized (this) {
+      tracked = new LinkedHashMap<>(consumers);
+    }
+    Map<String, Long> sizesBytes = new LinkedHashMap<>();
+    for (Map.Entry<String, Consumer> consumer : tracked.entrySet()) {
+      sizesBytes.put(consumer.getKey(), consumer.getValue().getSizeBytes());
+    }
+    return sizesBytes;
+  }
+
+  private void notifyConsumers(List<Consumer> notified, Pressure newPressure, String reason) {
+    for (Consumer consumer : notified) {
+      consumer.onPressureChanged(newPressure);
+    }
+    listener.onPressureChanged(newPressure, reason);
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Latency histograms for each stage of processing a frame, and the frame rate.
+ *
+ * <p>This class is thread safe, so stages running on different threads can record into it.
+ */
+public final class FrameMetrics {
+
+  /** The stages a frame goes through, and the frame as a whole. */
+  public enum Stage {
+    /** Converting the camera frame into a bitmap to draw. */
+    CONVERSION,
+    /** Running the detector. */
+    DETECTION,
+    /** Work on the detection results, such as pose classification. */
+    POST_PROCESSING,
+    /** Building the overlay graphics for the results. */
+    OVERLAY_BUILD,
+    /** Drawing the overlay. */
+    DRAW,
+    /** From receiving the frame to showing its results. */
+    FRAME
+  }
+
+  private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+  private final FrameRateMeter frameRateMeter = new FrameRateMeter();
+
+  public FrameMetrics() {
+    for (Stage stage : Stage.values()) {
+      histograms.put(stage, new LatencyHistogram());
+    }
+  }
+
+  public void record(Stage stage, long latencyNanos) {
+    histograms.get(stage).recordNanos(latencyNanos);
+  }
+
+  public LatencyHistogram getHistogram(Stage stage) {
+    return histograms.get(stage);
+  }
+
+  /** Records that the results of a frame were shown at {@code timestampNanos}. */
+  public void onFrameShown(long timestampNanos) {
+    frameRateMeter.onFrame(timestampNanos);
+  }
+
+  /** Returns the frame rate over the last second before {@code nowNanos}. */
+  public float getFramesPerSecond(long nowNanos) {
+    return frameRateMeter.getFramesPerSecond(nowNanos);
+  }
+
+  public void reset() {
+    for (LatencyHistogram histogram : histograms.values()) {
+      histogram.reset();
+    }
+    frameRateMeter.reset();
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.metrics;
+
+/**
+ * Derives the frame rate from the timestamps of the most recent frames, rather than from a counter
+ * reset by a timer.
+ *
+ * <p>The rate is taken over the frames of the last second, so it follows changes quickly and drops
+ * to 0 once frames stop coming. This class is thread safe.
+ */
+public final class FrameRateMeter {
+
+  private static final long WINDOW_NANOS = 1_000_000_000L;
+  // Enough for the last second of frames at up to 120 fps.
+  private static final int MAX_FRAMES = 128;
+
+  private final long[] timestamps = new long[MAX_FRAMES];
+  private int newest = -1;
+  private int size;
+
+  /** Records a frame finished at {@code timestampNanos}, from {@link System#nanoTime}. */
+  public synchronized void onFrame(long timestampNanos) {
+    newest = (newest + 1) % MAX_FRAMES;
+    timestamps[newest] = timestampNanos;
+    size = Math.min(size + 1, MAX_FRAMES);
+  }
+
+  /** Returns the frame rate over the frames of the second before {@code nowNanos}. */
+  public synchronized float getFramesPerSecond(long nowNanos) {
+    int frames = 0;
+    long oldestTimestamp = 0;
+    for (int i = 0; i < size; i++) {
+      long timestamp = timestamps[(newest - i + MAX_FRAMES) % MAX_FRAMES];
+      if (nowNanos - timestamp > WINDOW_NANOS) {
+        break;
+      }
+      oldestTimestamp = timestamp;
+      frames++;
+    }
+    if (frames < 2) {
+      return 0f;
+    }
+    long span = timestamps[newest] - oldestTimestamp;
+    return span > 0 ? (frames - 1) * 1e9f / span : 0f;
+  }
+
+  public synchronized void reset() {
+    newest = -1;
+    size = 0;
+  }
+}
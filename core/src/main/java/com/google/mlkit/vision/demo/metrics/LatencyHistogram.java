@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.metrics;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A histogram of latencies with logarithmic buckets, for percentiles that show the tail latency an
+ * average hides.
+ *
+ * <p>Latencies are kept in microseconds, exactly below 8 and otherwise in 8 buckets per power of
+ * two, so percentiles are within 12.5% of the recorded values. Memory stays constant however many
+ * latencies are recorded. This class is thread safe.
+ */
+public final class LatencyHistogram {
+
+  // Bucket index bits below the leading one bit of a value.
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // Latencies above 2^36 microseconds, about 19 hours, share the last bucket.
+  private static final int MAX_EXPONENT = 36;
+  private static final int NUM_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final long[] counts = new long[NUM_BUCKETS];
+  private long count;
+  private long totalMicros;
+  private long minMicros = Long.MAX_VALUE;
+  private long maxMicros;
+
+  /** Records a latency. Negative latencies, as from a clock going backwards, count as 0. */
+  public synchronized void recordNanos(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    counts[bucketOf(micros)]++;
+    count++;
+    totalMicros += micros;
+    minMicros = Math.min(minMicros, micros);
+    maxMicros = Math.max(maxMicros, micros);
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  /** Returns the smallest recorded latency, or 0 if none was recorded. */
+  public synchronized long getMinNanos() {
+    return count > 0 ? minMicros * 1000 : 0;
+  }
+
+  /** Returns the largest recorded latency, or 0 if none was recorded. */
+  public synchronized long getMaxNanos() {
+    return maxMicros * 1000;
+  }
+
+  /** Returns the mean of the recorded latencies, or 0 if none was recorded. */
+  public synchronized long getMeanNanos() {
+    return count > 0 ? totalMicros * 1000 / count : 0;
+  }
+
+  /**
+   * Returns the latency that {@code percentile} percent of the recorded latencies are at or below,
+   * rounded up to the end of its bucket but never above the largest recorded latency. Returns 0 if
+   * none was recorded.
+   *
+   * @param percentile from 0 to 100.
+   */
+  public synchronized long getPercentileNanos(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile out of range: " + percentile);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+      seen += counts[bucket];
+      if (seen >= rank) {
+        return Math.min(bucketEnd(bucket), maxMicros) * 1000;
+      }
+    }
+    return maxMicros * 1000;
+  }
+
+  /** Adds the latencies recorded in {@code other} to this histogram. */
+  public void add(LatencyHistogram other) {
+    long[] otherCounts;
+    long otherCount;
+    long otherTotal;
+    long otherMin;
+    long otherMax;
+    synchronized (other) {
+      otherCounts = other.counts.clone();
+      otherCount = other.count;
+      otherTotal = other.totalMicros;
+      otherMin = other.minMicros;
+      otherMax = other.maxMicros;
+    }
+    synchronized (this) {
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        counts[i] += otherCounts[i];
+      }
+      count += otherCount;
+      totalMicros += otherTotal;
+      minMicros = Math.min(minMicros, otherMin);
+      maxMicros = Math.max(maxMicros, otherMax);
+    }
+  }
+
+  public synchronized void reset() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    totalMicros = 0;
+    minMicros = Long.MAX_VALUE;
+    maxMicros = 0;
+  }
+
+  /** Returns the count and the p50, p90, p99 and max latencies in milliseconds. */
+  @Override
+  public synchronized String toString() {
+    return String.format(
+        Locale.US,
+        "n=%d p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+        count,
+        getPercentileNanos(50) / 1e6,
+        getPercentileNanos(90) / 1e6,
+        getPercentileNanos(99) / 1e6,
+        getMaxNanos() / 1e6);
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+    if (exponent == MAX_EXPONENT && micros >= (2L << MAX_EXPONENT)) {
+      return NUM_BUCKETS - 1;
+    }
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Returns the largest value in {@code bucket}. */
+  static long bucketEnd(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    int shift = exponent - SUB_BUCKET_BITS;
+    return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.metrics;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects the metrics of a session into {@link MetricsSnapshot}s: the stage latencies and frame
+ * rate of a {@link FrameMetrics}, labels describing the session, and gauges sampled at each
+ * snapshot.
+ *
+ * <p>This class is thread safe. Snapshots are usually taken on a background thread, so gauges must
+ * be safe to sample from any thread.
+ */
+public final class MetricsRegistry {
+
+  /** Samples the current values of some metrics, such as counters or sensor readings. */
+  public interface Gauge {
+    /** Puts the current values into {@code values}, keyed by metric name. */
+    void sample(Map<String, Double> values);
+  }
+
+  private final FrameMetrics frameMetrics;
+  private final Map<String, String> labels = new ConcurrentHashMap<>();
+  private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+  public MetricsRegistry(FrameMetrics frameMetrics) {
+    this.frameMetrics = frameMetrics;
+  }
+
+  public FrameMetrics getFrameMetrics() {
+    return frameMetrics;
+  }
+
+  /** Sets a label, such as the device model or app version, included in every snapshot. */
+  public void putLabel(String name, String value) {
+    labels.put(name, value);
+  }
+
+  public void addGauge(Gauge gauge) {
+    gauges.add(gauge);
+  }
+
+  public void removeGauge(Gauge gauge) {
+    gauges.remove(gauge);
+  }
+
+  /**
+   * Takes a snapshot of all metrics.
+   *
+   * @param timestampMs the wall clock time to record the snapshot at.
+   * @param nowNanos the current time from {@link System#nanoTime}, for the frame rate.
+   */
+  public MetricsSnapshot snapshot(long timestampMs, long nowNanos) {
+    Map<FrameMetrics.Stage, LatencyHistogram> histograms = new EnumMap<>(FrameMetrics.Stage.class);
+    for (FrameMetrics.Stage stage : FrameMetrics.Stage.values()) {
+      LatencyHistogram copy = new LatencyHistogram();
+      copy.add(frameMetrics.getHistogram(stage));
+      histograms.put(stage, copy);
+    }
+    Map<String, Double> values = new HashMap<>();
+    for (Gauge gauge : gauges) {
+      gauge.sample(values);
+    }
+    return new MetricsSnapshot(
+        timestampMs, frameMetrics.getFramesPerSecond(nowNanos), histograms, labels, values);
+  }
+}
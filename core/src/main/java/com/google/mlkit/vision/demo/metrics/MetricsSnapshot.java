@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The metrics of a session at one point in time, as written to a file for offline analysis.
+ *
+ * <p>A snapshot is written either as one line of JSON, or as CSV rows of {@code
+ * timestamp_ms,metric,value}. The long CSV form keeps its columns fixed even though the gauges,
+ * such as the temperature sensors, differ between devices.
+ */
+public final class MetricsSnapshot {
+
+  /** The file formats a snapshot can be written in. */
+  public enum Format {
+    JSON(".jsonl"),
+    CSV(".csv");
+
+    private final String fileExtension;
+
+    Format(String fileExtension) {
+      this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+      return fileExtension;
+    }
+  }
+
+  /** The header line of a CSV file of snapshots. */
+  public static final String CSV_HEADER = "timestamp_ms,metric,value\n";
+
+  private final long timestampMs;
+  private final float framesPerSecond;
+  private final Map<FrameMetrics.Stage, LatencyHistogram> histograms;
+  private final SortedMap<String, String> labels;
+  private final SortedMap<String, Double> gauges;
+
+  MetricsSnapshot(
+      long timestampMs,
+      float framesPerSecond,
+      Map<FrameMetrics.Stage, LatencyHistogram> histograms,
+      Map<String, String> labels,
+      Map<String, Double> gauges) {
+    this.timestampMs = timestampMs;
+    this.framesPerSecond = framesPerSecond;
+    this.histograms = Collections.unmodifiableMap(new EnumMap<>(histograms));
+    this.labels = Collections.unmodifiableSortedMap(new TreeMap<>(labels));
+    this.gauges = Collections.unmodifiableSortedMap(new TreeMap<>(gauges));
+  }
+
+  /** Returns the wall clock time the snapshot was taken at, in milliseconds since the epoch. */
+  public long getTimestampMs() {
+    return timestampMs;
+  }
+
+  public float getFramesPerSecond() {
+    return framesPerSecond;
+  }
+
+  /** Returns a copy of the latencies recorded for {@code stage} up to the snapshot. */
+  public LatencyHistogram getHistogram(FrameMetrics.Stage stage) {
+    return histograms.get(stage);
+  }
+
+  public SortedMap<String, String> getLabels() {
+    return labels;
+  }
+
+  public SortedMap<String, Double> getGauges() {
+    return gauges;
+  }
+
+  /** Returns the snapshot in the given format, ending with a line break. */
+  public String format(Format format) {
+    return format == Format.JSON ? toJson() : toCsvRows();
+  }
+
+  /** Returns the snapshot as a single line of JSON, ending with a line break. */
+  public String toJson() {
+    StringBuilder json = new StringBuilder(1024);
+    json.append("{\"timestamp_ms\":").append(timestampMs);
+    json.append(",\"labels\":{");
+    boolean first = true;
+    for (Map.Entry<String, String> label : labels.entrySet()) {
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      appendJsonString(json, label.getKey());
+      json.append(':');
+      appendJsonString(json, label.getValue());
+    }
+    json.append("},\"fps\":");
+    appendJsonNumber(json, framesPerSecond);
+    json.append(",\"stages\":{");
+    first = true;
+    for (Map.Entry<FrameMetrics.Stage, LatencyHistogram> stage : histograms.entrySet()) {
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      LatencyHistogram histogram = stage.getValue();
+      appendJsonString(json, stage.getKey().name());
+      json.append(":{\"count\":").append(histogram.getCount());
+      json.append(",\"mean_ms\":").append(toMillis(histogram.getMeanNanos()));
+      json.append(",\"p50_ms\":").append(toMillis(histogram.getPercentileNanos(50)));
+      json.append(",\"p90_ms\":").append(toMillis(histogram.getPercentileNanos(90)));
+      json.append(",\"p99_ms\":").append(toMillis(histogram.getPercentileNanos(99)));
+      json.append(",\"max_ms\":").append(toMillis(histogram.getMaxNanos()));
+      json.append('}');
+    }
+    json.append("},\"gauges\":{");
+    first = true;
+    for (Map.Entry<String, Double> gauge : gauges.entrySet()) {
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      appendJsonString(json, gauge.getKey());
+      json.append(':');
+      appendJsonNumber(json, gauge.getValue());
+    }
+    return json.append("}}\n").toString();
+  }
+
+  /** Returns the snapshot as CSV rows of {@link #CSV_HEADER}, each ending with a line break. */
+  public String toCsvRows() {
+    StringBuilder csv = new StringBuilder(2048);
+    for (Map.Entry<String, String> label : labels.entrySet()) {
+      appendCsvRow(csv, "label." + label.getKey(), label.getValue());
+    }
+    appendCsvRow(csv, "fps", formatNumber(framesPerSecond));
+    for (Map.Entry<FrameMetrics.Stage, LatencyHistogram> stage : histograms.entrySet()) {
+      String prefix = "stage." + stage.getKey().name() + ".";
+      LatencyHistogram histogram = stage.getValue();
+      appendCsvRow(csv, prefix + "count", String.valueOf(histogram.getCount()));
+      appendCsvRow(csv, prefix + "mean_ms", toMillis(histogram.getMeanNanos()));
+      appendCsvRow(csv, prefix + "p50_ms", toMillis(histogram.getPercentileNanos(50)));
+      appendCsvRow(csv, prefix + "p90_ms", toMillis(histogram.getPercentileNanos(90)));
+      appendCsvRow(csv, prefix + "p99_ms", toMillis(histogram.getPercentileNanos(99)));
+      appendCsvRow(csv, prefix + "max_ms", toMillis(histogram.getMaxNanos()));
+    }
+    for (Map.Entry<String, Double> gauge : gauges.entrySet()) {
+      appendCsvRow(csv, gauge.getKey(), formatNumber(gauge.getValue()));
+    }
+    return csv.toString();
+  }
+
+  private void appendCsvRow(StringBuilder csv, String metric, String value) {
+    csv.append(timestampMs).append(',');
+    appendCsvField(csv, metric);
+    csv.append(',');
+    appendCsvField(csv, value);
+    csv.append('\n');
+  }
+
+  private static void appendCsvField(StringBuilder csv, String field) {
+    if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+      csv.append(field);
+      return;
+    }
+    csv.append('"').append(field.replace("\"", "\"\"")).append('"');
+  }
+
+  private static void appendJsonString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format(Locale.US, "\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+
+  // JSON has no NaN or infinity, so those are written as null.
+  private static void appendJsonNumber(StringBuilder json, double value) {
+    json.append(isFinite(value) ? formatNumber(value) : "null");
+  }
+
+  private static String formatNumber(double value) {
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return String.valueOf((long) value);
+    }
+    return isFinite(value) ? String.format(Locale.US, "%.3f", value) : "";
+  }
+
+  private static boolean isFinite(double value) {
+    return !Double.isNaN(value) && !Double.isInfinite(value);
+  }
+
+  private static String toMillis(long nanos) {
+    return String.format(Locale.US, "%.3f", nanos / 1e6);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bounded pool of reusable buffers, keyed by their size.
+ *
+ * <p>Released items are kept until the total size of the pooled items exceeds the byte budget, in
+ * which case the least recently released items are dropped. Frames of the same size come in bursts,
+ * so the pool only ever holds a handful of items and a linear scan is cheaper than a map.
+ *
+ * <p>This class is thread safe. Callers must not touch an item after releasing it.
+ *
+ * @param <T> The type of the pooled items.
+ */
+public final class SizeKeyedPool<T> {
+
+  /** Returns how many bytes of memory an item keeps alive. */
+  public interface SizeOf<T> {
+    long sizeOf(T item);
+  }
+
+  private static final class Entry<T> {
+    final long key;
+    final T item;
+    final long sizeBytes;
+
+    Entry(long key, T item, long sizeBytes) {
+      this.key = key;
+      this.item = item;
+      this.sizeBytes = sizeBytes;
+    }
+  }
+
+  private final SizeOf<T> sizeOf;
+  // Ordered from least to most recently released.
+  private final List<Entry<T>> entries = new ArrayList<>();
+
+  private long maxSizeBytes;
+  private long sizeBytes;
+  private long hits;
+  private long misses;
+
+  public SizeKeyedPool(long maxSizeBytes, SizeOf<T> sizeOf) {
+    this.maxSizeBytes = maxSizeBytes;
+    this.sizeOf = sizeOf;
+  }
+
+  /**
+   * Returns a pooled item with the given key, or null if there is none and the caller has to
+   * allocate a new one.
+   */
+  public synchronized T acquire(long key) {
+    // Prefer the most recently released item, which is the most likely to still be in cache.
+    for (int i = entries.size() - 1; i >= 0; i--) {
+      Entry<T> entry = entries.get(i);
+      if (entry.key == key) {
+        entries.remove(i);
+        sizeBytes -= entry.sizeBytes;
+        hits++;
+        return entry.item;
+      }
+    }
+    misses++;
+    return null;
+  }
+
+  /** Returns an item to the pool. Releasing an item that is already pooled is a no-op. */
+  public synchronized void release(long key, T item) {
+    for (int i = 0; i < entries.size(); i++) {
+      if (entries.get(i).item == item) {
+        return;
+      }
+    }
+    long itemSizeBytes = sizeOf.sizeOf(item);
+    if (itemSizeBytes > maxSizeBytes) {
+      return;
+    }
+    entries.add(new Entry<>(key, item, itemSizeBytes));
+    sizeBytes += itemSizeBytes;
+    trimToSize(maxSizeBytes);
+  }
+
+  /** Changes the byte budget of the pool, dropping pooled items if needed. */
+  public synchronized void setMaxSizeBytes(long maxSizeBytes) {
+    this.maxSizeBytes = maxSizeBytes;
+    trimToSize(maxSizeBytes);
+  }
+
+  /** Drops the least recently released items until the pool holds at most {@code size} bytes. */
+  public synchronized void trimToSize(long size) {
+    while (sizeBytes > size && !entries.isEmpty()) {
+      sizeBytes -= entries.remove(0).sizeBytes;
+    }
+  }
+
+  /** Drops all pooled items. */
+  public synchronized void clear() {
+    trimToSize(0);
+  }
+
+  public synchronized long getSizeBytes() {
+    return sizeBytes;
+  }
+
+  public synchronized long getMaxSizeBytes() {
+    return maxSizeBytes;
+  }
+
+  public synchronized int getPooledCount() {
+    return entries.size();
+  }
+
+  /** Returns how many acquisitions were served from the pool. */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /** Returns how many acquisitions found no pooled item and had to allocate. */
+  public synchronized long getMisses() {
+    return misses;
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.runtime;
+
+import com.google.mlkit.vision.demo.metrics.MetricsRegistry;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The threads that the frame pipeline runs its own work on, shared by all processors and camera
+ * sources rather than created by each of them.
+ *
+ * <p>Work is split into {@link Lane}s, each with a fixed number of named threads at a priority
+ * suited to it, and a bounded queue: work offered to a full lane is rejected rather than piling up.
+ * Threads are started on demand and stop once idle for a few seconds, so the runtime costs nothing
+ * while no session runs. Owners that need their work done in order, such as a classifier that is
+ * only touched from one thread, take a {@link SerialExecutor} on a lane and shut it down when they
+ * stop. Periodic work is timed by one scheduler thread and run on a lane.
+ *
+ * <p>This class is thread safe. It samples the threads and queues of each lane as metrics.
+ */
+public final class ProcessingRuntime implements MetricsRegistry.Gauge {
+
+  /** Sets the priority of a runtime thread, from the thread itself, as it starts. */
+  public interface PrioritySetter {
+    void setThreadPriority(Lane lane);
+  }
+
+  /** A kind of work, with the threads and queue it runs on. */
+  public enum Lane {
+    /** Feeds camera frames to the detectors. Latency critical, so it runs above normal. */
+    DETECTION("detection", 2, 4, -4),
+    /** Converts camera frames for display, split across cores. */
+    CONVERSION(
+        "conversion",
+        Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1)),
+        16,
+        -2),
+    /** Classifies and otherwise post-processes detections. */
+    CLASSIFICATION("classification", 2, 16, 0),
+    /** Writes recordings and metrics to storage, in the background. */
+    IO("io", 3, 16, 10);
+
+    private final String name;
+    private final int maxThreads;
+    private final int queueCapacity;
+    private final int nicePriority;
+
+    Lane(String name, int maxThreads, int queueCapacity, int nicePriority) {
+      this.name = name;
+      this.maxThreads = maxThreads;
+      this.queueCapacity = queueCapacity;
+      this.nicePriority = nicePriority;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getMaxThreads() {
+      return maxThreads;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    /** Returns the priority of the lane's threads, as a Linux nice value: lower runs sooner. */
+    public int getNicePriority() {
+      return nicePriority;
+    }
+  }
+
+  // Idle threads stop after this long, so a stopped session leaves no threads behind.
+  private static final long KEEP_ALIVE_SECONDS = 5;
+
+  private final Map<Lane, ThreadPoolExecutor> pools = new EnumMap<>(Lane.class);
+  private final Map<Lane, AtomicLong> rejectedTasks = new EnumMap<>(Lane.class);
+  private final ScheduledThreadPoolExecutor scheduler;
+
+  public ProcessingRuntime(PrioritySetter prioritySetter) {
+    for (Lane lane : Lane.values()) {
+      AtomicLong rejected = new AtomicLong();
+      AtomicInteger threadCount = new AtomicInteger();
+      ThreadPoolExecutor pool =
+          new ThreadPoolExecutor(
+              lane.maxThreads,
+              lane.maxThreads,
+              KEEP_ALIVE_SECONDS,
+              TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(lane.queueCapacity),
+              runnable -> {
+                Thread thread =
+                    new Thread(
+                        () -> {
+                          prioritySetter.setThreadPriority(lane);
+                          runnable.run();
+                        },
+                        "Processing-" + lane.name + "-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              },
+              (runnable, executor) -> {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(
+                    "The " + lane.name + " lane is full or shut down");
+              });
+      pool.allowCoreThreadTimeOut(true);
+      pools.put(lane, pool);
+      rejectedTasks.put(lane, rejected);
+    }
+    scheduler =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, "Processing-scheduler");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    scheduler.allowCoreThreadTimeOut(true);
+    scheduler.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * Returns the executor of a lane. Its tasks may run in any order and at the same time; it rejects
+   * tasks with a {@link RejectedExecutionException} once its queue is full.
+   */
+  public Executor getExecutor(Lane lane) {
+    return pools.get(lane);
+  }
+
+  /** Runs a task on a lane, and returns a future that completes once it ran. */
+  public Future<?> submit(Lane lane, Runnable task) {
+    return pools.get(lane).submit(task);
+  }
+
+  /** Returns a new executor that runs its tasks on a lane one at a time, in order. */
+  public SerialExecutor newSerialExecutor(Lane lane) {
+    return new SerialExecutor(pools.get(lane), lane.queueCapacity);
+  }
+
+  /**
+   * Runs a task on an executor at a fixed rate, until the returned future is cancelled. A run that
+   * the executor rejects is skipped.
+   */
+  public ScheduledFuture<?> scheduleAtFixedRate(
+      Executor executor, Runnable task, long periodMs) {
+    return scheduler.scheduleAtFixedRate(
+        () -> {
+          try {
+            executor.execute(task);
+          } catch (RejectedExecutionException e) {
+            // The next run will try again.
+          }
+        },
+        periodMs,
+        periodMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops taking work, and lets the queued work finish in the background. The runtime shared by
+   * the app lives as long as the process, so this is for runtimes created for a shorter purpose.
+   */
+  public void shutdown() {
+    scheduler.shutdown();
+    for (ThreadPoolExecutor pool : pools.values()) {
+      pool.shutdown();
+    }
+  }
+
+  @Override
+  public void sample(Map<String, Double> values) {
+    for (Lane lane : Lane.values()) {
+      ThreadPoolExecutor pool = pools.get(lane);
+      String prefix = "runtime." + lane.name + ".";
+      values.put(prefix + "threads", (double) pool.getPoolSize());
+      values.put(prefix + "active", (double) pool.getActiveCount());
+      values.put(prefix + "queued", (double) pool.getQueue().size());
+      values.put(prefix + "completed", (double) pool.getCompletedTaskCount());
+      values.put(prefix + "rejected", (double) rejectedTasks.get(lane).get());
+    }
+  }
+
+  /** Describes the threads and queue of each lane, for logging. */
+  @Override
+  public String toString() {
+    StringBuilder description = new StringBuilder();
+    for (Lane lane : Lane.values()) {
+      ThreadPoolExecutor pool = pools.get(lane);
+      if (description.length() > 0) {
+        description.append(", ");
+      }
+      description.append(
+          String.format(
+              Locale.US,
+              "%s: %d/%d active, %d queued, %d rejected",
+              lane.name,
+              pool.getActiveCount(),
+              pool.getPoolSize(),
+              pool.getQueue().size(),
+              rejectedTasks.get(lane).get()));
+    }
+    return description.toString();
+  }
+}
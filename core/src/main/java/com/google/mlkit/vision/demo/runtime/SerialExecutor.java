@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.runtime;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs tasks one at a time, in the order they were submitted, on the threads of a shared executor.
+ *
+ * <p>Owners such as a processor get their own serial executor on a {@link ProcessingRuntime} lane
+ * instead of their own thread, so state confined to it needs no locking, and nothing is left
+ * running once the owner {@link #shutdown shuts it down}. Each task is handed to the shared
+ * executor separately, so several serial executors on one lane take turns.
+ *
+ * <p>At most the given number of tasks wait at a time; more are rejected with a {@link
+ * RejectedExecutionException}, as are tasks submitted after shutdown and tasks the shared executor
+ * turns down while this one is idle. Submitters such as a {@link
+ * com.google.mlkit.vision.demo.scheduler.PipelineStage} then drop their work, rather than running
+ * it on their own thread. Once a task was accepted it runs, on the thread of the task before it if
+ * the shared executor turns it down, which is one of the shared executor's threads already. The
+ * shared executor must run tasks on threads of its own. This class is thread safe.
+ */
+public final class SerialExecutor implements Executor {
+
+  private final Executor delegate;
+  private final int capacity;
+  private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+  private boolean running;
+  private boolean shutdown;
+  private long rejectedTasks;
+
+  public SerialExecutor(Executor delegate, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    this.delegate = delegate;
+    this.capacity = capacity;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    synchronized (this) {
+      if (shutdown) {
+        rejectedTasks++;
+        throw new RejectedExecutionException("Executor is shut down");
+      }
+      if (tasks.size() >= capacity) {
+        rejectedTasks++;
+        throw new RejectedExecutionException("Too many tasks waiting");
+      }
+      tasks.add(task);
+      if (running) {
+        return;
+      }
+      // Handed over under the lock, so no other task is queued behind one that is turned down.
+      try {
+        delegate.execute(this::runNext);
+      } catch (RejectedExecutionException e) {
+        // Nothing else waits while the executor is idle.
+        tasks.clear();
+        rejectedTasks++;
+        throw e;
+      }
+      running = true;
+    }
+  }
+
+  /** Rejects new tasks. The tasks already submitted still run. */
+  public synchronized void shutdown() {
+    shutdown = true;
+  }
+
+  public synchronized boolean isShutdown() {
+    return shutdown;
+  }
+
+  /** Returns whether a task is running or waiting. */
+  public synchronized boolean isBusy() {
+    return running;
+  }
+
+  public synchronized int getWaitingTasks() {
+    return tasks.size();
+  }
+
+  public synchronized long getRejectedTasks() {
+    return rejectedTasks;
+  }
+
+  private void runNext() {
+    RuntimeException failure = null;
+    boolean runNextHere;
+    do {
+      Runnable task;
+      synchronized (this) {
+        task = tasks.poll();
+      }
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        // Thrown once the tasks behind it are on their way, so they don't stall.
+        if (failure == null) {
+          failure = e;
+        }
+      }
+      runNextHere = handOverNext();
+    } while (runNextHere);
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Marks the executor idle if no task waits, and hands the next one to the shared executor
+   * otherwise. Returns true if the shared executor turned it down, so that the calling thread,
+   * which is one of its own, runs it.
+   */
+  private synchronized boolean handOverNext() {
+    if (tasks.isEmpty()) {
+      running = false;
+      return false;
+    }
+    try {
+      delegate.execute(this::runNext);
+      return false;
+    } catch (RejectedExecutionException e) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides which of the frames arriving from a camera or video source get processed, and when.
+ *
+ * <p>Frames are {@link #submit submitted} as they arrive and wait until fewer than the maximum
+ * number of frames are in flight. When frames arrive faster than they are processed, the {@link
+ * Policy} decides which ones are dropped. Every submitted frame is either {@link Frame#process
+ * processed} or {@link Frame#drop dropped} exactly once, and processed frames must be reported with
+ * {@link #onFrameDone} once their results are in.
+ *
+ * <p>This class is thread safe. Frames are processed and dropped outside of its lock, on the thread
+ * that submitted a frame or reported one done.
+ */
+public final class FrameScheduler {
+
+  /** How frames are dropped when they arrive faster than they are processed. */
+  public enum Policy {
+    /** Keeps only the newest waiting frame, for the lowest latency. */
+    LATEST_ONLY,
+    /** Keeps up to the queue capacity of waiting frames, dropping the oldest when full. */
+    DROP_OLDEST,
+    /** Only admits every Nth submitted frame, and keeps the newest admitted one waiting. */
+    EVERY_NTH
+  }
+
+  /** A frame waiting to be processed. */
+  public interface Frame {
+    /** Starts processing the frame. {@link #onFrameDone} must be called once it finishes. */
+    void process();
+
+    /** Releases the frame without processing it. */
+    void drop();
+  }
+
+  private final ArrayDeque<Frame> waitingFrames = new ArrayDeque<>();
+  private final long[] droppedFrames = new long[Policy.values().length];
+
+  private Policy policy;
+  private int queueCapacity;
+  private int frameInterval;
+  private int maxFramesInFlight;
+  private int framesInFlight;
+  // Frames EVERY_NTH still skips before it admits the next one.
+  private int framesToSkip;
+  private long submittedFrames;
+  private long processedFrames;
+  private boolean closed;
+
+  /**
+   * Creates a scheduler, see {@link #configure} for the parameters.
+   *
+   * @throws IllegalArgumentException if any of the sizes is less than 1.
+   */
+  public FrameScheduler(
+      Policy policy, int queueCapacity, int frameInterval, int maxFramesInFlight) {
+    configure(policy, queueCapacity, frameInterval, maxFramesInFlight);
+  }
+
+  /** Creates a scheduler that processes one frame at a time and only keeps the newest waiting. */
+  public static FrameScheduler latestOnly() {
+    return new FrameScheduler(
+        Policy.LATEST_ONLY, /* queueCapacity= */ 1, /* frameInterval= */ 1,
+        /* maxFramesInFlight= */ 1);
+  }
+
+  /**
+   * Changes how frames are scheduled. Waiting frames that no longer fit are dropped.
+   *
+   * @param policy how frames are dropped when they arrive faster than they are processed.
+   * @param queueCapacity how many frames {@link Policy#DROP_OLDEST} keeps waiting.
+   * @param frameInterval N for {@link Policy#EVERY_NTH}.
+   * @param maxFramesInFlight how many frames may be processed concurrently.
+   * @throws IllegalArgumentException if any of the sizes is less than 1.
+   */
+  public void configure(
+      Policy policy, int queueCapacity, int frameInterval, int maxFramesInFlight) {
+    if (queueCapacity < 1 || frameInterval < 1 || maxFramesInFlight < 1) {
+      throw new IllegalArgumentException(
+          "Invalid scheduler sizes: queueCapacity=" + queueCapacity + ", frameInterval="
+              + frameInterval + ", maxFramesInFlight=" + maxFramesInFlight);
+    }
+    List<Frame> dropped;
+    synchronized (this) {
+      this.policy = policy;
+      this.queueCapacity = queueCapacity;
+      this.frameInterval = frameInterval;
+      this.maxFramesInFlight = maxFramesInFlight;
+      framesToSkip = 0;
+      dropped = trimWaitingFrames(null);
+    }
+    dropAll(dropped);
+    processWaitingFrames();
+  }
+
+  /** Hands a new frame to the scheduler, which processes or drops it, now or later. */
+  public void submit(Frame frame) {
+    List<Frame> dropped = null;
+    synchronized (this) {
+      if (closed) {
+        dropped = new ArrayList<>(1);
+        dropped.add(frame);
+      } else {
+        submittedFrames++;
+        if (policy == Policy.EVERY_NTH && framesToSkip > 0) {
+          framesToSkip--;
+          droppedFrames[policy.ordinal()]++;
+          dropped = new ArrayList<>(1);
+          dropped.add(frame);
+        } else {
+          framesToSkip = frameInterval - 1;
+          waitingFrames.addLast(frame);
+          dropped = trimWaitingFrames(dropped);
+        }
+      }
+    }
+    dropAll(dropped);
+    processWaitingFrames();
+  }
+
+  /** Reports that a frame handed to {@link Frame#process} has finished. */
+  public void onFrameDone() {
+    synchronized (this) {
+      if (framesInFlight > 0) {
+        framesInFlight--;
+      }
+    }
+    processWaitingFrames();
+  }
+
+  /** Drops the waiting frames, and every frame submitted from now on. */
+  public void close() {
+    List<Frame> dropped;
+    synchronized (this) {
+      closed = true;
+      dropped = new ArrayList<>(waitingFrames);
+      waitingFrames.clear();
+    }
+    dropAll(dropped);
+  }
+
+  public synchronized Policy getPolicy() {
+    return policy;
+  }
+
+  public synchronized int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public synchronized int getFrameInterval() {
+    return frameInterval;
+  }
+
+  public synchronized int getMaxFramesInFlight() {
+    return maxFramesInFlight;
+  }
+
+  /**
+   * Returns how many frames the scheduler may hold at once, waiting or in flight, which is how many
+   * buffers a source needs to keep feeding it.
+   */
+  public synchronized int getMaxHeldFrames() {
+    return getWaitingCapacity() + maxFramesInFlight;
+  }
+
+  public synchronized int getFramesInFlight() {
+    return framesInFlight;
+  }
+
+  public synchronized int getWaitingFrames() {
+    return waitingFrames.size();
+  }
+
+  public synchronized long getSubmittedFrames() {
+    return submittedFrames;
+  }
+
+  public synchronized long getProcessedFrames() {
+    return processedFrames;
+  }
+
+  /** Returns how many frames were dropped while {@code policy} was in effect. */
+  public synchronized long getDroppedFrames(Policy policy) {
+    return droppedFrames[policy.ordinal()];
+  }
+
+  /** Returns how many frames were dropped under any policy, not counting those after close. */
+  public synchronized long getDroppedFrames() {
+    long total = 0;
+    for (long dropped : droppedFrames) {
+      total += dropped;
+    }
+    return total;
+  }
+
+  private int getWaitingCapacity() {
+    return policy == Policy.DROP_OLDEST ? queueCapacity : 1;
+  }
+
+  /** Removes the oldest waiting frames beyond the capacity of the policy, and returns them. */
+  private List<Frame> trimWaitingFrames(List<Frame> dropped) {
+    int capacity = getWaitingCapacity();
+    while (waitingFrames.size() > capacity) {
+      if (dropped == null) {
+        dropped = new ArrayList<>(1);
+      }
+      dropped.add(waitingFrames.pollFirst());
+      droppedFrames[policy.ordinal()]++;
+    }
+    return dropped;
+  }
+
+  private static void dropAll(List<Frame> frames) {
+    if (frames == null) {
+      return;
+    }
+    for (Frame frame : frames) {
+      frame.drop();
+    }
+  }
+
+  private void processWaitingFrames() {
+    while (true) {
+      Frame next;
+      synchronized (this) {
+        if (closed || framesInFlight >= maxFramesInFlight) {
+          return;
+        }
+        next = waitingFrames.pollFirst();
+        if (next == null) {
+          return;
+        }
+        framesInFlight++;
+        processedFrames++;
+      }
+      try {
+        next.process();
+      } catch (RuntimeException e) {
+        // The frame never got going, so don't let it hold its slot forever.
+        onFrameDone();
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.scheduler;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A pipeline stage that takes its input through a single slot.
+ *
+ * <p>The stage works on one item at a time, on its executor. Items {@link #offer offered} while it
+ * is busy wait in the slot, and a newer item replaces the waiting one, which is then dropped. So an
+ * upstream stage never blocks on a slow downstream one, and the downstream stage always picks up
+ * the freshest item rather than working through a backlog.
+ *
+ * <p>This class is thread safe. Every offered item is either {@link Handler#process processed} or
+ * {@link Handler#drop dropped} exactly once, unless the executor never runs the submitted work.
+ * Items the executor rejects, as once it is shut down, are dropped.
+ *
+ * @param <I> The type of the items passed through the stage.
+ */
+public final class PipelineStage<I> {
+
+  /** Does the work of the stage. */
+  public interface Handler<I> {
+    /** Processes an item, on the executor of the stage. */
+    void process(I item);
+
+    /** Releases an item that is not going to be processed. */
+    void drop(I item);
+  }
+
+  private final StageMeter meter;
+  private final Executor executor;
+  private final Handler<I> handler;
+
+  private I waitingItem;
+  private boolean busy;
+  private boolean closed;
+  private long droppedItems;
+
+  public PipelineStage(String name, Executor executor, Handler<I> handler) {
+    meter = new StageMeter(name);
+    this.executor = executor;
+    this.handler = handler;
+  }
+
+  public StageMeter getMeter() {
+    return meter;
+  }
+
+  /** Returns how many items were replaced in the slot by newer ones. */
+  public synchronized long getDroppedItems() {
+    return droppedItems;
+  }
+
+  /** Hands an item to the stage, which starts on it right away unless it is busy. */
+  public void offer(I item) {
+    I dropped = null;
+    synchronized (this) {
+      if (closed) {
+        dropped = item;
+        item = null;
+      } else if (busy) {
+        dropped = waitingItem;
+        waitingItem = item;
+        item = null;
+        if (dropped != null) {
+          droppedItems++;
+        }
+      } else {
+        busy = true;
+      }
+    }
+    if (dropped != null) {
+      handler.drop(dropped);
+    }
+    if (item != null) {
+      start(item);
+    }
+  }
+
+  /** Drops the waiting item and every item offered from now on. */
+  public void close() {
+    I dropped;
+    synchronized (this) {
+      closed = true;
+      dropped = waitingItem;
+      waitingItem = null;
+    }
+    if (dropped != null) {
+      handler.drop(dropped);
+    }
+  }
+
+  private void start(I item) {
+    try {
+      execute(item);
+    } catch (RejectedExecutionException e) {
+      handler.drop(item);
+      for (I next = takeWaitingItem(); next != null; next = takeWaitingItem()) {
+        handler.drop(next);
+      }
+    }
+  }
+
+  private void execute(I item) {
+    executor.execute(
+        () -> {
+          // Works through the items that arrive meanwhile in a loop rather than resubmitting, so a
+          // direct executor does not recurse.
+          I current = item;
+          boolean failed = true;
+          try {
+            while (current != null) {
+              meter.begin();
+              try {
+                handler.process(current);
+              } finally {
+                meter.end();
+              }
+              current = takeWaitingItem();
+            }
+            failed = false;
+          } finally {
+            if (failed) {
+              // Don't let the failed item stall the items behind it.
+              I next = takeWaitingItem();
+              if (next != null) {
+                start(next);
+              }
+            }
+          }
+        });
+  }
+
+  /** Takes the waiting item to work on next, or marks the stage idle if there is none. */
+  private synchronized I takeWaitingItem() {
+    I next = waitingItem;
+    waitingItem = null;
+    busy = next != null;
+    return next;
+  }
+}
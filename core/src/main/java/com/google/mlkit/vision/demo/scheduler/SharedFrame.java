@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.scheduler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A frame handed to several consumers at once, such as the branches of a fan-out, and released
+ * once the last of them is done with it.
+ *
+ * <p>The frame starts with one reference, held by its creator. Each consumer acquires a reference
+ * before it starts on the frame and releases it when done, and the creator releases its own once
+ * the frame is handed out, so the frame can't be released while it is still being handed out. The
+ * releaser runs exactly once, on the thread that releases the last reference. This class is thread
+ * safe.
+ */
+public final class SharedFrame<T> {
+
+  /** Releases the image of a frame once no consumer uses it anymore. */
+  public interface Releaser<T> {
+    void release(T image);
+  }
+
+  private final T image;
+  private final Releaser<T> releaser;
+  private final AtomicInteger refCount = new AtomicInteger(1);
+
+  public SharedFrame(T image, Releaser<T> releaser) {
+    this.image = image;
+    this.releaser = releaser;
+  }
+
+  /** Returns the image of the frame. Only valid while a reference is held. */
+  public T get() {
+    if (refCount.get() <= 0) {
+      throw new IllegalStateException("Frame already released");
+    }
+    return image;
+  }
+
+  /** Takes another reference to the frame, and returns it. */
+  public SharedFrame<T> acquire() {
+    while (true) {
+      int count = refCount.get();
+      if (count <= 0) {
+        throw new IllegalStateException("Frame already released");
+      }
+      if (refCount.compareAndSet(count, count + 1)) {
+        return this;
+      }
+    }
+  }
+
+  /** Gives up a reference to the frame, and releases the frame if it was the last one. */
+  public void release() {
+    int count = refCount.decrementAndGet();
+    if (count == 0) {
+      releaser.release(image);
+    } else if (count < 0) {
+      refCount.incrementAndGet();
+      throw new IllegalStateException("Frame released more often than acquired");
+    }
+  }
+
+  /** Returns the number of references held, 0 once the frame is released. */
+  public int getRefCount() {
+    return Math.max(refCount.get(), 0);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.scheduler;
+
+/**
+ * Measures how much of the time a pipeline stage is busy, so the stage that limits throughput
+ * stands out: it is the one close to fully occupied.
+ *
+ * <p>Work on the stage is bracketed by {@link #begin} and {@link #end}. Overlapping work counts
+ * once, so the occupancy is at most 1 however many items are in the stage. This class is thread
+ * safe.
+ */
+public final class StageMeter {
+
+  private final String name;
+
+  private long startNanos;
+  private long busyNanos;
+  private long busySinceNanos;
+  private int activeItems;
+  private long completedItems;
+
+  public StageMeter(String name) {
+    this.name = name;
+    startNanos = System.nanoTime();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Marks the start of work on an item. */
+  public synchronized void begin() {
+    if (activeItems++ == 0) {
+      busySinceNanos = System.nanoTime();
+    }
+  }
+
+  /** Marks the end of work on an item started with {@link #begin}. */
+  public synchronized void end() {
+    if (activeItems == 0) {
+      return;
+    }
+    completedItems++;
+    if (--activeItems == 0) {
+      busyNanos += System.nanoTime() - busySinceNanos;
+    }
+  }
+
+  /** Returns the fraction of the time since the last reset that the stage was busy, from 0 to 1. */
+  public synchronized float getOccupancy() {
+    long now = System.nanoTime();
+    long busy = activeItems > 0 ? busyNanos + now - busySinceNanos : busyNanos;
+    long elapsed = now - startNanos;
+    return elapsed > 0 ? (float) busy / elapsed : 0f;
+  }
+
+  /** Returns the number of items finished since the last reset. */
+  public synchronized long getCompletedItems() {
+    return completedItems;
+  }
+
+  /** Starts measuring afresh. Items in progress count as busy from now on. */
+  public synchronized void reset() {
+    startNanos = System.nanoTime();
+    busyNanos = 0;
+    busySinceNanos = startNanos;
+    completedItems = 0;
+  }
+}
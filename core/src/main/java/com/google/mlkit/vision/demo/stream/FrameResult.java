@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.stream;
+
+/**
+ * The results of a processor on one frame, with the features they were derived from and how long
+ * the frame took to get them, as published on a {@link ResultStream}.
+ *
+ * @param <T> The type of the processor's results.
+ */
+public final class FrameResult<T> {
+  private final int frameId;
+  private final T results;
+  private final float[] features;
+  private final long frameStartNanos;
+  private final long detectorLatencyNanos;
+  private final long postProcessingNanos;
+  private final long publishedNanos;
+
+  /**
+   * @param features the features extracted from the frame, or null if the processor extracts none.
+   * @param frameStartNanos when the frame arrived, from {@link System#nanoTime}.
+   * @param publishedNanos when the results were published, from {@link System#nanoTime}.
+   */
+  public FrameResult(
+      int frameId,
+      T results,
+      float[] features,
+      long frameStartNanos,
+      long detectorLatencyNanos,
+      long postProcessingNanos,
+      long publishedNanos) {
+    this.frameId = frameId;
+    this.results = results;
+    this.features = features;
+    this.frameStartNanos = frameStartNanos;
+    this.detectorLatencyNanos = detectorLatencyNanos;
+    this.postProcessingNanos = postProcessingNanos;
+    this.publishedNanos = publishedNanos;
+  }
+
+  /** Returns the id of the frame, which grows with each frame of a session. */
+  public int getFrameId() {
+    return frameId;
+  }
+
+  public T getResults() {
+    return results;
+  }
+
+  /**
+   * Returns the features extracted from the frame, such as the pose embedding that the pose
+   * classifier compares with its samples, as consecutive x, y and z values. Returns null if the
+   * processor extracts no features, or found nothing on the frame.
+   */
+  public float[] getFeatures() {
+    return features;
+  }
+
+  /** Returns when the frame arrived, from {@link System#nanoTime}. */
+  public long getFrameStartNanos() {
+    return frameStartNanos;
+  }
+
+  public long getDetectorLatencyNanos() {
+    return detectorLatencyNanos;
+  }
+
+  public long getPostProcessingNanos() {
+    return postProcessingNanos;
+  }
+
+  /** Returns how long the frame took from its arrival until its results were published. */
+  public long getLatencyNanos() {
+    return publishedNanos - frameStartNanos;
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.stream;
+
+import com.google.mlkit.vision.demo.metrics.MetricsRegistry;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Hands each result a pipeline publishes to any number of subscribers, each on its own executor,
+ * without letting a slow subscriber hold up the pipeline or the other subscribers.
+ *
+ * <p>{@link #publish} never blocks. Each subscriber has a queue of the given capacity, and a
+ * result published while the queue is full replaces the oldest waiting one, which is dropped. So a
+ * capacity of 1 conflates: a slow subscriber such as the UI skips to the newest result whenever
+ * it falls behind. A larger capacity suits subscribers that should see every result but can take
+ * a while with some, such as a recorder, within that bound. Results are delivered to a subscriber
+ * one at a time and in order.
+ *
+ * <p>This class is thread safe. It samples how many results each subscriber received and missed
+ * as metrics.
+ *
+ * @param <T> The type of the published results.
+ */
+public final class ResultStream<T> implements MetricsRegistry.Gauge {
+
+  /** Receives the results of a stream. */
+  public interface Subscriber<T> {
+    /** Called with each result, on the executor the subscriber was subscribed with. */
+    void onResult(T result);
+  }
+
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+  private volatile boolean closed;
+
+  /**
+   * Subscribes to the results published from now on.
+   *
+   * @param name names the subscriber in the metrics.
+   * @param executor runs the subscriber. A direct executor runs it on the publishing thread, which
+   *     only suits subscribers that return right away.
+   * @param capacity how many results may wait for the subscriber before the oldest is dropped.
+   */
+  public Subscription subscribe(
+      String name, Executor executor, int capacity, Subscriber<? super T> subscriber) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    Subscription subscription = new Subscription(name, executor, capacity, subscriber);
+    subscriptions.add(subscription);
+    if (closed) {
+      subscription.cancel();
+    }
+    return subscription;
+  }
+
+  /** Returns whether anyone is subscribed, so publishers can skip building unwanted results. */
+  public boolean hasSubscribers() {
+    return !subscriptions.isEmpty();
+  }
+
+  /** Queues a result for every subscriber. Never blocks. */
+  public void publish(T result) {
+    for (Subscription subscription : subscriptions) {
+      subscription.offer(result);
+    }
+  }
+
+  /** Cancels every subscription, and every one made from now on. */
+  public void close() {
+    closed = true;
+    for (Subscription subscription : subscriptions) {
+      subscription.cancel();
+    }
+  }
+
+  @Override
+  public void sample(Map<String, Double> values) {
+    for (Subscription subscription : subscriptions) {
+      String prefix = "stream." + subscription.name + ".";
+      synchronized (subscription) {
+        values.put(prefix + "delivered", (double) subscription.deliveredResults);
+        values.put(prefix + "dropped", (double) subscription.droppedResults);
+        values.put(prefix + "pending", (double) subscription.pending.size());
+      }
+    }
+  }
+
+  /** A subscriber's place in the stream, with the results waiting for it. */
+  public final class Subscription {
+    private final String name;
+    private final Executor executor;
+    private final int capacity;
+    private final Subscriber<? super T> subscriber;
+
+    // Guarded by this.
+    private final ArrayDeque<T> pending = new ArrayDeque<>();
+    private boolean scheduled;
+    private boolean cancelled;
+    private long deliveredResults;
+    private long droppedResults;
+
+    private Subscription(
+        String name, Executor executor, int capacity, Subscriber<? super T> subscriber) {
+      this.name = name;
+      this.executor = executor;
+      this.capacity = capacity;
+      this.subscriber = subscriber;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /** Stops delivering results. Results already waiting are dropped. */
+    public void cancel() {
+      synchronized (this) {
+        cancelled = true;
+        droppedResults += pending.size();
+        pending.clear();
+      }
+      subscriptions.remove(this);
+    }
+
+    public synchronized boolean isCancelled() {
+      return cancelled;
+    }
+
+    /** Returns how many results the subscriber was handed. */
+    public synchronized long getDeliveredResults() {
+      return deliveredResults;
+    }
+
+    /** Returns how many results the subscriber missed because it fell behind. */
+    public synchronized long getDroppedResults() {
+      return droppedResults;
+    }
+
+    private void offer(T result) {
+      synchronized (this) {
+        if (cancelled) {
+          return;
+        }
+        if (pending.size() >= capacity) {
+          pending.poll();
+          droppedResults++;
+        }
+        pending.add(result);
+        if (scheduled) {
+          return;
+        }
+        scheduled = true;
+      }
+      schedule();
+    }
+
+    private void schedule() {
+      try {
+        executor.execute(this::deliverNext);
+      } catch (RejectedExecutionException e) {
+        // The subscriber's executor is gone, so nothing it waits for can be delivered.
+        synchronized (this) {
+          droppedResults += pending.size();
+          pending.clear();
+          scheduled = false;
+        }
+      }
+    }
+
+    // Delivers one result per run, so subscribers sharing an executor take turns.
+    private void deliverNext() {
+      T result;
+      synchronized (this) {
+        result = pending.poll();
+        if (result == null) {
+          scheduled = false;
+          return;
+        }
+        deliveredResults++;
+      }
+      try {
+        subscriber.onResult(result);
+      } finally {
+        boolean more;
+        synchronized (this) {
+          more = !pending.isEmpty();
+          scheduled = more;
+        }
+        if (more) {
+          schedule();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+/**
+ * A region of a camera frame to run detection in, and how to map what is detected in it back to
+ * the whole frame.
+ *
+ * <p>The region is chosen in upright coordinates, the frame rotated clockwise by its rotation as
+ * detectors see it, and cropped from the frame as the camera delivered it, so the cropped image
+ * keeps the rotation of the frame. Its edges are aligned to even pixels for 4:2:0 chroma. It is
+ * scaled down if its long side exceeds the given maximum, but never scaled up.
+ */
+public final class FrameRegion {
+  private final int frameWidth;
+  private final int frameHeight;
+  private final int rotationDegrees;
+  // The region in the frame as delivered, and its size once scaled.
+  private final int left;
+  private final int top;
+  private final int width;
+  private final int height;
+  private final int outputWidth;
+  private final int outputHeight;
+  // The region in upright coordinates.
+  private final int uprightLeft;
+  private final int uprightTop;
+  private final float uprightScaleX;
+  private final float uprightScaleY;
+
+  private FrameRegion(
+      int frameWidth,
+      int frameHeight,
+      int rotationDegrees,
+      int left,
+      int top,
+      int right,
+      int bottom,
+      int maxOutputSide) {
+    this.frameWidth = frameWidth;
+    this.frameHeight = frameHeight;
+    this.rotationDegrees = rotationDegrees;
+    this.left = left;
+    this.top = top;
+    width = right - left;
+    height = bottom - top;
+    float scale = Math.min(1f, (float) maxOutputSide / Math.max(width, height));
+    outputWidth = Math.max(2, Math.round(width * scale / 2) * 2);
+    outputHeight = Math.max(2, Math.round(height * scale / 2) * 2);
+    float scaleX = (float) outputWidth / width;
+    float scaleY = (float) outputHeight / height;
+    switch (rotationDegrees) {
+      case 90:
+        uprightLeft = frameHeight - bottom;
+        uprightTop = left;
+        break;
+      case 180:
+        uprightLeft = frameWidth - right;
+        uprightTop = frameHeight - bottom;
+        break;
+      case 270:
+        uprightLeft = top;
+        uprightTop = frameWidth - right;
+        break;
+      default:
+        uprightLeft = left;
+        uprightTop = top;
+    }
+    boolean sideways = rotationDegrees % 180 != 0;
+    uprightScaleX = sideways ? scaleY : scaleX;
+    uprightScaleY = sideways ? scaleX : scaleY;
+  }
+
+  /**
+   * Returns the region of a frame that covers the given upright rectangle, clamped to the frame,
+   * or null if nothing of the rectangle is in the frame.
+   *
+   * @param frameWidth the width of the frame as delivered by the camera.
+   * @param frameHeight the height of the frame as delivered by the camera.
+   * @param rotationDegrees the clockwise rotation that makes the frame upright.
+   * @param maxOutputSide the longest side the cropped image may have.
+   */
+  public static FrameRegion fromUpright(
+      int frameWidth,
+      int frameHeight,
+      int rotationDegrees,
+      float uprightLeft,
+      float uprightTop,
+      float uprightRight,
+      float uprightBottom,
+      int maxOutputSide) {
+    int rotation = ((rotationDegrees % 360) + 360) % 360;
+    if (rotation % 90 != 0) {
+      throw new IllegalArgumentException("Unsupported rotation " + rotationDegrees);
+    }
+    float left;
+    float top;
+    float right;
+    float bottom;
+    switch (rotation) {
+      case 90:
+        left = uprightTop;
+        right = uprightBottom;
+        top = frameHeight - uprightRight;
+        bottom = frameHeight - uprightLeft;
+        break;
+      case 180:
+        left = frameWidth - uprightRight;
+        right = frameWidth - uprightLeft;
+        top = frameHeight - uprightBottom;
+        bottom = frameHeight - uprightTop;
+        break;
+      case 270:
+        left = frameWidth - uprightBottom;
+        right = frameWidth - uprightTop;
+        top = uprightLeft;
+        bottom = uprightRight;
+        break;
+      default:
+        left = uprightLeft;
+        right = uprightRight;
+        top = uprightTop;
+        bottom = uprightBottom;
+    }
+    // Widens the region to even edges, so it starts and ends on whole chroma samples.
+    int evenLeft = Math.max(0, (int) Math.floor(left / 2) * 2);
+    int evenTop = Math.max(0, (int) Math.floor(top / 2) * 2);
+    int evenRight = Math.min(frameWidth / 2 * 2, (int) Math.ceil(right / 2) * 2);
+    int evenBottom = Math.min(frameHeight / 2 * 2, (int) Math.ceil(bottom / 2) * 2);
+    if (evenRight <= evenLeft || evenBottom <= evenTop) {
+      return null;
+    }
+    return new FrameRegion(
+        frameWidth,
+        frameHeight,
+        rotation,
+        evenLeft,
+        evenTop,
+        evenRight,
+        evenBottom,
+        maxOutputSide);
+  }
+
+  /** Returns the width of the whole frame as delivered by the camera. */
+  public int getFrameWidth() {
+    return frameWidth;
+  }
+
+  /** Returns the height of the whole frame as delivered by the camera. */
+  public int getFrameHeight() {
+    return frameHeight;
+  }
+
+  /** Returns the left edge of the region in the frame as delivered. */
+  public int getLeft() {
+    return left;
+  }
+
+  /** Returns the top edge of the region in the frame as delivered. */
+  public int getTop() {
+    return top;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /** Returns the width of the cropped image, before rotation. */
+  public int getOutputWidth() {
+    return outputWidth;
+  }
+
+  /** Returns the height of the cropped image, before rotation. */
+  public int getOutputHeight() {
+    return outputHeight;
+  }
+
+  public int getRotationDegrees() {
+    return rotationDegrees;
+  }
+
+  /** Maps an X coordinate detected in the upright cropped image to the upright frame. */
+  public float toFrameX(float x) {
+    return uprightLeft + x / uprightScaleX;
+  }
+
+  /** Maps a Y coordinate detected in the upright cropped image to the upright frame. */
+  public float toFrameY(float y) {
+    return uprightTop + y / uprightScaleY;
+  }
+
+  /** Maps a depth detected in the cropped image, which is scaled like X, to the frame. */
+  public float toFrameZ(float z) {
+    return z / uprightScaleX;
+  }
+}
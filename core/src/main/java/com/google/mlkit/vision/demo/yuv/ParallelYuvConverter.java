@@ -0,0 +1,439 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts {@link YuvFrame}s to ARGB pixels, splitting the output into row stripes that are
+ * converted in parallel on a fixed pool of threads.
+ *
+ * <p>The output is rotated clockwise and may be smaller than the frame, see {@link Sampling} for how
+ * it is scaled down. Rotation and downscaling happen in the same pass as the color conversion, so
+ * no full size intermediate is made.
+ *
+ * <p>One frame is converted at a time. The stripes run either on threads of the converter's own,
+ * which {@link #close} stops, or on a shared executor, which stays running. A stripe the shared
+ * executor rejects is converted on the calling thread.
+ */
+public final class ParallelYuvConverter implements Closeable {
+
+  /** How output pixels are computed when the output is smaller than the frame. */
+  public enum Sampling {
+    /** Takes the sample under the center of the output pixel. Fast, but aliases fine detail. */
+    POINT,
+    /** Averages all the samples covered by the output pixel. Reads every sample of the frame. */
+    AREA
+  }
+
+  // Keeps the sums of AREA sampling within an int.
+  private static final int MAX_AREA_FOOTPRINT = 1 << 23;
+
+  private static final AtomicInteger converterCount = new AtomicInteger();
+
+  private final int numStripes;
+  private final Executor executor;
+  // The threads of the converter's own, or null if it has none.
+  private final ExecutorService ownedExecutor;
+  private final List<Future<?>> pendingStripes = new ArrayList<>();
+
+  // The range of source coordinates along the varying axis for each output column, reused between
+  // frames of the same geometry. For POINT sampling the range is the single sample at the center.
+  private int[] columnStarts = new int[0];
+  private int[] columnEnds = new int[0];
+  private int columnsRotation = -1;
+  private int columnsRotatedWidth = -1;
+  private Sampling columnsSampling;
+
+  /** Creates a converter that uses up to {@code numThreads} threads, including the caller. */
+  public ParallelYuvConverter(int numThreads) {
+    if (numThreads < 1) {
+      throw new IllegalArgumentException("numThreads must be at least 1");
+    }
+    numStripes = numThreads;
+    if (numThreads == 1) {
+      executor = null;
+      ownedExecutor = null;
+      return;
+    }
+    String namePrefix = "YuvConverter-" + converterCount.incrementAndGet() + "-";
+    AtomicInteger threadCount = new AtomicInteger();
+    ownedExecutor =
+        Executors.newFixedThreadPool(
+            numThreads - 1,
+            runnable -> {
+              Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor = ownedExecutor;
+  }
+
+  /**
+   * Creates a converter that splits frames into {@code numStripes} stripes, one converted on the
+   * caller and the others on {@code executor}, which the converter doesn't stop.
+   */
+  public ParallelYuvConverter(int numStripes, Executor executor) {
+    if (numStripes < 1) {
+      throw new IllegalArgumentException("numStripes must be at least 1");
+    }
+    this.numStripes = numStripes;
+    this.executor = executor;
+    ownedExecutor = null;
+  }
+
+  /** Creates a converter with one thread per available processor, up to {@code maxThreads}. */
+  public static ParallelYuvConverter withAvailableProcessors(int maxThreads) {
+    return new ParallelYuvConverter(
+        Math.max(1, Math.min(maxThreads, Runtime.getRuntime().availableProcessors())));
+  }
+
+  public int getNumThreads() {
+    return numStripes;
+  }
+
+  /**
+   * Converts {@code frame} at full size, see {@link YuvConverter#getRotatedWidth} for the output
+   * dimensions.
+   */
+  public void convert(YuvFrame frame, int rotationDegrees, int[] argbOut) {
+    convert(
+        frame,
+        rotationDegrees,
+        YuvConverter.getRotatedWidth(frame.width, frame.height, rotationDegrees),
+        YuvConverter.getRotatedHeight(frame.width, frame.height, rotationDegrees),
+        argbOut);
+  }
+
+  /**
+   * Converts {@code frame} rotated clockwise by {@code rotationDegrees} and scaled with {@link
+   * Sampling#AREA} to {@code outWidth} x {@code outHeight}, written row by row into {@code argbOut}.
+   */
+  public void convert(
+      YuvFrame frame, int rotationDegrees, int outWidth, int outHeight, int[] argbOut) {
+    convert(frame, rotationDegrees, outWidth, outHeight, Sampling.AREA, argbOut);
+  }
+
+  /**
+   * Converts {@code frame} rotated clockwise by {@code rotationDegrees} and scaled with {@code
+   * sampling} to {@code outWidth} x {@code outHeight}, written row by row into {@code argbOut}.
+   */
+  public synchronized void convert(
+      YuvFrame frame,
+      int rotationDegrees,
+      int outWidth,
+      int outHeight,
+      Sampling sampling,
+      int[] argbOut) {
+    int rotation = ((rotationDegrees % 360) + 360) % 360;
+    if (rotation % 90 != 0) {
+      throw new IllegalArgumentException("Unsupported rotation " + rotationDegrees);
+    }
+    int rotatedWidth = YuvConverter.getRotatedWidth(frame.width, frame.height, rotation);
+    int rotatedHeight = YuvConverter.getRotatedHeight(frame.width, frame.height, rotation);
+    if (outWidth < 1 || outHeight < 1 || outWidth > rotatedWidth || outHeight > rotatedHeight) {
+      throw new IllegalArgumentException(
+          "Cannot scale " + rotatedWidth + "x" + rotatedHeight + " to " + outWidth + "x"
+              + outHeight);
+    }
+    if (argbOut.length < outWidth * outHeight) {
+      throw new IllegalArgumentException("Output too small for " + outWidth + "x" + outHeight);
+    }
+    if (outWidth == rotatedWidth && outHeight == rotatedHeight) {
+      // Without scaling, walk the source rows instead, which shares chroma between pixel pairs and
+      // needs no index table.
+      int stripes = Math.min(numStripes, frame.height);
+      runStripes(
+          stripes,
+          stripe ->
+              YuvConverter.convertRows(
+                  frame,
+                  rotation,
+                  argbOut,
+                  frame.height * stripe / stripes,
+                  frame.height * (stripe + 1) / stripes));
+      return;
+    }
+
+    if (sampling == Sampling.AREA
+        && (long) (rotatedWidth / outWidth + 1) * (rotatedHeight / outHeight + 1)
+            > MAX_AREA_FOOTPRINT) {
+      throw new IllegalArgumentException("Cannot area sample to " + outWidth + "x" + outHeight);
+    }
+    updateColumns(rotation, outWidth, rotatedWidth, sampling);
+    int[] starts = columnStarts;
+    int[] ends = columnEnds;
+    int stripes = Math.min(numStripes, outHeight);
+    if (sampling == Sampling.POINT) {
+      runStripes(
+          stripes,
+          stripe ->
+              convertRowsPoint(
+                  frame,
+                  rotation,
+                  starts,
+                  outWidth,
+                  outHeight,
+                  rotatedHeight,
+                  argbOut,
+                  outHeight * stripe / stripes,
+                  outHeight * (stripe + 1) / stripes));
+    } else {
+      runStripes(
+          stripes,
+          stripe ->
+              convertRowsArea(
+                  frame,
+                  rotation,
+                  starts,
+                  ends,
+                  outWidth,
+                  outHeight,
+                  rotatedHeight,
+                  argbOut,
+                  outHeight * stripe / stripes,
+                  outHeight * (stripe + 1) / stripes));
+    }
+  }
+
+  private interface Stripe {
+    void convert(int index);
+  }
+
+  /** Runs stripes 1 and up on the pool and stripe 0 on the calling thread, then waits for all. */
+  private void runStripes(int stripes, Stripe stripe) {
+    for (int i = 1; i < stripes; i++) {
+      int index = i;
+      FutureTask<?> pending = new FutureTask<>(() -> stripe.convert(index), null);
+      try {
+        executor.execute(pending);
+      } catch (RejectedExecutionException e) {
+        pending.run();
+      }
+      pendingStripes.add(pending);
+    }
+    try {
+      stripe.convert(0);
+      for (Future<?> pending : pendingStripes) {
+        pending.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while converting", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to convert stripe", e.getCause());
+    } finally {
+      for (Future<?> pending : pendingStripes) {
+        pending.cancel(false);
+      }
+      pendingStripes.clear();
+    }
+  }
+
+  /**
+   * Fills in, for each output column, the range of indices along the source axis that output rows
+   * walk: source columns for 0 and 180 degrees, and source rows for 90 and 270 degrees.
+   */
+  private void updateColumns(int rotation, int outWidth, int rotatedWidth, Sampling sampling) {
+    if (columnStarts.length == outWidth
+        && columnsRotation == rotation
+        && columnsRotatedWidth == rotatedWidth
+        && columnsSampling == sampling) {
+      return;
+    }
+    if (columnStarts.length != outWidth) {
+      columnStarts = new int[outWidth];
+      columnEnds = new int[outWidth];
+    }
+    // Output columns run backwards along the source for 90 and 180 degrees.
+    boolean reversed = rotation == 90 || rotation == 180;
+    for (int x = 0; x < outWidth; x++) {
+      int start;
+      int end;
+      if (sampling == Sampling.POINT) {
+        start = sampleCenter(x, outWidth, rotatedWidth);
+        end = start + 1;
+      } else {
+        start = footprintStart(x, outWidth, rotatedWidth);
+        end = footprintStart(x + 1, outWidth, rotatedWidth);
+      }
+      columnStarts[x] = reversed ? rotatedWidth - end : start;
+      columnEnds[x] = reversed ? rotatedWidth - start : end;
+    }
+    columnsRotation = rotation;
+    columnsRotatedWidth = rotatedWidth;
+    columnsSampling = sampling;
+  }
+
+  private static void convertRowsPoint(
+      YuvFrame frame,
+      int rotation,
+      int[] columns,
+      int outWidth,
+      int outHeight,
+      int rotatedHeight,
+      int[] argbOut,
+      int rowStart,
+      int rowEnd) {
+    byte[] yData = frame.yData;
+    byte[] uData = frame.uData;
+    byte[] vData = frame.vData;
+    boolean sideways = rotation == 90 || rotation == 270;
+    // How far one step along the varying source axis moves in each plane.
+    int yStep = sideways ? frame.yRowStride : 1;
+    int uStep = sideways ? frame.uRowStride : frame.uPixelStride;
+    int vStep = sideways ? frame.vRowStride : frame.vPixelStride;
+    int outIndex = rowStart * outWidth;
+    for (int outY = rowStart; outY < rowEnd; outY++) {
+      int rotatedY = sampleCenter(outY, outHeight, rotatedHeight);
+      // The source coordinate that stays fixed along this output row.
+      int fixed = (rotation == 180 || rotation == 270) ? rotatedHeight - 1 - rotatedY : rotatedY;
+      int yBase;
+      int uBase;
+      int vBase;
+      if (sideways) {
+        yBase = frame.yOffset + fixed;
+        uBase = frame.uOffset + (fixed >> 1) * frame.uPixelStride;
+        vBase = frame.vOffset + (fixed >> 1) * frame.vPixelStride;
+      } else {
+        yBase = frame.yOffset + fixed * frame.yRowStride;
+        uBase = frame.uOffset + (fixed >> 1) * frame.uRowStride;
+        vBase = frame.vOffset + (fixed >> 1) * frame.vRowStride;
+      }
+      // Neighboring output pixels usually share a chroma sample, so only recompute its terms when
+      // it changes.
+      int lastChroma = -1;
+      int rOffset = 0;
+      int gOffset = 0;
+      int bOffset = 0;
+      for (int outX = 0; outX < outWidth; outX++) {
+        int source = columns[outX];
+        int chroma = source >> 1;
+        if (chroma != lastChroma) {
+          int u = (uData[uBase + chroma * uStep] & 0xff) - 128;
+          int v = (vData[vBase + chroma * vStep] & 0xff) - 128;
+          rOffset = YuvConverter.redOffset(v);
+          gOffset = YuvConverter.greenOffset(u, v);
+          bOffset = YuvConverter.blueOffset(u);
+          lastChroma = chroma;
+        }
+        argbOut[outIndex++] =
+            YuvConverter.toArgb(yData[yBase + source * yStep] & 0xff, rOffset, gOffset, bOffset);
+      }
+    }
+  }
+
+  private static void convertRowsArea(
+      YuvFrame frame,
+      int rotation,
+      int[] starts,
+      int[] ends,
+      int outWidth,
+      int outHeight,
+      int rotatedHeight,
+      int[] argbOut,
+      int rowStart,
+      int rowEnd) {
+    byte[] yData = frame.yData;
+    byte[] uData = frame.uData;
+    byte[] vData = frame.vData;
+    boolean sideways = rotation == 90 || rotation == 270;
+    boolean reversedRows = rotation == 180 || rotation == 270;
+    // How far one step along the fixed and the varying source axes moves in each plane.
+    int yFixedStep = sideways ? 1 : frame.yRowStride;
+    int yStep = sideways ? frame.yRowStride : 1;
+    int uFixedStep = sideways ? frame.uPixelStride : frame.uRowStride;
+    int uStep = sideways ? frame.uRowStride : frame.uPixelStride;
+    int vFixedStep = sideways ? frame.vPixelStride : frame.vRowStride;
+    int vStep = sideways ? frame.vRowStride : frame.vPixelStride;
+    int outIndex = rowStart * outWidth;
+    for (int outY = rowStart; outY < rowEnd; outY++) {
+      int rotatedStart = footprintStart(outY, outHeight, rotatedHeight);
+      int rotatedEnd = footprintStart(outY + 1, outHeight, rotatedHeight);
+      int fixedStart = reversedRows ? rotatedHeight - rotatedEnd : rotatedStart;
+      int fixedEnd = reversedRows ? rotatedHeight - rotatedStart : rotatedEnd;
+      int chromaFixedStart = fixedStart >> 1;
+      int chromaFixedEnd = ((fixedEnd - 1) >> 1) + 1;
+      for (int outX = 0; outX < outWidth; outX++) {
+        int start = starts[outX];
+        int end = ends[outX];
+        int lumaSum = 0;
+        for (int fixed = fixedStart; fixed < fixedEnd; fixed++) {
+          int index = frame.yOffset + fixed * yFixedStep + start * yStep;
+          for (int i = start; i < end; i++) {
+            lumaSum += yData[index] & 0xff;
+            index += yStep;
+          }
+        }
+        int chromaStart = start >> 1;
+        int chromaEnd = ((end - 1) >> 1) + 1;
+        int uSum = 0;
+        int vSum = 0;
+        for (int fixed = chromaFixedStart; fixed < chromaFixedEnd; fixed++) {
+          int uIndex = frame.uOffset + fixed * uFixedStep + chromaStart * uStep;
+          int vIndex = frame.vOffset + fixed * vFixedStep + chromaStart * vStep;
+          for (int i = chromaStart; i < chromaEnd; i++) {
+            uSum += uData[uIndex] & 0xff;
+            vSum += vData[vIndex] & 0xff;
+            uIndex += uStep;
+            vIndex += vStep;
+          }
+        }
+        int lumaCount = (fixedEnd - fixedStart) * (end - start);
+        int chromaCount = (chromaFixedEnd - chromaFixedStart) * (chromaEnd - chromaStart);
+        int u = (uSum + chromaCount / 2) / chromaCount - 128;
+        int v = (vSum + chromaCount / 2) / chromaCount - 128;
+        argbOut[outIndex++] =
+            YuvConverter.toArgb(
+                (lumaSum + lumaCount / 2) / lumaCount,
+                YuvConverter.redOffset(v),
+                YuvConverter.greenOffset(u, v),
+                YuvConverter.blueOffset(u));
+      }
+    }
+  }
+
+  /**
+   * Returns the first source index covered by output pixel {@code index}, so that output pixel i
+   * covers [footprintStart(i), footprintStart(i + 1)).
+   */
+  private static int footprintStart(int index, int outSize, int sourceSize) {
+    return (int) ((long) index * sourceSize / outSize);
+  }
+
+  /** Returns the source index whose pixel contains the center of output pixel {@code index}. */
+  private static int sampleCenter(int index, int outSize, int sourceSize) {
+    return (int) (((2L * index + 1) * sourceSize) / (2L * outSize));
+  }
+
+  @Override
+  public void close() {
+    if (ownedExecutor != null) {
+      ownedExecutor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+/**
+ * Converts NV21 frames to ARGB pixels without going through JPEG.
+ *
+ * <p>Uses the full range BT.601 coefficients of JFIF, which is what camera NV21 frames use and what
+ * {@code YuvImage.compressToJpeg} assumes, so colors match the JPEG path up to rounding. The
+ * rotation is applied while writing, so every output pixel is written exactly once.
+ */
+public final class YuvConverter {
+  // Fixed point coefficients, scaled by 2^FIXED_POINT_SHIFT.
+  private static final int FIXED_POINT_SHIFT = 10;
+  private static final int V_TO_R = 1436; // 1.402
+  private static final int U_TO_G = 352; // 0.344136
+  private static final int V_TO_G = 731; // 0.714136
+  private static final int U_TO_B = 1815; // 1.772
+
+  // Clamps channel values to [0, 255] without branches, which mispredict badly on noisy frames. The
+  // unclamped values are within [-227, 482].
+  private static final int CLAMP_OFFSET = 256;
+  private static final int[] CLAMP = new int[3 * 256];
+
+  static {
+    for (int i = 0; i < CLAMP.length; i++) {
+      CLAMP[i] = Math.max(0, Math.min(255, i - CLAMP_OFFSET));
+    }
+  }
+
+  private YuvConverter() {}
+
+  /** Returns the width of the output for the given rotation. */
+  public static int getRotatedWidth(int width, int height, int rotationDegrees) {
+    return isSideways(rotationDegrees) ? height : width;
+  }
+
+  /** Returns the height of the output for the given rotation. */
+  public static int getRotatedHeight(int width, int height, int rotationDegrees) {
+    return isSideways(rotationDegrees) ? width : height;
+  }
+
+  private static boolean isSideways(int rotationDegrees) {
+    return normalizeRotation(rotationDegrees) % 180 != 0;
+  }
+
+  private static int normalizeRotation(int rotationDegrees) {
+    int rotation = ((rotationDegrees % 360) + 360) % 360;
+    if (rotation % 90 != 0) {
+      throw new IllegalArgumentException("Unsupported rotation " + rotationDegrees);
+    }
+    return rotation;
+  }
+
+  /**
+   * Converts a whole NV21 frame into {@code argbOut}, rotated clockwise by {@code rotationDegrees}.
+   *
+   * @param argbOut receives the rotated image row by row, see {@link #getRotatedWidth}. Must hold
+   *     at least {@code width * height} pixels.
+   */
+  public static void nv21ToArgb(
+      byte[] nv21, int width, int height, int rotationDegrees, int[] argbOut) {
+    nv21ToArgb(nv21, width, height, rotationDegrees, argbOut, 0, height);
+  }
+
+  /**
+   * Converts the source rows in [{@code rowStart}, {@code rowEnd}) of an NV21 frame. Different row
+   * ranges write disjoint output pixels, so they can be converted concurrently.
+   */
+  public static void nv21ToArgb(
+      byte[] nv21,
+      int width,
+      int height,
+      int rotationDegrees,
+      int[] argbOut,
+      int rowStart,
+      int rowEnd) {
+    convertRows(YuvFrame.nv21(nv21, width, height), rotationDegrees, argbOut, rowStart, rowEnd);
+  }
+
+  /**
+   * Converts the source rows in [{@code rowStart}, {@code rowEnd}) of a frame of any layout into
+   * {@code argbOut}, rotated clockwise by {@code rotationDegrees}. Different row ranges write
+   * disjoint output pixels, so they can be converted concurrently.
+   */
+  public static void convertRows(
+      YuvFrame frame, int rotationDegrees, int[] argbOut, int rowStart, int rowEnd) {
+    int width = frame.width;
+    int height = frame.height;
+    if (argbOut.length < width * height) {
+      throw new IllegalArgumentException("Output too small for " + width + "x" + height);
+    }
+
+    // The output index of source pixel (x, y) is start + x * stepX + y * stepY.
+    int start;
+    int stepX;
+    int stepY;
+    switch (normalizeRotation(rotationDegrees)) {
+      case 90:
+        start = height - 1;
+        stepX = height;
+        stepY = -1;
+        break;
+      case 180:
+        start = width * height - 1;
+        stepX = -1;
+        stepY = -width;
+        break;
+      case 270:
+        start = (width - 1) * height;
+        stepX = -height;
+        stepY = 1;
+        break;
+      default:
+        start = 0;
+        stepX = 1;
+        stepY = width;
+    }
+
+    byte[] yData = frame.yData;
+    byte[] uData = frame.uData;
+    byte[] vData = frame.vData;
+    int uPixelStride = frame.uPixelStride;
+    int vPixelStride = frame.vPixelStride;
+    for (int y = rowStart; y < rowEnd; y++) {
+      int yIndex = frame.yOffset + y * frame.yRowStride;
+      int uIndex = frame.uOffset + (y >> 1) * frame.uRowStride;
+      int vIndex = frame.vOffset + (y >> 1) * frame.vRowStride;
+      int outIndex = start + y * stepY;
+      for (int x = 0; x < width; x += 2) {
+        int u = (uData[uIndex] & 0xff) - 128;
+        int v = (vData[vIndex] & 0xff) - 128;
+        uIndex += uPixelStride;
+        vIndex += vPixelStride;
+        int rOffset = V_TO_R * v;
+        int gOffset = -U_TO_G * u - V_TO_G * v;
+        int bOffset = U_TO_B * u;
+
+        argbOut[outIndex] = toArgb(yData[yIndex++] & 0xff, rOffset, gOffset, bOffset);
+        outIndex += stepX;
+        if (x + 1 < width) {
+          argbOut[outIndex] = toArgb(yData[yIndex++] & 0xff, rOffset, gOffset, bOffset);
+          outIndex += stepX;
+        }
+      }
+    }
+  }
+
+  // The chroma terms of a pixel, for chroma values centered on 0. They are shared by the pixels
+  // of a chroma sample, see toArgb.
+
+  static int redOffset(int v) {
+    return V_TO_R * v;
+  }
+
+  static int greenOffset(int u, int v) {
+    return -U_TO_G * u - V_TO_G * v;
+  }
+
+  static int blueOffset(int u) {
+    return U_TO_B * u;
+  }
+
+  static int toArgb(int luma, int rOffset, int gOffset, int bOffset) {
+    int scaledLuma = (luma << FIXED_POINT_SHIFT) + (1 << (FIXED_POINT_SHIFT - 1));
+    int r = CLAMP[((scaledLuma + rOffset) >> FIXED_POINT_SHIFT) + CLAMP_OFFSET];
+    int g = CLAMP[((scaledLuma + gOffset) >> FIXED_POINT_SHIFT) + CLAMP_OFFSET];
+    int b = CLAMP[((scaledLuma + bOffset) >> FIXED_POINT_SHIFT) + CLAMP_OFFSET];
+    return 0xff000000 | (r << 16) | (g << 8) | b;
+  }
+}
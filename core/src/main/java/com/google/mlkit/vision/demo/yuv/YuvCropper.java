@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+/**
+ * Crops a {@link FrameRegion} out of a 4:2:0 frame into an NV21 image, scaling it down by nearest
+ * neighbor sampling if needed. Detectors resize their input anyway, so finer filtering would only
+ * cost time.
+ */
+public final class YuvCropper {
+
+  private YuvCropper() {}
+
+  /** Returns how many bytes the NV21 image of the given region takes. */
+  public static int getNv21Size(FrameRegion region) {
+    return region.getOutputWidth() * region.getOutputHeight() * 3 / 2;
+  }
+
+  /**
+   * Crops the region out of the frame.
+   *
+   * @param nv21Out receives the cropped image, of {@link FrameRegion#getOutputWidth()} by {@link
+   *     FrameRegion#getOutputHeight()} pixels. Must hold at least {@link #getNv21Size} bytes.
+   */
+  public static void cropToNv21(YuvFrame frame, FrameRegion region, byte[] nv21Out) {
+    if (region.getLeft() + region.getWidth() > frame.width
+        || region.getTop() + region.getHeight() > frame.height) {
+      throw new IllegalArgumentException("Region is outside of the frame");
+    }
+    int outWidth = region.getOutputWidth();
+    int outHeight = region.getOutputHeight();
+    if (nv21Out.length < getNv21Size(region)) {
+      throw new IllegalArgumentException("Output needs " + getNv21Size(region) + " bytes");
+    }
+
+    // Luma, with the source column of each output column looked up once.
+    int[] columns = new int[outWidth];
+    for (int x = 0; x < outWidth; x++) {
+      columns[x] = region.getLeft() + (int) ((long) x * region.getWidth() / outWidth);
+    }
+    byte[] yData = frame.yData;
+    int outPos = 0;
+    for (int y = 0; y < outHeight; y++) {
+      int row = region.getTop() + (int) ((long) y * region.getHeight() / outHeight);
+      int rowStart = frame.yOffset + row * frame.yRowStride;
+      if (outWidth == region.getWidth()) {
+        System.arraycopy(yData, rowStart + region.getLeft(), nv21Out, outPos, outWidth);
+        outPos += outWidth;
+      } else {
+        for (int x = 0; x < outWidth; x++) {
+          nv21Out[outPos++] = yData[rowStart + columns[x]];
+        }
+      }
+    }
+
+    // Chroma, one V and U pair for every 2x2 block of output pixels.
+    int chromaWidth = outWidth / 2;
+    int chromaHeight = outHeight / 2;
+    for (int y = 0; y < chromaHeight; y++) {
+      int row = (region.getTop() + (int) ((long) 2 * y * region.getHeight() / outHeight)) / 2;
+      int uRowStart = frame.uOffset + row * frame.uRowStride;
+      int vRowStart = frame.vOffset + row * frame.vRowStride;
+      for (int x = 0; x < chromaWidth; x++) {
+        int column = columns[2 * x] / 2;
+        nv21Out[outPos++] = frame.vData[vRowStart + column * frame.vPixelStride];
+        nv21Out[outPos++] = frame.uData[uRowStart + column * frame.uPixelStride];
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+/**
+ * Describes where the Y, U and V samples of a 4:2:0 frame are, so that NV21, NV12, I420 and
+ * YUV_420_888 frames can all be converted by the same code.
+ *
+ * <p>The sample of a plane for position (x, y) in that plane is at {@code data[offset + y *
+ * rowStride + x * pixelStride]}, with luma always having a pixel stride of 1. The planes may share
+ * the same array.
+ */
+public final class YuvFrame {
+  final int width;
+  final int height;
+  final byte[] yData;
+  final int yOffset;
+  final int yRowStride;
+  final byte[] uData;
+  final int uOffset;
+  final int uRowStride;
+  final int uPixelStride;
+  final byte[] vData;
+  final int vOffset;
+  final int vRowStride;
+  final int vPixelStride;
+
+  private YuvFrame(
+      int width,
+      int height,
+      byte[] yData,
+      int yOffset,
+      int yRowStride,
+      byte[] uData,
+      int uOffset,
+      int uRowStride,
+      int uPixelStride,
+      byte[] vData,
+      int vOffset,
+      int vRowStride,
+      int vPixelStride) {
+    this.width = width;
+    this.height = height;
+    this.yData = yData;
+    this.yOffset = yOffset;
+    this.yRowStride = yRowStride;
+    this.uData = uData;
+    this.uOffset = uOffset;
+    this.uRowStride = uRowStride;
+    this.uPixelStride = uPixelStride;
+    this.vData = vData;
+    this.vOffset = vOffset;
+    this.vRowStride = vRowStride;
+    this.vPixelStride = vPixelStride;
+    checkPlane("Y", yData, yOffset, yRowStride, 1, width, height);
+    checkPlane("U", uData, uOffset, uRowStride, uPixelStride, (width + 1) / 2, (height + 1) / 2);
+    checkPlane("V", vData, vOffset, vRowStride, vPixelStride, (width + 1) / 2, (height + 1) / 2);
+  }
+
+  /** A frame with a Y plane followed by interleaved V and U samples, as from Camera1. */
+  public static YuvFrame nv21(byte[] data, int width, int height) {
+    int chromaRowStride = ((width + 1) / 2) * 2;
+    int chromaStart = width * height;
+    return new YuvFrame(
+        width, height, data, 0, width, data, chromaStart + 1, chromaRowStride, 2, data,
+        chromaStart, chromaRowStride, 2);
+  }
+
+  /** A frame with a Y plane followed by interleaved U and V samples, as from video decoders. */
+  public static YuvFrame nv12(byte[] data, int width, int height) {
+    int chromaRowStride = ((width + 1) / 2) * 2;
+    int chromaStart = width * height;
+    return new YuvFrame(
+        width, height, data, 0, width, data, chromaStart, chromaRowStride, 2, data,
+        chromaStart + 1, chromaRowStride, 2);
+  }
+
+  /** A frame with a Y plane followed by a U plane and a V plane. */
+  public static YuvFrame i420(byte[] data, int width, int height) {
+    int chromaRowStride = (width + 1) / 2;
+    int chromaPlaneSize = chromaRowStride * ((height + 1) / 2);
+    int chromaStart = width * height;
+    return new YuvFrame(
+        width, height, data, 0, width, data, chromaStart, chromaRowStride, 1, data,
+        chromaStart + chromaPlaneSize, chromaRowStride, 1);
+  }
+
+  /**
+   * A frame with arbitrary plane layouts, such as the planes of a YUV_420_888 image copied into
+   * arrays.
+   */
+  public static YuvFrame planar(
+      int width,
+      int height,
+      byte[] yData,
+      int yRowStride,
+      byte[] uData,
+      int uRowStride,
+      int uPixelStride,
+      byte[] vData,
+      int vRowStride,
+      int vPixelStride) {
+    return new YuvFrame(
+        width, height, yData, 0, yRowStride, uData, 0, uRowStride, uPixelStride, vData, 0,
+        vRowStride, vPixelStride);
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  private static void checkPlane(
+      String name,
+      byte[] data,
+      int offset,
+      int rowStride,
+      int pixelStride,
+      int planeWidth,
+      int planeHeight) {
+    long lastIndex =
+        offset + (long) (planeHeight - 1) * rowStride + (long) (planeWidth - 1) * pixelStride;
+    if (offset < 0 || pixelStride < 1 || rowStride < planeWidth * pixelStride - pixelStride + 1) {
+      throw new IllegalArgumentException("Invalid layout for " + name + " plane");
+    }
+    if (lastIndex >= data.length) {
+      throw new IllegalArgumentException(
+          name + " plane needs " + (lastIndex + 1) + " bytes but has " + data.length);
+    }
+  }
+}
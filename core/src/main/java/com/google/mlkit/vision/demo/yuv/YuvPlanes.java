@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+import java.nio.ByteBuffer;
+
+/** Copies the planes of YUV_420_888 images into packed arrays. */
+public final class YuvPlanes {
+
+  private YuvPlanes() {}
+
+  /**
+   * Unpacks an image plane into a byte array.
+   *
+   * <p>The plane data will be copied in {@code out}, starting at {@code offset} and every pixel
+   * will be spaced by {@code outputPixelStride}. Note that there is no row padding on the output.
+   * The size of the plane is derived from the buffer size, assuming it has the aspect ratio of the
+   * image.
+   *
+   * <p>Rows are copied with bulk gets: straight into {@code out} when neither side is strided, and
+   * through {@code rowScratch} otherwise. The buffer is left rewound.
+   *
+   * @param rowScratch scratch space of at least {@code rowStride} bytes, only used for strided
+   *     planes
+   */
+  public static void unpackPlane(
+      ByteBuffer buffer,
+      int rowStride,
+      int inputPixelStride,
+      int width,
+      int height,
+      byte[] out,
+      int offset,
+      int outputPixelStride,
+      byte[] rowScratch) {
+    buffer.rewind();
+    int numRow = (buffer.limit() + rowStride - 1) / rowStride;
+    if (numRow == 0) {
+      return;
+    }
+    int scaleFactor = height / numRow;
+    int numCol = width / scaleFactor;
+    if (numCol == 0) {
+      return;
+    }
+
+    int outputPos = offset;
+    if (inputPixelStride == 1 && outputPixelStride == 1) {
+      for (int row = 0; row < numRow; row++) {
+        buffer.position(row * rowStride);
+        buffer.get(out, outputPos, numCol);
+        outputPos += numCol;
+      }
+    } else {
+      // The last row may not be padded up to the row stride, so only read up to its last pixel.
+      int rowLength = (numCol - 1) * inputPixelStride + 1;
+      for (int row = 0; row < numRow; row++) {
+        buffer.position(row * rowStride);
+        buffer.get(rowScratch, 0, rowLength);
+        for (int inputPos = 0; inputPos < rowLength; inputPos += inputPixelStride) {
+          out[outputPos] = rowScratch[inputPos];
+          outputPos += outputPixelStride;
+        }
+      }
+    }
+    buffer.rewind();
+  }
+}
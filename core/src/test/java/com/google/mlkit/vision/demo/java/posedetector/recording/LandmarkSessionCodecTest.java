@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.java.posedetector.recording;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Round trips landmark sessions through {@link LandmarkSessionWriter} and the reader. */
+@RunWith(JUnit4.class)
+public class LandmarkSessionCodecTest {
+  private static final int NUM_POSITIONS = LandmarkFrame.NUM_LANDMARKS * LandmarkFrame.NUM_DIMS;
+
+  // Half a quantization step, plus slack for the float arithmetic.
+  private static final float POSITION_TOLERANCE = 0.5f / 16f + 1e-4f;
+  private static final float LIKELIHOOD_TOLERANCE = 0.5f / 255f + 1e-6f;
+
+  @Test
+  public void roundTrip_keyframesAndDeltas() throws IOException {
+    List<LandmarkFrame> frames = randomWalk(new Random(1), 100, 1000L);
+
+    assertFramesEqual(frames, roundTrip(frames, 7));
+  }
+
+  @Test
+  public void roundTrip_emptyFrames() throws IOException {
+    Random random = new Random(2);
+    List<LandmarkFrame> frames = new ArrayList<>(randomWalk(random, 10, 1000L));
+    frames.add(LandmarkFrame.empty(1330L));
+    frames.add(LandmarkFrame.empty(1363L));
+    // The pose after an empty frame has nothing to be diffed against.
+    frames.addAll(randomWalk(random, 10, 1396L));
+    frames.add(0, LandmarkFrame.empty(966L));
+
+    List<LandmarkFrame> decoded = roundTrip(frames, 30);
+
+    assertFramesEqual(frames, decoded);
+    assertTrue(decoded.get(0).isEmpty());
+    assertTrue(decoded.get(11).isEmpty());
+    assertTrue(decoded.get(12).isEmpty());
+  }
+
+  @Test
+  public void roundTrip_timestampsGoingBackwards() throws IOException {
+    Random random = new Random(3);
+    List<LandmarkFrame> frames = new ArrayList<>(randomWalk(random, 3, 1000L));
+    frames.addAll(randomWalk(random, 3, 900L));
+    frames.addAll(randomWalk(random, 3, 2000L));
+    frames.addAll(randomWalk(random, 3, 0L));
+
+    assertFramesEqual(frames, roundTrip(frames, 30));
+  }
+
+  @Test
+  public void roundTrip_quantizesWithinHalfAStep() throws IOException {
+    float[] positions = new float[NUM_POSITIONS];
+    float[] likelihoods = new float[LandmarkFrame.NUM_LANDMARKS];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = -1000f + i * 37.0123f;
+    }
+    for (int i = 0; i < likelihoods.length; i++) {
+      likelihoods[i] = i / (likelihoods.length - 1f);
+    }
+    List<LandmarkFrame> frames = Arrays.asList(new LandmarkFrame(0L, positions, likelihoods));
+
+    assertFramesEqual(frames, roundTrip(frames, 1));
+  }
+
+  @Test
+  public void read_truncatedTailLosesOnlyTheLastFrame() throws IOException {
+    List<LandmarkFrame> frames = randomWalk(new Random(4), 5, 1000L);
+    byte[] encoded = encode(frames, 30);
+
+    LandmarkSessionReader reader =
+        new LandmarkSessionReader(
+            new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 1)));
+    List<LandmarkFrame> decoded = readAll(reader);
+
+    assertFramesEqual(frames.subList(0, frames.size() - 1), decoded);
+  }
+
+  @Test
+  public void read_keepsKeyframeInterval() throws IOException {
+    byte[] encoded = encode(new ArrayList<LandmarkFrame>(), 12);
+
+    LandmarkSessionReader reader = new LandmarkSessionReader(new ByteArrayInputStream(encoded));
+
+    assertEquals(12, reader.getKeyframeInterval());
+    assertNull(reader.read());
+  }
+
+  @Test
+  public void read_rejectsOtherFiles() {
+    byte[] notASession = "pose,label\n".getBytes();
+    try {
+      new LandmarkSessionReader(new ByteArrayInputStream(notASession));
+      fail("Expected an IOException");
+    } catch (IOException expected) {
+      // Expected.
+    }
+  }
+
+  /** Frames 33ms apart of landmarks that move a few pixels per frame, like a person at 30fps. */
+  private static List<LandmarkFrame> randomWalk(Random random, int count, long startMs) {
+    List<LandmarkFrame> frames = new ArrayList<>();
+    float[] positions = new float[NUM_POSITIONS];
+    float[] likelihoods = new float[LandmarkFrame.NUM_LANDMARKS];
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = random.nextFloat() * 800f - 100f;
+    }
+    for (int i = 0; i < count; i++) {
+      for (int j = 0; j < positions.length; j++) {
+        positions[j] += (float) random.nextGaussian() * 3f;
+      }
+      for (int j = 0; j < likelihoods.length; j++) {
+        likelihoods[j] = random.nextFloat();
+      }
+      frames.add(new LandmarkFrame(startMs + 33L * i, positions.clone(), likelihoods.clone()));
+    }
+    return frames;
+  }
+
+  private static byte[] encode(List<LandmarkFrame> frames, int keyframeInterval)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (LandmarkSessionWriter writer = new LandmarkSessionWriter(bytes, keyframeInterval)) {
+      for (LandmarkFrame frame : frames) {
+        writer.write(frame);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<LandmarkFrame> roundTrip(List<LandmarkFrame> frames, int keyframeInterval)
+      throws IOException {
+    byte[] encoded = encode(frames, keyframeInterval);
+    return readAll(new LandmarkSessionReader(new ByteArrayInputStream(encoded)));
+  }
+
+  private static List<LandmarkFrame> readAll(LandmarkSessionReader reader) throws IOException {
+    List<LandmarkFrame> frames = new ArrayList<>();
+    try {
+      LandmarkFrame frame = reader.read();
+      while (frame != null) {
+        frames.add(frame);
+        frame = reader.read();
+      }
+    } finally {
+      reader.close();
+    }
+    return frames;
+  }
+
+  private static void assertFramesEqual(List<LandmarkFrame> expected, List<LandmarkFrame> actual) {
+    assertEquals("frame count", expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      LandmarkFrame want = expected.get(i);
+      LandmarkFrame got = actual.get(i);
+      String frame = "frame " + i;
+      assertEquals(frame + " timestamp", want.getTimestampMs(), got.getTimestampMs());
+      assertEquals(frame + " empty", want.isEmpty(), got.isEmpty());
+      if (want.isEmpty()) {
+        continue;
+      }
+      for (int landmark = 0; landmark < LandmarkFrame.NUM_LANDMARKS; landmark++) {
+        String where = frame + " landmark " + landmark;
+        assertEquals(where + " x", want.getX(landmark), got.getX(landmark), POSITION_TOLERANCE);
+        assertEquals(where + " y", want.getY(landmark), got.getY(landmark), POSITION_TOLERANCE);
+        assertEquals(where + " z", want.getZ(landmark), got.getZ(landmark), POSITION_TOLERANCE);
+        assertEquals(
+            where + " likelihood",
+            want.getInFrameLikelihood(landmark),
+            got.getInFrameLikelihood(landmark),
+            LIKELIHOOD_TOLERANCE);
+      }
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Checks {@link ParallelYuvConverter} against reference outputs: full size conversions must match
+ * {@link YuvConverter} for every rotation and plane layout, point sampled ones must match point
+ * sampling of the full size reference, and area sampled ones must match a direct average over the
+ * covered samples.
+ */
+@RunWith(JUnit4.class)
+public class ParallelYuvConverterTest {
+  private static final int[][] SIZES = {{64, 48}, {37, 21}, {2, 2}};
+
+  private ParallelYuvConverter converter;
+
+  @Before
+  public void setUp() {
+    converter = new ParallelYuvConverter(3);
+  }
+
+  @After
+  public void tearDown() {
+    converter.close();
+  }
+
+  @Test
+  public void convert_fullSize_matchesYuvConverterForEveryLayout() {
+    Random random = new Random(42);
+    for (int[] size : SIZES) {
+      Planes planes = Planes.random(random, size[0], size[1]);
+      YuvFrame[] layouts = {
+        YuvFrame.nv21(interleave(planes.y, planes.v, planes.u), planes.width, planes.height),
+        YuvFrame.nv12(interleave(planes.y, planes.u, planes.v), planes.width, planes.height),
+        YuvFrame.i420(concat(planes.y, planes.u, planes.v), planes.width, planes.height),
+        paddedPlanar(planes)
+      };
+      for (int rotation = 0; rotation < 360; rotation += 90) {
+        int[] expected = fullSizeReference(planes, rotation);
+        for (YuvFrame layout : layouts) {
+          int[] actual = new int[planes.width * planes.height];
+          converter.convert(layout, rotation, actual);
+          assertArrayEquals(describe("full size", planes, rotation), expected, actual);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void convert_pointSampling_matchesSampledReference() {
+    Random random = new Random(42);
+    for (int[] size : SIZES) {
+      Planes planes = Planes.random(random, size[0], size[1]);
+      YuvFrame frame = paddedPlanar(planes);
+      for (int rotation = 0; rotation < 360; rotation += 90) {
+        int rotatedWidth = YuvConverter.getRotatedWidth(planes.width, planes.height, rotation);
+        int rotatedHeight = YuvConverter.getRotatedHeight(planes.width, planes.height, rotation);
+        int[] fullSize = fullSizeReference(planes, rotation);
+        for (int outHeight = 1; outHeight <= rotatedHeight; outHeight += 7) {
+          int outWidth = Math.max(1, rotatedWidth * outHeight / rotatedHeight);
+          int[] expected = new int[outWidth * outHeight];
+          for (int outY = 0; outY < outHeight; outY++) {
+            for (int outX = 0; outX < outWidth; outX++) {
+              int sourceX = (2 * outX + 1) * rotatedWidth / (2 * outWidth);
+              int sourceY = (2 * outY + 1) * rotatedHeight / (2 * outHeight);
+              expected[outY * outWidth + outX] = fullSize[sourceY * rotatedWidth + sourceX];
+            }
+          }
+          int[] actual = new int[outWidth * outHeight];
+          converter.convert(
+              frame, rotation, outWidth, outHeight, ParallelYuvConverter.Sampling.POINT, actual);
+          assertArrayEquals(
+              describe("point " + outWidth + "x" + outHeight, planes, rotation), expected, actual);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void convert_areaSampling_matchesAveragedReference() {
+    Random random = new Random(42);
+    for (int[] size : SIZES) {
+      Planes planes = Planes.random(random, size[0], size[1]);
+      YuvFrame frame = paddedPlanar(planes);
+      for (int rotation = 0; rotation < 360; rotation += 90) {
+        int rotatedWidth = YuvConverter.getRotatedWidth(planes.width, planes.height, rotation);
+        int rotatedHeight = YuvConverter.getRotatedHeight(planes.width, planes.height, rotation);
+        for (int outHeight = 1; outHeight <= rotatedHeight; outHeight += 7) {
+          int outWidth = Math.max(1, rotatedWidth * outHeight / rotatedHeight);
+          int[] expected = areaReference(planes, rotation, outWidth, outHeight);
+          int[] actual = new int[outWidth * outHeight];
+          converter.convert(
+              frame, rotation, outWidth, outHeight, ParallelYuvConverter.Sampling.AREA, actual);
+          assertArrayEquals(
+              describe("area " + outWidth + "x" + outHeight, planes, rotation), expected, actual);
+        }
+      }
+    }
+  }
+
+  /** Random Y, U and V planes of a 4:2:0 frame, each without padding. */
+  private static class Planes {
+    final byte[] y;
+    final byte[] u;
+    final byte[] v;
+    final int width;
+    final int height;
+
+    private Planes(byte[] y, byte[] u, byte[] v, int width, int height) {
+      this.y = y;
+      this.u = u;
+      this.v = v;
+      this.width = width;
+      this.height = height;
+    }
+
+    static Planes random(Random random, int width, int height) {
+      int chromaSize = ((width + 1) / 2) * ((height + 1) / 2);
+      byte[] y = new byte[width * height];
+      byte[] u = new byte[chromaSize];
+      byte[] v = new byte[chromaSize];
+      random.nextBytes(y);
+      random.nextBytes(u);
+      random.nextBytes(v);
+      return new Planes(y, u, v, width, height);
+    }
+  }
+
+  private static int[] fullSizeReference(Planes planes, int rotation) {
+    int[] argb = new int[planes.width * planes.height];
+    YuvConverter.nv21ToArgb(
+        interleave(planes.y, planes.v, planes.u), planes.width, planes.height, rotation, argb);
+    return argb;
+  }
+
+  /**
+   * Averages the luma samples of the source pixels under each output pixel, and the chroma samples
+   * those pixels use, the slow way.
+   */
+  private static int[] areaReference(Planes planes, int rotation, int outWidth, int outHeight) {
+    int width = planes.width;
+    int height = planes.height;
+    int rotatedWidth = YuvConverter.getRotatedWidth(width, height, rotation);
+    int rotatedHeight = YuvConverter.getRotatedHeight(width, height, rotation);
+    int chromaWidth = (width + 1) / 2;
+    int[] argb = new int[outWidth * outHeight];
+    for (int outY = 0; outY < outHeight; outY++) {
+      for (int outX = 0; outX < outWidth; outX++) {
+        int lumaSum = 0;
+        int lumaCount = 0;
+        Set<Integer> chromaSamples = new HashSet<>();
+        for (int ry = outY * rotatedHeight / outHeight;
+            ry < (outY + 1) * rotatedHeight / outHeight;
+            ry++) {
+          for (int rx = outX * rotatedWidth / outWidth;
+              rx < (outX + 1) * rotatedWidth / outWidth;
+              rx++) {
+            int sourceX;
+            int sourceY;
+            switch (rotation) {
+              case 90:
+                sourceX = ry;
+                sourceY = height - 1 - rx;
+                break;
+              case 180:
+                sourceX = width - 1 - rx;
+                sourceY = height - 1 - ry;
+                break;
+              case 270:
+                sourceX = width - 1 - ry;
+                sourceY = rx;
+                break;
+              default:
+                sourceX = rx;
+                sourceY = ry;
+            }
+            lumaSum += planes.y[sourceY * width + sourceX] & 0xff;
+            lumaCount++;
+            chromaSamples.add((sourceY / 2) * chromaWidth + sourceX / 2);
+          }
+        }
+        int uSum = 0;
+        int vSum = 0;
+        for (int chroma : chromaSamples) {
+          uSum += planes.u[chroma] & 0xff;
+          vSum += planes.v[chroma] & 0xff;
+        }
+        int chromaCount = chromaSamples.size();
+        int uAverage = (uSum + chromaCount / 2) / chromaCount - 128;
+        int vAverage = (vSum + chromaCount / 2) / chromaCount - 128;
+        argb[outY * outWidth + outX] =
+            YuvConverter.toArgb(
+                (lumaSum + lumaCount / 2) / lumaCount,
+                YuvConverter.redOffset(vAverage),
+                YuvConverter.greenOffset(uAverage, vAverage),
+                YuvConverter.blueOffset(uAverage));
+      }
+    }
+    return argb;
+  }
+
+  private static String describe(String what, Planes planes, int rotation) {
+    return String.format(
+        "%s conversion of %dx%d at %d degrees", what, planes.width, planes.height, rotation);
+  }
+
+  private static byte[] interleave(byte[] y, byte[] first, byte[] second) {
+    byte[] data = new byte[y.length + 2 * first.length];
+    System.arraycopy(y, 0, data, 0, y.length);
+    for (int i = 0; i < first.length; i++) {
+      data[y.length + 2 * i] = first[i];
+      data[y.length + 2 * i + 1] = second[i];
+    }
+    return data;
+  }
+
+  private static byte[] concat(byte[] y, byte[] u, byte[] v) {
+    byte[] data = new byte[y.length + u.length + v.length];
+    System.arraycopy(y, 0, data, 0, y.length);
+    System.arraycopy(u, 0, data, y.length, u.length);
+    System.arraycopy(v, 0, data, y.length + u.length, v.length);
+    return data;
+  }
+
+  /** Lays the planes out like a YUV_420_888 image with padded rows and interleaved chroma. */
+  private static YuvFrame paddedPlanar(Planes planes) {
+    int width = planes.width;
+    int height = planes.height;
+    int chromaWidth = (width + 1) / 2;
+    int chromaHeight = (height + 1) / 2;
+    int yRowStride = width + 16;
+    int chromaRowStride = 2 * chromaWidth + 16;
+    byte[] yData = new byte[yRowStride * height];
+    for (int row = 0; row < height; row++) {
+      System.arraycopy(planes.y, row * width, yData, row * yRowStride, width);
+    }
+    byte[] uData = new byte[chromaRowStride * chromaHeight];
+    byte[] vData = new byte[chromaRowStride * chromaHeight];
+    for (int row = 0; row < chromaHeight; row++) {
+      for (int col = 0; col < chromaWidth; col++) {
+        uData[row * chromaRowStride + 2 * col] = planes.u[row * chromaWidth + col];
+        vData[row * chromaRowStride + 2 * col] = planes.v[row * chromaWidth + col];
+      }
+    }
+    return YuvFrame.planar(
+        width, height, yData, yRowStride, uData, chromaRowStride, 2, vData, chromaRowStride, 2);
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Google LLC. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.mlkit.vision.demo.yuv;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Checks {@link YuvPlanes#unpackPlane} against the byte by byte copy it replaced. */
+@RunWith(JUnit4.class)
+public class YuvPlanesTest {
+
+  @Test
+  public void unpackPlane_matchesLegacyUnpacking() {
+    Random random = new Random(42);
+    int[][] sizes = {{640, 480}, {320, 240}, {17, 9}, {2, 2}};
+    for (int[] size : sizes) {
+      for (int planeScale = 1; planeScale <= 2; planeScale++) {
+        int planeWidth = size[0] / planeScale;
+        int planeHeight = size[1] / planeScale;
+        for (int inputPixelStride = 1; inputPixelStride <= 3; inputPixelStride++) {
+          for (int padding : new int[] {0, 1, 7, 64}) {
+            for (boolean direct : new boolean[] {false, true}) {
+              for (int outputPixelStride = 1; outputPixelStride <= 2; outputPixelStride++) {
+                int stride = planeWidth * inputPixelStride + padding;
+                ByteBuffer buffer =
+                    createPlane(random, planeWidth, planeHeight, stride, inputPixelStride, direct);
+                byte[] expected = new byte[2 * size[0] * size[1] + 1];
+                byte[] actual = new byte[expected.length];
+                legacyUnpackPlane(
+                    buffer, stride, inputPixelStride, size[0], size[1], expected, 1,
+                    outputPixelStride);
+                YuvPlanes.unpackPlane(
+                    buffer, stride, inputPixelStride, size[0], size[1], actual, 1,
+                    outputPixelStride, new byte[stride]);
+                assertArrayEquals(
+                    String.format(
+                        "%dx%d plane, row stride %d, pixel stride %d -> %d%s",
+                        planeWidth, planeHeight, stride, inputPixelStride, outputPixelStride,
+                        direct ? ", direct" : ""),
+                    expected,
+                    actual);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a plane with random content. Like camera planes, the last row is only as long as its
+   * last pixel.
+   */
+  private static ByteBuffer createPlane(
+      Random random, int width, int height, int rowStride, int pixelStride, boolean direct) {
+    int size = (height - 1) * rowStride + (width - 1) * pixelStride + 1;
+    byte[] bytes = new byte[size];
+    random.nextBytes(bytes);
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    buffer.put(bytes);
+    buffer.rewind();
+    return buffer;
+  }
+
+  /** The byte by byte unpacking that BitmapUtils used before {@link YuvPlanes#unpackPlane}. */
+  private static void legacyUnpackPlane(
+      ByteBuffer buffer,
+      int rowStride,
+      int inputPixelStride,
+      int width,
+      int height,
+      byte[] out,
+      int offset,
+      int pixelStride) {
+    buffer.rewind();
+    int numRow = (buffer.limit() + rowStride - 1) / rowStride;
+    if (numRow == 0) {
+      return;
+    }
+    int scaleFactor = height / numRow;
+    int numCol = width / scaleFactor;
+
+    int outputPos = offset;
+    int rowStart = 0;
+    for (int row = 0; row < numRow; row++) {
+      int inputPos = rowStart;
+      for (int col = 0; col < numCol; col++) {
+        out[outputPos] = buffer.get(inputPos);
+        outputPos += pixelStride;
+        inputPos += inputPixelStride;
+      }
+      rowStart += rowStride;
+    }
+  }
+}